@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.extensions.pull.notification;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.common.pull.notification.PullNotificationExecutionFailedException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decouples the handling of device responses from the request threads of the devices. Responses are partitioned by
+ * device over the workers, each of which takes the responses from its own bounded queue in batches and handles them
+ * within the flow of the tenant that received them. Hence the responses of a device are handled one at a time, in
+ * the order they are received. When the queue of a worker is full, the request thread waits for space in the queue,
+ * which throttles the devices instead of growing the queue without a limit.
+ */
+class PullNotificationIngestionQueue {
+
+    private static final Log log = LogFactory.getLog(PullNotificationIngestionQueue.class);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private final PullNotificationHandler handler;
+    private final int batchSize;
+    private final List<BlockingQueue<PullNotification>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param handler     handles a device response within the flow of its tenant.
+     * @param workerCount number of workers handling responses at the same time.
+     * @param queueSize   maximum number of responses waiting to be handled, shared equally by the workers.
+     * @param batchSize   maximum number of responses a worker takes from its queue at once.
+     */
+    PullNotificationIngestionQueue(PullNotificationHandler handler, int workerCount, int queueSize, int batchSize) {
+        this.handler = handler;
+        this.batchSize = batchSize;
+        int partitionSize = Math.max(1, queueSize / workerCount);
+        for (int i = 1; i <= workerCount; i++) {
+            BlockingQueue<PullNotification> queue = new ArrayBlockingQueue<>(partitionSize);
+            Thread worker = new Thread(new Worker(queue), "pull-notification-ingestion-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            queues.add(queue);
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Queues a device response to be handled within the flow of the current tenant, after the responses of the same
+     * device which are already queued. Once the queue is shut down, the response is handled by the calling thread.
+     *
+     * @param deviceIdentifier device that sent the response.
+     * @param operation        operation carrying the response.
+     * @throws PullNotificationExecutionFailedException if the response is handled by the calling thread and handling
+     *                                                  it fails, or if the calling thread is interrupted.
+     */
+    void submit(DeviceIdentifier deviceIdentifier, Operation operation)
+            throws PullNotificationExecutionFailedException {
+        PullNotification notification = new PullNotification(
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(), deviceIdentifier, operation);
+        int partition = getPartition(notification);
+        BlockingQueue<PullNotification> queue = queues.get(partition);
+        try {
+            while (running) {
+                if (queue.offer(notification, 1, TimeUnit.SECONDS)) {
+                    return;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Ingestion queue is full, hence waiting to queue the response of operation " +
+                            operation.getId() + " from device '" + deviceIdentifier.getId() + "'");
+                }
+            }
+            // Shut down, so the queued responses, which may include earlier responses of this device, are handled
+            // before this one.
+            workers.get(partition).join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PullNotificationExecutionFailedException("Interrupted while queuing the response of operation " +
+                    operation.getId() + " from device '" + deviceIdentifier.getId() + "'", e);
+        }
+        handler.handle(deviceIdentifier, operation);
+    }
+
+    /**
+     * @return number of device responses waiting to be handled.
+     */
+    int getQueueDepth() {
+        int queueDepth = 0;
+        for (BlockingQueue<PullNotification> queue : queues) {
+            queueDepth += queue.size();
+        }
+        return queueDepth;
+    }
+
+    /**
+     * Stops accepting device responses, and stops the workers once the responses in the queues are handled. Responses
+     * which are not handled within the shutdown timeout are dropped.
+     */
+    void shutdown() {
+        // The workers are not interrupted, so that the response being handled is not cut short. They see the flag
+        // within a poll timeout once their queues are empty.
+        running = false;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        try {
+            for (Thread worker : workers) {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int droppedCount = 0;
+        for (BlockingQueue<PullNotification> queue : queues) {
+            droppedCount += queue.size();
+            queue.clear();
+        }
+        if (droppedCount > 0) {
+            log.warn(droppedCount + " device responses are dropped as they were not handled before the pull " +
+                    "notification subscriber is cleaned.");
+        }
+    }
+
+    private int getPartition(PullNotification notification) {
+        DeviceIdentifier deviceIdentifier = notification.deviceIdentifier;
+        int hash = 31 * notification.tenantId + (deviceIdentifier.getType() != null ?
+                deviceIdentifier.getType().hashCode() : 0);
+        hash = 31 * hash + (deviceIdentifier.getId() != null ? deviceIdentifier.getId().hashCode() : 0);
+        return (hash & Integer.MAX_VALUE) % queues.size();
+    }
+
+    private void handleBatch(List<PullNotification> notifications) {
+        // Responses of a tenant are handled together, so that a tenant flow is started once per tenant and batch.
+        Map<Integer, List<PullNotification>> tenantNotifications = new LinkedHashMap<>();
+        for (PullNotification notification : notifications) {
+            List<PullNotification> list = tenantNotifications.get(notification.tenantId);
+            if (list == null) {
+                list = new ArrayList<>();
+                tenantNotifications.put(notification.tenantId, list);
+            }
+            list.add(notification);
+        }
+        for (Map.Entry<Integer, List<PullNotification>> entry : tenantNotifications.entrySet()) {
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(entry.getKey(), true);
+                for (PullNotification notification : entry.getValue()) {
+                    try {
+                        handler.handle(notification.deviceIdentifier, notification.operation);
+                    } catch (PullNotificationExecutionFailedException | RuntimeException e) {
+                        log.error("Error occurred while handling the response of operation " +
+                                notification.operation.getId() + " from " + notification.deviceIdentifier.getType() +
+                                " device '" + notification.deviceIdentifier.getId() + "'", e);
+                    }
+                }
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Handled a batch of " + notifications.size() + " device responses. Queue depth: " +
+                    getQueueDepth());
+        }
+    }
+
+    /**
+     * Handles a device response within the flow of the tenant of the device.
+     */
+    interface PullNotificationHandler {
+
+        void handle(DeviceIdentifier deviceIdentifier, Operation operation)
+                throws PullNotificationExecutionFailedException;
+    }
+
+    private static class PullNotification {
+        private final int tenantId;
+        private final DeviceIdentifier deviceIdentifier;
+        private final Operation operation;
+
+        private PullNotification(int tenantId, DeviceIdentifier deviceIdentifier, Operation operation) {
+            this.tenantId = tenantId;
+            this.deviceIdentifier = deviceIdentifier;
+            this.operation = operation;
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        private final BlockingQueue<PullNotification> queue;
+
+        private Worker(BlockingQueue<PullNotification> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            List<PullNotification> notifications = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    PullNotification notification = queue.poll(1, TimeUnit.SECONDS);
+                    if (notification == null) {
+                        continue;
+                    }
+                    notifications.add(notification);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                queue.drainTo(notifications, batchSize - 1);
+                handleBatch(notifications);
+                notifications.clear();
+            }
+        }
+    }
+}
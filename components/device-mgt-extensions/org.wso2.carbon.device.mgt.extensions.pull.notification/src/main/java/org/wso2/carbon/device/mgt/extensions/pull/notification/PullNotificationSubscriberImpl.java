@@ -19,9 +19,8 @@
 package org.wso2.carbon.device.mgt.extensions.pull.notification;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
@@ -33,7 +32,7 @@ import org.wso2.carbon.device.mgt.common.pull.notification.PullNotificationExecu
 import org.wso2.carbon.device.mgt.common.pull.notification.PullNotificationSubscriber;
 import org.wso2.carbon.device.mgt.extensions.pull.notification.internal.PullNotificationDataHolder;
 
-import java.util.ArrayList;
+import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 
@@ -48,18 +47,62 @@ public class PullNotificationSubscriberImpl implements PullNotificationSubscribe
 
 
     private static final Log log = LogFactory.getLog(PullNotificationSubscriberImpl.class);
+    private static final String ASYNC_INGESTION_ENABLED = "asyncIngestionEnabled";
+    private static final String INGESTION_WORKER_COUNT = "ingestionWorkerCount";
+    private static final String INGESTION_QUEUE_SIZE = "ingestionQueueSize";
+    private static final String INGESTION_BATCH_SIZE = "ingestionBatchSize";
+    private static final int DEFAULT_INGESTION_WORKER_COUNT = 4;
+    private static final int DEFAULT_INGESTION_QUEUE_SIZE = 10000;
+    private static final int DEFAULT_INGESTION_BATCH_SIZE = 100;
+    private static final Gson gson = new Gson();
+    private static final Type COMPLIANCE_FEATURE_LIST_TYPE = new TypeToken<List<ComplianceFeature>>() {
+    }.getType();
+    private volatile PullNotificationIngestionQueue ingestionQueue;
 
+    /**
+     * When the property asyncIngestionEnabled is set, device responses are acknowledged as soon as they are queued
+     * and handled by background workers, in which case failures of handling them are logged instead of being thrown.
+     */
     public void init(Map<String, String> properties) {
-
+        if (properties != null && Boolean.parseBoolean(properties.get(ASYNC_INGESTION_ENABLED))) {
+            ingestionQueue = new PullNotificationIngestionQueue(new PullNotificationIngestionQueue
+                    .PullNotificationHandler() {
+                @Override
+                public void handle(DeviceIdentifier deviceIdentifier, Operation operation)
+                        throws PullNotificationExecutionFailedException {
+                    handleOperation(deviceIdentifier, operation);
+                }
+            }, getIntProperty(properties, INGESTION_WORKER_COUNT, DEFAULT_INGESTION_WORKER_COUNT),
+                    getIntProperty(properties, INGESTION_QUEUE_SIZE, DEFAULT_INGESTION_QUEUE_SIZE),
+                    getIntProperty(properties, INGESTION_BATCH_SIZE, DEFAULT_INGESTION_BATCH_SIZE));
+        }
     }
 
     @Override
     public void execute(DeviceIdentifier deviceIdentifier, Operation operation) throws PullNotificationExecutionFailedException {
+        PullNotificationIngestionQueue queue = ingestionQueue;
+        if (queue != null) {
+            queue.submit(deviceIdentifier, operation);
+        } else {
+            handleOperation(deviceIdentifier, operation);
+        }
+    }
+
+    public void clean() {
+        PullNotificationIngestionQueue queue = ingestionQueue;
+        if (queue != null) {
+            ingestionQueue = null;
+            queue.shutdown();
+        }
+    }
+
+    private static void handleOperation(DeviceIdentifier deviceIdentifier, Operation operation)
+            throws PullNotificationExecutionFailedException {
         try {
             if (!Operation.Status.ERROR.equals(operation.getStatus()) && operation.getCode() != null &&
             OperationCodes.POLICY_MONITOR.equals(operation.getCode())) {
                 if (log.isDebugEnabled()) {
-                    log.info("Received compliance status from POLICY_MONITOR operation ID: " + operation.getId());
+                    log.debug("Received compliance status from POLICY_MONITOR operation ID: " + operation.getId());
                 }
                 List<ComplianceFeature> features = getComplianceFeatures(operation.getPayLoad());
                 PullNotificationDataHolder.getInstance().getPolicyManagerService()
@@ -76,27 +119,35 @@ public class PullNotificationSubscriberImpl implements PullNotificationSubscribe
         }
     }
 
-    public void clean() {
-
-    }
-
     private static List<ComplianceFeature> getComplianceFeatures(Object compliancePayload) throws
                                                                                            PolicyComplianceException {
-        String compliancePayloadString = new Gson().toJson(compliancePayload);
         if (compliancePayload == null) {
             return null;
         }
-        // Parsing json string to get compliance features.
-        JsonElement jsonElement = new JsonParser().parse(compliancePayloadString);
-        JsonArray jsonArray = jsonElement.getAsJsonArray();
-        Gson gson = new Gson();
-        ComplianceFeature complianceFeature;
-        List<ComplianceFeature> complianceFeatures = new ArrayList<ComplianceFeature>(jsonArray.size());
+        // The payload is mapped to compliance features directly, without serializing it to a json string first.
+        try {
+            if (compliancePayload instanceof String) {
+                return gson.fromJson((String) compliancePayload, COMPLIANCE_FEATURE_LIST_TYPE);
+            }
+            return gson.fromJson(gson.toJsonTree(compliancePayload), COMPLIANCE_FEATURE_LIST_TYPE);
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new PolicyComplianceException("Compliance payload is not a list of compliance features", e);
+        }
+    }
 
-        for (JsonElement element : jsonArray) {
-            complianceFeature = gson.fromJson(element, ComplianceFeature.class);
-            complianceFeatures.add(complianceFeature);
+    private static int getIntProperty(Map<String, String> properties, String name, int defaultValue) {
+        String value = properties.get(name);
+        if (value != null && !value.isEmpty()) {
+            try {
+                int intValue = Integer.parseInt(value.trim());
+                if (intValue > 0) {
+                    return intValue;
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value '" + value + "' for the pull notification property '" + name +
+                        "', hence using the default value " + defaultValue);
+            }
         }
-        return complianceFeatures;
+        return defaultValue;
     }
 }
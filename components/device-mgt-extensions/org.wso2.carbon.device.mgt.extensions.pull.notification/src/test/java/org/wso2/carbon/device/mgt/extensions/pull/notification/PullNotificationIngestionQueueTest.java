@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.extensions.pull.notification;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.common.pull.notification.PullNotificationExecutionFailedException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for PullNotificationIngestionQueue.
+ */
+public class PullNotificationIngestionQueueTest {
+    private static final String DEVICE_TYPE = "android";
+    private static final int TENANT_ID = 1;
+    private static final long TIMEOUT_MILLIS = 10000;
+    private final List<HandledResponse> handledResponses = Collections.synchronizedList(
+            new ArrayList<HandledResponse>());
+    private volatile CountDownLatch handlingLatch;
+    private volatile CountDownLatch handlingStarted;
+    private PullNotificationIngestionQueue ingestionQueue;
+
+    @BeforeClass
+    public void init() {
+        if (System.getProperty("carbon.home") == null) {
+            File file = new File("src/test/resources");
+            if (file.exists()) {
+                System.setProperty("carbon.home", file.getAbsolutePath());
+            }
+        }
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(MultitenantConstants.SUPER_TENANT_ID);
+    }
+
+    @BeforeMethod
+    public void reset() {
+        handledResponses.clear();
+        handlingLatch = null;
+        handlingStarted = new CountDownLatch(1);
+    }
+
+    @AfterMethod
+    public void shutdownQueue() {
+        CountDownLatch latch = handlingLatch;
+        if (latch != null) {
+            latch.countDown();
+        }
+        if (ingestionQueue != null) {
+            ingestionQueue.shutdown();
+            ingestionQueue = null;
+        }
+    }
+
+    @Test(description = "test that the responses of each device are handled in the order they are received")
+    public void testHandleInOrderPerDevice() throws Exception {
+        ingestionQueue = createQueue(4, 100, 10);
+        for (int i = 0; i < 50; i++) {
+            for (int device = 0; device < 4; device++) {
+                ingestionQueue.submit(createDeviceIdentifier(device), createOperation(i));
+            }
+        }
+        waitForHandled(200);
+        Map<String, List<Integer>> operationsOfDevice = new HashMap<>();
+        Map<String, String> threadOfDevice = new HashMap<>();
+        for (HandledResponse response : handledResponses) {
+            List<Integer> operations = operationsOfDevice.get(response.deviceId);
+            if (operations == null) {
+                operations = new ArrayList<>();
+                operationsOfDevice.put(response.deviceId, operations);
+                threadOfDevice.put(response.deviceId, response.threadName);
+            }
+            operations.add(response.operationId);
+            Assert.assertEquals(response.threadName, threadOfDevice.get(response.deviceId),
+                    "Responses of a device are handled by more than one worker");
+        }
+        for (List<Integer> operations : operationsOfDevice.values()) {
+            for (int i = 0; i < operations.size(); i++) {
+                Assert.assertEquals(operations.get(i).intValue(), i, "Responses of a device are handled out of order");
+            }
+        }
+    }
+
+    @Test(description = "test that queued responses are handled in batches within the flow of their tenant")
+    public void testBatchWithinTenantFlow() throws Exception {
+        handlingLatch = new CountDownLatch(1);
+        ingestionQueue = createQueue(1, 10, 10);
+        ingestionQueue.submit(createDeviceIdentifier(0), createOperation(0));
+        Assert.assertTrue(handlingStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "Response is not handled");
+        submitInTenantFlow(TENANT_ID, createDeviceIdentifier(1), createOperation(1));
+        ingestionQueue.submit(createDeviceIdentifier(2), createOperation(2));
+        submitInTenantFlow(TENANT_ID, createDeviceIdentifier(3), createOperation(3));
+        Assert.assertEquals(ingestionQueue.getQueueDepth(), 3, "Responses are not queued while the worker is busy");
+        handlingLatch.countDown();
+        waitForHandled(4);
+
+        List<Integer> handledOperations = new ArrayList<>();
+        for (HandledResponse response : handledResponses) {
+            handledOperations.add(response.operationId);
+            int expectedTenantId = response.operationId % 2 == 1 ? TENANT_ID : MultitenantConstants.SUPER_TENANT_ID;
+            Assert.assertEquals(response.tenantId, expectedTenantId, "Response is not handled in its tenant flow");
+        }
+        // The queued responses are taken as a batch, in which the responses of a tenant are handled together.
+        Assert.assertEquals(handledOperations, Arrays.asList(0, 1, 3, 2),
+                "Queued responses are not handled as a batch grouped by tenant");
+    }
+
+    @Test(description = "test that a full queue makes the caller wait instead of handling the response itself")
+    public void testFullQueueWaits() throws Exception {
+        handlingLatch = new CountDownLatch(1);
+        ingestionQueue = createQueue(1, 1, 1);
+        final DeviceIdentifier deviceIdentifier = createDeviceIdentifier(0);
+        ingestionQueue.submit(deviceIdentifier, createOperation(0));
+        Assert.assertTrue(handlingStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "Response is not handled");
+        ingestionQueue.submit(deviceIdentifier, createOperation(1));
+
+        final List<Exception> callerErrors = Collections.synchronizedList(new ArrayList<Exception>());
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PrivilegedCarbonContext.startTenantFlow();
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(
+                            MultitenantConstants.SUPER_TENANT_ID);
+                    ingestionQueue.submit(deviceIdentifier, createOperation(2));
+                } catch (PullNotificationExecutionFailedException e) {
+                    callerErrors.add(e);
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+            }
+        }, "pull-notification-test-caller");
+        caller.start();
+        caller.join(500);
+        Assert.assertTrue(caller.isAlive(), "Caller does not wait for space in the full queue");
+        Assert.assertEquals(handledResponses.size(), 1, "Response is handled around the full queue");
+
+        handlingLatch.countDown();
+        caller.join(TIMEOUT_MILLIS);
+        waitForHandled(3);
+        Assert.assertTrue(callerErrors.isEmpty(), "Queuing the response failed");
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(handledResponses.get(i).operationId, i, "Responses are handled out of order");
+            Assert.assertNotEquals(handledResponses.get(i).threadName, caller.getName(),
+                    "Response is handled by the caller");
+        }
+    }
+
+    @Test(description = "test that shutting down handles the queued responses and the later ones synchronously")
+    public void testShutdownDrainsQueue() throws Exception {
+        handlingLatch = new CountDownLatch(1);
+        ingestionQueue = createQueue(1, 10, 1);
+        ingestionQueue.submit(createDeviceIdentifier(0), createOperation(0));
+        Assert.assertTrue(handlingStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "Response is not handled");
+        ingestionQueue.submit(createDeviceIdentifier(0), createOperation(1));
+        ingestionQueue.submit(createDeviceIdentifier(0), createOperation(2));
+
+        final CountDownLatch latch = handlingLatch;
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                latch.countDown();
+            }
+        });
+        releaser.start();
+        ingestionQueue.shutdown();
+        Assert.assertEquals(handledResponses.size(), 3, "Queued responses are not handled before shutting down");
+        Assert.assertEquals(ingestionQueue.getQueueDepth(), 0, "Responses are left in the queue");
+
+        ingestionQueue.submit(createDeviceIdentifier(0), createOperation(3));
+        Assert.assertEquals(handledResponses.size(), 4, "Response submitted after shutdown is not handled");
+        Assert.assertEquals(handledResponses.get(3).threadName, Thread.currentThread().getName(),
+                "Response submitted after shutdown is not handled by the caller");
+    }
+
+    private PullNotificationIngestionQueue createQueue(int workerCount, int queueSize, int batchSize) {
+        return new PullNotificationIngestionQueue(new PullNotificationIngestionQueue.PullNotificationHandler() {
+            @Override
+            public void handle(DeviceIdentifier deviceIdentifier, Operation operation) {
+                handledResponses.add(new HandledResponse(deviceIdentifier.getId(), operation.getId(),
+                        PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(),
+                        Thread.currentThread().getName()));
+                handlingStarted.countDown();
+                CountDownLatch latch = handlingLatch;
+                if (latch != null) {
+                    try {
+                        latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }, workerCount, queueSize, batchSize);
+    }
+
+    private void submitInTenantFlow(int tenantId, DeviceIdentifier deviceIdentifier, Operation operation)
+            throws PullNotificationExecutionFailedException {
+        try {
+            PrivilegedCarbonContext.startTenantFlow();
+            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId);
+            ingestionQueue.submit(deviceIdentifier, operation);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    private void waitForHandled(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (handledResponses.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(handledResponses.size(), count, "Number of handled responses is not matching");
+    }
+
+    private static DeviceIdentifier createDeviceIdentifier(int index) {
+        return new DeviceIdentifier("device-" + index, DEVICE_TYPE);
+    }
+
+    private static Operation createOperation(int id) {
+        Operation operation = new Operation();
+        operation.setId(id);
+        operation.setCode("DEVICE_LOCATION");
+        return operation;
+    }
+
+    private static class HandledResponse {
+        private final String deviceId;
+        private final int operationId;
+        private final int tenantId;
+        private final String threadName;
+
+        private HandledResponse(String deviceId, int operationId, int tenantId, String threadName) {
+            this.deviceId = deviceId;
+            this.operationId = operationId;
+            this.tenantId = tenantId;
+            this.threadName = threadName;
+        }
+    }
+}
@@ -18,12 +18,11 @@
  */
 package org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
@@ -31,11 +30,12 @@ import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationConfi
 import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
 import org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm.internal.FCMDataHolder;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FCMNotificationStrategy implements NotificationStrategy {
 
@@ -45,9 +45,15 @@ public class FCMNotificationStrategy implements NotificationStrategy {
     private static final String FCM_TOKEN = "FCM_TOKEN";
     private static final String FCM_ENDPOINT = "https://fcm.googleapis.com/fcm/send";
     private static final String FCM_API_KEY = "fcmAPIKey";
-    private static final int TIME_TO_LIVE = 5 * 60; //Set FCM TTL to 5 minutes
-    private static final int HTTP_STATUS_CODE_OK = 200;
+    private static final String FCM_ENDPOINT_PROPERTY = "fcmEndpoint";
+    private static final String FCM_MAX_IN_FLIGHT_REQUESTS = "fcmMaxInFlightRequests";
+    private static final String FCM_BATCH_LINGER_TIME = "fcmBatchLingerTime";
+    private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 10;
+    private static final int DEFAULT_BATCH_LINGER_TIME = 100;
+    private static final int MAX_RETRIES = 3;
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
     private final PushNotificationConfig config;
+    private volatile FCMSender sender;
 
     public FCMNotificationStrategy(PushNotificationConfig config) {
         this.config = config;
@@ -58,25 +64,23 @@ public class FCMNotificationStrategy implements NotificationStrategy {
 
     }
 
+    /**
+     * Queues a wake up call to the device, which is sent asynchronously along with the other wake up calls of the
+     * same operation. The tokens of the devices which are not cached are fetched together with those of the other
+     * devices of the same request. Hence failures of sending are logged instead of being thrown.
+     */
     @Override
     public void execute(NotificationContext ctx) throws PushNotificationExecutionFailedException {
-        try {
-            if (NOTIFIER_TYPE_FCM.equals(config.getType())) {
-                Device device = FCMDataHolder.getInstance().getDeviceManagementProviderService()
-                        .getDeviceWithTypeProperties(ctx.getDeviceId());
-                if(getFCMToken(device.getProperties()) != null) {
-                    this.sendWakeUpCall(ctx.getOperation().getCode(), device);
-                }
-            } else {
-                if (log.isDebugEnabled()) {
-                    log.debug("Not using FCM notifier as notifier type is set to " + config.getType() +
-                              " in Platform Configurations.");
-                }
+        if (NOTIFIER_TYPE_FCM.equals(config.getType())) {
+            int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+            String fcmToken = FCMDataHolder.getInstance().getTokenCache().getToken(tenantId, ctx.getDeviceId());
+            this.getSender().send(ctx.getOperation().getCode(),
+                    new FCMSender.Recipient(tenantId, ctx.getDeviceId(), fcmToken));
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("Not using FCM notifier as notifier type is set to " + config.getType() +
+                          " in Platform Configurations.");
             }
-        } catch (DeviceManagementException e) {
-            throw new PushNotificationExecutionFailedException("Error occurred while retrieving device information", e);
-        } catch (IOException e) {
-            throw new PushNotificationExecutionFailedException("Error occurred while sending push notification", e);
         }
     }
 
@@ -87,56 +91,115 @@ public class FCMNotificationStrategy implements NotificationStrategy {
 
     @Override
     public void undeploy() {
-
+        FCMSender currentSender = sender;
+        if (currentSender != null) {
+            currentSender.shutdown();
+            sender = null;
+        }
     }
 
-    private void sendWakeUpCall(String message, Device device) throws IOException,
-                                                                      PushNotificationExecutionFailedException {
-        OutputStream os = null;
-        byte[] bytes = getFCMRequest(message, getFCMToken(device.getProperties())).getBytes();
-
-        HttpURLConnection conn;
-        try {
-            conn = (HttpURLConnection) new URL(FCM_ENDPOINT).openConnection();
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "key=" + config.getProperty(FCM_API_KEY));
-            conn.setRequestMethod("POST");
-            conn.setDoOutput(true);
-            os = conn.getOutputStream();
-            os.write(bytes);
-        } finally {
-            if (os != null) {
-                os.close();
+    private FCMSender getSender() throws PushNotificationExecutionFailedException {
+        if (sender == null) {
+            synchronized (this) {
+                if (sender == null) {
+                    String endpoint = config.getProperty(FCM_ENDPOINT_PROPERTY);
+                    try {
+                        sender = new FCMSender(new URL(endpoint != null ? endpoint : FCM_ENDPOINT),
+                                config.getProperty(FCM_API_KEY),
+                                getIntProperty(FCM_MAX_IN_FLIGHT_REQUESTS, DEFAULT_MAX_IN_FLIGHT_REQUESTS),
+                                getIntProperty(FCM_BATCH_LINGER_TIME, DEFAULT_BATCH_LINGER_TIME),
+                                FCMSender.MAX_REGISTRATION_IDS_PER_REQUEST, MAX_RETRIES, INITIAL_BACKOFF_MILLIS,
+                                new FCMSender.TokenResolver() {
+                                    @Override
+                                    public List<FCMSender.Recipient> resolveTokens(
+                                            List<FCMSender.Recipient> recipients) {
+                                        return resolveFCMTokens(recipients);
+                                    }
+                                },
+                                new FCMSender.TokenRejectionListener() {
+                                    @Override
+                                    public void onTokenRejected(FCMSender.Recipient recipient) {
+                                        FCMDataHolder.getInstance().getTokenCache().invalidate(
+                                                recipient.getTenantId(), recipient.getDeviceIdentifier());
+                                    }
+                                });
+                    } catch (MalformedURLException e) {
+                        throw new PushNotificationExecutionFailedException("Invalid FCM endpoint '" + endpoint +
+                                "'", e);
+                    }
+                }
             }
         }
-        int status = conn.getResponseCode();
-        if (log.isDebugEnabled()) {
-            log.debug("Result code: " + status + ", Message: " + conn.getResponseMessage());
+        return sender;
+    }
+
+    /**
+     * Fetches the tokens of the devices of each tenant in one go, from the device type plugins, and caches them.
+     */
+    private static List<FCMSender.Recipient> resolveFCMTokens(List<FCMSender.Recipient> recipients) {
+        Map<Integer, List<FCMSender.Recipient>> recipientsOfTenant = new HashMap<>();
+        for (FCMSender.Recipient recipient : recipients) {
+            List<FCMSender.Recipient> tenantRecipients = recipientsOfTenant.get(recipient.getTenantId());
+            if (tenantRecipients == null) {
+                tenantRecipients = new ArrayList<>();
+                recipientsOfTenant.put(recipient.getTenantId(), tenantRecipients);
+            }
+            tenantRecipients.add(recipient);
         }
-        if (status != HTTP_STATUS_CODE_OK) {
-            throw new PushNotificationExecutionFailedException("Push notification sending failed with the HTTP " +
-                    "error code '" + status + "'");
+        List<FCMSender.Recipient> resolvedRecipients = new ArrayList<>(recipients.size());
+        FCMTokenCache tokenCache = FCMDataHolder.getInstance().getTokenCache();
+        for (Map.Entry<Integer, List<FCMSender.Recipient>> entry : recipientsOfTenant.entrySet()) {
+            int tenantId = entry.getKey();
+            List<DeviceIdentifier> deviceIdentifiers = new ArrayList<>(entry.getValue().size());
+            for (FCMSender.Recipient recipient : entry.getValue()) {
+                deviceIdentifiers.add(recipient.getDeviceIdentifier());
+            }
+            List<Device> devices;
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId, true);
+                devices = FCMDataHolder.getInstance().getDeviceManagementProviderService()
+                        .getDevicesWithTypeProperties(deviceIdentifiers);
+            } catch (DeviceManagementException e) {
+                log.error("Error occurred while retrieving the FCM tokens of " + deviceIdentifiers.size() +
+                        " devices of tenant " + tenantId, e);
+                continue;
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+            Map<String, String> tokens = new HashMap<>();
+            for (Device device : devices) {
+                String fcmToken = device.getProperties() != null ? getFCMToken(device.getProperties()) : null;
+                if (fcmToken != null) {
+                    tokens.put(device.getType() + ":" + device.getDeviceIdentifier(), fcmToken);
+                }
+            }
+            for (FCMSender.Recipient recipient : entry.getValue()) {
+                DeviceIdentifier deviceIdentifier = recipient.getDeviceIdentifier();
+                String fcmToken = tokens.get(deviceIdentifier.getType() + ":" + deviceIdentifier.getId());
+                if (fcmToken != null) {
+                    tokenCache.putToken(tenantId, deviceIdentifier, fcmToken);
+                    resolvedRecipients.add(new FCMSender.Recipient(tenantId, deviceIdentifier, fcmToken));
+                }
+            }
         }
+        return resolvedRecipients;
     }
 
-    private static String getFCMRequest(String message, String registrationId) {
-        JsonObject fcmRequest = new JsonObject();
-        fcmRequest.addProperty("delay_while_idle", false);
-        fcmRequest.addProperty("time_to_live", TIME_TO_LIVE);
-
-        //Add message to FCM request
-        JsonObject data = new JsonObject();
-        if (message != null && !message.isEmpty()) {
-            data.addProperty("data", message);
-            fcmRequest.add("data", data);
+    private int getIntProperty(String name, int defaultValue) {
+        String value = config.getProperty(name);
+        if (value != null && !value.isEmpty()) {
+            try {
+                int intValue = Integer.parseInt(value.trim());
+                if (intValue > 0) {
+                    return intValue;
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value '" + value + "' for the FCM property '" + name + "', hence using the " +
+                        "default value " + defaultValue);
+            }
         }
-
-        //Set device reg-id
-        JsonArray regIds = new JsonArray();
-        regIds.add(new JsonPrimitive(registrationId));
-
-        fcmRequest.add("registration_ids", regIds);
-        return fcmRequest.toString();
+        return defaultValue;
     }
 
     private static String getFCMToken(List<Device.Property> properties) {
@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends FCM wake up calls asynchronously. Wake up calls with the same message, i.e. of the same operation, which are
+ * sent within a short time of each other are coalesced into a single multicast request, of up to the number of
+ * registration ids FCM accepts in a request. Requests are sent by a bounded pool, which bounds the number of requests
+ * in flight. When the pool is busy, the calling thread sends the request itself, which slows down the callers
+ * instead of queueing requests without a limit. Wake up calls which are sent after the sender is shut down are dropped
+ * with a warning. The tokens of the devices which are queued without one are resolved together, once per request,
+ * before the request is sent.
+ * <p>
+ * Requests which fail with a rate limit or a server error, and the registration ids which FCM reports as temporarily
+ * unavailable, are retried with an exponential backoff, or after the time given by FCM in the Retry-After header.
+ * Responses are always read to the end, so that the connections to FCM are kept alive and reused. The idle
+ * connections are pooled by the keep-alive cache of the JDK, which keeps up to the number given by the
+ * http.maxConnections system property, 5 by default. It should be raised along with the number of requests in flight.
+ */
+class FCMSender {
+
+    private static final Log log = LogFactory.getLog(FCMSender.class);
+
+    static final int MAX_REGISTRATION_IDS_PER_REQUEST = 1000;
+    private static final int TIME_TO_LIVE = 5 * 60; //Set FCM TTL to 5 minutes
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+    private static final long MAX_BACKOFF_MILLIS = 60000;
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+    private static final int HTTP_STATUS_CODE_OK = 200;
+    private static final int HTTP_STATUS_CODE_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_STATUS_CODE_SERVER_ERROR = 500;
+    private static final String ERROR_UNAVAILABLE = "Unavailable";
+    private static final String ERROR_INTERNAL_SERVER_ERROR = "InternalServerError";
+    private static final String ERROR_NOT_REGISTERED = "NotRegistered";
+    private static final String ERROR_INVALID_REGISTRATION = "InvalidRegistration";
+
+    private final URL endpoint;
+    private final String apiKey;
+    private final long lingerMillis;
+    private final int maxRecipientsPerRequest;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final TokenResolver tokenResolver;
+    private final TokenRejectionListener tokenRejectionListener;
+    private final ConcurrentMap<String, Batch> openBatches = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor requestPool;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * @param endpoint                FCM endpoint the requests are sent to.
+     * @param apiKey                  server key of the FCM project.
+     * @param maxInFlightRequests     maximum number of requests sent at the same time.
+     * @param lingerMillis            time a wake up call waits for others of the same message before it is sent.
+     * @param maxRecipientsPerRequest maximum number of registration ids of a request.
+     * @param maxRetries              maximum number of times a wake up call is retried.
+     * @param initialBackoffMillis    time to wait before the first retry, which doubles on each retry.
+     * @param tokenResolver           resolver of the tokens of the devices queued without one.
+     * @param tokenRejectionListener  listener notified of the registration ids which FCM does not accept anymore.
+     */
+    FCMSender(URL endpoint, String apiKey, int maxInFlightRequests, long lingerMillis, int maxRecipientsPerRequest,
+              int maxRetries, long initialBackoffMillis, TokenResolver tokenResolver,
+              TokenRejectionListener tokenRejectionListener) {
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+        this.lingerMillis = lingerMillis;
+        this.maxRecipientsPerRequest = maxRecipientsPerRequest;
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.tokenResolver = tokenResolver;
+        this.tokenRejectionListener = tokenRejectionListener;
+        requestPool = new ThreadPoolExecutor(maxInFlightRequests, maxInFlightRequests, WORKER_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(maxInFlightRequests),
+                new SenderThreadFactory("fcm-sender-"), new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable request, ThreadPoolExecutor executor) {
+                // CallerRunsPolicy would silently discard the request once the pool is shut down, so it is rejected
+                // instead, to be logged as dropped.
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("FCM sender is shut down.");
+                }
+                request.run();
+            }
+        });
+        requestPool.allowCoreThreadTimeOut(true);
+        scheduler = new ScheduledThreadPoolExecutor(1, new SenderThreadFactory("fcm-sender-scheduler-"));
+        scheduler.setKeepAliveTime(WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a wake up call to a device, to be sent with the other wake up calls of the same message.
+     *
+     * @param message   message of the wake up call, i.e. the operation code.
+     * @param recipient device to be woken up, whose token is resolved before sending if it is not known.
+     */
+    void send(String message, Recipient recipient) {
+        String batchKey = message == null ? "" : message;
+        while (true) {
+            boolean flushNow = false;
+            Batch batch = openBatches.get(batchKey);
+            if (batch == null) {
+                Batch newBatch = new Batch(message);
+                batch = openBatches.putIfAbsent(batchKey, newBatch);
+                if (batch == null) {
+                    batch = newBatch;
+                    flushNow = !this.scheduleFlush(batchKey, batch);
+                }
+            }
+            if (batch.add(recipient, maxRecipientsPerRequest)) {
+                if (flushNow || batch.size() >= maxRecipientsPerRequest) {
+                    this.flush(batchKey, batch);
+                }
+                return;
+            }
+            // The batch is full or it was sent meanwhile, hence the wake up call goes to a new batch.
+            this.flush(batchKey, batch);
+        }
+    }
+
+    /**
+     * Sends the wake up calls which are waiting for others, and stops the threads once the requests in flight are
+     * sent. Retries which are not due yet are dropped.
+     */
+    void shutdown() {
+        for (ConcurrentMap.Entry<String, Batch> entry : openBatches.entrySet()) {
+            this.flush(entry.getKey(), entry.getValue());
+        }
+        scheduler.shutdownNow();
+        requestPool.shutdown();
+    }
+
+    /**
+     * @return false if the flush could not be scheduled as the sender is shut down.
+     */
+    private boolean scheduleFlush(final String batchKey, final Batch batch) {
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush(batchKey, batch);
+                }
+            }, lingerMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // The batch is sent once the wake up call is added to it, as flushing it right away would leave it
+            // closed before anything is added.
+            return false;
+        }
+    }
+
+    private void flush(String batchKey, Batch batch) {
+        List<Recipient> recipients = batch.close();
+        if (recipients == null) {
+            return;
+        }
+        openBatches.remove(batchKey, batch);
+        this.submit(batch.message, recipients, 0);
+    }
+
+    private void submit(final String message, final List<Recipient> recipients, final int attempt) {
+        try {
+            requestPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    sendRequest(message, recipients, attempt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("FCM sender is shut down, hence the wake up calls to " + recipients.size() + " devices are " +
+                    "dropped.");
+        }
+    }
+
+    private void sendRequest(String message, List<Recipient> recipients, int attempt) {
+        if (attempt == 0) {
+            recipients = this.resolveTokens(recipients);
+            if (recipients.isEmpty()) {
+                return;
+            }
+        }
+        List<Recipient> retryRecipients = new ArrayList<>();
+        long retryAfterMillis = 0;
+        HttpURLConnection conn = null;
+        try {
+            byte[] bytes = getFCMRequest(message, recipients).getBytes(StandardCharsets.UTF_8);
+            conn = (HttpURLConnection) endpoint.openConnection();
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setRequestProperty("Authorization", "key=" + apiKey);
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(bytes);
+            }
+            int status = conn.getResponseCode();
+            String response = readResponse(conn, status);
+            if (log.isDebugEnabled()) {
+                log.debug("Result code: " + status + ", Message: " + conn.getResponseMessage() + ", Devices: " +
+                        recipients.size() + ", Attempt: " + attempt);
+            }
+            if (status == HTTP_STATUS_CODE_OK) {
+                this.processResults(response, recipients, retryRecipients);
+                if (!retryRecipients.isEmpty()) {
+                    retryAfterMillis = getRetryAfterMillis(conn);
+                }
+            } else if (status == HTTP_STATUS_CODE_TOO_MANY_REQUESTS || status >= HTTP_STATUS_CODE_SERVER_ERROR) {
+                retryRecipients.addAll(recipients);
+                retryAfterMillis = getRetryAfterMillis(conn);
+            } else {
+                log.error("Push notification sending to " + recipients.size() + " devices failed with the HTTP " +
+                        "error code '" + status + "'");
+            }
+        } catch (IOException e) {
+            log.warn("Error occurred while sending push notification to " + recipients.size() + " devices", e);
+            retryRecipients.addAll(recipients);
+            if (conn != null) {
+                // The connection may be broken, hence it is not kept alive.
+                conn.disconnect();
+            }
+        } catch (RuntimeException e) {
+            log.error("Unexpected error occurred while sending push notification to " + recipients.size() +
+                    " devices", e);
+        }
+        if (!retryRecipients.isEmpty()) {
+            this.scheduleRetry(message, retryRecipients, attempt + 1, retryAfterMillis);
+        }
+    }
+
+    /**
+     * @return the recipients with their tokens, leaving out the devices whose token could not be resolved.
+     */
+    private List<Recipient> resolveTokens(List<Recipient> recipients) {
+        List<Recipient> unresolvedRecipients = new ArrayList<>();
+        for (Recipient recipient : recipients) {
+            if (recipient.getToken() == null) {
+                unresolvedRecipients.add(recipient);
+            }
+        }
+        if (unresolvedRecipients.isEmpty()) {
+            return recipients;
+        }
+        List<Recipient> resolvedRecipients = new ArrayList<>(recipients.size());
+        for (Recipient recipient : recipients) {
+            if (recipient.getToken() != null) {
+                resolvedRecipients.add(recipient);
+            }
+        }
+        if (tokenResolver != null) {
+            try {
+                resolvedRecipients.addAll(tokenResolver.resolveTokens(unresolvedRecipients));
+            } catch (RuntimeException e) {
+                log.error("Unexpected error occurred while resolving the FCM tokens of " +
+                        unresolvedRecipients.size() + " devices", e);
+            }
+        }
+        if (log.isDebugEnabled() && resolvedRecipients.size() < recipients.size()) {
+            log.debug("FCM tokens of " + (recipients.size() - resolvedRecipients.size()) + " devices are not found, " +
+                    "hence they are not woken up.");
+        }
+        return resolvedRecipients;
+    }
+
+    private void scheduleRetry(final String message, final List<Recipient> recipients, final int attempt,
+                               long retryAfterMillis) {
+        if (attempt > maxRetries) {
+            log.error("Push notification sending to " + recipients.size() + " devices failed after " + maxRetries +
+                    " retries.");
+            return;
+        }
+        long backoffMillis = Math.min(initialBackoffMillis << (attempt - 1), MAX_BACKOFF_MILLIS);
+        long delayMillis = Math.max(backoffMillis, retryAfterMillis);
+        if (log.isDebugEnabled()) {
+            log.debug("Retrying push notification to " + recipients.size() + " devices in " + delayMillis + " ms.");
+        }
+        try {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    submit(message, recipients, attempt);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("FCM sender is shut down, hence the wake up calls to " + recipients.size() + " devices are " +
+                    "not retried.");
+        }
+    }
+
+    /**
+     * Collects the devices to be retried from the results of a multicast request, which are in the order of the
+     * registration ids of the request.
+     */
+    private void processResults(String response, List<Recipient> recipients, List<Recipient> retryRecipients) {
+        JsonArray results;
+        try {
+            JsonElement responseElement = new JsonParser().parse(response);
+            if (!responseElement.isJsonObject() || !responseElement.getAsJsonObject().has("results")) {
+                return;
+            }
+            results = responseElement.getAsJsonObject().getAsJsonArray("results");
+        } catch (JsonParseException | IllegalStateException e) {
+            log.warn("Unable to parse the response of FCM, hence the results of the devices are not checked.", e);
+            return;
+        }
+        for (int i = 0; i < results.size() && i < recipients.size(); i++) {
+            JsonObject result = results.get(i).getAsJsonObject();
+            if (!result.has("error")) {
+                continue;
+            }
+            String error = result.get("error").getAsString();
+            Recipient recipient = recipients.get(i);
+            if (ERROR_UNAVAILABLE.equals(error) || ERROR_INTERNAL_SERVER_ERROR.equals(error)) {
+                retryRecipients.add(recipient);
+            } else if (ERROR_NOT_REGISTERED.equals(error) || ERROR_INVALID_REGISTRATION.equals(error)) {
+                if (tokenRejectionListener != null) {
+                    tokenRejectionListener.onTokenRejected(recipient);
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("FCM token of device '" + recipient.getDeviceIdentifier().getId() + "' is rejected " +
+                            "with the error '" + error + "'");
+                }
+            } else {
+                log.error("Push notification sending to device '" + recipient.getDeviceIdentifier().getId() +
+                        "' failed with the error '" + error + "'");
+            }
+        }
+    }
+
+    private static String readResponse(HttpURLConnection conn, int status) throws IOException {
+        InputStream is = status < 400 ? conn.getInputStream() : conn.getErrorStream();
+        if (is == null) {
+            return "";
+        }
+        // The response is read to the end, so that the connection can be reused.
+        try (InputStream responseStream = is) {
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = responseStream.read(buffer)) != -1) {
+                response.write(buffer, 0, length);
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long getRetryAfterMillis(HttpURLConnection conn) {
+        String retryAfter = conn.getHeaderField("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                // Retry-After may also be given as a date, in which case the backoff is used.
+                if (log.isDebugEnabled()) {
+                    log.debug("Unable to parse the Retry-After header '" + retryAfter + "'");
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static String getFCMRequest(String message, List<Recipient> recipients) {
+        JsonObject fcmRequest = new JsonObject();
+        fcmRequest.addProperty("delay_while_idle", false);
+        fcmRequest.addProperty("time_to_live", TIME_TO_LIVE);
+
+        //Add message to FCM request
+        JsonObject data = new JsonObject();
+        if (message != null && !message.isEmpty()) {
+            data.addProperty("data", message);
+            fcmRequest.add("data", data);
+        }
+
+        //Set device reg-ids
+        JsonArray regIds = new JsonArray();
+        for (Recipient recipient : recipients) {
+            regIds.add(new JsonPrimitive(recipient.getToken()));
+        }
+
+        fcmRequest.add("registration_ids", regIds);
+        return fcmRequest.toString();
+    }
+
+    /**
+     * Device to be woken up, with its FCM token if it is known.
+     */
+    static class Recipient {
+
+        private final int tenantId;
+        private final DeviceIdentifier deviceIdentifier;
+        private final String token;
+
+        Recipient(int tenantId, DeviceIdentifier deviceIdentifier, String token) {
+            this.tenantId = tenantId;
+            this.deviceIdentifier = deviceIdentifier;
+            this.token = token;
+        }
+
+        int getTenantId() {
+            return tenantId;
+        }
+
+        DeviceIdentifier getDeviceIdentifier() {
+            return deviceIdentifier;
+        }
+
+        String getToken() {
+            return token;
+        }
+    }
+
+    /**
+     * Resolver of the FCM tokens of the devices which are queued without one.
+     */
+    interface TokenResolver {
+
+        /**
+         * @param recipients devices without a token.
+         * @return the devices with their tokens, leaving out the devices which do not have a token.
+         */
+        List<Recipient> resolveTokens(List<Recipient> recipients);
+
+    }
+
+    /**
+     * Listener of the registration ids which FCM does not accept anymore, e.g. as the app was uninstalled.
+     */
+    interface TokenRejectionListener {
+
+        void onTokenRejected(Recipient recipient);
+
+    }
+
+    /**
+     * Wake up calls of the same message which are waiting to be sent together.
+     */
+    private static class Batch {
+
+        private final String message;
+        private List<Recipient> recipients = new ArrayList<>();
+
+        private Batch(String message) {
+            this.message = message;
+        }
+
+        /**
+         * @return false if the batch is full or it is already closed.
+         */
+        private synchronized boolean add(Recipient recipient, int maxSize) {
+            if (recipients == null || recipients.size() >= maxSize) {
+                return false;
+            }
+            recipients.add(recipient);
+            return true;
+        }
+
+        private synchronized int size() {
+            return recipients == null ? 0 : recipients.size();
+        }
+
+        /**
+         * @return the recipients of the batch, or null if the batch is already closed.
+         */
+        private synchronized List<Recipient> close() {
+            List<Recipient> closedRecipients = recipients;
+            recipients = null;
+            return closedRecipients;
+        }
+    }
+
+    private static class SenderThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private SenderThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
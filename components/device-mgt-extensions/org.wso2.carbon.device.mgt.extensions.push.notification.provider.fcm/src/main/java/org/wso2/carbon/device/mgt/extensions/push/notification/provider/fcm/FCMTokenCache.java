@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm;
+
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.cache.BoundedExpiringMap;
+import org.wso2.carbon.device.mgt.core.service.DeviceChangeListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the FCM tokens of devices, so that waking up a device does not read its properties each time. Tokens
+ * of a device are removed when the device is enrolled again or modified, as it may have registered a new token, and
+ * when FCM rejects them. Tokens also expire after a while, which bounds how long an outdated token is used when a
+ * device changes its token without going through the device management service. Once the cache is full, the token of
+ * the least recently woken up device is evicted.
+ */
+public class FCMTokenCache implements DeviceChangeListener {
+
+    private final BoundedExpiringMap<TokenKey, String> tokens;
+
+    /**
+     * @param capacity    maximum number of cached tokens.
+     * @param expiryTime  time a token is cached for, in seconds.
+     */
+    public FCMTokenCache(int capacity, int expiryTime) {
+        this.tokens = new BoundedExpiringMap<>(capacity, TimeUnit.SECONDS.toMillis(expiryTime));
+    }
+
+    /**
+     * @return the cached token of the device, or null if it is not cached or expired.
+     */
+    String getToken(int tenantId, DeviceIdentifier deviceIdentifier) {
+        return tokens.get(new TokenKey(tenantId, deviceIdentifier));
+    }
+
+    void putToken(int tenantId, DeviceIdentifier deviceIdentifier, String token) {
+        tokens.put(new TokenKey(tenantId, deviceIdentifier), token);
+    }
+
+    void invalidate(int tenantId, DeviceIdentifier deviceIdentifier) {
+        tokens.remove(new TokenKey(tenantId, deviceIdentifier));
+    }
+
+    void clear() {
+        tokens.clear();
+    }
+
+    @Override
+    public void onDevicesChanged(List<DeviceIdentifier> deviceIdentifiers) {
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
+            this.invalidate(tenantId, deviceIdentifier);
+        }
+    }
+
+    @Override
+    public void onGroupChanged(int groupId) {
+        // Tokens do not depend on the groups of the devices.
+    }
+
+    private static class TokenKey {
+
+        private final int tenantId;
+        private final String deviceType;
+        private final String deviceId;
+
+        private TokenKey(int tenantId, DeviceIdentifier deviceIdentifier) {
+            this.tenantId = tenantId;
+            this.deviceType = deviceIdentifier.getType();
+            this.deviceId = deviceIdentifier.getId();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TokenKey)) {
+                return false;
+            }
+            TokenKey that = (TokenKey) o;
+            return tenantId == that.tenantId && (deviceType == null ? that.deviceType == null :
+                    deviceType.equals(that.deviceType)) && deviceId.equals(that.deviceId);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = tenantId;
+            result = 31 * result + (deviceType != null ? deviceType.hashCode() : 0);
+            result = 31 * result + deviceId.hashCode();
+            return result;
+        }
+    }
+
+}
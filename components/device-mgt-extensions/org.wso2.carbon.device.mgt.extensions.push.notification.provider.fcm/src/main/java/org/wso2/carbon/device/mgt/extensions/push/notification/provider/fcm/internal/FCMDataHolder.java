@@ -19,10 +19,14 @@
 package org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm.internal;
 
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
+import org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm.FCMTokenCache;
 
 public class FCMDataHolder {
 
+    private static final int TOKEN_CACHE_CAPACITY = 100000;
+    private static final int TOKEN_CACHE_EXPIRY_TIME = 15 * 60;
     private DeviceManagementProviderService deviceManagementProviderService;
+    private final FCMTokenCache tokenCache = new FCMTokenCache(TOKEN_CACHE_CAPACITY, TOKEN_CACHE_EXPIRY_TIME);
     private static FCMDataHolder thisInstance = new FCMDataHolder();
 
     public static FCMDataHolder getInstance() {
@@ -37,4 +41,8 @@ public class FCMDataHolder {
         this.deviceManagementProviderService = deviceManagementProviderService;
     }
 
+    public FCMTokenCache getTokenCache() {
+        return tokenCache;
+    }
+
 }
@@ -21,6 +21,7 @@ package org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm.int
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.osgi.service.component.ComponentContext;
+import org.wso2.carbon.device.mgt.core.service.DeviceChangeListener;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 
 /**
@@ -39,7 +40,9 @@ public class FCMPushNotificationServiceComponent {
     @SuppressWarnings("unused")
     protected void activate(ComponentContext componentContext) {
         try {
-            //Do nothing
+            // Drops the cached FCM tokens of the devices which are enrolled again or modified.
+            componentContext.getBundleContext().registerService(DeviceChangeListener.class.getName(),
+                    FCMDataHolder.getInstance().getTokenCache(), null);
             if (log.isDebugEnabled()) {
                 log.debug("FCM based push notification provider implementation bundle has been successfully " +
                         "initialized");
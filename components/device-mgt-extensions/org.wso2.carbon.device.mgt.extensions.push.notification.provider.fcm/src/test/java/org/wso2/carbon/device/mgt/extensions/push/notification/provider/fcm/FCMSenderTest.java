@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.extensions.push.notification.provider.fcm;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for FCMSender, which sends the requests to a local HTTP stub of the FCM endpoint.
+ */
+public class FCMSenderTest {
+    private static final String FCM_PATH = "/fcm/send";
+    private static final String API_KEY = "test-api-key";
+    private static final String DEVICE_TYPE = "android";
+    private static final long TIMEOUT_MILLIS = 10000;
+    private HttpServer server;
+    private URL endpoint;
+    private final List<JsonObject> receivedRequests = Collections.synchronizedList(new ArrayList<JsonObject>());
+    private final List<String> receivedAuthorizations = Collections.synchronizedList(new ArrayList<String>());
+    private final Queue<StubResponse> stubResponses = new ConcurrentLinkedQueue<>();
+    private final List<String> rejectedTokens = Collections.synchronizedList(new ArrayList<String>());
+    private final List<List<FCMSender.Recipient>> tokenResolutions =
+            Collections.synchronizedList(new ArrayList<List<FCMSender.Recipient>>());
+    private final List<Thread> tokenResolutionThreads = Collections.synchronizedList(new ArrayList<Thread>());
+    private volatile CountDownLatch workerGate;
+    private FCMSender sender;
+
+    @BeforeClass
+    public void init() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(FCM_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                JsonObject request = new JsonParser().parse(readBody(exchange.getRequestBody())).getAsJsonObject();
+                // Failed assertions are not reported from the server thread, hence the header is checked by the test.
+                receivedAuthorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+                receivedRequests.add(request);
+                StubResponse response = stubResponses.poll();
+                if (response == null) {
+                    response = StubResponse.success(request.getAsJsonArray("registration_ids").size());
+                }
+                if (response.retryAfter != null) {
+                    exchange.getResponseHeaders().add("Retry-After", response.retryAfter);
+                }
+                byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(response.status, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+        });
+        server.start();
+        endpoint = new URL("http://localhost:" + server.getAddress().getPort() + FCM_PATH);
+    }
+
+    @AfterClass
+    public void cleanup() {
+        server.stop(0);
+    }
+
+    @BeforeMethod
+    public void reset() {
+        receivedRequests.clear();
+        receivedAuthorizations.clear();
+        stubResponses.clear();
+        rejectedTokens.clear();
+        tokenResolutions.clear();
+        tokenResolutionThreads.clear();
+        workerGate = new CountDownLatch(0);
+    }
+
+    @AfterMethod
+    public void shutdownSender() {
+        if (sender != null) {
+            sender.shutdown();
+            sender = null;
+        }
+    }
+
+    @Test(description = "test that wake up calls of the same operation are sent in a single request")
+    public void testCoalesceWakeUpCalls() throws InterruptedException {
+        sender = createSender(FCMSender.MAX_REGISTRATION_IDS_PER_REQUEST, 200);
+        for (int i = 0; i < 5; i++) {
+            sender.send("DEVICE_LOCK", createRecipient(i));
+        }
+        waitForRequests(1);
+        JsonObject request = receivedRequests.get(0);
+        Assert.assertEquals(request.getAsJsonArray("registration_ids").size(), 5,
+                "Wake up calls are not coalesced into a single request");
+        Assert.assertEquals(request.getAsJsonObject("data").get("data").getAsString(), "DEVICE_LOCK",
+                "Operation code is not sent as the message");
+        Assert.assertEquals(receivedAuthorizations.get(0), "key=" + API_KEY, "Server key is not sent");
+    }
+
+    @Test(description = "test that the unknown tokens of the wake up calls of a request are resolved together")
+    public void testResolveTokensTogether() throws InterruptedException {
+        sender = createSender(FCMSender.MAX_REGISTRATION_IDS_PER_REQUEST, 200);
+        sender.send("DEVICE_LOCK", createRecipient(0));
+        for (int i = 1; i < 4; i++) {
+            sender.send("DEVICE_LOCK", new FCMSender.Recipient(-1234,
+                    new DeviceIdentifier("device-" + i, DEVICE_TYPE), null));
+        }
+        sender.send("DEVICE_LOCK", new FCMSender.Recipient(-1234, new DeviceIdentifier("unknown", DEVICE_TYPE),
+                null));
+        waitForRequests(1);
+        Assert.assertEquals(tokenResolutions.size(), 1, "Tokens are not resolved in one go");
+        Assert.assertEquals(tokenResolutions.get(0).size(), 4, "Known tokens are resolved again");
+        JsonArray registrationIds = receivedRequests.get(0).getAsJsonArray("registration_ids");
+        Assert.assertEquals(registrationIds.size(), 4, "Device without a token is not left out");
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < registrationIds.size(); i++) {
+            tokens.add(registrationIds.get(i).getAsString());
+        }
+        Assert.assertEquals(tokens, Arrays.asList("token-0", "token-1", "token-2", "token-3"),
+                "Resolved tokens are not sent");
+    }
+
+    @Test(description = "test that wake up calls are split into requests of the maximum size")
+    public void testSplitWakeUpCalls() throws InterruptedException {
+        sender = createSender(2, 200);
+        for (int i = 0; i < 5; i++) {
+            sender.send("DEVICE_LOCK", createRecipient(i));
+        }
+        waitForRequests(3);
+        int registrationIdCount = 0;
+        for (JsonObject request : receivedRequests) {
+            Assert.assertTrue(request.getAsJsonArray("registration_ids").size() <= 2,
+                    "Request has more registration ids than the maximum");
+            registrationIdCount += request.getAsJsonArray("registration_ids").size();
+        }
+        Assert.assertEquals(registrationIdCount, 5, "Not all the wake up calls are sent");
+    }
+
+    @Test(description = "test that wake up calls of different operations are sent in separate requests")
+    public void testSeparateOperations() throws InterruptedException {
+        sender = createSender(FCMSender.MAX_REGISTRATION_IDS_PER_REQUEST, 200);
+        sender.send("DEVICE_LOCK", createRecipient(0));
+        sender.send("DEVICE_RING", createRecipient(1));
+        waitForRequests(2);
+        Assert.assertEquals(receivedRequests.size(), 2, "Wake up calls of different operations are coalesced");
+    }
+
+    @Test(description = "test that a rate limited request is retried after the time given by FCM")
+    public void testRetryRateLimitedRequest() throws InterruptedException {
+        stubResponses.add(new StubResponse(429, "", "1"));
+        sender = createSender(FCMSender.MAX_REGISTRATION_IDS_PER_REQUEST, 10);
+        long startTime = System.currentTimeMillis();
+        sender.send("DEVICE_LOCK", createRecipient(0));
+        waitForRequests(2);
+        Assert.assertTrue(System.currentTimeMillis() - startTime >= 1000, "Retry-After header is not honoured");
+        Assert.assertEquals(receivedRequests.get(1).getAsJsonArray("registration_ids").get(0).getAsString(),
+                "token-0", "Rate limited wake up call is not retried");
+    }
+
+    @Test(description = "test that only the unavailable devices are retried and rejected tokens are reported")
+    public void testRetryUnavailableDevices() throws InterruptedException {
+        stubResponses.add(new StubResponse(200, "{\"multicast_id\":1,\"success\":1,\"failure\":2,\"results\":" +
+                "[{\"message_id\":\"1\"},{\"error\":\"Unavailable\"},{\"error\":\"NotRegistered\"}]}", null));
+        sender = createSender(FCMSender.MAX_REGISTRATION_IDS_PER_REQUEST, 200);
+        for (int i = 0; i < 3; i++) {
+            sender.send("DEVICE_LOCK", createRecipient(i));
+        }
+        waitForRequests(2);
+        JsonArray retriedIds = receivedRequests.get(1).getAsJsonArray("registration_ids");
+        Assert.assertEquals(retriedIds.size(), 1, "Devices which are not unavailable are retried");
+        Assert.assertEquals(retriedIds.get(0).getAsString(), "token-1", "Unavailable device is not retried");
+        Assert.assertEquals(rejectedTokens, Collections.singletonList("token-2"), "Rejected token is not reported");
+    }
+
+    @Test(description = "test that the calling thread sends the request itself when the pool is busy")
+    public void testSendByCallerWhenPoolIsBusy() throws InterruptedException {
+        // The workers wait in the token resolver until the calling thread resolves tokens, i.e. until a request is
+        // not accepted by the two workers and the two queue slots of the pool.
+        workerGate = new CountDownLatch(1);
+        sender = createSender(1, TIMEOUT_MILLIS);
+        for (int i = 0; i < 5; i++) {
+            sender.send("DEVICE_LOCK", new FCMSender.Recipient(-1234,
+                    new DeviceIdentifier("device-" + i, DEVICE_TYPE), null));
+        }
+        Assert.assertEquals(Collections.frequency(tokenResolutionThreads, Thread.currentThread()), 1,
+                "Request which does not fit in the pool is not sent by the calling thread");
+        waitForRequests(5);
+    }
+
+    @Test(description = "test that wake up calls sent after the sender is shut down are dropped")
+    public void testSendAfterShutdown() throws InterruptedException {
+        sender = createSender(1, 10);
+        sender.shutdown();
+        sender.send("DEVICE_LOCK", createRecipient(0));
+        Thread.sleep(200);
+        Assert.assertTrue(receivedRequests.isEmpty(), "Wake up call is sent after the sender is shut down");
+    }
+
+    private FCMSender createSender(int maxRecipientsPerRequest, long lingerMillis) {
+        return new FCMSender(endpoint, API_KEY, 2, lingerMillis, maxRecipientsPerRequest, 3, 10,
+                new FCMSender.TokenResolver() {
+                    @Override
+                    public List<FCMSender.Recipient> resolveTokens(List<FCMSender.Recipient> recipients) {
+                        tokenResolutions.add(new ArrayList<>(recipients));
+                        tokenResolutionThreads.add(Thread.currentThread());
+                        if (Thread.currentThread().getName().startsWith("fcm-sender-")) {
+                            awaitWorkerGate();
+                        } else {
+                            workerGate.countDown();
+                        }
+                        List<FCMSender.Recipient> resolvedRecipients = new ArrayList<>();
+                        for (FCMSender.Recipient recipient : recipients) {
+                            String deviceId = recipient.getDeviceIdentifier().getId();
+                            if (deviceId.startsWith("device-")) {
+                                resolvedRecipients.add(new FCMSender.Recipient(recipient.getTenantId(),
+                                        recipient.getDeviceIdentifier(), "token-" + deviceId.substring(7)));
+                            }
+                        }
+                        return resolvedRecipients;
+                    }
+                },
+                new FCMSender.TokenRejectionListener() {
+                    @Override
+                    public void onTokenRejected(FCMSender.Recipient recipient) {
+                        rejectedTokens.add(recipient.getToken());
+                    }
+                });
+    }
+
+    private FCMSender.Recipient createRecipient(int index) {
+        return new FCMSender.Recipient(-1234, new DeviceIdentifier("device-" + index, DEVICE_TYPE), "token-" + index);
+    }
+
+    private void awaitWorkerGate() {
+        try {
+            workerGate.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitForRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (receivedRequests.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(receivedRequests.size(), count, "Number of requests received by FCM is not matching");
+    }
+
+    private static String readBody(InputStream is) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = is.read(buffer)) != -1) {
+            body.write(buffer, 0, length);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static class StubResponse {
+        private final int status;
+        private final String body;
+        private final String retryAfter;
+
+        private StubResponse(int status, String body, String retryAfter) {
+            this.status = status;
+            this.body = body;
+            this.retryAfter = retryAfter;
+        }
+
+        private static StubResponse success(int count) {
+            StringBuilder results = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                results.append(i == 0 ? "" : ",").append("{\"message_id\":\"").append(i).append("\"}");
+            }
+            return new StubResponse(200, "{\"multicast_id\":1,\"success\":" + count + ",\"failure\":0," +
+                    "\"results\":[" + results + "]}", null);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.InvalidConfigurationException;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
 
+import java.io.IOException;
 import java.net.UnknownHostException;
 
 public class HTTPMessageExecutor implements Runnable {
@@ -23,13 +24,18 @@ public class HTTPMessageExecutor implements Runnable {
     private static final String APPLIATION_JSON = "application/json";
     private static final String AUTHORIZATION_HEADER = "Authorization";
     private static final Log log = LogFactory.getLog(HTTPMessageExecutor.class);
+    private static final Gson gson = new Gson();
 
     public HTTPMessageExecutor(NotificationContext notificationContext, String authorizationHeader, String url
             , HostConfiguration hostConfiguration, HttpClient httpClient) {
+        this(gson.toJson(notificationContext), authorizationHeader, url, hostConfiguration, httpClient);
+    }
+
+    public HTTPMessageExecutor(String payload, String authorizationHeader, String url
+            , HostConfiguration hostConfiguration, HttpClient httpClient) {
         this.url = url;
         this.authorizationHeader = authorizationHeader;
-        Gson gson = new Gson();
-        this.payload = gson.toJson(notificationContext);
+        this.payload = payload;
         this.hostConfiguration = hostConfiguration;
         this.httpClient = httpClient;
     }
@@ -68,27 +74,37 @@ public class HTTPMessageExecutor implements Runnable {
 
     @Override
     public void run() {
-        EntityEnclosingMethod method = null;
-
         try {
-            method = new PostMethod(this.getUrl());
-            method.setRequestEntity(new StringRequestEntity(this.getPayload(), APPLIATION_JSON, "UTF-8"));
-            if (authorizationHeader != null && authorizationHeader.isEmpty()) {
-                method.setRequestHeader(AUTHORIZATION_HEADER, authorizationHeader);
+            int statusCode = this.send();
+            if (statusCode < 200 || statusCode >= 300) {
+                log.error("Push Notification message rejected by " + url + " with the status code " + statusCode);
             }
-
-            this.getHttpClient().executeMethod(hostConfiguration, method);
-
         } catch (UnknownHostException e) {
             log.error("Push Notification message dropped " + url, e);
             throw new InvalidConfigurationException("invalid host: url", e);
         } catch (Throwable e) {
             log.error("Push Notification message dropped ", e);
             throw new InvalidConfigurationException("Push Notification message dropped, " + e.getMessage(), e);
-        } finally {
-            if (method != null) {
-                method.releaseConnection();
+        }
+    }
+
+    /**
+     * Posts the payload to the endpoint. The connection is released to the connection manager of the client
+     * afterwards, so that it can be reused by the next message.
+     *
+     * @return HTTP status code of the response.
+     * @throws IOException if the message could not be sent.
+     */
+    int send() throws IOException {
+        EntityEnclosingMethod method = new PostMethod(this.getUrl());
+        try {
+            method.setRequestEntity(new StringRequestEntity(this.getPayload(), APPLIATION_JSON, "UTF-8"));
+            if (authorizationHeader != null && !authorizationHeader.isEmpty()) {
+                method.setRequestHeader(AUTHORIZATION_HEADER, authorizationHeader);
             }
+            return this.getHttpClient().executeMethod(hostConfiguration, method);
+        } finally {
+            method.releaseConnection();
         }
     }
 }
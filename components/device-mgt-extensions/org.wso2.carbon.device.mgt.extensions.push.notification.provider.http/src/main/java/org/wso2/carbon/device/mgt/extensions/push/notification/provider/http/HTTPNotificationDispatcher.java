@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.extensions.push.notification.provider.http;
+
+import com.google.gson.Gson;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the notifications of an HTTP endpoint through a fixed number of workers. Notifications wait in a bounded
+ * queue; when the queue is full, the thread that submits the notification sends it itself, which throttles the
+ * caller instead of growing the queue without a limit. The number of callers sending at the same time is bounded as
+ * well, so that they do not wait for the connections of the workers; notifications beyond that are rejected right
+ * away. When batching is enabled, a worker sends the notifications already waiting in the queue as a single JSON
+ * array.
+ */
+public class HTTPNotificationDispatcher {
+
+    private static final Log log = LogFactory.getLog(HTTPNotificationDispatcher.class);
+    private static final Gson gson = new Gson();
+
+    private final String endpoint;
+    private final String authorizationHeaderValue;
+    private final HostConfiguration hostConfiguration;
+    private final HttpClient httpClient;
+    private final int batchSize;
+    private final BlockingQueue<NotificationContext> queue;
+    private final Semaphore callerSends;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private volatile long lastLatencyMillis;
+    private volatile boolean running = true;
+
+    /**
+     * @param endpoint                 URL the notifications are posted to.
+     * @param authorizationHeaderValue value of the Authorization header, or null if the endpoint is not secured.
+     * @param hostConfiguration        host of the endpoint.
+     * @param httpClient               client backed by a connection manager that keeps a connection per worker and
+     *                                 per caller sending at the same time, i.e. poolSize + maxCallerSends.
+     * @param poolSize                 number of workers sending notifications at the same time.
+     * @param maxCallerSends           maximum number of callers sending notifications at the same time when the
+     *                                 queue is full.
+     * @param queueSize                maximum number of notifications waiting to be sent.
+     * @param batchSize                maximum number of notifications sent in a single request. Batching is disabled
+     *                                 when this is 1, in which case a request carries a single notification object.
+     */
+    public HTTPNotificationDispatcher(String endpoint, String authorizationHeaderValue,
+                                      HostConfiguration hostConfiguration, HttpClient httpClient, int poolSize,
+                                      int maxCallerSends, int queueSize, int batchSize) {
+        this.endpoint = endpoint;
+        this.authorizationHeaderValue = authorizationHeaderValue;
+        this.hostConfiguration = hostConfiguration;
+        this.httpClient = httpClient;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.callerSends = new Semaphore(maxCallerSends);
+        for (int i = 1; i <= poolSize; i++) {
+            Thread worker = new Thread(new Worker(), "http-push-notification-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Queues a notification to be sent to the endpoint. When the queue is full, the notification is sent by the
+     * caller, or it is rejected if as many callers are already sending.
+     *
+     * @param ctx notification to be sent.
+     */
+    public void dispatch(NotificationContext ctx) {
+        if (!running) {
+            failedCount.incrementAndGet();
+            log.warn("Push notification to " + endpoint + " is dropped as the provider is undeployed.");
+            return;
+        }
+        if (queue.offer(ctx)) {
+            return;
+        }
+        if (!callerSends.tryAcquire()) {
+            failedCount.incrementAndGet();
+            log.error("Push notification to " + endpoint + " is rejected as the queue is full and " +
+                    "the endpoint is not keeping up.");
+            return;
+        }
+        try {
+            List<NotificationContext> notifications = new ArrayList<>(1);
+            notifications.add(ctx);
+            this.send(notifications);
+        } finally {
+            callerSends.release();
+        }
+    }
+
+    /**
+     * @return number of notifications waiting to be sent.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return average time taken by a request to the endpoint, in milliseconds.
+     */
+    public double getAverageLatency() {
+        long requests = requestCount.get();
+        return requests > 0 ? (double) totalLatencyMillis.get() / requests : 0;
+    }
+
+    /**
+     * @return time taken by the last request to the endpoint, in milliseconds.
+     */
+    public long getLastLatency() {
+        return lastLatencyMillis;
+    }
+
+    /**
+     * Stops the workers. Notifications which are still waiting in the queue, and the notifications dispatched
+     * afterwards, are dropped and counted as failed.
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        workers.clear();
+        List<NotificationContext> dropped = new ArrayList<>();
+        int droppedCount = queue.drainTo(dropped);
+        if (droppedCount > 0) {
+            failedCount.addAndGet(droppedCount);
+            log.warn(droppedCount + " push notifications to " + endpoint + " are dropped as the provider is " +
+                    "undeployed.");
+        }
+    }
+
+    private void send(List<NotificationContext> notifications) {
+        String payload = notifications.size() == 1 && batchSize == 1 ? gson.toJson(notifications.get(0)) :
+                gson.toJson(notifications);
+        long startTime = System.currentTimeMillis();
+        try {
+            int statusCode = new HTTPMessageExecutor(payload, authorizationHeaderValue, endpoint, hostConfiguration,
+                    httpClient).send();
+            if (statusCode >= 200 && statusCode < 300) {
+                sentCount.addAndGet(notifications.size());
+            } else {
+                failedCount.addAndGet(notifications.size());
+                log.error(notifications.size() + " push notifications are rejected by " + endpoint +
+                        " with the status code " + statusCode);
+            }
+        } catch (IOException | RuntimeException e) {
+            failedCount.addAndGet(notifications.size());
+            log.error(notifications.size() + " push notifications to " + endpoint + " are dropped", e);
+        } finally {
+            this.recordLatency(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void recordLatency(long latencyMillis) {
+        lastLatencyMillis = latencyMillis;
+        totalLatencyMillis.addAndGet(latencyMillis);
+        requestCount.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Push notification request to " + endpoint + " completed in " + latencyMillis + " ms. Queue " +
+                    "depth: " + getQueueDepth() + ", sent: " + sentCount.get() + ", failed: " + failedCount.get());
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            List<NotificationContext> notifications = new ArrayList<>(batchSize);
+            while (running) {
+                try {
+                    notifications.add(queue.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (batchSize > 1) {
+                    queue.drainTo(notifications, batchSize - 1);
+                }
+                send(notifications);
+                notifications.clear();
+            }
+        }
+    }
+}
@@ -20,6 +20,8 @@ package org.wso2.carbon.device.mgt.extensions.push.notification.provider.http;
 
 import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.InvalidConfigurationException;
@@ -30,9 +32,6 @@ import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecu
 
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionException;
 
 public class HTTPNotificationStrategy implements NotificationStrategy {
 
@@ -40,12 +39,17 @@ public class HTTPNotificationStrategy implements NotificationStrategy {
     private final PushNotificationConfig config;
     private static final String URL_PROPERTY = "url";
     private static final String AUTHORIZATION_HEADER_PROPERTY = "authorization";
+    private static final String WORKER_POOL_SIZE_PROPERTY = "workerPoolSize";
+    private static final String QUEUE_SIZE_PROPERTY = "queueSize";
+    private static final String BATCH_SIZE_PROPERTY = "batchSize";
+    private static final int DEFAULT_WORKER_POOL_SIZE = 10;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_BATCH_SIZE = 1;
+    private static final int CONNECTION_TIMEOUT_MILLIS = 10000;
+    private static final int SOCKET_TIMEOUT_MILLIS = 30000;
     private String endpoint;
-    private static ExecutorService executorService;
-    private HttpClient httpClient = null;
-    private HostConfiguration hostConfiguration;
-    private String authorizationHeaderValue;
-    private String uri;
+    private MultiThreadedHttpConnectionManager connectionManager;
+    private HTTPNotificationDispatcher dispatcher;
 
     public HTTPNotificationStrategy(PushNotificationConfig config) {
         this.config = config;
@@ -57,13 +61,26 @@ public class HTTPNotificationStrategy implements NotificationStrategy {
             throw new InvalidConfigurationException("Property - 'url' cannot be found");
         }
         try {
-            this.uri = endpoint;
             URL url = new URL(endpoint);
-            hostConfiguration = new HostConfiguration();
+            HostConfiguration hostConfiguration = new HostConfiguration();
             hostConfiguration.setHost(url.getHost(), url.getPort(), url.getProtocol());
-            this.authorizationHeaderValue = config.getProperties().get(AUTHORIZATION_HEADER_PROPERTY);
-            executorService = Executors.newFixedThreadPool(1);
-            httpClient = new HttpClient();
+            String authorizationHeaderValue = config.getProperties().get(AUTHORIZATION_HEADER_PROPERTY);
+            int poolSize = getIntProperty(WORKER_POOL_SIZE_PROPERTY, DEFAULT_WORKER_POOL_SIZE);
+
+            // Each worker, and each caller which sends while the queue is full, keeps its own connection alive, so
+            // that notifications are not serialized over one connection and a new connection is not opened per
+            // notification.
+            int maxCallerSends = poolSize;
+            connectionManager = new MultiThreadedHttpConnectionManager();
+            HttpConnectionManagerParams params = connectionManager.getParams();
+            params.setDefaultMaxConnectionsPerHost(poolSize + maxCallerSends);
+            params.setMaxTotalConnections(poolSize + maxCallerSends);
+            params.setConnectionTimeout(CONNECTION_TIMEOUT_MILLIS);
+            params.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+            dispatcher = new HTTPNotificationDispatcher(endpoint, authorizationHeaderValue, hostConfiguration,
+                    new HttpClient(connectionManager), poolSize, maxCallerSends,
+                    getIntProperty(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE),
+                    getIntProperty(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
         } catch (MalformedURLException e) {
             throw new InvalidConfigurationException("Property - 'url' is malformed.", e);
         }
@@ -76,12 +93,7 @@ public class HTTPNotificationStrategy implements NotificationStrategy {
 
     @Override
     public void execute(NotificationContext ctx) throws PushNotificationExecutionFailedException {
-        try {
-            executorService.submit(new HTTPMessageExecutor(ctx, authorizationHeaderValue, uri, hostConfiguration
-                    , httpClient));
-        } catch (RejectedExecutionException e) {
-            log.error("Failed to publish to external endpoint url: " + endpoint, e);
-        }
+        dispatcher.dispatch(ctx);
     }
 
     @Override
@@ -91,7 +103,8 @@ public class HTTPNotificationStrategy implements NotificationStrategy {
 
     @Override
     public void undeploy() {
-        executorService.shutdown();
+        dispatcher.shutdown();
+        connectionManager.shutdown();
     }
 
     @Override
@@ -99,5 +112,28 @@ public class HTTPNotificationStrategy implements NotificationStrategy {
         return config;
     }
 
+    /**
+     * @return dispatcher of the endpoint, which exposes the queue depth and the latency of the requests.
+     */
+    public HTTPNotificationDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    private int getIntProperty(String name, int defaultValue) {
+        String value = config.getProperties().get(name);
+        if (value != null && !value.isEmpty()) {
+            try {
+                int intValue = Integer.parseInt(value.trim());
+                if (intValue > 0) {
+                    return intValue;
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value '" + value + "' for the HTTP push notification property '" + name +
+                        "', hence using the default value " + defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
 }
 
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.extensions.push.notification.provider.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for HTTPNotificationDispatcher, which posts the notifications to a local HTTP stub of the endpoint.
+ */
+public class HTTPNotificationDispatcherTest {
+    private static final String PATH = "/notify";
+    private static final String AUTHORIZATION = "Basic dGVzdDp0ZXN0";
+    private static final long TIMEOUT_MILLIS = 10000;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String endpoint;
+    private HostConfiguration hostConfiguration;
+    private final List<JsonElement> receivedRequests = Collections.synchronizedList(new ArrayList<JsonElement>());
+    private final List<String> receivedAuthorizations = Collections.synchronizedList(new ArrayList<String>());
+    private volatile CountDownLatch responseLatch;
+    private MultiThreadedHttpConnectionManager connectionManager;
+    private HTTPNotificationDispatcher dispatcher;
+
+    @BeforeClass
+    public void init() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedAuthorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+                receivedRequests.add(new JsonParser().parse(readBody(exchange.getRequestBody())));
+                CountDownLatch latch = responseLatch;
+                if (latch != null) {
+                    try {
+                        latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        // Requests are handled concurrently, so that a held response does not hold the other requests.
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        endpoint = "http://localhost:" + server.getAddress().getPort() + PATH;
+        hostConfiguration = new HostConfiguration();
+        hostConfiguration.setHost("localhost", server.getAddress().getPort(), "http");
+    }
+
+    @AfterClass
+    public void cleanup() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @BeforeMethod
+    public void reset() {
+        receivedRequests.clear();
+        receivedAuthorizations.clear();
+        responseLatch = null;
+    }
+
+    @AfterMethod
+    public void shutdownDispatcher() {
+        CountDownLatch latch = responseLatch;
+        if (latch != null) {
+            latch.countDown();
+        }
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            dispatcher = null;
+        }
+        if (connectionManager != null) {
+            connectionManager.shutdown();
+            connectionManager = null;
+        }
+    }
+
+    @Test(description = "test that each notification is posted as a JSON object when batching is disabled")
+    public void testDispatch() throws InterruptedException {
+        dispatcher = createDispatcher(2, 2, 10, 1);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(createNotification(i));
+        }
+        waitForSent(5);
+        Assert.assertEquals(receivedRequests.size(), 5, "Notifications are not sent in separate requests");
+        for (JsonElement request : receivedRequests) {
+            Assert.assertTrue(request.isJsonObject(), "Notification is not sent as a JSON object");
+        }
+        Assert.assertEquals(receivedAuthorizations.get(0), AUTHORIZATION, "Authorization header is not sent");
+        Assert.assertEquals(dispatcher.getFailedCount(), 0, "Notifications are reported as failed");
+    }
+
+    @Test(description = "test that the notifications waiting in the queue are sent together when batching is enabled")
+    public void testBatching() throws InterruptedException {
+        responseLatch = new CountDownLatch(1);
+        dispatcher = createDispatcher(1, 1, 10, 10);
+        dispatcher.dispatch(createNotification(0));
+        waitForRequests(1);
+        for (int i = 1; i < 4; i++) {
+            dispatcher.dispatch(createNotification(i));
+        }
+        Assert.assertEquals(dispatcher.getQueueDepth(), 3, "Notifications are not queued while the worker is busy");
+        responseLatch.countDown();
+        waitForSent(4);
+        Assert.assertEquals(receivedRequests.size(), 2, "Queued notifications are not sent together");
+        Assert.assertTrue(receivedRequests.get(1).isJsonArray(), "Batch is not sent as a JSON array");
+        Assert.assertEquals(receivedRequests.get(1).getAsJsonArray().size(), 3,
+                "Not all the queued notifications are sent in the batch");
+    }
+
+    @Test(description = "test that callers send when the queue is full and are rejected once the callers are busy")
+    public void testSaturation() throws InterruptedException {
+        responseLatch = new CountDownLatch(1);
+        dispatcher = createDispatcher(1, 1, 1, 1);
+        dispatcher.dispatch(createNotification(0));
+        waitForRequests(1);
+        dispatcher.dispatch(createNotification(1));
+        Assert.assertEquals(dispatcher.getQueueDepth(), 1, "Notification is not queued while the worker is busy");
+
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatcher.dispatch(createNotification(2));
+            }
+        });
+        caller.start();
+        waitForRequests(2);
+
+        long startTime = System.currentTimeMillis();
+        dispatcher.dispatch(createNotification(3));
+        Assert.assertTrue(System.currentTimeMillis() - startTime < TIMEOUT_MILLIS / 2,
+                "Caller waits instead of being rejected");
+        Assert.assertEquals(dispatcher.getFailedCount(), 1, "Notification beyond the callers is not rejected");
+
+        responseLatch.countDown();
+        caller.join(TIMEOUT_MILLIS);
+        waitForSent(3);
+        Assert.assertEquals(receivedRequests.size(), 3, "Rejected notification is sent");
+    }
+
+    @Test(description = "test that shutting down drops the queued notifications and the later ones")
+    public void testShutdown() throws InterruptedException {
+        responseLatch = new CountDownLatch(1);
+        dispatcher = createDispatcher(1, 1, 10, 1);
+        dispatcher.dispatch(createNotification(0));
+        waitForRequests(1);
+        dispatcher.dispatch(createNotification(1));
+        dispatcher.dispatch(createNotification(2));
+
+        dispatcher.shutdown();
+        Assert.assertEquals(dispatcher.getQueueDepth(), 0, "Queued notifications are not dropped");
+        Assert.assertEquals(dispatcher.getFailedCount(), 2, "Dropped notifications are not counted as failed");
+        dispatcher.dispatch(createNotification(3));
+        Assert.assertEquals(dispatcher.getFailedCount(), 3, "Notification dispatched after shutdown is not dropped");
+
+        responseLatch.countDown();
+        waitForSent(1);
+        Assert.assertEquals(receivedRequests.size(), 1, "Notifications are sent after shutdown");
+    }
+
+    private HTTPNotificationDispatcher createDispatcher(int poolSize, int maxCallerSends, int queueSize,
+                                                       int batchSize) {
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        connectionManager.getParams().setDefaultMaxConnectionsPerHost(poolSize + maxCallerSends);
+        connectionManager.getParams().setMaxTotalConnections(poolSize + maxCallerSends);
+        return new HTTPNotificationDispatcher(endpoint, AUTHORIZATION, hostConfiguration,
+                new HttpClient(connectionManager), poolSize, maxCallerSends, queueSize, batchSize);
+    }
+
+    private static NotificationContext createNotification(int index) {
+        Operation operation = new Operation();
+        operation.setCode("DEVICE_RING");
+        return new NotificationContext(new DeviceIdentifier("device-" + index, "android"), operation);
+    }
+
+    private void waitForRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (receivedRequests.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(receivedRequests.size(), count, "Number of requests received is not matching");
+    }
+
+    private void waitForSent(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (dispatcher.getSentCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(dispatcher.getSentCount(), count, "Number of notifications sent is not matching");
+    }
+
+    private static String readBody(InputStream is) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = is.read(buffer)) != -1) {
+            body.write(buffer, 0, length);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
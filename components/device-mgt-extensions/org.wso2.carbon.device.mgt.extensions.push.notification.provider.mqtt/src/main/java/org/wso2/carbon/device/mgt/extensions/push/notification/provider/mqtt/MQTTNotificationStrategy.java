@@ -18,9 +18,13 @@
  */
 package org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.InvalidConfigurationException;
 import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
@@ -32,23 +36,51 @@ import org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt.int
 import org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt.internal.util.MQTTAdapterConstants;
 import org.wso2.carbon.event.output.adapter.core.MessageType;
 import org.wso2.carbon.event.output.adapter.core.OutputEventAdapterConfiguration;
+import org.wso2.carbon.event.output.adapter.core.OutputEventAdapterService;
 import org.wso2.carbon.event.output.adapter.core.exception.OutputEventAdapterException;
+import org.wso2.carbon.event.output.adapter.core.exception.OutputEventAdapterRuntimeException;
 import org.wso2.carbon.device.mgt.core.operation.mgt.PolicyOperation;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class MQTTNotificationStrategy implements NotificationStrategy {
 
     private static final String MQTT_ADAPTER_TOPIC = "mqtt.adapter.topic";
+    private static final String MQTT_ADAPTER_NAME_PREFIX = "mqtt.adapter.";
+    private static final String TOPIC_PROPERTY = "topic";
+    private static final String OPERATION_TOPIC_SEGMENT = "/operation/";
+    private static final String POLICY_BUNDLE_TOPIC_SEGMENT = Operation.Type.POLICY.toString().toLowerCase() + "/" +
+            PolicyOperation.POLICY_OPERATION_CODE.toLowerCase();
+    private static final String BUNDLE_CODE_PROPERTY = "code";
+    private static final String BUNDLE_PAYLOAD_PROPERTY = "payload";
+    private static final Map<Operation.Type, String> OPERATION_TYPE_TOPIC_SEGMENTS =
+            new EnumMap<>(Operation.Type.class);
+    private static final Gson gson = new Gson();
     private String mqttAdapterName;
     private static final Log log = LogFactory.getLog(MQTTNotificationStrategy.class);
     private final PushNotificationConfig config;
     private final String providerTenantDomain;
+    private final boolean bundlePolicyOperations;
     private static final Object lockObj = new Object();
 
+    /**
+     * Adapters of the tenants that use a device type shared with all tenants, keyed by the tenant domain. An adapter
+     * is created once per tenant, so publishing does not need to probe the adapter service.
+     */
+    private static final ConcurrentMap<String, String> sharedTenantAdapters = new ConcurrentHashMap<>();
+
+    static {
+        for (Operation.Type type : Operation.Type.values()) {
+            OPERATION_TYPE_TOPIC_SEGMENTS.put(type, type.toString().toLowerCase());
+        }
+    }
+
     public MQTTNotificationStrategy(PushNotificationConfig config) {
         this.config = config;
         OutputEventAdapterConfiguration adapterConfig = new OutputEventAdapterConfiguration();
@@ -72,20 +104,18 @@ public class MQTTNotificationStrategy implements NotificationStrategy {
                                  config.getProperty(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_SCOPES));
             configProperties.put(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_MESSAGE_QOS,
                                  config.getProperty(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_MESSAGE_QOS));
+            bundlePolicyOperations = Boolean.parseBoolean(
+                    config.getProperty(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_BUNDLE_POLICY_OPERATIONS));
         } else {
-            mqttAdapterName = "mqtt.adapter." + PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain()
-                    .toLowerCase();
+            mqttAdapterName = MQTT_ADAPTER_NAME_PREFIX + PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                    .getTenantDomain().toLowerCase();
+            bundlePolicyOperations = false;
         }
         adapterConfig.setName(mqttAdapterName);
         adapterConfig.setStaticProperties(configProperties);
         try {
             synchronized (lockObj) {
-                try {
-                    MQTTDataHolder.getInstance().getOutputEventAdapterService().isPolled(mqttAdapterName);
-                } catch (OutputEventAdapterException e) {
-                    //event adapter not created
-                    MQTTDataHolder.getInstance().getOutputEventAdapterService().create(adapterConfig);
-                }
+                createAdapterIfNotExists(adapterConfig);
             }
         } catch (OutputEventAdapterException e) {
             throw new InvalidConfigurationException("Error occurred while initializing MQTT output event adapter", e);
@@ -105,75 +135,44 @@ public class MQTTNotificationStrategy implements NotificationStrategy {
         String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain(true);
         if (!providerTenantDomain.equals(tenantDomain)) {
             //this is to handle the device type shared with all tenant mode.
-
-            adapterName = "mqtt.adapter." + PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain()
-                    .toLowerCase();
-            try {
-                MQTTDataHolder.getInstance().getOutputEventAdapterService().isPolled(adapterName);
-            } catch (OutputEventAdapterException e) {
-                //event adapter not created
-                synchronized (lockObj) {
-                    OutputEventAdapterConfiguration adapterConfig = new OutputEventAdapterConfiguration();
-                    adapterConfig.setType(MQTTAdapterConstants.MQTT_ADAPTER_TYPE);
-                    adapterConfig.setMessageFormat(MessageType.TEXT);
-                    adapterConfig.setName(adapterName);
-                    Map<String, String> configProperties = new HashMap<String, String>();
-                    adapterConfig.setStaticProperties(configProperties);
-                    try {
-                        MQTTDataHolder.getInstance().getOutputEventAdapterService().create(adapterConfig);
-                    } catch (OutputEventAdapterException e1) {
-                        throw new PushNotificationExecutionFailedException
-                                ("Error occurred while initializing MQTT output event adapter for shared tenant: "
-                                         + tenantDomain, e);
-                    }
-                }
-            }
-
+            adapterName = getSharedTenantAdapter(tenantDomain);
         }
 
         Operation operation = ctx.getOperation();
         Properties properties = operation.getProperties();
         if (properties != null && properties.get(MQTT_ADAPTER_TOPIC) != null) {
-            Map<String, String> dynamicProperties = new HashMap<>();
-            dynamicProperties.put("topic", (String) properties.get(MQTT_ADAPTER_TOPIC));
-            MQTTDataHolder.getInstance().getOutputEventAdapterService().publish(adapterName, dynamicProperties,
+            this.publish(adapterName, tenantDomain, getTopicProperties((String) properties.get(MQTT_ADAPTER_TOPIC)),
                     operation.getPayLoad());
         } else {
+            String topicPrefix = getOperationTopicPrefix(tenantDomain, ctx.getDeviceId());
             if (PolicyOperation.POLICY_OPERATION_CODE.equals(operation.getCode())) {
                 PolicyOperation policyOperation = (PolicyOperation) operation;
                 List<ProfileOperation> profileOperations = policyOperation.getProfileOperations();
-                String deviceType = ctx.getDeviceId().getType();
-                String deviceId = ctx.getDeviceId().getId();
+                if (bundlePolicyOperations) {
+                    // The whole policy goes to the device as a single message instead of a message per feature.
+                    this.publish(adapterName, tenantDomain,
+                            getTopicProperties(topicPrefix + POLICY_BUNDLE_TOPIC_SEGMENT),
+                            getBundledPayload(profileOperations));
+                    return;
+                }
                 for (ProfileOperation profileOperation : profileOperations) {
-                    Map<String, String> dynamicProperties = new HashMap<>();
-                    String topic = tenantDomain + "/"
-                            + deviceType + "/" + deviceId + "/operation/" + profileOperation.getType()
-                            .toString().toLowerCase() + "/" + profileOperation.getCode().toLowerCase();
-                    dynamicProperties.put("topic", topic);
-                    MQTTDataHolder.getInstance().getOutputEventAdapterService().publish(adapterName, dynamicProperties,
+                    String topic = topicPrefix + OPERATION_TYPE_TOPIC_SEGMENTS.get(profileOperation.getType()) + "/" +
+                            profileOperation.getCode().toLowerCase();
+                    adapterName = this.publish(adapterName, tenantDomain, getTopicProperties(topic),
                             profileOperation.getPayLoad());
                 }
-
             } else {
-                Map<String, String> dynamicProperties = new HashMap<>();
-                String topic = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain(true) + "/"
-                        + ctx.getDeviceId().getType() + "/" + ctx.getDeviceId().getId() + "/operation/"
-                        + operation.getType().toString().toLowerCase() + "/" + operation.getCode() + "/" + operation.getId();
-                dynamicProperties.put("topic", topic);
+                String topic = topicPrefix + OPERATION_TYPE_TOPIC_SEGMENTS.get(operation.getType()) + "/" +
+                        operation.getCode() + "/" + operation.getId();
                 Object payload;
-                if ("command".equals(operation.getType().toString().toLowerCase())) {
+                if (Operation.Type.COMMAND == operation.getType()) {
                     payload = operation.getCode();
                 } else {
                     payload = operation.getPayLoad();
                 }
-                MQTTDataHolder.getInstance().getOutputEventAdapterService().publish(adapterName, dynamicProperties,
-                                                                                    payload);
-
+                this.publish(adapterName, tenantDomain, getTopicProperties(topic), payload);
             }
-
         }
-
-
     }
 
     @Override
@@ -184,6 +183,7 @@ public class MQTTNotificationStrategy implements NotificationStrategy {
     @Override
     public void undeploy() {
         MQTTDataHolder.getInstance().getOutputEventAdapterService().destroy(mqttAdapterName);
+        sharedTenantAdapters.values().remove(mqttAdapterName);
     }
 
     @Override
@@ -191,5 +191,93 @@ public class MQTTNotificationStrategy implements NotificationStrategy {
         return config;
     }
 
-}
+    /**
+     * Publishes a message through the adapter. When the adapter of a tenant using a shared device type is not found,
+     * e.g. as it was destroyed when the tenant was unloaded, it is dropped from the registry and created again.
+     *
+     * @return name of the adapter the message was published through.
+     */
+    private String publish(String adapterName, String tenantDomain, Map<String, String> topicProperties,
+                           Object payload) throws PushNotificationExecutionFailedException {
+        OutputEventAdapterService adapterService = MQTTDataHolder.getInstance().getOutputEventAdapterService();
+        try {
+            adapterService.publish(adapterName, topicProperties, payload);
+            return adapterName;
+        } catch (OutputEventAdapterRuntimeException e) {
+            if (providerTenantDomain.equals(tenantDomain)) {
+                throw e;
+            }
+            log.warn("Error occurred while publishing through the MQTT output event adapter '" + adapterName +
+                    "' of shared tenant: " + tenantDomain + ", hence the adapter is created again", e);
+            sharedTenantAdapters.remove(tenantDomain, adapterName);
+        }
+        String recreatedAdapterName = getSharedTenantAdapter(tenantDomain);
+        try {
+            adapterService.publish(recreatedAdapterName, topicProperties, payload);
+        } catch (OutputEventAdapterRuntimeException e) {
+            throw new PushNotificationExecutionFailedException("Error occurred while publishing through the MQTT " +
+                    "output event adapter of shared tenant: " + tenantDomain, e);
+        }
+        return recreatedAdapterName;
+    }
 
+    private String getSharedTenantAdapter(String tenantDomain) throws PushNotificationExecutionFailedException {
+        String adapterName = sharedTenantAdapters.get(tenantDomain);
+        if (adapterName == null) {
+            synchronized (lockObj) {
+                adapterName = sharedTenantAdapters.get(tenantDomain);
+                if (adapterName == null) {
+                    adapterName = MQTT_ADAPTER_NAME_PREFIX + tenantDomain.toLowerCase();
+                    OutputEventAdapterConfiguration adapterConfig = new OutputEventAdapterConfiguration();
+                    adapterConfig.setType(MQTTAdapterConstants.MQTT_ADAPTER_TYPE);
+                    adapterConfig.setMessageFormat(MessageType.TEXT);
+                    adapterConfig.setName(adapterName);
+                    adapterConfig.setStaticProperties(new HashMap<String, String>());
+                    try {
+                        createAdapterIfNotExists(adapterConfig);
+                    } catch (OutputEventAdapterException e) {
+                        throw new PushNotificationExecutionFailedException
+                                ("Error occurred while initializing MQTT output event adapter for shared tenant: "
+                                         + tenantDomain, e);
+                    }
+                    sharedTenantAdapters.put(tenantDomain, adapterName);
+                }
+            }
+        }
+        return adapterName;
+    }
+
+    private static void createAdapterIfNotExists(OutputEventAdapterConfiguration adapterConfig)
+            throws OutputEventAdapterException {
+        OutputEventAdapterService adapterService = MQTTDataHolder.getInstance().getOutputEventAdapterService();
+        try {
+            adapterService.isPolled(adapterConfig.getName());
+        } catch (OutputEventAdapterException e) {
+            //event adapter not created
+            adapterService.create(adapterConfig);
+        }
+    }
+
+    private static String getOperationTopicPrefix(String tenantDomain, DeviceIdentifier deviceIdentifier) {
+        return tenantDomain + "/" + deviceIdentifier.getType() + "/" + deviceIdentifier.getId() +
+                OPERATION_TOPIC_SEGMENT;
+    }
+
+    private static Map<String, String> getTopicProperties(String topic) {
+        Map<String, String> dynamicProperties = new HashMap<>();
+        dynamicProperties.put(TOPIC_PROPERTY, topic);
+        return dynamicProperties;
+    }
+
+    private static String getBundledPayload(List<ProfileOperation> profileOperations) {
+        JsonArray bundle = new JsonArray();
+        for (ProfileOperation profileOperation : profileOperations) {
+            JsonObject feature = new JsonObject();
+            feature.addProperty(BUNDLE_CODE_PROPERTY, profileOperation.getCode());
+            feature.add(BUNDLE_PAYLOAD_PROPERTY, gson.toJsonTree(profileOperation.getPayLoad()));
+            bundle.add(feature);
+        }
+        return bundle.toString();
+    }
+
+}
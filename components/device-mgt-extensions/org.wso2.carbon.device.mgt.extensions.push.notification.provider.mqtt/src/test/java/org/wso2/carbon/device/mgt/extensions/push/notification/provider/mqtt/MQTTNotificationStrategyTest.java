@@ -18,6 +18,7 @@
 
 package org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
@@ -31,7 +32,9 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.PolicyOperation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.ProfileOperation;
 import org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt.internal.MQTTDataHolder;
 import org.wso2.carbon.device.mgt.extensions.push.notification.provider.mqtt.internal.util.MQTTAdapterConstants;
+import org.wso2.carbon.event.output.adapter.core.OutputEventAdapterConfiguration;
 import org.wso2.carbon.event.output.adapter.core.exception.OutputEventAdapterException;
+import org.wso2.carbon.event.output.adapter.core.exception.OutputEventAdapterRuntimeException;
 import org.wso2.carbon.event.output.adapter.core.internal.CarbonOutputEventAdapterService;
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
@@ -44,6 +47,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
 
 /*
     Unit tests for MQTTNotificationStrategy class
@@ -142,6 +146,95 @@ public class MQTTNotificationStrategyTest {
         mqttNotificationStrategy.execute(notificationContext);
     }
 
+    @Test(dependsOnMethods = {"getNotificationStrategy"}, description = "test execute method with a policy operation " +
+            "when the profile operations are bundled")
+    public void testExecuteBundledPolicyOperation() throws PushNotificationExecutionFailedException,
+            OutputEventAdapterException {
+        CarbonOutputEventAdapterService adapterService = Mockito.mock(CarbonOutputEventAdapterService.class,
+                Mockito.CALLS_REAL_METHODS);
+        Mockito.doReturn(true).when(adapterService).isPolled(Mockito.any());
+        Mockito.doNothing().when(adapterService).publish(Mockito.any(), Mockito.any(), Mockito.any());
+        MQTTDataHolder.getInstance().setOutputEventAdapterService(adapterService);
+        try {
+            Map<String, String> properties = new HashMap<>();
+            properties.put(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_BROKER_URL, BROKER_URL);
+            properties.put(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_NAME, ADAPTER_NAME);
+            properties.put(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_BUNDLE_POLICY_OPERATIONS, "true");
+            MQTTNotificationStrategy bundlingStrategy = new MQTTNotificationStrategy(
+                    new PushNotificationConfig("MQTT", true, properties));
+            PolicyOperation policyOperation = new PolicyOperation();
+            policyOperation.setCode(POLICY_OPERATION_CODE);
+            List<ProfileOperation> profileOperationList = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                ProfileOperation profileOperation = new ProfileOperation();
+                profileOperation.setCode("SampleCode" + i);
+                profileOperation.setPayLoad("SamplePayload" + i);
+                profileOperationList.add(profileOperation);
+            }
+            policyOperation.setProfileOperations(profileOperationList);
+            DeviceIdentifier device = new DeviceIdentifier("1", "SampleDeviceType");
+            bundlingStrategy.execute(new NotificationContext(device, policyOperation));
+
+            ArgumentCaptor<Map> dynamicProperties = ArgumentCaptor.forClass(Map.class);
+            ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+            Mockito.verify(adapterService, Mockito.times(1)).publish(Mockito.eq(ADAPTER_NAME),
+                    dynamicProperties.capture(), payload.capture());
+            Assert.assertTrue(((String) dynamicProperties.getValue().get("topic")).endsWith(
+                    "/SampleDeviceType/1/operation/policy/policy_bundle"), "Policy bundle is published to a " +
+                    "wrong topic");
+            for (int i = 0; i < 3; i++) {
+                Assert.assertTrue(((String) payload.getValue()).contains("SampleCode" + i),
+                        "Profile operation is missing in the policy bundle");
+            }
+        } finally {
+            MQTTDataHolder.getInstance().setOutputEventAdapterService(carbonOutputEventAdapterService);
+        }
+    }
+
+    @Test(dependsOnMethods = {"getNotificationStrategy"}, description = "test that the adapter of a shared tenant is " +
+            "created again when publishing through it fails")
+    public void testRecreateSharedTenantAdapter() throws PushNotificationExecutionFailedException,
+            OutputEventAdapterException, NoSuchFieldException, IllegalAccessException {
+        CarbonOutputEventAdapterService adapterService = Mockito.mock(CarbonOutputEventAdapterService.class,
+                Mockito.CALLS_REAL_METHODS);
+        // The adapter of the shared tenant exists when it is first looked up, but not after publishing fails.
+        Mockito.doReturn(true).doReturn(true).doThrow(new OutputEventAdapterException("Adapter not found"))
+                .when(adapterService).isPolled(Mockito.any());
+        Mockito.doNothing().when(adapterService).create(Mockito.any(OutputEventAdapterConfiguration.class));
+        Mockito.doThrow(new OutputEventAdapterRuntimeException("Adapter not found")).doNothing()
+                .when(adapterService).publish(Mockito.any(), Mockito.any(), Mockito.any());
+        MQTTDataHolder.getInstance().setOutputEventAdapterService(adapterService);
+        Field sharedTenantAdapters = MQTTNotificationStrategy.class.getDeclaredField("sharedTenantAdapters");
+        sharedTenantAdapters.setAccessible(true);
+        String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain(true);
+        ((ConcurrentMap) sharedTenantAdapters.get(null)).remove(tenantDomain);
+        try {
+            Map<String, String> properties = new HashMap<>();
+            properties.put(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_BROKER_URL, BROKER_URL);
+            properties.put(MQTTAdapterConstants.MQTT_ADAPTER_PROPERTY_NAME, ADAPTER_NAME);
+            MQTTNotificationStrategy strategy = new MQTTNotificationStrategy(
+                    new PushNotificationConfig("MQTT", true, properties));
+            Field providerTenantDomain = MQTTNotificationStrategy.class.getDeclaredField("providerTenantDomain");
+            providerTenantDomain.setAccessible(true);
+            providerTenantDomain.set(strategy, "SampleProviderTenantDomain");
+
+            Operation commandOperation = new Operation();
+            commandOperation.setType(Operation.Type.COMMAND);
+            commandOperation.setCode("SampleCode");
+            commandOperation.setId(1);
+            strategy.execute(new NotificationContext(new DeviceIdentifier("1", "SampleDeviceType"),
+                    commandOperation));
+
+            Mockito.verify(adapterService, Mockito.times(1)).create(Mockito.any(OutputEventAdapterConfiguration.class));
+            Mockito.verify(adapterService, Mockito.times(2)).publish(Mockito.any(), Mockito.any(), Mockito.any());
+            Assert.assertTrue(((ConcurrentMap) sharedTenantAdapters.get(null)).containsKey(tenantDomain),
+                    "Adapter of the shared tenant is not registered again");
+        } finally {
+            ((ConcurrentMap) sharedTenantAdapters.get(null)).remove(tenantDomain);
+            MQTTDataHolder.getInstance().setOutputEventAdapterService(carbonOutputEventAdapterService);
+        }
+    }
+
     @Test(dependsOnMethods = "testExecuteWithoutProperties", description = "testing execute method with properties")
     public void testExecute() throws PushNotificationExecutionFailedException {
         Properties properties = new Properties();
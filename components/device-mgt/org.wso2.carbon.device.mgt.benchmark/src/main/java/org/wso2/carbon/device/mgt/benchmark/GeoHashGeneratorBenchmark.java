@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link GeoHashGenerator} encodings done for every location update, against the range dividing encoder
+ * it replaced, and the covering geohashes computed for every geo cluster query. The locations are random, but seeded,
+ * so that runs are comparable.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoHashGeneratorBenchmark {
+
+    private static final String BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int GEOHASH_LENGTH = 16;
+    private static final int LOCATION_COUNT = 1024;
+
+    @Param({"3", "5"})
+    public int geohashLength;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private GeoCoordinate southWest;
+    private GeoCoordinate northEast;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        latitudes = new double[LOCATION_COUNT];
+        longitudes = new double[LOCATION_COUNT];
+        for (int i = 0; i < LOCATION_COUNT; i++) {
+            latitudes[i] = random.nextDouble() * 180 - 90;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+        // About the area a city map shows, which needs a few cells of length 3 and a few hundred of length 5.
+        southWest = new GeoCoordinate(6.4, 79.6);
+        northEast = new GeoCoordinate(7.4, 80.6);
+    }
+
+    @Benchmark
+    public String encodeGeohash() {
+        int i = this.nextIndex();
+        return GeoHashGenerator.encodeGeohash(latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public String encodeGeohashByDividingRanges() {
+        int i = this.nextIndex();
+        return encodeByDividingRanges(latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public long encodeLongGeohash() {
+        int i = this.nextIndex();
+        return GeoHashGenerator.encodeLongGeohash(latitudes[i], longitudes[i], geohashLength);
+    }
+
+    @Benchmark
+    public List<String> getCoveringGeohashes() {
+        return GeoHashGenerator.getCoveringGeohashes(southWest, northEast, geohashLength, Integer.MAX_VALUE);
+    }
+
+    private int nextIndex() {
+        index = (index + 1) & (LOCATION_COUNT - 1);
+        return index;
+    }
+
+    /**
+     * Encoder which GeoHashGenerator used earlier, dividing the coordinate ranges bit by bit.
+     */
+    private static String encodeByDividingRanges(double latitude, double longitude) {
+        double[] latRange = new double[]{-90.0, 90.0};
+        double[] lonRange = new double[]{-180.0, 180.0};
+        boolean isEven = true;
+        int bit = 0;
+        int base32CharIndex = 0;
+        StringBuilder geohash = new StringBuilder();
+        while (geohash.length() < GEOHASH_LENGTH) {
+            double[] range = isEven ? lonRange : latRange;
+            double value = isEven ? longitude : latitude;
+            double mid = (range[0] + range[1]) / 2;
+            if (value >= mid) {
+                range[0] = mid;
+                base32CharIndex = (base32CharIndex << 1) | 1;
+            } else {
+                range[1] = mid;
+                base32CharIndex = base32CharIndex << 1;
+            }
+            isEven = !isEven;
+            if (bit < 4) {
+                bit++;
+            } else {
+                geohash.append(BASE_32.charAt(base32CharIndex));
+                bit = 0;
+                base32CharIndex = 0;
+            }
+        }
+        return geohash.toString();
+    }
+}
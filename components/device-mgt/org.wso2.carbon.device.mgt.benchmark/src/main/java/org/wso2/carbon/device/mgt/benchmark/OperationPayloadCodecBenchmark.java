@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.PolicyOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ProfileOperation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.CompactOperationPayloadCodec;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.OperationPayloadCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link CompactOperationPayloadCodec} with the Java serialization that was used earlier to persist
+ * operation responses and profile and policy operation details. The payload is either an application list response,
+ * the most common large operation response, of the given number of applications, or a policy operation of a few
+ * profiles, each of which carries such a response as its payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperationPayloadCodecBenchmark {
+
+    @Param({"1", "20", "200"})
+    public int applicationCount;
+
+    @Param({"512", "-1"})
+    public int compressionThreshold;
+
+    @Param({"RESPONSE", "POLICY_OPERATION"})
+    public String payloadType;
+
+    private OperationPayloadCodec codec;
+    private Object payload;
+    private byte[] encodedPayload;
+    private byte[] serializedPayload;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        codec = new CompactOperationPayloadCodec(compressionThreshold);
+        if ("POLICY_OPERATION".equals(payloadType)) {
+            payload = getPolicyOperation(applicationCount);
+        } else {
+            payload = getApplicationListResponse(applicationCount);
+        }
+        encodedPayload = codec.encode(payload);
+        serializedPayload = serialize(payload);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return codec.encode(payload);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException, ClassNotFoundException {
+        return codec.decode(encodedPayload);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return serialize(payload);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serializedPayload))) {
+            return ois.readObject();
+        }
+    }
+
+    private static byte[] serialize(Object payload) throws IOException {
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bao)) {
+            oos.writeObject(payload);
+        }
+        return bao.toByteArray();
+    }
+
+    private static PolicyOperation getPolicyOperation(int applicationCount) {
+        PolicyOperation operation = new PolicyOperation();
+        operation.setCode("POLICY_BUNDLE");
+        operation.setEnabled(true);
+        List<ProfileOperation> profileOperations = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ProfileOperation profileOperation = new ProfileOperation();
+            profileOperation.setCode("PROFILE_" + i);
+            profileOperation.setEnabled(true);
+            profileOperation.setPayLoad(getApplicationListResponse(applicationCount));
+            profileOperations.add(profileOperation);
+        }
+        operation.setProfileOperations(profileOperations);
+        return operation;
+    }
+
+    private static String getApplicationListResponse(int applicationCount) {
+        StringBuilder response = new StringBuilder("[");
+        for (int i = 0; i < applicationCount; i++) {
+            if (i > 0) {
+                response.append(",");
+            }
+            response.append("{\"name\":\"Application ").append(i).append("\",\"package\":\"org.wso2.app")
+                    .append(i).append("\",\"version\":\"1.0.").append(i)
+                    .append("\",\"isActive\":true,\"USS\":\"").append(i * 1024).append("\"}");
+        }
+        return response.append("]").toString();
+    }
+}
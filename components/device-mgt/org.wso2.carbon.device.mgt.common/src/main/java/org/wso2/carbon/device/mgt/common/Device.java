@@ -163,7 +163,9 @@ public class Device implements Serializable {
         this.applications = applications;
     }
 
-    public static class Property {
+    public static class Property implements Serializable {
+
+        private static final long serialVersionUID = 1998101712L;
 
         private String name;
         private String value;
@@ -21,6 +21,7 @@ import org.wso2.carbon.device.mgt.common.configuration.mgt.PlatformConfiguration
 import org.wso2.carbon.device.mgt.common.license.mgt.License;
 import org.wso2.carbon.device.mgt.common.license.mgt.LicenseManagementException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -128,6 +129,28 @@ public interface DeviceManager {
      */
     Device getDevice(DeviceIdentifier deviceId) throws DeviceManagementException;
 
+    /**
+     * Method to retrieve metadata of a set of devices of a particular type in one go. The default implementation
+     * invokes {@link #getDevice(DeviceIdentifier)} per device, plugins that can fetch devices in bulk should
+     * override it.
+     *
+     * @param deviceIds Fully qualified device identifiers
+     * @return Metadata of the devices that could be found, each carrying its device identifier. Devices unknown
+     *         to the plugin are omitted.
+     * @throws DeviceManagementException If some unusual behaviour is observed obtaining the device objects
+     */
+    default List<Device> getDevices(List<DeviceIdentifier> deviceIds) throws DeviceManagementException {
+        List<Device> devices = new ArrayList<>();
+        for (DeviceIdentifier deviceId : deviceIds) {
+            Device device = getDevice(deviceId);
+            if (device != null) {
+                device.setDeviceIdentifier(deviceId.getId());
+                devices.add(device);
+            }
+        }
+        return devices;
+    }
+
     /**
      * Method to update device properties.
      *
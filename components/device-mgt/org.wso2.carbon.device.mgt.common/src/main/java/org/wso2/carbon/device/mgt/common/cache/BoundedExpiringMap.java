@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.common.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map local to a node which holds up to a given number of entries, each for a limited time. When the map is full,
+ * the least recently used entry is evicted to make room for a new one, and an expired entry is removed when it is
+ * looked up.
+ * The methods are synchronized on the map, hence a caller can synchronize on it to make several of them atomic.
+ * Subclasses can override {@link #onRemoval(Object, Object)} to keep their own state, e.g. an index of the keys, in
+ * line with the entries.
+ *
+ * @param <K> type of the keys.
+ * @param <V> type of the values.
+ */
+public class BoundedExpiringMap<K, V> {
+
+    private final int capacity;
+    private final long expiryTime;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param capacity   maximum number of entries.
+     * @param expiryTime time in milliseconds an entry is kept for, unless given when it is put.
+     */
+    public BoundedExpiringMap(int capacity, long expiryTime) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity of the map must be positive, but is " + capacity);
+        }
+        this.capacity = capacity;
+        this.expiryTime = expiryTime;
+    }
+
+    /**
+     * @return value of the key, or null if there is none or it has expired.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            this.onRemoval(key, entry.value);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Puts a value which is kept for the expiry time of the map.
+     */
+    public synchronized void put(K key, V value) {
+        this.put(key, value, expiryTime);
+    }
+
+    /**
+     * Puts a value which is kept for the given time in milliseconds, evicting the least recently used entry if the map
+     * is full.
+     */
+    public synchronized void put(K key, V value, long expiryTime) {
+        Entry<V> previous = entries.put(key, new Entry<>(value,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(expiryTime)));
+        if (previous != null) {
+            this.onRemoval(key, previous.value);
+        }
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (entries.size() > capacity) {
+            Map.Entry<K, Entry<V>> eldest = iterator.next();
+            iterator.remove();
+            this.onRemoval(eldest.getKey(), eldest.getValue().value);
+        }
+    }
+
+    /**
+     * @return removed value of the key, or null if there is none.
+     */
+    public synchronized V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        this.onRemoval(key, entry.value);
+        return entry.value;
+    }
+
+    /**
+     * Removes the key only if it still maps to the given value, e.g. to drop a value put by the caller without
+     * dropping a newer one.
+     *
+     * @return true if the value is removed.
+     */
+    public synchronized boolean remove(K key, V value) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.value != value) {
+            return false;
+        }
+        entries.remove(key);
+        this.onRemoval(key, value);
+        return true;
+    }
+
+    /**
+     * Removes all the entries, without calling {@link #onRemoval(Object, Object)} for each of them.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return number of entries, including the expired ones which are not looked up since they expired.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Called while holding the lock of the map, whenever an entry is removed, replaced, evicted or found expired. It
+     * must not change the entries of the map.
+     */
+    protected void onRemoval(K key, V value) {
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+}
@@ -25,6 +25,15 @@ public final class DeviceManagementConstants {
 
     public static final String DM_CACHE_MANAGER = "DM_CACHE_MANAGER";
     public static final String DEVICE_CACHE = "DEVICE_CACHE";
+    public static final String PENDING_OPERATION_CACHE = "PENDING_OPERATION_CACHE";
+    public static final int DEFAULT_DEVICE_NEAR_CACHE_EXPIRY_TIME = 10;
+    public static final long DEFAULT_DEVICE_NEAR_CACHE_CAPACITY = 10000;
+    public static final int DEFAULT_GEO_CLUSTER_CACHE_EXPIRY_TIME = 60;
+    public static final long DEFAULT_GEO_CLUSTER_CACHE_CAPACITY = 100000;
+    public static final int MAX_GEO_CLUSTER_TILES = 1024;
+    public static final int DEFAULT_USER_ROLE_CACHE_EXPIRY_TIME = 900;
+    public static final int DEFAULT_USER_ROLE_CACHE_NEGATIVE_EXPIRY_TIME = 60;
+    public static final int DEFAULT_USER_ROLE_CACHE_CAPACITY = 10000;
 
     public static final class Common {
         private Common() {
@@ -91,6 +100,17 @@ public final class DeviceManagementConstants {
         public static final int APPLIST_VERSION_MAX_LENGTH = 50;
     }
 
+    public static final class DataBaseQueries {
+        private DataBaseQueries() {
+            throw new AssertionError();
+        }
+
+        // Kept well below the IN clause limits of Oracle (1000) and MSSQL (2100 parameters).
+        public static final int MAX_IN_CLAUSE_PARAMETERS = 500;
+        // Number of rows sent to the database with a single JDBC batch execution.
+        public static final int MAX_BATCH_SIZE = 1000;
+    }
+
     public static final class PushNotifications {
         private PushNotifications() {
             throw new AssertionError();
@@ -98,6 +118,10 @@ public final class DeviceManagementConstants {
         public static final int DEFAULT_SCHEDULER_TASK_INITIAL_DELAY = 60000;
         public static final int DEFAULT_BATCH_DELAY_MILLS = 60000;
         public static final int DEFAULT_BATCH_SIZE = 1000;
+        public static final int DEFAULT_WORKER_POOL_SIZE = 5;
+        public static final int DEFAULT_WORKER_QUEUE_SIZE = 1000;
+        public static final int STATUS_UPDATE_BATCH_SIZE = 500;
+        public static final long DISPATCHER_SHUTDOWN_TIMEOUT_MILLIS = 10000;
     }
 
     public static final class User {
@@ -22,60 +22,110 @@ package org.wso2.carbon.device.mgt.core.archival;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
-import org.wso2.carbon.device.mgt.core.archival.beans.*;
-import org.wso2.carbon.device.mgt.core.archival.dao.*;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAO;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAOException;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDestinationDAOFactory;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalSourceDAOFactory;
+import org.wso2.carbon.device.mgt.core.archival.dao.DataDeletionDAO;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.archival.ArchivalTaskConfiguration;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Archives operations in chunks of ascending operation IDs. Each chunk is picked up from where the previous one
+ * ended, instead of selecting all the candidate operations upfront, and the rows of each table are moved to the
+ * archival database in a transaction of their own. The tables which only refer to the operations of a chunk can be
+ * archived in parallel, while the enrolment mappings and the operations themselves are archived last, as other
+ * tables refer to them. The progress is saved after each chunk, so that an interrupted run resumes from the last
+ * archived chunk.
+ */
 public class ArchivalServiceImpl implements ArchivalService {
     private static Log log = LogFactory.getLog(ArchivalServiceImpl.class);
 
     private ArchivalDAO archivalDAO;
     private DataDeletionDAO dataDeletionDAO;
 
-    private static final int EXECUTION_BATCH_SIZE =
+    private static final ArchivalTaskConfiguration ARCHIVAL_TASK_CONFIG =
             DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getArchivalConfiguration()
-                    .getArchivalTaskConfiguration().getBatchSize();
+                    .getArchivalTaskConfiguration();
 
-    private static final boolean ARCHIVE_PENDING_OPERATIONS =
-            DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getArchivalConfiguration()
-                    .getArchivalTaskConfiguration().isArchivePendingOperations();
+    private static final int EXECUTION_BATCH_SIZE = ARCHIVAL_TASK_CONFIG.getBatchSize() > 0 ?
+            ARCHIVAL_TASK_CONFIG.getBatchSize() : ArchivalDAO.DEFAULT_BATCH_SIZE;
+
+    private static final int WORKER_COUNT = ARCHIVAL_TASK_CONFIG.getWorkerCount() > 0 ?
+            ARCHIVAL_TASK_CONFIG.getWorkerCount() : 1;
+
+    private static final long THROTTLE_INTERVAL = ARCHIVAL_TASK_CONFIG.getThrottleInterval();
 
-    private String[] NOT_IN_PROGRESS_OPS = new String[]{"COMPLETED", "ERROR", "REPEATED"};
-    private String[] NOT_PENDING_OPS = new String[]{"COMPLETED", "ERROR", "REPEATED", "IN_PROGRESS"};
-    private String[] NOT_PENDING_IN_PROGRESS_OPS = new String[]{"COMPLETED", "ERROR", "REPEATED"};
+    private final int executionBatchSize;
+    private final int workerCount;
+    private final long throttleInterval;
 
     public ArchivalServiceImpl() {
-        this.archivalDAO = ArchivalSourceDAOFactory.getDataPurgingDAO();
-        this.dataDeletionDAO = ArchivalDestinationDAOFactory.getDataDeletionDAO();
+        this(ArchivalSourceDAOFactory.getDataPurgingDAO(), ArchivalDestinationDAOFactory.getDataDeletionDAO(),
+                EXECUTION_BATCH_SIZE, WORKER_COUNT, THROTTLE_INTERVAL);
+    }
+
+    ArchivalServiceImpl(ArchivalDAO archivalDAO, DataDeletionDAO dataDeletionDAO, int executionBatchSize,
+                        int workerCount, long throttleInterval) {
+        this.archivalDAO = archivalDAO;
+        this.dataDeletionDAO = dataDeletionDAO;
+        this.executionBatchSize = executionBatchSize;
+        this.workerCount = workerCount;
+        this.throttleInterval = throttleInterval;
     }
 
     @Override
     public void archiveTransactionalRecords() throws ArchivalException {
-        List<Integer> allOperations;
-
+        int lastOperationId = this.getCheckpoint();
+        if (lastOperationId > 0) {
+            log.info("Resuming the archival of operations after operation '" + lastOperationId + "'");
+        }
+        ExecutorService workers = workerCount > 1 ? Executors.newFixedThreadPool(workerCount) : null;
+        int archivedCount = 0;
         try {
-            ArchivalSourceDAOFactory.openConnection();
-            ArchivalDestinationDAOFactory.openConnection();
-
-            if (log.isDebugEnabled()) {
-                log.debug("Fetching All Operations");
+            List<Integer> operationIds = this.getNextChunk(lastOperationId);
+            while (!operationIds.isEmpty()) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Archiving " + operationIds.size() + " operations [" + operationIds.get(0) + "," +
+                            operationIds.get(operationIds.size() - 1) + "]");
+                }
+                // Tables referring to the enrolment mappings and the operations go first.
+                this.archiveTables(workers, operationIds, ArchivalTable.OPERATION_RESPONSE, ArchivalTable.NOTIFICATION,
+                        ArchivalTable.COMMAND_OPERATION, ArchivalTable.CONFIG_OPERATION,
+                        ArchivalTable.PROFILE_OPERATION, ArchivalTable.POLICY_OPERATION);
+                this.archiveTables(null, operationIds, ArchivalTable.ENROLMENT_MAPPING);
+                this.archiveTables(null, operationIds, ArchivalTable.OPERATION);
+
+                lastOperationId = operationIds.get(operationIds.size() - 1);
+                archivedCount += operationIds.size();
+                this.saveCheckpoint(lastOperationId, false);
+                this.throttle();
+                operationIds = this.getNextChunk(lastOperationId);
             }
-            allOperations = archivalDAO.getAllOperations();
-
-            if (log.isDebugEnabled()) {
-                log.debug("Fetching All Pending Operations");
+            this.saveCheckpoint(lastOperationId, true);
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
             }
+        }
+        log.info(archivedCount + " operations archived.");
+    }
 
-
+    private List<Integer> getNextChunk(int lastOperationId) throws ArchivalException {
+        try {
+            ArchivalSourceDAOFactory.openConnection();
+            return archivalDAO.getOperationIdsForArchival(lastOperationId, executionBatchSize);
         } catch (ArchivalDAOException e) {
-//            rollbackTransactions();
-            String msg = "Rollback the get all operations and get all pending operations";
+            String msg = "Error occurred while retrieving the operations to be archived";
             log.error(msg, e);
             throw new ArchivalException(msg, e);
         } catch (SQLException e) {
@@ -84,211 +134,135 @@ public class ArchivalServiceImpl implements ArchivalService {
             throw new ArchivalException(msg, e);
         } finally {
             ArchivalSourceDAOFactory.closeConnection();
-            ArchivalDestinationDAOFactory.closeConnection();
         }
+    }
 
-        List<Integer> candidates = allOperations;
-        log.info(allOperations.size() + " All Operations.");
-
-        if (!ARCHIVE_PENDING_OPERATIONS) {
-            try {
-                ArchivalSourceDAOFactory.openConnection();
-                ArchivalDestinationDAOFactory.openConnection();
-                List<Integer> pendingAndIPOperations = archivalDAO.getPendingAndInProgressOperations();
-                log.info(pendingAndIPOperations.size() +" P&IP Operations");
-//              Get the diff of operations
-                candidates.removeAll(pendingAndIPOperations);
-            } catch (ArchivalDAOException e) {
-                String msg = "Error occurred while retrieving the pending operations";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } catch (SQLException e) {
-                String msg = "An error occurred while connecting to the archival database";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } finally {
-                ArchivalSourceDAOFactory.closeConnection();
-                ArchivalDestinationDAOFactory.closeConnection();
+    private void archiveTables(ExecutorService workers, final List<Integer> operationIds, ArchivalTable... tables)
+            throws ArchivalException {
+        if (workers == null || tables.length == 1) {
+            for (ArchivalTable table : tables) {
+                this.archiveTable(table, operationIds);
             }
+            return;
         }
-
-        int total = candidates.size();
-        int batches = calculateNumberOfBatches(total);
-        log.info(total + " Operations ready for archiving. " + batches + " iterations to be done.");
-        int batchSize = EXECUTION_BATCH_SIZE;
-        if (log.isDebugEnabled()) {
-            log.debug(total + " Operations ready for archiving. " + batches + " iterations to be done.");
-            log.debug(batchSize + " is the batch size");
-        }
-
-        for (int i = 1; i <= batches; i++) {
-            int startIdx = batchSize * (i - 1);
-            int endIdx = batchSize * i;
-            if (i == batches) {
-                endIdx = startIdx + (total % batchSize);
-            }
-            if (log.isDebugEnabled()) {
-                log.debug("\n\n############ Iterating over batch " + i + "[" +
-                        startIdx + "," + endIdx + "] #######");
-            }
-            List<Integer> subList = candidates.subList(startIdx, endIdx);
-
-            if (log.isDebugEnabled()) {
-                log.debug("SubList size is: " + subList.size());
-                if (subList.size() > 0) {
-                    log.debug("First Element is: " + subList.get(0));
-                    log.debug("Last Element is: " + subList.get(subList.size() - 1));
-                }
-            }
-
-            if (log.isDebugEnabled()) {
-                for (Integer val : subList) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Sub List Element: " + val);
-                    }
+        List<Future<Void>> results = new ArrayList<>(tables.length);
+        for (final ArchivalTable table : tables) {
+            results.add(workers.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws ArchivalException {
+                    archiveTable(table, operationIds);
+                    return null;
                 }
-            }
-
-            try {
-                beginTransactions();
-                prepareTempTable(subList);
-                commitTransactions();
-            } catch (Exception e) {
-                rollbackTransactions();
-                String msg = "Error occurred while preparing the operations.";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } finally {
-                ArchivalSourceDAOFactory.closeConnection();
-                ArchivalDestinationDAOFactory.closeConnection();
-            }
-
-            List<ArchiveOperationResponse> operationResponses = null;
-            List<ArchiveNotification> notification = null;
-            List<ArchiveCommandOperation> commandOperations = null;
-            List<ArchiveProfileOperation> profileOperations = null;
-            List<ArchiveEnrolmentOperationMap> enrollmentMapping = null;
-            List<ArchiveOperation> operations = null;
-
-            try {
-                openConnection();
-                operationResponses = archivalDAO.selectOperationResponses();
-                notification = archivalDAO.selectNotifications();
-                commandOperations = archivalDAO.selectCommandOperations();
-                profileOperations = archivalDAO.selectProfileOperations();
-                enrollmentMapping = archivalDAO.selectEnrolmentMappings();
-                operations = archivalDAO.selectOperations();
-
-            } catch (Exception e) {
-                String msg = "Error occurred while retrieving data.";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } finally {
-                closeConnection();
-            }
-
+            }));
+        }
+        ArchivalException error = null;
+        // Wait for all the tables, so that no worker is left running once this chunk is given up.
+        for (Future<Void> result : results) {
             try {
-                beginTransactions();
-
-                //Purge the largest table, DM_DEVICE_OPERATION_RESPONSE
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving operation responses");
-                }
-                archivalDAO.moveOperationResponses(operationResponses);
-
-                //Purge the notifications table, DM_NOTIFICATION
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving notifications");
-                }
-                archivalDAO.moveNotifications(notification);
-
-                //Purge the command operations table, DM_COMMAND_OPERATION
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving command operations");
+                result.get();
+            } catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof ArchivalException ? (ArchivalException) e.getCause() :
+                            new ArchivalException("Error occurred while archiving operations", e.getCause());
                 }
-                archivalDAO.moveCommandOperations(commandOperations);
-
-                //Purge the profile operation table, DM_PROFILE_OPERATION
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving profile operations");
-                }
-                archivalDAO.moveProfileOperations(profileOperations);
-
-                //Purge the enrolment mappings table, DM_ENROLMENT_OP_MAPPING
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving enrolment mappings");
-                }
-                archivalDAO.moveEnrolmentMappings(enrollmentMapping);
-
-                //Finally, purge the operations table, DM_OPERATION
-                if (log.isDebugEnabled()) {
-                    log.debug("## Archiving operations");
-                }
-                archivalDAO.moveOperations(operations);
-                commitTransactions();
-                if (log.isDebugEnabled()) {
-                    log.debug("End of Iteration : " + i);
-                }
-            } catch (ArchivalDAOException e) {
-                rollbackTransactions();
-                String msg = "Error occurred while trying to archive data to the six tables";
-                log.error(msg, e);
-                throw new ArchivalException(msg, e);
-            } finally {
-                ArchivalSourceDAOFactory.closeConnection();
-                ArchivalDestinationDAOFactory.closeConnection();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ArchivalException("Archival of operations was interrupted", e);
             }
-
         }
-    }
-
-    private void prepareTempTable(List<Integer> subList) throws ArchivalDAOException {
-        //Clean up the DM_ARCHIVED_OPERATIONS table
-        if (log.isDebugEnabled()) {
-            log.debug("## Truncating the temporary table");
+        if (error != null) {
+            throw error;
         }
-        archivalDAO.truncateOperationIDsForArchival();
-        if (log.isDebugEnabled()) {
-            log.debug("## Inserting into the temporary table");
-        }
-        archivalDAO.copyOperationIDsForArchival(subList);
     }
 
-    private void beginTransactions() throws ArchivalException {
+    /**
+     * Moves the rows of the given operations from a table to the archival database. The archival database is
+     * committed first, so that the rows are never deleted before they are archived. If the deletion fails, the
+     * chunk is archived again by the next run, which ignores the rows already archived.
+     */
+    private void archiveTable(ArchivalTable table, List<Integer> operationIds) throws ArchivalException {
         try {
-            ArchivalSourceDAOFactory.beginTransaction();
-            ArchivalDestinationDAOFactory.beginTransaction();
-        } catch (TransactionManagementException e) {
-            log.error("An error occurred during starting transactions", e);
-            throw new ArchivalException("An error occurred during starting transactions", e);
+            beginTransactions();
+            int count = table.archive(archivalDAO, operationIds);
+            ArchivalDestinationDAOFactory.getConnection().commit();
+            ArchivalSourceDAOFactory.getConnection().commit();
+            if (log.isDebugEnabled()) {
+                log.debug(count + " " + table + " records archived");
+            }
+        } catch (ArchivalDAOException | SQLException e) {
+            rollbackTransactions();
+            String msg = "Error occurred while archiving the " + table + " records of operations [" +
+                    operationIds.get(0) + "," + operationIds.get(operationIds.size() - 1) + "]";
+            log.error(msg, e);
+            throw new ArchivalException(msg, e);
+        } finally {
+            ArchivalSourceDAOFactory.closeConnection();
+            ArchivalDestinationDAOFactory.closeConnection();
         }
     }
 
-    private void openConnection() throws ArchivalException {
+    private int getCheckpoint() throws ArchivalException {
         try {
-            ArchivalSourceDAOFactory.openConnection();
+            ArchivalDestinationDAOFactory.openConnection();
+            return archivalDAO.getArchivalCheckpoint();
+        } catch (ArchivalDAOException e) {
+            String msg = "Error occurred while retrieving the archival checkpoint";
+            log.error(msg, e);
+            throw new ArchivalException(msg, e);
         } catch (SQLException e) {
-            String msg = "An error occurred during opening connection";
+            String msg = "An error occurred while connecting to the archival database";
             log.error(msg, e);
             throw new ArchivalException(msg, e);
+        } finally {
+            ArchivalDestinationDAOFactory.closeConnection();
         }
-
     }
 
-    private void closeConnection() throws ArchivalException {
+    /**
+     * Saves the checkpoint in a transaction of its own, since the archival data source may not commit automatically.
+     */
+    private void saveCheckpoint(int lastOperationId, boolean completed) throws ArchivalException {
         try {
-            ArchivalSourceDAOFactory.closeConnection();
-        } catch (Exception e) {
-            String msg = "An error occurred during opening connection";
+            ArchivalDestinationDAOFactory.beginTransaction();
+            archivalDAO.saveArchivalCheckpoint(lastOperationId, completed);
+            ArchivalDestinationDAOFactory.getConnection().commit();
+        } catch (TransactionManagementException e) {
+            String msg = "An error occurred during starting the transaction to save the archival checkpoint";
             log.error(msg, e);
             throw new ArchivalException(msg, e);
+        } catch (ArchivalDAOException | SQLException e) {
+            ArchivalDestinationDAOFactory.rollbackTransaction();
+            String msg = "Error occurred while saving the archival checkpoint";
+            log.error(msg, e);
+            throw new ArchivalException(msg, e);
+        } finally {
+            ArchivalDestinationDAOFactory.closeConnection();
         }
+    }
 
+    /**
+     * Pauses between chunks, so that archival does not hold the operation tables busy for long stretches while
+     * devices are polling.
+     */
+    private void throttle() throws ArchivalException {
+        if (throttleInterval > 0) {
+            try {
+                Thread.sleep(throttleInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ArchivalException("Archival of operations was interrupted", e);
+            }
+        }
     }
 
-    private void commitTransactions() {
-        ArchivalSourceDAOFactory.commitTransaction();
-        ArchivalDestinationDAOFactory.commitTransaction();
+    private void beginTransactions() throws ArchivalException {
+        try {
+            ArchivalSourceDAOFactory.beginTransaction();
+            ArchivalDestinationDAOFactory.beginTransaction();
+        } catch (TransactionManagementException e) {
+            log.error("An error occurred during starting transactions", e);
+            throw new ArchivalException("An error occurred during starting transactions", e);
+        }
     }
 
     private void rollbackTransactions() {
@@ -296,15 +270,57 @@ public class ArchivalServiceImpl implements ArchivalService {
         ArchivalDestinationDAOFactory.rollbackTransaction();
     }
 
-    private int calculateNumberOfBatches(int total) {
-        int batches = 0;
-        int batchSize = EXECUTION_BATCH_SIZE;
-        if ((total % batchSize) > 0) {
-            batches = (total / batchSize) + 1;
-        } else {
-            batches = total / batchSize;
-        }
-        return batches;
+    private enum ArchivalTable {
+        OPERATION_RESPONSE {
+            @Override
+            int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException {
+                return archivalDAO.archiveOperationResponses(operationIds);
+            }
+        },
+        NOTIFICATION {
+            @Override
+            int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException {
+                return archivalDAO.archiveNotifications(operationIds);
+            }
+        },
+        COMMAND_OPERATION {
+            @Override
+            int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException {
+                return archivalDAO.archiveCommandOperations(operationIds);
+            }
+        },
+        CONFIG_OPERATION {
+            @Override
+            int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException {
+                return archivalDAO.archiveConfigOperations(operationIds);
+            }
+        },
+        PROFILE_OPERATION {
+            @Override
+            int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException {
+                return archivalDAO.archiveProfileOperations(operationIds);
+            }
+        },
+        POLICY_OPERATION {
+            @Override
+            int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException {
+                return archivalDAO.archivePolicyOperations(operationIds);
+            }
+        },
+        ENROLMENT_MAPPING {
+            @Override
+            int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException {
+                return archivalDAO.archiveEnrolmentMappings(operationIds);
+            }
+        },
+        OPERATION {
+            @Override
+            int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException {
+                return archivalDAO.archiveOperations(operationIds);
+            }
+        };
+
+        abstract int archive(ArchivalDAO archivalDAO, List<Integer> operationIds) throws ArchivalDAOException;
     }
 
     @Override
@@ -327,11 +343,21 @@ public class ArchivalServiceImpl implements ArchivalService {
             }
             dataDeletionDAO.deleteCommandOperations();
 
+            if (log.isDebugEnabled()) {
+                log.debug("## Deleting config operations ");
+            }
+            dataDeletionDAO.deleteConfigOperations();
+
             if (log.isDebugEnabled()) {
                 log.debug("## Deleting profile operations ");
             }
             dataDeletionDAO.deleteProfileOperations();
 
+            if (log.isDebugEnabled()) {
+                log.debug("## Deleting policy operations ");
+            }
+            dataDeletionDAO.deletePolicyOperations();
+
             if (log.isDebugEnabled()) {
                 log.debug("## Deleting enrolment mappings ");
             }
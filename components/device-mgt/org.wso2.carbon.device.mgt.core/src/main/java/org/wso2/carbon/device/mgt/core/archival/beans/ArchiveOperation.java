@@ -1,72 +0,0 @@
-/*
- * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
- *
- * WSO2 Inc. licenses this file to you under the Apache License,
- * Version 2.0 (the "License"); you may not use this file except
- * in compliance with the License.
- * You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing,
- * software distributed under the License is distributed on an
- * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- * KIND, either express or implied.  See the License for the
- * specific language governing permissions and limitations
- * under the License.
- */
-
-
-package org.wso2.carbon.device.mgt.core.archival.beans;
-
-import java.sql.Timestamp;
-
-public class ArchiveOperation {
-
-    private int id;
-    private String type;
-    private Timestamp createdTimeStamp;
-    private Timestamp recievedTimeStamp;
-    private String operationCode;
-
-    public int getId() {
-        return id;
-    }
-
-    public void setId(int id) {
-        this.id = id;
-    }
-
-    public String getType() {
-        return type;
-    }
-
-    public void setType(String type) {
-        this.type = type;
-    }
-
-    public Timestamp getCreatedTimeStamp() {
-        return createdTimeStamp;
-    }
-
-    public void setCreatedTimeStamp(Timestamp createdTimeStamp) {
-        this.createdTimeStamp = createdTimeStamp;
-    }
-
-    public Timestamp getRecievedTimeStamp() {
-        return recievedTimeStamp;
-    }
-
-    public void setRecievedTimeStamp(Timestamp recievedTimeStamp) {
-        this.recievedTimeStamp = recievedTimeStamp;
-    }
-
-    public String getOperationCode() {
-        return operationCode;
-    }
-
-    public void setOperationCode(String operationCode) {
-        this.operationCode = operationCode;
-    }
-}
-
@@ -18,48 +18,59 @@
 
 package org.wso2.carbon.device.mgt.core.archival.dao;
 
-import org.wso2.carbon.device.mgt.core.archival.beans.*;
-
-import java.sql.ResultSet;
 import java.util.List;
 
 /**
- * Operations to move data from DM database to archival database
+ * Operations to move data from DM database to archival database. Operations are archived in chunks of operation
+ * IDs. For each chunk, the rows of every table are copied to the archival database and then deleted from the DM
+ * database. Copying a chunk again is harmless, so that a chunk which was interrupted can be archived again.
  */
 public interface ArchivalDAO {
 
     int DEFAULT_BATCH_SIZE = 1000;
 
-    List<Integer> getAllOperations() throws ArchivalDAOException;
-
-    List<Integer> getPendingAndInProgressOperations() throws ArchivalDAOException;
-
-    void copyOperationIDsForArchival(List<Integer> operationIds) throws ArchivalDAOException;
-
-    List<ArchiveOperationResponse> selectOperationResponses() throws ArchivalDAOException;
-
-    void moveOperationResponses(List<ArchiveOperationResponse> rs) throws ArchivalDAOException;
-
-    List<ArchiveNotification> selectNotifications() throws ArchivalDAOException;
+    /**
+     * Returns the IDs of the next operations to be archived, in ascending order, i.e. the operations which are older
+     * than the retention period and carry an ID greater than the given one.
+     *
+     * @param lastOperationId ID of the last operation of the previous chunk, or 0 to start from the beginning.
+     * @param limit           maximum number of IDs to be returned.
+     * @return IDs of the operations to be archived.
+     * @throws ArchivalDAOException
+     */
+    List<Integer> getOperationIdsForArchival(int lastOperationId, int limit) throws ArchivalDAOException;
 
-    void moveNotifications(List<ArchiveNotification> rs) throws ArchivalDAOException;
+    int archiveOperationResponses(List<Integer> operationIds) throws ArchivalDAOException;
 
-    List<ArchiveCommandOperation> selectCommandOperations() throws ArchivalDAOException;
+    int archiveNotifications(List<Integer> operationIds) throws ArchivalDAOException;
 
-    void moveCommandOperations(List<ArchiveCommandOperation> rs) throws ArchivalDAOException;
+    int archiveCommandOperations(List<Integer> operationIds) throws ArchivalDAOException;
 
-    List<ArchiveProfileOperation> selectProfileOperations() throws ArchivalDAOException;
+    int archiveConfigOperations(List<Integer> operationIds) throws ArchivalDAOException;
 
-    void moveProfileOperations(List<ArchiveProfileOperation> rs) throws ArchivalDAOException;
+    int archiveProfileOperations(List<Integer> operationIds) throws ArchivalDAOException;
 
-    List<ArchiveEnrolmentOperationMap> selectEnrolmentMappings() throws ArchivalDAOException;
+    int archivePolicyOperations(List<Integer> operationIds) throws ArchivalDAOException;
 
-    void moveEnrolmentMappings(List<ArchiveEnrolmentOperationMap> rs) throws ArchivalDAOException;
+    int archiveEnrolmentMappings(List<Integer> operationIds) throws ArchivalDAOException;
 
-    List<ArchiveOperation> selectOperations() throws ArchivalDAOException;
+    int archiveOperations(List<Integer> operationIds) throws ArchivalDAOException;
 
-    void moveOperations(List<ArchiveOperation> rs) throws ArchivalDAOException;
+    /**
+     * Returns the ID of the last operation archived by a run which did not complete, so that the run can be resumed.
+     *
+     * @return ID of the last archived operation, or 0 if the last run completed.
+     * @throws ArchivalDAOException
+     */
+    int getArchivalCheckpoint() throws ArchivalDAOException;
 
-    void truncateOperationIDsForArchival() throws ArchivalDAOException;
+    /**
+     * Records the progress of the current run.
+     *
+     * @param lastOperationId ID of the last operation which was archived.
+     * @param completed       whether the run has completed.
+     * @throws ArchivalDAOException
+     */
+    void saveArchivalCheckpoint(int lastOperationId, boolean completed) throws ArchivalDAOException;
 
 }
@@ -48,7 +48,8 @@ public class ArchivalSourceDAOFactory {
                 .getDeviceManagementConfig()
                 .getArchivalConfiguration()
                 .getArchivalTaskConfiguration();
-        return new ArchivalDAOImpl(configuration.getRetentionPeriod(), configuration.getBatchSize());
+        return new ArchivalDAOImpl(configuration.getRetentionPeriod(), configuration.getBatchSize(),
+                configuration.isArchivePendingOperations());
     }
 
     public static void init(DataSource dtSource) {
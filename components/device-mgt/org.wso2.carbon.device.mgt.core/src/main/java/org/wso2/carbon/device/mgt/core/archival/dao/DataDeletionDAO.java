@@ -31,8 +31,12 @@ public interface DataDeletionDAO {
 
     void deleteCommandOperations() throws ArchivalDAOException;
 
+    void deleteConfigOperations() throws ArchivalDAOException;
+
     void deleteProfileOperations() throws ArchivalDAOException;
 
+    void deletePolicyOperations() throws ArchivalDAOException;
+
     void deleteEnrolmentMappings() throws ArchivalDAOException;
 
     void deleteOperations() throws ArchivalDAOException;
@@ -20,28 +20,41 @@ package org.wso2.carbon.device.mgt.core.archival.dao.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.device.mgt.core.archival.beans.*;
-import org.wso2.carbon.device.mgt.core.archival.dao.*;
-
-import java.sql.*;
-import java.util.*;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAO;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAOException;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAOUtil;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDestinationDAOFactory;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalSourceDAOFactory;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ArchivalDAOImpl implements ArchivalDAO {
 
     private static final Log log = LogFactory.getLog(ArchivalDAOImpl.class);
 
+    private static final int CHECKPOINT_ID = 1;
+
     private int retentionPeriod;
     private int batchSize = ArchivalDAO.DEFAULT_BATCH_SIZE;
+    private boolean archivePendingOperations;
     private Timestamp currentTimestamp;
 
-
     public ArchivalDAOImpl(int retentionPeriod) {
         this.retentionPeriod = retentionPeriod;
+        this.currentTimestamp = new Timestamp(new java.util.Date().getTime());
     }
 
-    public ArchivalDAOImpl(int retentionPeriod, int batchSize) {
+    public ArchivalDAOImpl(int retentionPeriod, int batchSize, boolean archivePendingOperations) {
         this.retentionPeriod = retentionPeriod;
         this.batchSize = batchSize;
+        this.archivePendingOperations = archivePendingOperations;
         this.currentTimestamp = new Timestamp(new java.util.Date().getTime());
         if (log.isDebugEnabled()) {
             log.debug("Using batch size of " + this.batchSize + " with retention period " + this.retentionPeriod);
@@ -49,774 +62,235 @@ public class ArchivalDAOImpl implements ArchivalDAO {
     }
 
     @Override
-    public List<Integer> getAllOperations() throws ArchivalDAOException {
+    public List<Integer> getOperationIdsForArchival(int lastOperationId, int limit) throws ArchivalDAOException {
         List<Integer> operationIds = new ArrayList<>();
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet rs = null;
         try {
             Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "SELECT ID FROM DM_OPERATION WHERE CREATED_TIMESTAMP < (DATE_SUB(NOW(), INTERVAL "
-                    + this.retentionPeriod + " DAY))";
-            stmt = this.createMemoryEfficientStatement(conn);
-            rs = stmt.executeQuery(sql);
-            if (log.isDebugEnabled()) {
-                log.debug("Selected Operation Ids from Enrolment OP Mapping");
+            String sql = "SELECT o.ID FROM DM_OPERATION o WHERE o.ID > ? AND " +
+                    "o.CREATED_TIMESTAMP < DATE_SUB(NOW(), INTERVAL ? DAY)";
+            if (!archivePendingOperations) {
+                sql += " AND NOT EXISTS (SELECT 1 FROM DM_ENROLMENT_OP_MAPPING m WHERE m.OPERATION_ID = o.ID " +
+                        "AND m.STATUS IN ('PENDING', 'IN_PROGRESS'))";
             }
+            sql += " ORDER BY o.ID LIMIT ?";
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, lastOperationId);
+            stmt.setInt(2, this.retentionPeriod);
+            stmt.setInt(3, limit);
+            rs = stmt.executeQuery();
             while (rs.next()) {
                 operationIds.add(rs.getInt("ID"));
             }
         } catch (SQLException e) {
-            String msg = "An error occurred while getting a list operation Ids to archive";
+            String msg = "An error occurred while getting the operation Ids to archive after operation '" +
+                    lastOperationId + "'";
             log.error(msg, e);
             throw new ArchivalDAOException(msg, e);
         } finally {
             ArchivalDAOUtil.cleanupResources(stmt, rs);
         }
-        if (log.isDebugEnabled()) {
-            log.debug(operationIds.size() + " operations found for the archival");
-            log.debug(operationIds.size() + "[" + operationIds.get(0) + "," + operationIds.get(batchSize - 1) + "]");
-        }
         return operationIds;
     }
 
     @Override
-    public List<Integer> getPendingAndInProgressOperations() throws ArchivalDAOException {
-        List<Integer> operationIds = new ArrayList<>();
-        Statement stmt = null;
-        ResultSet rs = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "(SELECT DISTINCT\n" +
-                    " OPERATION_ID\n" +
-                    " FROM\n" +
-                    " DM_ENROLMENT_OP_MAPPING\n" +
-                    " WHERE\n" +
-                    " STATUS = 'PENDING'\n" +
-                    " AND CREATED_TIMESTAMP < UNIX_TIMESTAMP(DATE_SUB(NOW(), INTERVAL "
-                    + this.retentionPeriod + " DAY))) \n" +
-                    " UNION ALL \n" +
-                    "\t(SELECT DISTINCT\n" +
-                    " OPERATION_ID\n" +
-                    " FROM\n" +
-                    " DM_ENROLMENT_OP_MAPPING\n" +
-                    " WHERE\n" +
-                    " STATUS = 'IN_PROGRESS'\n" +
-                    " AND CREATED_TIMESTAMP < UNIX_TIMESTAMP(DATE_SUB(NOW(), INTERVAL " +
-                    "" + this.retentionPeriod + " DAY)))";
-            stmt = this.createMemoryEfficientStatement(conn);
-            rs = stmt.executeQuery(sql);
-            if (log.isDebugEnabled()) {
-                log.debug("Selected Pending or In Progress Operation IDs");
-            }
-            while (rs.next()) {
-                operationIds.add(rs.getInt("OPERATION_ID"));
-            }
-        } catch (SQLException e) {
-            String msg = "An error occurred while getting a list pending or in progress operation Ids to archive";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt, rs);
-        }
-        if (log.isDebugEnabled()) {
-            log.debug(operationIds.size() + " operations found for the archival");
-            log.debug(operationIds.size() + "[" + operationIds.get(0) + "," + operationIds.get(batchSize - 1) + "]");
-        }
-        return operationIds;
+    public int archiveOperationResponses(List<Integer> operationIds) throws ArchivalDAOException {
+        return this.archiveRows("DM_DEVICE_OPERATION_RESPONSE", "OPERATION_ID", new String[]{"ID", "ENROLMENT_ID",
+                "OPERATION_ID", "EN_OP_MAP_ID", "OPERATION_RESPONSE", "RECEIVED_TIMESTAMP"}, operationIds);
     }
 
     @Override
-    public void copyOperationIDsForArchival(List<Integer> operationIds) throws ArchivalDAOException {
-        PreparedStatement stmt = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "INSERT INTO DM_ARCHIVED_OPERATIONS(ID,CREATED_TIMESTAMP) VALUES (?,NOW())";
-            stmt = conn.prepareStatement(sql);
-
-            int count = 0;
-            for (int i = 0; i < operationIds.size(); i++) {
-                stmt.setInt(1, operationIds.get(i));
-                stmt.addBatch();
-
-                if (++count % this.batchSize == 0) {
-                    stmt.executeBatch();
-                }
-            }
-            stmt.executeBatch();
-            if (log.isDebugEnabled()) {
-                log.debug(count + " Records copied to the temporary table.");
-            }
-        } catch (SQLException e) {
-            String msg = "Error while copying operation Ids for archival";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt);
-        }
+    public int archiveNotifications(List<Integer> operationIds) throws ArchivalDAOException {
+        return this.archiveRows("DM_NOTIFICATION", "OPERATION_ID", new String[]{"NOTIFICATION_ID", "DEVICE_ID",
+                "OPERATION_ID", "TENANT_ID", "STATUS", "DESCRIPTION"}, operationIds);
     }
 
     @Override
-    public List<ArchiveOperationResponse> selectOperationResponses() throws ArchivalDAOException {
-        Statement stmt = null;
-        ResultSet rs = null;
-
-        List<ArchiveOperationResponse> operationResponses = new ArrayList<>();
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "SELECT \n" +
-                    "    o.ID,\n" +
-                    "    o.ENROLMENT_ID,\n" +
-                    "    o.OPERATION_ID,\n" +
-                    "    o.EN_OP_MAP_ID,\n" +
-                    "    o.OPERATION_RESPONSE,\n" +
-                    "    o.RECEIVED_TIMESTAMP\n" +
-                    "FROM\n" +
-                    "    DM_DEVICE_OPERATION_RESPONSE o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID;";
-            stmt = this.createMemoryEfficientStatement(conn);
-            rs = stmt.executeQuery(sql);
-
-            while (rs.next()) {
-                ArchiveOperationResponse rep = new ArchiveOperationResponse();
-                rep.setId(rs.getInt("ID"));
-                rep.setEnrolmentId(rs.getInt("ENROLMENT_ID"));
-                rep.setOperationId(rs.getInt("OPERATION_ID"));
-                rep.setOperationResponse(rs.getBytes("OPERATION_RESPONSE"));
-                rep.setReceivedTimeStamp(rs.getTimestamp("RECEIVED_TIMESTAMP"));
-                operationResponses.add(rep);
-            }
-
-            if (log.isDebugEnabled()) {
-                log.debug("Selecting done for the Operation Response");
-            }
-
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the operation responses";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt, rs);
-        }
-
-        return operationResponses;
-
+    public int archiveCommandOperations(List<Integer> operationIds) throws ArchivalDAOException {
+        return this.archiveRows("DM_COMMAND_OPERATION", "OPERATION_ID", new String[]{"OPERATION_ID", "ENABLED"},
+                operationIds);
     }
 
     @Override
-    public void moveOperationResponses(List<ArchiveOperationResponse> archiveOperationResponse) throws ArchivalDAOException {
-        PreparedStatement stmt2 = null;
-        Statement stmt3 = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-
-
-            Connection conn2 = ArchivalDestinationDAOFactory.getConnection();
-            String sql = "INSERT INTO DM_DEVICE_OPERATION_RESPONSE_ARCH VALUES(?, ?, ?, ?, ?,?)";
-            stmt2 = conn2.prepareStatement(sql);
-
-            int count = 0;
-            for (ArchiveOperationResponse rs : archiveOperationResponse) {
-                stmt2.setInt(1, rs.getId());
-                stmt2.setInt(2, rs.getEnrolmentId());
-                stmt2.setInt(3, rs.getOperationId());
-                stmt2.setBytes(4, (byte[]) rs.getOperationResponse());
-                stmt2.setTimestamp(5, rs.getReceivedTimeStamp());
-                stmt2.setTimestamp(6, this.currentTimestamp);
-                stmt2.addBatch();
-
-                if (++count % batchSize == 0) {
-                    stmt2.executeBatch();
-                    if (log.isDebugEnabled()) {
-                        log.debug("Executing Operation Responses batch " + count);
-                    }
-                }
-            }
-            stmt2.executeBatch();
-            if (log.isDebugEnabled()) {
-                log.debug(count + " [OPERATION_RESPONSES] Records copied to the archival table. Starting deletion");
-            }
-            //try the deletion now
-            sql = "DELETE o.* FROM DM_DEVICE_OPERATION_RESPONSE o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID \n" +
-                    "WHERE\n" +
-                    "    o.OPERATION_ID = da.ID;";
-            stmt3 = conn.createStatement();
-            int affected = stmt3.executeUpdate(sql);
-            if (log.isDebugEnabled()) {
-                log.debug(affected + " Rows deleted");
-            }
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the operation responses";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt2);
-            ArchivalDAOUtil.cleanupResources(stmt3);
-        }
+    public int archiveConfigOperations(List<Integer> operationIds) throws ArchivalDAOException {
+        return this.archiveRows("DM_CONFIG_OPERATION", "OPERATION_ID", new String[]{"OPERATION_ID",
+                "OPERATION_CONFIG", "ENABLED"}, operationIds);
     }
 
     @Override
-    public List<ArchiveNotification> selectNotifications() throws ArchivalDAOException {
-
-        Statement stmt = null;
-        ResultSet rs = null;
-        List<ArchiveNotification> notifications = new ArrayList<>();
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "SELECT \n" +
-                    "    o.NOTIFICATION_ID,\n" +
-                    "    o.DEVICE_ID,\n" +
-                    "    o.OPERATION_ID,\n" +
-                    "    o.TENANT_ID,\n" +
-                    "    o.STATUS,\n" +
-                    "    o.DESCRIPTION\n" +
-                    "FROM\n" +
-                    "    DM_NOTIFICATION o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID;";
-            stmt = this.createMemoryEfficientStatement(conn);
-            rs = stmt.executeQuery(sql);
-
-            while (rs.next()) {
-
-                ArchiveNotification note = new ArchiveNotification();
-                note.setNotificationId(rs.getInt("NOTIFICATION_ID"));
-                note.setDeviceId(rs.getInt("DEVICE_ID"));
-                note.setOperationId(rs.getInt("OPERATION_ID"));
-                note.setTenantId(rs.getInt("TENANT_ID"));
-                note.setStatus(rs.getString("STATUS"));
-                note.setDescription(rs.getString("DESCRIPTION"));
-                notifications.add(note);
-            }
-
-            if (log.isDebugEnabled()) {
-                log.debug("Selecting done for the Notification");
-            }
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the notifications";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt, rs);
-        }
-        return notifications;
+    public int archiveProfileOperations(List<Integer> operationIds) throws ArchivalDAOException {
+        return this.archiveRows("DM_PROFILE_OPERATION", "OPERATION_ID", new String[]{"OPERATION_ID", "ENABLED",
+                "OPERATION_DETAILS"}, operationIds);
     }
 
-
     @Override
-    public void moveNotifications(List<ArchiveNotification> archiveNotifications) throws ArchivalDAOException {
-        Statement stmt = null;
-        PreparedStatement stmt2 = null;
-        Statement stmt3 = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            Connection conn2 = ArchivalDestinationDAOFactory.getConnection();
-
-            String sql = "INSERT INTO DM_NOTIFICATION_ARCH VALUES(?, ?, ?, ?, ?, ?, ?)";
-            stmt2 = conn2.prepareStatement(sql);
-
-            int count = 0;
-//            while (rs.next()) {
-            for (ArchiveNotification rs : archiveNotifications) {
-                stmt2.setInt(1, rs.getNotificationId());
-                stmt2.setInt(2, rs.getDeviceId());
-                stmt2.setInt(3, rs.getOperationId());
-                stmt2.setInt(4, rs.getTenantId());
-                stmt2.setString(5, rs.getStatus());
-                stmt2.setString(6, rs.getDescription());
-                stmt2.setTimestamp(7, this.currentTimestamp);
-                stmt2.addBatch();
-
-                if (++count % batchSize == 0) {
-                    stmt2.executeBatch();
-                    if (log.isDebugEnabled()) {
-                        log.debug("Executing Notifications batch " + count);
-                    }
-                }
-            }
-            stmt2.executeBatch();
-            if (log.isDebugEnabled()) {
-                log.debug(count + " [NOTIFICATIONS] Records copied to the archival table. Starting deletion");
-            }
-            sql = "DELETE o.* FROM DM_NOTIFICATION o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID \n" +
-                    "WHERE\n" +
-                    "    o.OPERATION_ID = da.ID;";
-            stmt3 = conn.createStatement();
-            int affected = stmt3.executeUpdate(sql);
-            if (log.isDebugEnabled()) {
-                log.debug(affected + " Rows deleted");
-            }
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the notifications";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt2);
-            ArchivalDAOUtil.cleanupResources(stmt3);
-        }
+    public int archivePolicyOperations(List<Integer> operationIds) throws ArchivalDAOException {
+        return this.archiveRows("DM_POLICY_OPERATION", "OPERATION_ID", new String[]{"OPERATION_ID", "ENABLED",
+                "OPERATION_DETAILS"}, operationIds);
     }
 
     @Override
-    public List<ArchiveCommandOperation> selectCommandOperations() throws ArchivalDAOException {
-        Statement stmt = null;
-        ResultSet rs = null;
-
-        List<ArchiveCommandOperation> commandOperations = new ArrayList<>();
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "SELECT \n" +
-                    "    *\n" +
-                    "FROM\n" +
-                    "    DM_COMMAND_OPERATION o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID;";
-            stmt = this.createMemoryEfficientStatement(conn);
-            rs = stmt.executeQuery(sql);
-
-            while (rs.next()) {
-                ArchiveCommandOperation op = new ArchiveCommandOperation();
-                op.setOperationId(rs.getInt("OPERATION_ID"));
-                op.setEnabled(rs.getInt("ENABLED"));
-
-                commandOperations.add(op);
-            }
-
-            if (log.isDebugEnabled()) {
-                log.debug("Selecting done for the Command Operation");
-            }
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the command operation";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt, rs);
-        }
-        return commandOperations;
+    public int archiveEnrolmentMappings(List<Integer> operationIds) throws ArchivalDAOException {
+        return this.archiveRows("DM_ENROLMENT_OP_MAPPING", "OPERATION_ID", new String[]{"ID", "ENROLMENT_ID",
+                "OPERATION_ID", "STATUS", "PUSH_NOTIFICATION_STATUS", "CREATED_TIMESTAMP", "UPDATED_TIMESTAMP"},
+                operationIds);
     }
 
     @Override
-    public void moveCommandOperations(List<ArchiveCommandOperation> commandOperations) throws ArchivalDAOException {
-        Statement stmt = null;
-        PreparedStatement stmt2 = null;
-        Statement stmt3 = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            Connection conn2 = ArchivalDestinationDAOFactory.getConnection();
-
-            String sql = "INSERT INTO DM_COMMAND_OPERATION_ARCH VALUES(?,?,?)";
-            stmt2 = conn2.prepareStatement(sql);
-
-            int count = 0;
-            for (ArchiveCommandOperation rs : commandOperations) {
-                stmt2.setInt(1, rs.getOperationId());
-                stmt2.setInt(2, rs.getEnabled());
-                stmt2.setTimestamp(3, this.currentTimestamp);
-                stmt2.addBatch();
-
-                if (++count % batchSize == 0) {
-                    stmt2.executeBatch();
-                    if (log.isDebugEnabled()) {
-                        log.debug("Executing Command Operations batch " + count);
-                    }
-                }
-            }
-            stmt2.executeBatch();
-            if (log.isDebugEnabled()) {
-                log.debug(count + " [COMMAND_OPERATION] Records copied to the archival table. Starting deletion");
-            }
-            sql = "DELETE o.* FROM DM_COMMAND_OPERATION o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID \n" +
-                    "WHERE\n" +
-                    "    o.OPERATION_ID = da.ID;";
-            stmt3 = conn.createStatement();
-            int affected = stmt3.executeUpdate(sql);
-            if (log.isDebugEnabled()) {
-                log.debug(affected + " Rows deleted");
-            }
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the command operation";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt2);
-            ArchivalDAOUtil.cleanupResources(stmt3);
-        }
+    public int archiveOperations(List<Integer> operationIds) throws ArchivalDAOException {
+        return this.archiveRows("DM_OPERATION", "ID", new String[]{"ID", "TYPE", "CREATED_TIMESTAMP",
+                "RECEIVED_TIMESTAMP", "OPERATION_CODE"}, operationIds);
     }
 
     @Override
-    public List<ArchiveProfileOperation> selectProfileOperations() throws ArchivalDAOException {
-        Statement stmt = null;
+    public int getArchivalCheckpoint() throws ArchivalDAOException {
+        PreparedStatement stmt = null;
         ResultSet rs = null;
-        List<ArchiveProfileOperation> profileOperations = new ArrayList<>();
         try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "SELECT \n" +
-                    "    *\n" +
-                    "FROM\n" +
-                    "    DM_PROFILE_OPERATION o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID;";
-            stmt = this.createMemoryEfficientStatement(conn);
-            rs = stmt.executeQuery(sql);
-
-            while (rs.next()) {
-                ArchiveProfileOperation op = new ArchiveProfileOperation();
-
-                op.setOperationId(rs.getInt("OPERATION_ID"));
-                op.setEnabled(rs.getInt("ENABLED"));
-                op.setOperationDetails(rs.getBytes("OPERATION_DETAILS"));
-                profileOperations.add(op);
-
-            }
-
-            if (log.isDebugEnabled()) {
-                log.debug("Selecting done for the Profile Operation");
-            }
+            Connection conn = ArchivalDestinationDAOFactory.getConnection();
+            stmt = conn.prepareStatement("SELECT LAST_OPERATION_ID, COMPLETED FROM DM_ARCHIVAL_CHECKPOINT " +
+                    "WHERE ID = ?");
+            stmt.setInt(1, CHECKPOINT_ID);
+            rs = stmt.executeQuery();
+            if (rs.next() && !rs.getBoolean("COMPLETED")) {
+                return rs.getInt("LAST_OPERATION_ID");
+            }
+            return 0;
         } catch (SQLException e) {
-            String msg = "Error occurred while archiving the profile operation";
+            String msg = "Error occurred while retrieving the archival checkpoint";
             log.error(msg, e);
             throw new ArchivalDAOException(msg, e);
         } finally {
             ArchivalDAOUtil.cleanupResources(stmt, rs);
         }
-        return profileOperations;
     }
 
     @Override
-    public void moveProfileOperations(List<ArchiveProfileOperation> profileOperations) throws ArchivalDAOException {
-        Statement stmt = null;
-        PreparedStatement stmt2 = null;
-        Statement stmt3 = null;
+    public void saveArchivalCheckpoint(int lastOperationId, boolean completed) throws ArchivalDAOException {
+        PreparedStatement stmt = null;
         try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-
-            Connection conn2 = ArchivalDestinationDAOFactory.getConnection();
-
-            String sql = "INSERT INTO DM_PROFILE_OPERATION_ARCH VALUES(?, ?, ?, ?)";
-            stmt2 = conn2.prepareStatement(sql);
-
-            int count = 0;
-            for (ArchiveProfileOperation rs : profileOperations) {
-                stmt2.setInt(1, rs.getOperationId());
-                stmt2.setInt(2, rs.getEnabled());
-                stmt2.setBytes(3, (byte[]) rs.getOperationDetails());
-                stmt2.setTimestamp(4, this.currentTimestamp);
-                stmt2.addBatch();
-
-                if (++count % batchSize == 0) {
-                    stmt2.executeBatch();
-                    if (log.isDebugEnabled()) {
-                        log.debug("Executing Profile Operations batch " + count);
-                    }
-                }
-            }
-            stmt2.executeBatch();
-            if (log.isDebugEnabled()) {
-                log.debug(count + " [PROFILE_OPERATION] Records copied to the archival table. Starting deletion");
-            }
-            sql = "DELETE o.* FROM DM_PROFILE_OPERATION o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID \n" +
-                    "WHERE\n" +
-                    "    o.OPERATION_ID = da.ID;";
-            stmt3 = conn.createStatement();
-            int affected = stmt3.executeUpdate(sql);
-            if (log.isDebugEnabled()) {
-                log.debug(affected + " Rows deleted");
+            Connection conn = ArchivalDestinationDAOFactory.getConnection();
+            stmt = conn.prepareStatement("UPDATE DM_ARCHIVAL_CHECKPOINT SET LAST_OPERATION_ID = ?, COMPLETED = ?, " +
+                    "UPDATED_TIMESTAMP = ? WHERE ID = ?");
+            stmt.setInt(1, lastOperationId);
+            stmt.setBoolean(2, completed);
+            stmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            stmt.setInt(4, CHECKPOINT_ID);
+            if (stmt.executeUpdate() == 0) {
+                ArchivalDAOUtil.cleanupResources(stmt);
+                stmt = conn.prepareStatement("INSERT INTO DM_ARCHIVAL_CHECKPOINT(ID, LAST_OPERATION_ID, COMPLETED, " +
+                        "UPDATED_TIMESTAMP) VALUES (?, ?, ?, ?)");
+                stmt.setInt(1, CHECKPOINT_ID);
+                stmt.setInt(2, lastOperationId);
+                stmt.setBoolean(3, completed);
+                stmt.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                stmt.executeUpdate();
             }
         } catch (SQLException e) {
-            String msg = "Error occurred while archiving the profile operation";
+            String msg = "Error occurred while saving the archival checkpoint of operation '" + lastOperationId + "'";
             log.error(msg, e);
             throw new ArchivalDAOException(msg, e);
         } finally {
-            ArchivalDAOUtil.cleanupResources(stmt2);
-            ArchivalDAOUtil.cleanupResources(stmt3);
+            ArchivalDAOUtil.cleanupResources(stmt);
         }
     }
 
-    @Override
-    public List<ArchiveEnrolmentOperationMap> selectEnrolmentMappings() throws ArchivalDAOException {
-        Statement stmt = null;
+    /**
+     * Copies the rows of the given operations from a table of the DM database to its archival table, and then deletes
+     * them from the DM database. The rows are streamed from the DM database and inserted with JDBC batches, hence
+     * the rows of a chunk are never held in memory at once. Rows which are already archived are ignored, so that an
+     * interrupted chunk can be archived again. Has to be called within a transaction of the DM database, which holds
+     * the locks of the selected rows until they are deleted.
+     */
+    private int archiveRows(String table, String operationIdColumn, String[] columns, List<Integer> operationIds)
+            throws ArchivalDAOException {
+        if (operationIds.isEmpty()) {
+            return 0;
+        }
+        PreparedStatement selectStmt = null;
+        PreparedStatement insertStmt = null;
+        PreparedStatement deleteStmt = null;
         ResultSet rs = null;
-        List<ArchiveEnrolmentOperationMap> operationMaps = new ArrayList<>();
         try {
             Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "SELECT \n" +
-                    "    o.ID,\n" +
-                    "    o.ENROLMENT_ID,\n" +
-                    "    o.OPERATION_ID,\n" +
-                    "    o.STATUS,\n" +
-                    "    o.CREATED_TIMESTAMP,\n" +
-                    "    o.UPDATED_TIMESTAMP\n" +
-                    "FROM\n" +
-                    "    DM_ENROLMENT_OP_MAPPING o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID;";
-            stmt = this.createMemoryEfficientStatement(conn);
-            rs = stmt.executeQuery(sql);
-
-            while (rs.next()) {
+            Connection conn2 = ArchivalDestinationDAOFactory.getConnection();
+            String columnList = this.join(columns);
+            String inClause = DeviceManagementDAOUtil.getInClausePlaceholders(operationIds.size());
 
-                ArchiveEnrolmentOperationMap eom = new ArchiveEnrolmentOperationMap();
-                eom.setId(rs.getInt("ID"));
-                eom.setEnrolmentId(rs.getInt("ENROLMENT_ID"));
-                eom.setOperationId(rs.getInt("OPERATION_ID"));
-                eom.setStatus(rs.getString("STATUS"));
-                eom.setCreatedTimestamp(rs.getInt("CREATED_TIMESTAMP"));
-                eom.setUpdatedTimestamp(rs.getInt("UPDATED_TIMESTAMP"));
-                operationMaps.add(eom);
-            }
+            // The rows are locked until the chunk is committed, so that a row changed by a device in the meantime
+            // is neither deleted without being archived nor archived with stale values.
+            selectStmt = conn.prepareStatement("SELECT " + columnList + " FROM " + table + " WHERE " +
+                    operationIdColumn + " IN (" + inClause + ") FOR UPDATE", ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            selectStmt.setFetchSize(Integer.MIN_VALUE);
+            this.setOperationIds(selectStmt, operationIds);
 
-            if (log.isDebugEnabled()) {
-                log.debug("Selecting done for the Enrolment OP Mapping");
+            StringBuilder insertSql = new StringBuilder("INSERT IGNORE INTO ").append(table).append("_ARCH (")
+                    .append(columnList).append(", ARCHIVED_AT) VALUES (");
+            for (int i = 0; i < columns.length; i++) {
+                insertSql.append("?, ");
             }
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the enrolment op mappings";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt, rs);
-        }
-
-        return operationMaps;
-    }
-
-    @Override
-    public void moveEnrolmentMappings(List<ArchiveEnrolmentOperationMap> operationMaps) throws ArchivalDAOException {
-        Statement stmt = null;
-        PreparedStatement stmt2 = null;
-        Statement stmt3 = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            Connection conn2 = ArchivalDestinationDAOFactory.getConnection();
-
-            String sql = "INSERT INTO DM_ENROLMENT_OP_MAPPING_ARCH VALUES(?, ?, ?, ?, ?, ?, ?)";
-            stmt2 = conn2.prepareStatement(sql);
+            insertStmt = conn2.prepareStatement(insertSql.append("?)").toString());
 
             int count = 0;
-            for (ArchiveEnrolmentOperationMap rs : operationMaps) {
-                stmt2.setInt(1, rs.getId());
-                stmt2.setInt(2, rs.getEnrolmentId());
-                stmt2.setInt(3, rs.getOperationId());
-                stmt2.setString(4, rs.getStatus());
-                stmt2.setInt(5, rs.getCreatedTimestamp());
-                stmt2.setInt(6, rs.getUpdatedTimestamp());
-                stmt2.setTimestamp(7, this.currentTimestamp);
-                stmt2.addBatch();
-
+            rs = selectStmt.executeQuery();
+            while (rs.next()) {
+                for (int i = 1; i <= columns.length; i++) {
+                    insertStmt.setObject(i, rs.getObject(i));
+                }
+                insertStmt.setTimestamp(columns.length + 1, this.currentTimestamp);
+                insertStmt.addBatch();
                 if (++count % batchSize == 0) {
-                    stmt2.executeBatch();
-                    if (log.isDebugEnabled()) {
-                        log.debug("Executing Enrolment Mappings batch " + count);
-                    }
+                    insertStmt.executeBatch();
                 }
             }
-            stmt2.executeBatch();
-            if (log.isDebugEnabled()) {
-                log.debug(count + " [ENROLMENT_OP_MAPPING] Records copied to the archival table. Starting deletion");
+            if (count % batchSize != 0) {
+                insertStmt.executeBatch();
             }
-            sql = "DELETE o.* FROM DM_ENROLMENT_OP_MAPPING o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.OPERATION_ID = da.ID \n" +
-                    "WHERE\n" +
-                    "    o.OPERATION_ID = da.ID;";
-            stmt3 = conn.createStatement();
-            int affected = stmt3.executeUpdate(sql);
-            if (log.isDebugEnabled()) {
-                log.debug(affected + " Rows deleted");
-            }
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the enrolment op mappings";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt2);
-            ArchivalDAOUtil.cleanupResources(stmt3);
-        }
-    }
-
-    @Override
-    public List<ArchiveOperation> selectOperations() throws ArchivalDAOException {
-        Statement stmt = null;
-        ResultSet rs = null;
-        List<ArchiveOperation> operations = new ArrayList<>();
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            String sql = "SELECT \n" +
-                    "    o.ID,\n" +
-                    "    o.TYPE,\n" +
-                    "    o.CREATED_TIMESTAMP,\n" +
-                    "    o.RECEIVED_TIMESTAMP,\n" +
-                    "    o.OPERATION_CODE\n" +
-                    "FROM\n" +
-                    "    DM_OPERATION o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.ID = da.ID;";
-            stmt = this.createMemoryEfficientStatement(conn);
-            rs = stmt.executeQuery(sql);
-
-            while (rs.next()) {
-
-                ArchiveOperation op = new ArchiveOperation();
-                op.setId(rs.getInt("ID"));
-                op.setType(rs.getString("TYPE"));
-                op.setCreatedTimeStamp(rs.getTimestamp("CREATED_TIMESTAMP"));
-                op.setRecievedTimeStamp(rs.getTimestamp("RECEIVED_TIMESTAMP"));
-                op.setOperationCode(rs.getString("OPERATION_CODE"));
-
-                operations.add(op);
+            // The streamed result set has to be closed before the connection can be used for the deletion.
+            ArchivalDAOUtil.cleanupResources(selectStmt, rs);
+            rs = null;
+            selectStmt = null;
 
+            int affected = 0;
+            if (count > 0) {
+                deleteStmt = conn.prepareStatement("DELETE FROM " + table + " WHERE " + operationIdColumn + " IN (" +
+                        inClause + ")");
+                this.setOperationIds(deleteStmt, operationIds);
+                affected = deleteStmt.executeUpdate();
             }
-
             if (log.isDebugEnabled()) {
-                log.debug("Selecting done for the Operation");
+                log.debug(count + " [" + table + "] records copied to the archival table and " + affected +
+                        " records deleted");
             }
+            return count;
         } catch (SQLException e) {
-            String msg = "Error occurred while archiving the operations";
+            String msg = "Error occurred while archiving the records of " + table;
             log.error(msg, e);
             throw new ArchivalDAOException(msg, e);
         } finally {
-            ArchivalDAOUtil.cleanupResources(stmt, rs);
+            ArchivalDAOUtil.cleanupResources(selectStmt, rs);
+            ArchivalDAOUtil.cleanupResources(insertStmt);
+            ArchivalDAOUtil.cleanupResources(deleteStmt);
         }
-        return operations;
     }
 
-    @Override
-    public void moveOperations(List<ArchiveOperation> operations) throws ArchivalDAOException {
-        Statement stmt = null;
-        PreparedStatement stmt2 = null;
-        Statement stmt3 = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            Connection conn2 = ArchivalDestinationDAOFactory.getConnection();
-            String sql = "INSERT INTO DM_OPERATION_ARCH VALUES(?, ?, ?, ?, ?, ?)";
-            stmt2 = conn2.prepareStatement(sql);
-
-            int count = 0;
-            for (ArchiveOperation rs : operations) {
-                stmt2.setInt(1, rs.getId());
-                stmt2.setString(2, rs.getType());
-                stmt2.setTimestamp(3, rs.getCreatedTimeStamp());
-                stmt2.setTimestamp(4, rs.getRecievedTimeStamp());
-                stmt2.setString(5, rs.getOperationCode());
-                stmt2.setTimestamp(6, this.currentTimestamp);
-                stmt2.addBatch();
-
-                if (++count % batchSize == 0) {
-                    stmt2.executeBatch();
-                    if (log.isDebugEnabled()) {
-                        log.debug("Final Execution of Operations batch " + count);
-                    }
-                }
-            }
-            stmt2.executeBatch();
-            if (log.isDebugEnabled()) {
-                log.debug(count + " [OPERATIONS] Records copied to the archival table. Starting deletion");
-            }
-            sql = "DELETE o.* FROM DM_OPERATION o\n" +
-                    "        INNER JOIN\n" +
-                    "    DM_ARCHIVED_OPERATIONS da ON o.ID = da.ID \n" +
-                    "WHERE\n" +
-                    "    o.ID = da.ID;";
-            stmt3 = conn.createStatement();
-            int affected = stmt3.executeUpdate(sql);
-            if (log.isDebugEnabled()) {
-                log.debug(affected + " Rows deleted");
-            }
-        } catch (SQLException e) {
-            String msg = "Error occurred while archiving the operations";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt2);
-            ArchivalDAOUtil.cleanupResources(stmt3);
+    private void setOperationIds(PreparedStatement stmt, List<Integer> operationIds) throws SQLException {
+        int index = 1;
+        for (Integer operationId : operationIds) {
+            stmt.setInt(index++, operationId);
         }
     }
 
-    @Override
-    public void truncateOperationIDsForArchival() throws ArchivalDAOException {
-        PreparedStatement stmt = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-            conn.setAutoCommit(false);
-            String sql = "TRUNCATE DM_ARCHIVED_OPERATIONS";
-            stmt = conn.prepareStatement(sql);
-            stmt.executeUpdate();
-
-            conn.commit();
-        } catch (SQLException e) {
-            String msg = "Error occurred while truncating operation Ids";
-            log.error(msg, e);
-            throw new ArchivalDAOException(msg, e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt);
-        }
-    }
-
-    private Statement createMemoryEfficientStatement(Connection conn) throws ArchivalDAOException, SQLException {
-        Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-        stmt.setFetchSize(Integer.MIN_VALUE);
-        return stmt;
-    }
-
-    private String buildWhereClause(String[] statuses) {
-        StringBuilder whereClause = new StringBuilder("WHERE ");
-        for (int i = 0; i < statuses.length; i++) {
-            whereClause.append("STATUS ='");
-            whereClause.append(statuses[i]);
-            whereClause.append("' ");
-            if (i != (statuses.length - 1))
-                whereClause.append(" OR ");
-        }
-        return whereClause.toString();
-    }
-
-    private void copyOperationIDsForArchival() throws ArchivalDAOException {
-        PreparedStatement stmt = null;
-        Statement createStmt = null;
-        try {
-            Connection conn = ArchivalSourceDAOFactory.getConnection();
-//            conn.setAutoCommit(false);
-//            String sql = "INSERT INTO DM_ARCHIVED_OPERATIONS(ID,CREATED_TIMESTAMP)" +
-//                    " SELECT DISTINCT op.ID as OPERATION_ID, NOW()" +
-//                    " FROM DM_ENROLMENT_OP_MAPPING AS opm" +
-//                    " LEFT JOIN DM_OPERATION AS op ON opm.OPERATION_ID = op.ID" +
-//                    " WHERE opm.STATUS='ERROR' OR opm.STATUS='COMPLETED'" +
-//                    " AND op.RECEIVED_TIMESTAMP < DATE_SUB(NOW(), INTERVAL ? DAY);";
-//            stmt = conn.prepareStatement(sql);
-//            stmt.setInt(1, this.retentionPeriod);
-//            stmt.addBatch();
-//            stmt.executeBatch();
-//            conn.commit();
-
-            //Create the temporary table first
-//            String sql = "CREATE TEMPORARY TABLE DM_ARCHIVED_OPERATIONS (ID INTEGER NOT NULL," +
-//                    "    CREATED_TIMESTAMP TIMESTAMP NOT NULL, PRIMARY KEY (ID))" ;
-//            createStmt = conn.createStatement();
-//            createStmt.execute(sql);
-//            if(log.isDebugEnabled()) {
-//                log.debug("Temporary table DM_ARCHIVED_OPERATIONS has been created ");
-//            }
-            //Copy eligible operations into DM_ARCHIVED_OPERATIONS
-            String sql = "INSERT INTO DM_ARCHIVED_OPERATIONS(ID,CREATED_TIMESTAMP)" +
-                    " SELECT DISTINCT OPERATION_ID, NOW()" +
-                    " FROM DM_ENROLMENT_OP_MAPPING" +
-                    " WHERE STATUS='ERROR' OR STATUS='COMPLETED' OR STATUS='REPEATED'" +
-                    " AND CREATED_TIMESTAMP < DATE_SUB(NOW(), INTERVAL ? DAY)";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, this.retentionPeriod);
-            int affected = stmt.executeUpdate();
-            log.info(affected + " Eligible operations found for archival");
-        } catch (SQLException e) {
-            throw new ArchivalDAOException("Error occurred while copying operation Ids for archival", e);
-        } finally {
-            ArchivalDAOUtil.cleanupResources(stmt);
-            ArchivalDAOUtil.cleanupResources(createStmt);
+    private String join(String[] columns) {
+        StringBuilder columnList = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                columnList.append(", ");
+            }
+            columnList.append(columns[i]);
         }
+        return columnList.toString();
     }
-}
\ No newline at end of file
+}
@@ -100,6 +100,25 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
         }
     }
 
+    @Override
+    public void deleteConfigOperations() throws ArchivalDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = ArchivalDestinationDAOFactory.getConnection();
+            conn.setAutoCommit(false);
+            String sql = "DELETE FROM DM_CONFIG_OPERATION_ARCH" +
+                    "  WHERE ARCHIVED_AT < DATE_SUB(NOW(), INTERVAL ? DAY)";
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, this.retentionPeriod);
+            stmt.executeUpdate();
+            conn.commit();
+        } catch (SQLException e) {
+            throw new ArchivalDAOException("Error occurred while deleting config operations", e);
+        } finally {
+            ArchivalDAOUtil.cleanupResources(stmt);
+        }
+    }
+
     @Override
     public void deleteProfileOperations() throws ArchivalDAOException {
         PreparedStatement stmt = null;
@@ -119,6 +138,25 @@ public class DataDeletionDAOImpl implements DataDeletionDAO {
         }
     }
 
+    @Override
+    public void deletePolicyOperations() throws ArchivalDAOException {
+        PreparedStatement stmt = null;
+        try {
+            Connection conn = ArchivalDestinationDAOFactory.getConnection();
+            conn.setAutoCommit(false);
+            String sql = "DELETE FROM DM_POLICY_OPERATION_ARCH" +
+                    "  WHERE ARCHIVED_AT < DATE_SUB(NOW(), INTERVAL ? DAY)";
+            stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, this.retentionPeriod);
+            stmt.executeUpdate();
+            conn.commit();
+        } catch (SQLException e) {
+            throw new ArchivalDAOException("Error occurred while deleting policy operations", e);
+        } finally {
+            ArchivalDAOUtil.cleanupResources(stmt);
+        }
+    }
+
     @Override
     public void deleteEnrolmentMappings() throws ArchivalDAOException {
         PreparedStatement stmt = null;
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
+
+import java.util.List;
+
+/**
+ * This defines the contract of the cache of geo clusters, which is kept per geohash tile. A tile is identified by the
+ * tenant, the device type (or all device types) and its geohash prefix, and holds the cluster formed by the devices
+ * located within the tile. Any change of a device location must invalidate the tiles of its old and new locations.
+ */
+public interface GeoClusterCacheManager {
+
+    /**
+     * Returns the cached clusters of a tile.
+     * @param tenantId - Owning tenant of the devices.
+     * @param deviceType - Type of the devices, or null for all device types.
+     * @param geohashPrefix - Geohash prefix of the tile.
+     * @return clusters of the tile, which is empty if there are no devices in the tile, or null if the tile is not
+     * cached.
+     */
+    List<GeoCluster> getClusters(int tenantId, String deviceType, String geohashPrefix);
+
+    /**
+     * Caches the clusters of a tile.
+     * @param tenantId - Owning tenant of the devices.
+     * @param deviceType - Type of the devices, or null for all device types.
+     * @param geohashPrefix - Geohash prefix of the tile.
+     * @param geoClusters - Clusters of the tile.
+     */
+    void addClusters(int tenantId, String deviceType, String geohashPrefix, List<GeoCluster> geoClusters);
+
+    /**
+     * Removes every tile which contains the given location, at any geohash length.
+     * @param tenantId - Owning tenant of the device.
+     * @param deviceType - Type of the device.
+     * @param geohash - Full geohash of the location.
+     */
+    void invalidate(int tenantId, String deviceType, String geohash);
+
+}
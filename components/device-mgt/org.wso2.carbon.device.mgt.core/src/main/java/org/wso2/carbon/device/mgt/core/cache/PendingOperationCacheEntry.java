@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This represents a value of the pending operation cache. An entry either records that the active enrolment of a
+ * device has no pending operations, or that a poll of the device is looking up its pending operations. The poll id
+ * lets a poll tell whether the entry it recorded has been replaced or removed since.
+ */
+public class PendingOperationCacheEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int enrolmentId;
+    private final String owner;
+    private final long pollId;
+
+    public PendingOperationCacheEntry(int enrolmentId, String owner, long pollId) {
+        this.enrolmentId = enrolmentId;
+        this.owner = owner;
+        this.pollId = pollId;
+    }
+
+    /**
+     * @return id of the idle enrolment, or -1 if a poll of the device is in progress.
+     */
+    public int getEnrolmentId() {
+        return enrolmentId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getPollId() {
+        return pollId;
+    }
+
+    public boolean isIdle() {
+        return enrolmentId > 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof PendingOperationCacheEntry)) {
+            return false;
+        }
+        final PendingOperationCacheEntry other = (PendingOperationCacheEntry) obj;
+        return this.enrolmentId == other.enrolmentId && this.pollId == other.pollId &&
+                Objects.equals(this.owner, other.owner);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(enrolmentId, owner, pollId);
+    }
+}
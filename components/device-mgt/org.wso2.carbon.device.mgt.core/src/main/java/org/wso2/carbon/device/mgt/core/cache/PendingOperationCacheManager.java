@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+
+import java.util.List;
+
+/**
+ * This defines the contract of the index of devices which are known to have no pending operations. The index lets
+ * the polls of idle devices be answered without querying the database. Any change which may add a pending
+ * operation to a device, or change its enrolment, must remove the device from the index once the change is
+ * committed. A poll records that it is looking up the pending operations of a device before the lookup, and marks
+ * the device idle only if the device has not been removed from the index since, so that an operation added during
+ * the lookup is not hidden.
+ */
+public interface PendingOperationCacheManager {
+
+    /**
+     * Returns the active enrolment of a device, if the enrolment is known to have no pending operations.
+     * @param deviceIdentifier - DeviceIdentifier of the device.
+     * @param tenantId - Owning tenant of the device.
+     * @return entry holding the id and the owner of the idle enrolment, or null if the device may have pending
+     * operations.
+     */
+    PendingOperationCacheEntry getIdleEnrolment(DeviceIdentifier deviceIdentifier, int tenantId);
+
+    /**
+     * Records that a poll is about to look up the pending operations of a device.
+     * @param deviceIdentifier - DeviceIdentifier of the device.
+     * @param tenantId - Owning tenant of the device.
+     * @return id of the poll, to be given to markIdle.
+     */
+    long startPoll(DeviceIdentifier deviceIdentifier, int tenantId);
+
+    /**
+     * Records that the given active enrolment of a device has no pending operations, unless the device was removed
+     * from the index, or polled again, since the poll was started.
+     * @param deviceIdentifier - DeviceIdentifier of the device.
+     * @param enrolmentId - Id of the active enrolment of the device.
+     * @param owner - Owner of the enrolment.
+     * @param pollId - Id of the poll, as returned by startPoll.
+     * @param tenantId - Owning tenant of the device.
+     * @return true if the enrolment is recorded as idle.
+     */
+    boolean markIdle(DeviceIdentifier deviceIdentifier, int enrolmentId, String owner, long pollId, int tenantId);
+
+    /**
+     * Removes a device from the index, so that its next poll is served from the database.
+     * @param deviceIdentifier - DeviceIdentifier of the device.
+     * @param tenantId - Owning tenant of the device.
+     */
+    void invalidate(DeviceIdentifier deviceIdentifier, int tenantId);
+
+    /**
+     * Removes a list of devices from the index.
+     * @param deviceIdentifiers - DeviceIdentifiers of the devices.
+     * @param tenantId - Owning tenant of the devices.
+     */
+    void invalidate(List<DeviceIdentifier> deviceIdentifiers, int tenantId);
+
+    /**
+     * Removes all the devices of a tenant from the index. Used when a change touches devices which are not known
+     * individually, such as the devices of an owner.
+     * @param tenantId - Tenant whose devices are removed.
+     */
+    void invalidate(int tenantId);
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.wso2.carbon.user.api.UserStoreException;
+
+/**
+ * This defines the contract of the cache of the roles of users, which is used to resolve the roles of device owners
+ * and of the users accessing devices, without calling the user store each time. Any change to the roles of a user
+ * must invalidate the roles cached for the user, or for the whole tenant when many users may be affected.
+ */
+public interface UserRoleCacheManager {
+
+    /**
+     * Returns the roles of a user, from the cache if they are cached and not expired, or from the user store.
+     * @param username - Name of the user.
+     * @param tenantId - Tenant of the user.
+     * @return roles of the user.
+     * @throws UserStoreException if the roles could not be read from the user store.
+     */
+    String[] getRoleListOfUser(String username, int tenantId) throws UserStoreException;
+
+    /**
+     * Removes the roles cached for a user.
+     * @param username - Name of the user.
+     * @param tenantId - Tenant of the user.
+     */
+    void invalidateUser(String username, int tenantId);
+
+    /**
+     * Removes the roles cached for all the users of a tenant.
+     * @param tenantId - Tenant of the users.
+     */
+    void invalidateTenant(int tenantId);
+
+}
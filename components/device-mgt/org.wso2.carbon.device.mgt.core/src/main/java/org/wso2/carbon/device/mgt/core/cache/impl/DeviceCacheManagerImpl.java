@@ -22,20 +22,33 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.cache.DeviceCacheKey;
 import org.wso2.carbon.device.mgt.core.cache.DeviceCacheManager;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.cache.DeviceCacheConfiguration;
 import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
 
 import javax.cache.Cache;
 import java.util.List;
 
 /**
- * Implementation of DeviceCacheManager.
+ * Implementation of DeviceCacheManager. Devices are kept in a near-cache local to the node, in front of the
+ * device-cache which may be distributed across the nodes of a cluster. Each operation on the device-cache is done
+ * with a single call.
  */
 public class DeviceCacheManagerImpl implements DeviceCacheManager {
 
     private static final Log log = LogFactory.getLog(DeviceCacheManagerImpl.class);
 
+    // Reused by the lookups of a thread, as the near-cache does not keep the keys it is looked up with.
+    private static final ThreadLocal<DeviceCacheKey> lookupKey = new ThreadLocal<DeviceCacheKey>() {
+        @Override
+        protected DeviceCacheKey initialValue() {
+            return new DeviceCacheKey();
+        }
+    };
+    private static volatile DeviceNearCache nearCache;
     private static DeviceCacheManagerImpl deviceCacheManager;
 
     private DeviceCacheManagerImpl() {
@@ -57,11 +70,8 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
             DeviceCacheKey cacheKey = getCacheKey(deviceIdentifier, tenantId);
-            if (lCache.containsKey(cacheKey)) {
-                this.updateDeviceInCache(deviceIdentifier, device, tenantId);
-            } else {
-                lCache.put(cacheKey, device);
-            }
+            lCache.put(cacheKey, device);
+            getNearCache().put(cacheKey, device);
         }
     }
 
@@ -70,9 +80,8 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
             DeviceCacheKey cacheKey = getCacheKey(deviceIdentifier, tenantId);
-            if (lCache.containsKey(cacheKey)) {
-                lCache.remove(cacheKey);
-            }
+            getNearCache().remove(cacheKey);
+            lCache.remove(cacheKey);
         }
     }
 
@@ -80,10 +89,10 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
     public void removeDevicesFromCache(List<DeviceCacheKey> deviceList) {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
+            DeviceNearCache localCache = getNearCache();
             for (DeviceCacheKey cacheKey : deviceList) {
-                if (lCache.containsKey(cacheKey)) {
-                    lCache.remove(cacheKey);
-                }
+                localCache.remove(cacheKey);
+                lCache.remove(cacheKey);
             }
         }
     }
@@ -93,8 +102,10 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
             DeviceCacheKey cacheKey = getCacheKey(deviceIdentifier, tenantId);
-            if (lCache.containsKey(cacheKey)) {
-                lCache.replace(cacheKey, device);
+            if (lCache.replace(cacheKey, device)) {
+                getNearCache().put(cacheKey, device);
+            } else {
+                getNearCache().remove(cacheKey);
             }
         }
     }
@@ -103,17 +114,52 @@ public class DeviceCacheManagerImpl implements DeviceCacheManager {
     public Device getDeviceFromCache(DeviceIdentifier deviceIdentifier, int tenantId) {
         Cache<DeviceCacheKey, Device> lCache = DeviceManagerUtil.getDeviceCache();
         if (lCache != null) {
-            return lCache.get(getCacheKey(deviceIdentifier, tenantId));
+            DeviceNearCache localCache = getNearCache();
+            DeviceCacheKey cacheKey = lookupKey.get();
+            cacheKey.setDeviceId(deviceIdentifier.getId());
+            cacheKey.setDeviceType(deviceIdentifier.getType());
+            cacheKey.setTenantId(tenantId);
+            Device device = localCache.get(cacheKey);
+            if (device != null) {
+                return device;
+            }
+            // The device-cache and the near-cache may keep the key, hence a key of its own is used past this point.
+            cacheKey = getCacheKey(deviceIdentifier, tenantId);
+            device = lCache.get(cacheKey);
+            if (device != null) {
+                localCache.put(cacheKey, device);
+            }
+            return device;
         }
         return null;
     }
 
+    private DeviceNearCache getNearCache() {
+        if (nearCache == null) {
+            synchronized (DeviceCacheManagerImpl.class) {
+                if (nearCache == null) {
+                    DeviceCacheConfiguration config = DeviceConfigurationManager.getInstance()
+                            .getDeviceManagementConfig().getDeviceCacheConfiguration();
+                    long capacity = config.getCapacity() > 0 ? config.getCapacity() :
+                            DeviceManagementConstants.DEFAULT_DEVICE_NEAR_CACHE_CAPACITY;
+                    int expiryTime = config.getNearCacheExpiryTime() > 0 ? config.getNearCacheExpiryTime() :
+                            DeviceManagementConstants.DEFAULT_DEVICE_NEAR_CACHE_EXPIRY_TIME;
+                    // A device must not outlive its entry in the device-cache.
+                    if (config.getExpiryTime() > 0 && config.getExpiryTime() < expiryTime) {
+                        expiryTime = config.getExpiryTime();
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Initializing device near-cache with capacity " + capacity + " and expiry time " +
+                                expiryTime + " seconds");
+                    }
+                    nearCache = new DeviceNearCache(capacity, expiryTime);
+                }
+            }
+        }
+        return nearCache;
+    }
 
     private DeviceCacheKey getCacheKey(DeviceIdentifier deviceIdentifier, int tenantId) {
-        DeviceCacheKey deviceCacheKey = new DeviceCacheKey();
-        deviceCacheKey.setDeviceId(deviceIdentifier.getId());
-        deviceCacheKey.setDeviceType(deviceIdentifier.getType());
-        deviceCacheKey.setTenantId(tenantId);
-        return deviceCacheKey;
+        return new DeviceCacheKey(deviceIdentifier.getId(), deviceIdentifier.getType(), tenantId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.cache.impl;
+
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.core.cache.DeviceCacheKey;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded near-cache of devices, which is kept in front of the device-cache within the local node. The near-cache is
+ * split into independently locked segments, each of which evicts its entries in least recently used order once its
+ * share of the capacity is reached. Entries also expire after the given time.
+ * <p>
+ * Devices are mutable, and callers do change the devices they get, e.g. DeviceManagementProviderServiceImpl sets the
+ * device info and the applications of the device it returns. Hence the near-cache keeps a private copy of each
+ * device, and hands out a new copy on each lookup. Only devices as read from the database are copied, i.e. devices
+ * without features, device info or applications; any other device is left to the device-cache.
+ * <p>
+ * The near-cache is not aware of changes made on the other nodes of a cluster. A node may hence serve a device which
+ * was updated or removed elsewhere until its entry expires, so the expiry time should be kept short.
+ */
+class DeviceNearCache {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final long expiryNanos;
+    private final Segment[] segments;
+
+    DeviceNearCache(long capacity, int expiryTime) {
+        this.expiryNanos = TimeUnit.SECONDS.toNanos(expiryTime);
+        int segmentCount = (int) Math.max(1, Math.min(SEGMENT_COUNT, capacity));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(Math.max(1, capacity / segmentCount));
+        }
+    }
+
+    Device get(DeviceCacheKey cacheKey) {
+        Segment segment = segmentFor(cacheKey);
+        Device device;
+        synchronized (segment) {
+            Entry entry = segment.get(cacheKey);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.nanoTime())) {
+                segment.remove(cacheKey);
+                return null;
+            }
+            device = entry.device;
+        }
+        // The copy of an entry is never changed, hence it is copied again outside the lock.
+        return copy(device);
+    }
+
+    /**
+     * Puts a device into the near-cache. The key is kept by the near-cache, hence it must not be changed afterwards.
+     */
+    void put(DeviceCacheKey cacheKey, Device device) {
+        Device copy = isCopyable(device) ? copy(device) : null;
+        Segment segment = segmentFor(cacheKey);
+        synchronized (segment) {
+            if (copy == null) {
+                segment.remove(cacheKey);
+            } else {
+                segment.put(cacheKey, new Entry(copy, System.nanoTime() + expiryNanos));
+            }
+        }
+    }
+
+    void remove(DeviceCacheKey cacheKey) {
+        Segment segment = segmentFor(cacheKey);
+        synchronized (segment) {
+            segment.remove(cacheKey);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(DeviceCacheKey cacheKey) {
+        int hash = cacheKey.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private static boolean isCopyable(Device device) {
+        return (device.getFeatures() == null || device.getFeatures().isEmpty()) && device.getDeviceInfo() == null &&
+                (device.getApplications() == null || device.getApplications().isEmpty());
+    }
+
+    private static Device copy(Device device) {
+        Device copy = new Device();
+        copy.setId(device.getId());
+        copy.setName(device.getName());
+        copy.setType(device.getType());
+        copy.setDescription(device.getDescription());
+        copy.setDeviceIdentifier(device.getDeviceIdentifier());
+        EnrolmentInfo enrolmentInfo = device.getEnrolmentInfo();
+        if (enrolmentInfo != null) {
+            EnrolmentInfo enrolmentCopy = new EnrolmentInfo(enrolmentInfo.getOwner(), enrolmentInfo.getOwnership(),
+                    enrolmentInfo.getStatus());
+            enrolmentCopy.setId(enrolmentInfo.getId());
+            enrolmentCopy.setDateOfEnrolment(enrolmentInfo.getDateOfEnrolment());
+            enrolmentCopy.setDateOfLastUpdate(enrolmentInfo.getDateOfLastUpdate());
+            copy.setEnrolmentInfo(enrolmentCopy);
+        }
+        if (device.getProperties() != null) {
+            List<Device.Property> properties = new ArrayList<>(device.getProperties().size());
+            for (Device.Property property : device.getProperties()) {
+                Device.Property propertyCopy = new Device.Property();
+                propertyCopy.setName(property.getName());
+                propertyCopy.setValue(property.getValue());
+                properties.add(propertyCopy);
+            }
+            copy.setProperties(properties);
+        }
+        if (device.getFeatures() != null) {
+            copy.setFeatures(new ArrayList<>(device.getFeatures()));
+        }
+        if (device.getApplications() != null) {
+            copy.setApplications(new ArrayList<>(device.getApplications()));
+        }
+        return copy;
+    }
+
+    /**
+     * Entries of a segment, kept in least recently used order. A segment is not thread safe, hence it is only used
+     * while holding its lock.
+     */
+    private static class Segment {
+
+        private final Map<DeviceCacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long capacity;
+
+        private Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        private Entry get(DeviceCacheKey cacheKey) {
+            return entries.get(cacheKey);
+        }
+
+        private void put(DeviceCacheKey cacheKey, Entry entry) {
+            entries.put(cacheKey, entry);
+            if (entries.size() > capacity) {
+                Iterator<Entry> eldest = entries.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+
+        private void remove(DeviceCacheKey cacheKey) {
+            entries.remove(cacheKey);
+        }
+
+        private int size() {
+            return entries.size();
+        }
+    }
+
+    private static class Entry {
+
+        private final Device device;
+        private final long expiresAt;
+
+        private Entry(Device device, long expiresAt) {
+            this.device = device;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.cache.GeoClusterCacheManager;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.geo.location.GeoLocationConfiguration;
+import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of GeoClusterCacheManager, which keeps the tiles within the local node in least recently used order.
+ * Tiles are invalidated when the location of a device is updated through this node, while the expiry time bounds how
+ * long a node may serve a tile whose devices were moved through another node.
+ */
+public class GeoClusterCacheManagerImpl implements GeoClusterCacheManager {
+
+    private static final Log log = LogFactory.getLog(GeoClusterCacheManagerImpl.class);
+    private static final String ALL_DEVICE_TYPES = "";
+
+    private static GeoClusterCacheManagerImpl geoClusterCacheManager;
+
+    private final long capacity;
+    private final long expiryNanos;
+    private final LinkedHashMap<String, Entry> tiles;
+
+    private GeoClusterCacheManagerImpl(final long capacity, int expiryTime) {
+        this.capacity = capacity;
+        this.expiryNanos = TimeUnit.SECONDS.toNanos(expiryTime);
+        this.tiles = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > GeoClusterCacheManagerImpl.this.capacity;
+            }
+        };
+    }
+
+    public static GeoClusterCacheManagerImpl getInstance() {
+        if (geoClusterCacheManager == null) {
+            synchronized (GeoClusterCacheManagerImpl.class) {
+                if (geoClusterCacheManager == null) {
+                    GeoLocationConfiguration config = DeviceConfigurationManager.getInstance()
+                            .getDeviceManagementConfig().getGeoLocationConfiguration();
+                    long capacity = DeviceManagementConstants.DEFAULT_GEO_CLUSTER_CACHE_CAPACITY;
+                    int expiryTime = DeviceManagementConstants.DEFAULT_GEO_CLUSTER_CACHE_EXPIRY_TIME;
+                    if (config != null && config.getClusterCacheCapacity() > 0) {
+                        capacity = config.getClusterCacheCapacity();
+                    }
+                    if (config != null && config.getClusterCacheExpiryTime() > 0) {
+                        expiryTime = config.getClusterCacheExpiryTime();
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Initializing geo cluster cache with capacity " + capacity + " and expiry time " +
+                                expiryTime + " seconds");
+                    }
+                    geoClusterCacheManager = new GeoClusterCacheManagerImpl(capacity, expiryTime);
+                }
+            }
+        }
+        return geoClusterCacheManager;
+    }
+
+    @Override
+    public synchronized List<GeoCluster> getClusters(int tenantId, String deviceType, String geohashPrefix) {
+        String cacheKey = getCacheKey(tenantId, deviceType, geohashPrefix);
+        Entry entry = tiles.get(cacheKey);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt >= 0) {
+            tiles.remove(cacheKey);
+            return null;
+        }
+        return entry.geoClusters;
+    }
+
+    @Override
+    public synchronized void addClusters(int tenantId, String deviceType, String geohashPrefix,
+                                         List<GeoCluster> geoClusters) {
+        tiles.put(getCacheKey(tenantId, deviceType, geohashPrefix),
+                new Entry(Collections.unmodifiableList(geoClusters), System.nanoTime() + expiryNanos));
+    }
+
+    @Override
+    public synchronized void invalidate(int tenantId, String deviceType, String geohash) {
+        for (int length = 1; length <= geohash.length(); length++) {
+            String geohashPrefix = geohash.substring(0, length);
+            tiles.remove(getCacheKey(tenantId, deviceType, geohashPrefix));
+            tiles.remove(getCacheKey(tenantId, null, geohashPrefix));
+        }
+    }
+
+    private String getCacheKey(int tenantId, String deviceType, String geohashPrefix) {
+        return tenantId + "/" + (deviceType == null || deviceType.isEmpty() ? ALL_DEVICE_TYPES : deviceType) + "/" +
+                geohashPrefix;
+    }
+
+    private static class Entry {
+
+        private final List<GeoCluster> geoClusters;
+        private final long expiresAt;
+
+        private Entry(List<GeoCluster> geoClusters, long expiresAt) {
+            this.geoClusters = geoClusters;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache.impl;
+
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.core.cache.DeviceCacheKey;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheEntry;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheManager;
+import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
+
+import javax.cache.Cache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Implementation of PendingOperationCacheManager, which is backed by the pending operation cache. Hence the index
+ * is shared across the nodes of a cluster when the caches are distributed.
+ */
+public class PendingOperationCacheManagerImpl implements PendingOperationCacheManager {
+
+    private static PendingOperationCacheManagerImpl pendingOperationCacheManager;
+
+    private PendingOperationCacheManagerImpl() {
+    }
+
+    public static PendingOperationCacheManagerImpl getInstance() {
+        if (pendingOperationCacheManager == null) {
+            synchronized (PendingOperationCacheManagerImpl.class) {
+                if (pendingOperationCacheManager == null) {
+                    pendingOperationCacheManager = new PendingOperationCacheManagerImpl();
+                }
+            }
+        }
+        return pendingOperationCacheManager;
+    }
+
+    @Override
+    public PendingOperationCacheEntry getIdleEnrolment(DeviceIdentifier deviceIdentifier, int tenantId) {
+        Cache<DeviceCacheKey, PendingOperationCacheEntry> lCache = DeviceManagerUtil.getPendingOperationCache();
+        if (lCache != null) {
+            PendingOperationCacheEntry entry = lCache.get(getCacheKey(deviceIdentifier, tenantId));
+            if (entry != null && entry.isIdle()) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long startPoll(DeviceIdentifier deviceIdentifier, int tenantId) {
+        Cache<DeviceCacheKey, PendingOperationCacheEntry> lCache = DeviceManagerUtil.getPendingOperationCache();
+        if (lCache == null) {
+            return 0;
+        }
+        // Poll ids are random, as polls of the same device may run on other nodes of the cluster.
+        long pollId = ThreadLocalRandom.current().nextLong();
+        lCache.put(getCacheKey(deviceIdentifier, tenantId), new PendingOperationCacheEntry(-1, null, pollId));
+        return pollId;
+    }
+
+    @Override
+    public boolean markIdle(DeviceIdentifier deviceIdentifier, int enrolmentId, String owner, long pollId,
+                            int tenantId) {
+        Cache<DeviceCacheKey, PendingOperationCacheEntry> lCache = DeviceManagerUtil.getPendingOperationCache();
+        if (lCache == null) {
+            return false;
+        }
+        // Fails if the entry of the poll was removed by an invalidation, or replaced by a later poll.
+        return lCache.replace(getCacheKey(deviceIdentifier, tenantId),
+                new PendingOperationCacheEntry(-1, null, pollId),
+                new PendingOperationCacheEntry(enrolmentId, owner, pollId));
+    }
+
+    @Override
+    public void invalidate(DeviceIdentifier deviceIdentifier, int tenantId) {
+        Cache<DeviceCacheKey, PendingOperationCacheEntry> lCache = DeviceManagerUtil.getPendingOperationCache();
+        if (lCache != null) {
+            lCache.remove(getCacheKey(deviceIdentifier, tenantId));
+        }
+    }
+
+    @Override
+    public void invalidate(List<DeviceIdentifier> deviceIdentifiers, int tenantId) {
+        Cache<DeviceCacheKey, PendingOperationCacheEntry> lCache = DeviceManagerUtil.getPendingOperationCache();
+        if (lCache != null) {
+            for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
+                lCache.remove(getCacheKey(deviceIdentifier, tenantId));
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(int tenantId) {
+        Cache<DeviceCacheKey, PendingOperationCacheEntry> lCache = DeviceManagerUtil.getPendingOperationCache();
+        if (lCache != null) {
+            List<DeviceCacheKey> cacheKeys = new ArrayList<>();
+            for (Cache.Entry<DeviceCacheKey, PendingOperationCacheEntry> entry : lCache) {
+                if (entry.getKey().getTenantId() == tenantId) {
+                    cacheKeys.add(entry.getKey());
+                }
+            }
+            for (DeviceCacheKey cacheKey : cacheKeys) {
+                lCache.remove(cacheKey);
+            }
+        }
+    }
+
+    private DeviceCacheKey getCacheKey(DeviceIdentifier deviceIdentifier, int tenantId) {
+        DeviceCacheKey cacheKey = new DeviceCacheKey();
+        cacheKey.setDeviceId(deviceIdentifier.getId());
+        cacheKey.setDeviceType(deviceIdentifier.getType());
+        cacheKey.setTenantId(tenantId);
+        return cacheKey;
+    }
+}
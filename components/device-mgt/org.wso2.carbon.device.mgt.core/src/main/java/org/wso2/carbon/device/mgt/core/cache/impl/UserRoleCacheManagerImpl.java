@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache.impl;
+
+import org.wso2.carbon.device.mgt.common.cache.BoundedExpiringMap;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.cache.UserRoleCacheManager;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.cache.UserRoleCacheConfiguration;
+import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
+import org.wso2.carbon.user.api.UserStoreException;
+import org.wso2.carbon.user.core.UserCoreConstants;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of UserRoleCacheManager, which keeps the roles of users within the local node, per tenant. Users
+ * without roles are cached for a shorter time, so that a newly assigned role is picked up soon even if the change
+ * is not notified. Since the cache is not aware of changes made on the other nodes of a cluster, the expiry time
+ * bounds how long a node may use the roles of a user which were changed elsewhere. Once the cache of a tenant is
+ * full, the roles of the least recently used user are evicted.
+ * Users are cached by their domain qualified name, so that a user of the primary user store given with or without
+ * the domain, e.g. by the user store listeners, maps to the same entry.
+ */
+public class UserRoleCacheManagerImpl implements UserRoleCacheManager {
+
+    private static final String[] NO_ROLES = new String[0];
+
+    private static UserRoleCacheManagerImpl userRoleCacheManager;
+
+    private final long expiryTime;
+    private final long negativeExpiryTime;
+    private final int capacity;
+    private final ConcurrentMap<Integer, TenantEntries> tenantEntries = new ConcurrentHashMap<>();
+
+    private UserRoleCacheManagerImpl() {
+        UserRoleCacheConfiguration config = DeviceConfigurationManager.getInstance().getDeviceManagementConfig()
+                .getUserRoleCacheConfiguration();
+        if (config == null) {
+            config = new UserRoleCacheConfiguration();
+        }
+        expiryTime = TimeUnit.SECONDS.toMillis(config.getExpiryTime() > 0 ? config.getExpiryTime() :
+                DeviceManagementConstants.DEFAULT_USER_ROLE_CACHE_EXPIRY_TIME);
+        negativeExpiryTime = TimeUnit.SECONDS.toMillis(config.getNegativeExpiryTime() > 0 ?
+                config.getNegativeExpiryTime() :
+                DeviceManagementConstants.DEFAULT_USER_ROLE_CACHE_NEGATIVE_EXPIRY_TIME);
+        capacity = config.getCapacity() > 0 ? config.getCapacity() :
+                DeviceManagementConstants.DEFAULT_USER_ROLE_CACHE_CAPACITY;
+    }
+
+    public static UserRoleCacheManagerImpl getInstance() {
+        if (userRoleCacheManager == null) {
+            synchronized (UserRoleCacheManagerImpl.class) {
+                if (userRoleCacheManager == null) {
+                    userRoleCacheManager = new UserRoleCacheManagerImpl();
+                }
+            }
+        }
+        return userRoleCacheManager;
+    }
+
+    @Override
+    public String[] getRoleListOfUser(String username, int tenantId) throws UserStoreException {
+        TenantEntries tenant = this.getTenantEntries(tenantId);
+        String key = getKey(username);
+        String[] cachedRoles = tenant.get(key);
+        if (cachedRoles != null) {
+            return cachedRoles.clone();
+        }
+        // Read before the user store, so that roles read while the user is invalidated are not kept.
+        long generation = tenant.generation.get();
+        String[] roles = DeviceManagementDataHolder.getInstance().getRealmService().getTenantUserRealm(tenantId)
+                .getUserStoreManager().getRoleListOfUser(username);
+        if (roles == null) {
+            roles = NO_ROLES;
+        }
+        cachedRoles = roles.clone();
+        tenant.put(key, cachedRoles, roles.length == 0 ? negativeExpiryTime : expiryTime);
+        // invalidateUser and invalidateTenant bump the tenant generation before they remove entries. If a role change
+        // lands between the generation read above and this put, its removal may miss the entry just put, but the
+        // bumped generation is seen here, so the roles read from the user store before that change are dropped.
+        if (tenant.generation.get() != generation) {
+            tenant.remove(key, cachedRoles);
+        }
+        return roles;
+    }
+
+    @Override
+    public void invalidateUser(String username, int tenantId) {
+        TenantEntries tenant = this.getTenantEntries(tenantId);
+        tenant.generation.incrementAndGet();
+        tenant.remove(getKey(username));
+    }
+
+    @Override
+    public void invalidateTenant(int tenantId) {
+        TenantEntries tenant = this.getTenantEntries(tenantId);
+        tenant.generation.incrementAndGet();
+        tenant.clear();
+    }
+
+    private TenantEntries getTenantEntries(int tenantId) {
+        TenantEntries tenant = tenantEntries.get(tenantId);
+        if (tenant == null) {
+            TenantEntries newTenant = new TenantEntries(capacity, expiryTime);
+            tenant = tenantEntries.putIfAbsent(tenantId, newTenant);
+            if (tenant == null) {
+                tenant = newTenant;
+            }
+        }
+        return tenant;
+    }
+
+    /**
+     * @return name of the user qualified with the upper case user store domain, the primary one if none is given.
+     */
+    private static String getKey(String username) {
+        int index = username.indexOf(UserCoreConstants.DOMAIN_SEPARATOR);
+        if (index < 0) {
+            return UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME + UserCoreConstants.DOMAIN_SEPARATOR + username;
+        }
+        return username.substring(0, index).toUpperCase() + username.substring(index);
+    }
+
+    /**
+     * Cached roles of the users of a tenant, with the number of invalidations of the tenant.
+     */
+    private static class TenantEntries extends BoundedExpiringMap<String, String[]> {
+
+        private final AtomicLong generation = new AtomicLong();
+
+        private TenantEntries(int capacity, long expiryTime) {
+            super(capacity, expiryTime);
+        }
+
+    }
+}
@@ -21,9 +21,12 @@ import org.wso2.carbon.device.mgt.core.config.analytics.OperationAnalyticsConfig
 import org.wso2.carbon.device.mgt.core.config.archival.ArchivalConfiguration;
 import org.wso2.carbon.device.mgt.core.config.cache.CertificateCacheConfiguration;
 import org.wso2.carbon.device.mgt.core.config.cache.DeviceCacheConfiguration;
+import org.wso2.carbon.device.mgt.core.config.cache.PendingOperationCacheConfiguration;
+import org.wso2.carbon.device.mgt.core.config.cache.UserRoleCacheConfiguration;
 import org.wso2.carbon.device.mgt.core.config.geo.location.GeoLocationConfiguration;
 import org.wso2.carbon.device.mgt.core.config.identity.IdentityConfigurations;
 import org.wso2.carbon.device.mgt.core.config.keymanager.KeyManagerConfigurations;
+import org.wso2.carbon.device.mgt.core.config.operation.OperationPayloadConfiguration;
 import org.wso2.carbon.device.mgt.core.config.pagination.PaginationConfiguration;
 import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
 import org.wso2.carbon.device.mgt.core.config.pull.notification.PullNotificationConfiguration;
@@ -52,12 +55,15 @@ public final class DeviceManagementConfig {
     private PullNotificationConfiguration pullNotificationConfiguration;
     private DeviceStatusTaskConfig deviceStatusTaskConfig;
     private DeviceCacheConfiguration deviceCacheConfiguration;
+    private PendingOperationCacheConfiguration pendingOperationCacheConfiguration;
     private CertificateCacheConfiguration certificateCacheConfiguration;
+    private UserRoleCacheConfiguration userRoleCacheConfiguration;
     private OperationAnalyticsConfiguration operationAnalyticsConfiguration;
     private GeoLocationConfiguration geoLocationConfiguration;
     private String defaultGroupsConfiguration;
     private RemoteSessionConfiguration remoteSessionConfiguration;
     private ArchivalConfiguration archivalConfiguration;
+    private OperationPayloadConfiguration operationPayloadConfiguration;
 
 
     @XmlElement(name = "ManagementRepository", required = true)
@@ -151,6 +157,16 @@ public final class DeviceManagementConfig {
         this.deviceCacheConfiguration = deviceCacheConfiguration;
     }
 
+    @XmlElement(name = "PendingOperationCacheConfiguration")
+    public PendingOperationCacheConfiguration getPendingOperationCacheConfiguration() {
+        return pendingOperationCacheConfiguration;
+    }
+
+    public void setPendingOperationCacheConfiguration(
+            PendingOperationCacheConfiguration pendingOperationCacheConfiguration) {
+        this.pendingOperationCacheConfiguration = pendingOperationCacheConfiguration;
+    }
+
     @XmlElement(name = "CertificateCacheConfiguration", required = true)
     public CertificateCacheConfiguration getCertificateCacheConfiguration() {
         return certificateCacheConfiguration;
@@ -160,6 +176,15 @@ public final class DeviceManagementConfig {
         this.certificateCacheConfiguration = certificateCacheConfiguration;
     }
 
+    @XmlElement(name = "UserRoleCacheConfiguration")
+    public UserRoleCacheConfiguration getUserRoleCacheConfiguration() {
+        return userRoleCacheConfiguration;
+    }
+
+    public void setUserRoleCacheConfiguration(UserRoleCacheConfiguration userRoleCacheConfiguration) {
+        this.userRoleCacheConfiguration = userRoleCacheConfiguration;
+    }
+
     @XmlElement(name = "OperationAnalyticsConfiguration", required = true)
     public OperationAnalyticsConfiguration getOperationAnalyticsConfiguration() {
         return operationAnalyticsConfiguration;
@@ -203,5 +228,13 @@ public final class DeviceManagementConfig {
     public void setRemoteSessionConfiguration(RemoteSessionConfiguration remoteSessionConfiguration) {
         this.remoteSessionConfiguration = remoteSessionConfiguration;
     }
-}
 
+    @XmlElement(name = "OperationPayloadConfiguration")
+    public OperationPayloadConfiguration getOperationPayloadConfiguration() {
+        return operationPayloadConfiguration;
+    }
+
+    public void setOperationPayloadConfiguration(OperationPayloadConfiguration operationPayloadConfiguration) {
+        this.operationPayloadConfiguration = operationPayloadConfiguration;
+    }
+}
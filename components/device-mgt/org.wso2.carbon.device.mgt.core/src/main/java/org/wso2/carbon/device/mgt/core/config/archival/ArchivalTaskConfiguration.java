@@ -30,6 +30,8 @@ public class ArchivalTaskConfiguration {
     private int batchSize;
     private PurgingTaskConfiguration purgingTaskConfiguration;
     private boolean archivePendingOperations;
+    private int workerCount;
+    private long throttleInterval;
 
     @XmlElement(name = "Enabled", required = true)
     public boolean isEnabled() {
@@ -93,4 +95,22 @@ public class ArchivalTaskConfiguration {
     public void setArchivePendingOperations(boolean archivePendingOperations) {
         this.archivePendingOperations = archivePendingOperations;
     }
+
+    @XmlElement(name ="WorkerCount")
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    @XmlElement(name ="ThrottleInterval")
+    public long getThrottleInterval() {
+        return throttleInterval;
+    }
+
+    public void setThrottleInterval(long throttleInterval) {
+        this.throttleInterval = throttleInterval;
+    }
 }
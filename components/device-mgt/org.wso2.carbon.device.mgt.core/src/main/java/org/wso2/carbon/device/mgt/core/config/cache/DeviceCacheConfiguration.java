@@ -27,6 +27,7 @@ public class DeviceCacheConfiguration {
     private boolean isEnabled;
     private int expiryTime;
     private long capacity;
+    private int nearCacheExpiryTime;
 
     @XmlElement(name = "Enable", required = true)
     public boolean isEnabled() {
@@ -54,4 +55,13 @@ public class DeviceCacheConfiguration {
     public void setCapacity(long capacity) {
         this.capacity = capacity;
     }
+
+    @XmlElement(name = "NearCacheExpiryTime")
+    public int getNearCacheExpiryTime() {
+        return nearCacheExpiryTime;
+    }
+
+    public void setNearCacheExpiryTime(int nearCacheExpiryTime) {
+        this.nearCacheExpiryTime = nearCacheExpiryTime;
+    }
 }
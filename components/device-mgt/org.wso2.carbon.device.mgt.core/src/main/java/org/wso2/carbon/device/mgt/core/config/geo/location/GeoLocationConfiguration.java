@@ -28,6 +28,8 @@ import javax.xml.bind.annotation.XmlRootElement;
 public class GeoLocationConfiguration {
 
     private boolean enabled;
+    private long clusterCacheCapacity;
+    private int clusterCacheExpiryTime;
 
     public boolean getEnabled() {
         return enabled;
@@ -37,4 +39,22 @@ public class GeoLocationConfiguration {
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
+
+    public long getClusterCacheCapacity() {
+        return clusterCacheCapacity;
+    }
+
+    @XmlElement(name = "ClusterCacheCapacity")
+    public void setClusterCacheCapacity(long clusterCacheCapacity) {
+        this.clusterCacheCapacity = clusterCacheCapacity;
+    }
+
+    public int getClusterCacheExpiryTime() {
+        return clusterCacheExpiryTime;
+    }
+
+    @XmlElement(name = "ClusterCacheExpiryTime")
+    public void setClusterCacheExpiryTime(int clusterCacheExpiryTime) {
+        this.clusterCacheExpiryTime = clusterCacheExpiryTime;
+    }
 }
@@ -35,6 +35,13 @@ public class PolicyConfiguration {
     private List<String> platforms;
     private String policyEvaluationPoint;
     private boolean cacheEnable;
+    private int cacheCapacity;
+    private int cacheExpiryTime;
+    private boolean complianceBatchingEnable;
+    private int complianceBatchSize;
+    private int complianceQueueSize;
+    private int monitoringWorkerPoolSize;
+    private int monitoringBatchSize;
 
     @XmlElement(name = "MonitoringClass", required = true)
     public String getMonitoringClass() {
@@ -118,4 +125,67 @@ public class PolicyConfiguration {
         this.cacheEnable = cacheEnable;
     }
 
+    @XmlElement(name = "CacheCapacity")
+    public int getCacheCapacity() {
+        return cacheCapacity;
+    }
+
+    public void setCacheCapacity(int cacheCapacity) {
+        this.cacheCapacity = cacheCapacity;
+    }
+
+    @XmlElement(name = "CacheExpiryTime")
+    public int getCacheExpiryTime() {
+        return cacheExpiryTime;
+    }
+
+    public void setCacheExpiryTime(int cacheExpiryTime) {
+        this.cacheExpiryTime = cacheExpiryTime;
+    }
+
+    @XmlElement(name = "ComplianceBatchingEnable")
+    public boolean getComplianceBatchingEnable() {
+        return complianceBatchingEnable;
+    }
+
+    public void setComplianceBatchingEnable(boolean complianceBatchingEnable) {
+        this.complianceBatchingEnable = complianceBatchingEnable;
+    }
+
+    @XmlElement(name = "ComplianceBatchSize")
+    public int getComplianceBatchSize() {
+        return complianceBatchSize;
+    }
+
+    public void setComplianceBatchSize(int complianceBatchSize) {
+        this.complianceBatchSize = complianceBatchSize;
+    }
+
+    @XmlElement(name = "ComplianceQueueSize")
+    public int getComplianceQueueSize() {
+        return complianceQueueSize;
+    }
+
+    public void setComplianceQueueSize(int complianceQueueSize) {
+        this.complianceQueueSize = complianceQueueSize;
+    }
+
+    @XmlElement(name = "MonitoringWorkerPoolSize")
+    public int getMonitoringWorkerPoolSize() {
+        return monitoringWorkerPoolSize;
+    }
+
+    public void setMonitoringWorkerPoolSize(int monitoringWorkerPoolSize) {
+        this.monitoringWorkerPoolSize = monitoringWorkerPoolSize;
+    }
+
+    @XmlElement(name = "MonitoringBatchSize")
+    public int getMonitoringBatchSize() {
+        return monitoringBatchSize;
+    }
+
+    public void setMonitoringBatchSize(int monitoringBatchSize) {
+        this.monitoringBatchSize = monitoringBatchSize;
+    }
+
 }
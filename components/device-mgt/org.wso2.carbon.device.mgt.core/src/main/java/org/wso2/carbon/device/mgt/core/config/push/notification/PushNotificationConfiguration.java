@@ -32,6 +32,8 @@ public class PushNotificationConfiguration {
     private int schedulerBatchDelayMills;
     private int schedulerTaskInitialDelay;
     private boolean schedulerTaskEnabled;
+    private int schedulerWorkerPoolSize;
+    private int schedulerWorkerQueueSize;
     private List<String> pushNotificationProviders;
 
     @XmlElement(name = "SchedulerBatchSize", required = true)
@@ -70,6 +72,24 @@ public class PushNotificationConfiguration {
         this.schedulerTaskEnabled = schedulerTaskEnabled;
     }
 
+    @XmlElement(name = "SchedulerWorkerPoolSize")
+    public int getSchedulerWorkerPoolSize() {
+        return schedulerWorkerPoolSize;
+    }
+
+    public void setSchedulerWorkerPoolSize(int schedulerWorkerPoolSize) {
+        this.schedulerWorkerPoolSize = schedulerWorkerPoolSize;
+    }
+
+    @XmlElement(name = "SchedulerWorkerQueueSize")
+    public int getSchedulerWorkerQueueSize() {
+        return schedulerWorkerQueueSize;
+    }
+
+    public void setSchedulerWorkerQueueSize(int schedulerWorkerQueueSize) {
+        this.schedulerWorkerQueueSize = schedulerWorkerQueueSize;
+    }
+
     @XmlElementWrapper(name = "PushNotificationProviders", required = true)
     @XmlElement(name = "Provider", required = true)
     public List<String> getPushNotificationProviders() {
@@ -21,6 +21,7 @@ package org.wso2.carbon.device.mgt.core.dao;
 import org.wso2.carbon.device.mgt.common.app.mgt.Application;
 
 import java.util.List;
+import java.util.Map;
 
 public interface ApplicationDAO {
 
@@ -38,4 +39,14 @@ public interface ApplicationDAO {
             throws DeviceManagementDAOException;
 
     List<Application> getInstalledApplications(int deviceId, int enrolmentId) throws DeviceManagementDAOException;
+
+    /**
+     * Retrieves the applications installed on a set of enrolments with a single query per chunk of enrolments.
+     *
+     * @param enrolmentIds enrolment ids of the devices
+     * @return installed applications mapped against the enrolment id. Enrolments without applications are omitted.
+     * @throws DeviceManagementDAOException if an error occurs while retrieving the applications
+     */
+    Map<Integer, List<Application>> getInstalledApplications(List<Integer> enrolmentIds)
+            throws DeviceManagementDAOException;
 }
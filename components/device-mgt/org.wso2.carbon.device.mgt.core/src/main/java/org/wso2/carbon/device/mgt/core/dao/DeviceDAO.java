@@ -119,6 +119,19 @@ public interface DeviceDAO {
      */
     Device getDevice(DeviceIdentifier deviceIdentifier, int tenantId) throws DeviceManagementDAOException;
 
+    /**
+     * This method is used to retrieve the devices of a given type which carry any of the given device-identifiers,
+     * along with their latest enrolment. Identifiers which do not match a device are ignored.
+     *
+     * @param type device type.
+     * @param deviceIdentifiers identifiers of the devices.
+     * @param tenantId tenant id.
+     * @return returns the list of matching devices.
+     * @throws DeviceManagementDAOException
+     */
+    List<Device> getDevices(String type, List<String> deviceIdentifiers, int tenantId)
+            throws DeviceManagementDAOException;
+
     /**
      * This method is used to retrieve a device of a given device-identifier and owner and tenant-id.
      *
@@ -375,6 +388,21 @@ public interface DeviceDAO {
      */
     List<Device> getDevicesByStatus(EnrolmentInfo.Status status, int tenantId) throws DeviceManagementDAOException;
 
+    /**
+     * This method is used to retrieve a chunk of the devices of a given type, whose enrollments are in any of the
+     * given statuses. Devices are returned once per enrollment, in the order of the enrollment ids.
+     *
+     * @param type            device type.
+     * @param statuses        enrollment statuses to be included.
+     * @param fromEnrolmentId only the enrollments with a greater id are returned.
+     * @param limit           maximum number of devices to be returned.
+     * @param tenantId        tenant id.
+     * @return returns list of devices.
+     * @throws DeviceManagementDAOException
+     */
+    List<Device> getDevices(String type, List<EnrolmentInfo.Status> statuses, int fromEnrolmentId, int limit,
+                            int tenantId) throws DeviceManagementDAOException;
+
     /**
      * This method is used to retrieve devices of a given ownership as a paginated result.
      *
@@ -412,5 +440,18 @@ public interface DeviceDAO {
      */
     List<GeoCluster> findGeoClusters(String deviceType, GeoCoordinate southWest, GeoCoordinate northEast,
                                      int geohashLength,int tenantId) throws DeviceManagementDAOException;
+
+    /**
+     * This method is used to retrieve the geoclusters of the given geohash tiles. Each tile is read with a range scan
+     * over the geohash index of the device locations, hence tiles without any device are not returned.
+     *
+     * @param deviceType      Optional device type name.
+     * @param geohashPrefixes geohash prefixes of the tiles, all of which are of the given length.
+     * @param geohashLength   length of the geohash prefixes.
+     * @param tenantId        tenant id.
+     * @return returns the geoclusters of the tiles which contain at least one device.
+     */
+    List<GeoCluster> findGeoClusters(String deviceType, List<String> geohashPrefixes, int geohashLength,
+                                     int tenantId) throws DeviceManagementDAOException;
 }
 
@@ -21,6 +21,7 @@ package org.wso2.carbon.device.mgt.core.dao.impl;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.app.mgt.Application;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.dao.ApplicationDAO;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
@@ -37,7 +38,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 public abstract class AbstractApplicationDAOImpl implements ApplicationDAO {
@@ -271,6 +274,50 @@ public abstract class AbstractApplicationDAOImpl implements ApplicationDAO {
         return applications;
     }
 
+    @Override
+    public Map<Integer, List<Application>> getInstalledApplications(List<Integer> enrolmentIds)
+            throws DeviceManagementDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        Map<Integer, List<Application>> applications = new HashMap<>();
+        try {
+            conn = this.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.getChunks(enrolmentIds,
+                    DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS)) {
+                stmt = conn.prepareStatement("SELECT app.ID, app.NAME, app.APP_IDENTIFIER, app.PLATFORM, " +
+                        "app.CATEGORY, app.VERSION, app.TYPE, app.LOCATION_URL, app.IMAGE_URL, " +
+                        "APPMAP.APP_PROPERTIES, APPMAP.MEMORY_USAGE, APPMAP.IS_ACTIVE, app.TENANT_ID, " +
+                        "APPMAP.ENROLMENT_ID FROM DM_APPLICATION app INNER JOIN DM_DEVICE_APPLICATION_MAPPING " +
+                        "APPMAP ON app.ID = APPMAP.APPLICATION_ID WHERE APPMAP.ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")");
+                int index = 1;
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(index++, enrolmentId);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    int enrolmentId = rs.getInt("ENROLMENT_ID");
+                    List<Application> installedApps = applications.get(enrolmentId);
+                    if (installedApps == null) {
+                        installedApps = new ArrayList<>();
+                        applications.put(enrolmentId, installedApps);
+                    }
+                    installedApps.add(loadApplication(rs));
+                }
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+                stmt = null;
+                rs = null;
+            }
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("SQL Error occurred while retrieving the list of Applications " +
+                    "installed in " + enrolmentIds.size() + " enrolments", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return applications;
+    }
+
     private Application loadApplication(ResultSet rs) throws DeviceManagementDAOException {
         ByteArrayInputStream bais;
         ObjectInputStream ois;
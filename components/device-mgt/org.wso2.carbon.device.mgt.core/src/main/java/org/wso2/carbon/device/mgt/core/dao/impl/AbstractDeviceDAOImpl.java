@@ -23,6 +23,7 @@ import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
 import org.wso2.carbon.device.mgt.common.EnrolmentInfo.Status;
 import org.wso2.carbon.device.mgt.common.PaginationRequest;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
@@ -151,6 +152,57 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
         return device;
     }
 
+    @Override
+    public List<Device> getDevices(String type, List<String> deviceIdentifiers, int tenantId)
+            throws DeviceManagementDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<Device> devices = new ArrayList<>();
+        try {
+            conn = this.getConnection();
+            for (List<String> chunk : DeviceManagementDAOUtil.getChunks(deviceIdentifiers,
+                    DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS)) {
+                // Same ordering as in getDevice(DeviceIdentifier, int), within each device, so that the first row of
+                // a device carries its latest enrolment.
+                String sql = "SELECT d1.ID AS DEVICE_ID, d1.DESCRIPTION, d1.NAME AS DEVICE_NAME, d1.DEVICE_TYPE, " +
+                        "d1.DEVICE_IDENTIFICATION, e.OWNER, e.OWNERSHIP, e.STATUS, e.DATE_OF_LAST_UPDATE, " +
+                        "e.DATE_OF_ENROLMENT, e.ID AS ENROLMENT_ID FROM DM_ENROLMENT e, (SELECT d.ID, " +
+                        "d.DESCRIPTION, d.NAME, t.NAME AS DEVICE_TYPE, d.DEVICE_IDENTIFICATION FROM DM_DEVICE d, " +
+                        "DM_DEVICE_TYPE t WHERE t.NAME = ? AND t.ID = d.DEVICE_TYPE_ID AND d.TENANT_ID = ? AND " +
+                        "d.DEVICE_IDENTIFICATION IN (" + DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) +
+                        ")) d1 WHERE d1.ID = e.DEVICE_ID AND TENANT_ID = ? ORDER BY d1.ID, " +
+                        "e.DATE_OF_LAST_UPDATE DESC, e.STATUS ASC";
+                stmt = conn.prepareStatement(sql);
+                int index = 1;
+                stmt.setString(index++, type);
+                stmt.setInt(index++, tenantId);
+                for (String deviceIdentifier : chunk) {
+                    stmt.setString(index++, deviceIdentifier);
+                }
+                stmt.setInt(index, tenantId);
+                rs = stmt.executeQuery();
+                int lastDeviceId = -1;
+                while (rs.next()) {
+                    int deviceId = rs.getInt("DEVICE_ID");
+                    if (deviceId != lastDeviceId) {
+                        devices.add(DeviceManagementDAOUtil.loadMatchingDevice(rs, false));
+                        lastDeviceId = deviceId;
+                    }
+                }
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+                stmt = null;
+                rs = null;
+            }
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while retrieving " + deviceIdentifiers.size() +
+                    " devices of type '" + type + "'", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return devices;
+    }
+
     @Override
     public Device getDevice(DeviceIdentifier deviceIdentifier, String owner, int tenantId)
             throws DeviceManagementDAOException {
@@ -982,6 +1034,50 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
         return devices;
     }
 
+    @Override
+    public List<Device> getDevices(String type, List<EnrolmentInfo.Status> statuses, int fromEnrolmentId, int limit,
+                                   int tenantId) throws DeviceManagementDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<Device> devices = new ArrayList<>();
+        if (statuses == null || statuses.isEmpty()) {
+            return devices;
+        }
+        try {
+            conn = this.getConnection();
+            StringBuilder sql = new StringBuilder("SELECT d.ID AS DEVICE_ID, d.DESCRIPTION, d.NAME AS DEVICE_NAME, " +
+                    "t.NAME AS DEVICE_TYPE, d.DEVICE_IDENTIFICATION, e.OWNER, e.OWNERSHIP, e.STATUS, " +
+                    "e.DATE_OF_LAST_UPDATE, e.DATE_OF_ENROLMENT, e.ID AS ENROLMENT_ID FROM DM_ENROLMENT e, " +
+                    "DM_DEVICE d, DM_DEVICE_TYPE t WHERE e.DEVICE_ID = d.ID AND d.DEVICE_TYPE_ID = t.ID AND " +
+                    "t.NAME = ? AND d.TENANT_ID = ? AND e.TENANT_ID = ? AND e.ID > ? AND e.STATUS IN (");
+            for (int i = 0; i < statuses.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") ORDER BY e.ID");
+            stmt = conn.prepareStatement(sql.toString());
+            stmt.setMaxRows(limit);
+            int index = 1;
+            stmt.setString(index++, type);
+            stmt.setInt(index++, tenantId);
+            stmt.setInt(index++, tenantId);
+            stmt.setInt(index++, fromEnrolmentId);
+            for (EnrolmentInfo.Status status : statuses) {
+                stmt.setString(index++, status.toString());
+            }
+            rs = stmt.executeQuery();
+            while (rs.next() && devices.size() < limit) {
+                devices.add(DeviceManagementDAOUtil.loadDevice(rs));
+            }
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while listing devices of type '" + type +
+                    "' after enrolment " + fromEnrolmentId, e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return devices;
+    }
+
     @Override
     public List<DeviceType> getDeviceTypes()
             throws DeviceManagementDAOException {
@@ -1105,20 +1201,7 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
             }
             rs = stmt.executeQuery();
             while (rs.next()) {
-                double latitude = rs.getDouble("LATITUDE");
-                double longitude = rs.getDouble("LONGITUDE");
-                double min_latitude = rs.getDouble("MIN_LATITUDE");
-                double max_latitude = rs.getDouble("MAX_LATITUDE");
-                double min_longitude = rs.getDouble("MIN_LONGITUDE");
-                double max_longitude = rs.getDouble("MAX_LONGITUDE");
-                String device_identification = rs.getString("DEVICE_IDENTIFICATION");
-                String device_type=rs.getString("TYPE");
-                String last_seen = rs.getString("LAST_UPDATED_TIMESTAMP");
-                long count = rs.getLong("COUNT");
-                String geohashPrefix = rs.getString("GEOHASH_PREFIX");
-                geoClusters.add(new GeoCluster(new GeoCoordinate(latitude, longitude),
-                        new GeoCoordinate(min_latitude,min_longitude), new GeoCoordinate(max_latitude,max_longitude),
-                        count, geohashPrefix,device_identification,device_type,last_seen));
+                geoClusters.add(this.loadGeoCluster(rs));
             }
         } catch (SQLException e) {
             throw new DeviceManagementDAOException("Error occurred while retrieving information of  " +
@@ -1128,4 +1211,85 @@ public abstract class AbstractDeviceDAOImpl implements DeviceDAO {
         }
         return geoClusters;
     }
+
+    @Override
+    public List<GeoCluster> findGeoClusters(String deviceType, List<String> geohashPrefixes, int geohashLength,
+                                            int tenantId) throws DeviceManagementDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<GeoCluster> geoClusters = new ArrayList<>();
+        boolean filterByType = deviceType != null && !deviceType.isEmpty();
+        try {
+            conn = this.getConnection();
+            for (List<String> chunk : DeviceManagementDAOUtil.getChunks(geohashPrefixes,
+                    DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS)) {
+                // Each prefix is matched with a LIKE 'prefix%' condition, which is a range scan over the
+                // GEO_HASH index of the device locations, or over its varchar_pattern_ops index on PostgreSQL.
+                // The tenant is taken from the device itself.
+                StringBuilder sql = new StringBuilder("SELECT AVG(DEVICE_LOCATION.LATITUDE) AS LATITUDE," +
+                        " AVG(DEVICE_LOCATION.LONGITUDE) AS LONGITUDE," +
+                        " MIN(DEVICE_LOCATION.LATITUDE) AS MIN_LATITUDE," +
+                        " MAX(DEVICE_LOCATION.LATITUDE) AS MAX_LATITUDE," +
+                        " MIN(DEVICE_LOCATION.LONGITUDE) AS MIN_LONGITUDE," +
+                        " MAX(DEVICE_LOCATION.LONGITUDE) AS MAX_LONGITUDE," +
+                        " SUBSTRING(DEVICE_LOCATION.GEO_HASH,1,?) AS GEOHASH_PREFIX, COUNT(*) AS COUNT," +
+                        " MIN(DEVICE.DEVICE_IDENTIFICATION) AS DEVICE_IDENTIFICATION," +
+                        " MIN(DEVICE_TYPE.NAME) AS TYPE, " +
+                        " MIN(DEVICE.LAST_UPDATED_TIMESTAMP) AS LAST_UPDATED_TIMESTAMP " +
+                        "FROM DM_DEVICE_LOCATION DEVICE_LOCATION " +
+                        "INNER JOIN DM_DEVICE DEVICE ON DEVICE.ID = DEVICE_LOCATION.DEVICE_ID " +
+                        "INNER JOIN DM_DEVICE_TYPE DEVICE_TYPE ON DEVICE.DEVICE_TYPE_ID = DEVICE_TYPE.ID " +
+                        "WHERE DEVICE.TENANT_ID = ? AND (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "" : " OR ").append("DEVICE_LOCATION.GEO_HASH LIKE ?");
+                }
+                sql.append(")");
+                if (filterByType) {
+                    sql.append(" AND DEVICE_TYPE.NAME = ?");
+                }
+                sql.append(" GROUP BY GEOHASH_PREFIX");
+                stmt = conn.prepareStatement(sql.toString());
+                int index = 1;
+                stmt.setInt(index++, geohashLength);
+                stmt.setInt(index++, tenantId);
+                for (String geohashPrefix : chunk) {
+                    stmt.setString(index++, geohashPrefix + "%");
+                }
+                if (filterByType) {
+                    stmt.setString(index, deviceType);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    geoClusters.add(this.loadGeoCluster(rs));
+                }
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+                stmt = null;
+                rs = null;
+            }
+        } catch (SQLException e) {
+            throw new DeviceManagementDAOException("Error occurred while retrieving information of Geo Clusters of " +
+                    geohashPrefixes.size() + " geohash tiles", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return geoClusters;
+    }
+
+    private GeoCluster loadGeoCluster(ResultSet rs) throws SQLException {
+        double latitude = rs.getDouble("LATITUDE");
+        double longitude = rs.getDouble("LONGITUDE");
+        double min_latitude = rs.getDouble("MIN_LATITUDE");
+        double max_latitude = rs.getDouble("MAX_LATITUDE");
+        double min_longitude = rs.getDouble("MIN_LONGITUDE");
+        double max_longitude = rs.getDouble("MAX_LONGITUDE");
+        String device_identification = rs.getString("DEVICE_IDENTIFICATION");
+        String device_type=rs.getString("TYPE");
+        String last_seen = rs.getString("LAST_UPDATED_TIMESTAMP");
+        long count = rs.getLong("COUNT");
+        String geohashPrefix = rs.getString("GEOHASH_PREFIX");
+        return new GeoCluster(new GeoCoordinate(latitude, longitude),
+                new GeoCoordinate(min_latitude,min_longitude), new GeoCoordinate(max_latitude,max_longitude),
+                count, geohashPrefix,device_identification,device_type,last_seen);
+    }
 }
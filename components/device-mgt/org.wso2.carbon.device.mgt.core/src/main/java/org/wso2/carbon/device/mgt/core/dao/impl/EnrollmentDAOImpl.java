@@ -19,6 +19,7 @@
 package org.wso2.carbon.device.mgt.core.dao.impl;
 
 import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.dao.EnrollmentDAO;
@@ -129,12 +130,21 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
             String sql = "UPDATE DM_ENROLMENT SET STATUS = ? WHERE ID = ?";
             stmt = conn.prepareStatement(sql);
             if (conn.getMetaData().supportsBatchUpdates()) {
+                int batchSize = 0;
+                updateStatus = 0;
                 for (EnrolmentInfo enrolmentInfo : enrolmentInfos) {
                     stmt.setString(1, enrolmentInfo.getStatus().toString());
                     stmt.setInt(2, enrolmentInfo.getId());
                     stmt.addBatch();
+                    // Status changes of a whole device type are written at once, so keep the batches bounded.
+                    if (++batchSize == DeviceManagementConstants.DataBaseQueries.MAX_BATCH_SIZE) {
+                        updateStatus += stmt.executeBatch().length;
+                        batchSize = 0;
+                    }
+                }
+                if (batchSize > 0) {
+                    updateStatus += stmt.executeBatch().length;
                 }
-                updateStatus = stmt.executeBatch().length;
             } else {
                 for (EnrolmentInfo enrolmentInfo : enrolmentInfos) {
                     stmt.setString(1, enrolmentInfo.getStatus().toString());
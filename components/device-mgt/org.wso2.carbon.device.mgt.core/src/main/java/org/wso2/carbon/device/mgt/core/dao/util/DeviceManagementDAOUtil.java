@@ -36,8 +36,10 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 
 public final class DeviceManagementDAOUtil {
@@ -113,6 +115,39 @@ public final class DeviceManagementDAOUtil {
         return tenantId;
     }
 
+    /**
+     * Builds the comma separated parameter list of an IN clause, i.e. "?,?,?" for a count of 3.
+     *
+     * @param count number of parameters
+     * @return parameter placeholders to be embedded within the IN clause
+     */
+    public static String getInClausePlaceholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('?');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Splits the given list into consecutive chunks so that each chunk can be bound to a single IN clause
+     * without exceeding the parameter limits of the underlying database.
+     *
+     * @param elements  elements to be split
+     * @param chunkSize maximum number of elements in a chunk
+     * @return list of chunks, which are views of the original list
+     */
+    public static <T> List<List<T>> getChunks(List<T> elements, int chunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < elements.size(); i += chunkSize) {
+            chunks.add(elements.subList(i, Math.min(i + chunkSize, elements.size())));
+        }
+        return chunks;
+    }
+
     public static DataSource lookupDataSource(String dataSourceName,
                                               final Hashtable<Object, Object> jndiProperties) {
         try {
@@ -22,6 +22,7 @@ package org.wso2.carbon.device.mgt.core.device.details.mgt.dao;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -56,6 +57,14 @@ public interface DeviceDetailsDAO {
      */
     DeviceInfo getDeviceInformation(int deviceId, int enrolmentId) throws DeviceDetailsMgtDAOException;
 
+    /**
+     * This method will return the device information of the given enrolments in a single round trip.
+     * @param enrolmentIds - enrolment ids of the devices.
+     * @return Device information mapped against the enrolment id. Enrolments without information are omitted.
+     * @throws DeviceDetailsMgtDAOException
+     */
+    Map<Integer, DeviceInfo> getDeviceInformation(List<Integer> enrolmentIds) throws DeviceDetailsMgtDAOException;
+
     /**
      * This method will return the device properties from database.
      * @param deviceId
@@ -93,6 +102,14 @@ public interface DeviceDetailsDAO {
      */
     DeviceLocation getDeviceLocation(int deviceId, int enrollmentId) throws DeviceDetailsMgtDAOException;
 
+    /**
+     * This method will return the locations of the given enrolments in a single round trip.
+     * @param enrolmentIds - enrolment ids of the devices.
+     * @return Device locations mapped against the enrolment id. Enrolments without a location are omitted.
+     * @throws DeviceDetailsMgtDAOException
+     */
+    Map<Integer, DeviceLocation> getDeviceLocations(List<Integer> enrolmentIds) throws DeviceDetailsMgtDAOException;
+
     /**
      * This method will delete the device location from the database.
      * @param deviceId
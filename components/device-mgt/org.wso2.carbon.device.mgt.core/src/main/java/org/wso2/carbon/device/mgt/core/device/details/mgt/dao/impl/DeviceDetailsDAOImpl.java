@@ -23,6 +23,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
@@ -34,6 +35,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
@@ -164,6 +166,41 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
         }
     }
 
+    @Override
+    public Map<Integer, DeviceInfo> getDeviceInformation(List<Integer> enrolmentIds)
+            throws DeviceDetailsMgtDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        Map<Integer, DeviceInfo> deviceInfoMap = new HashMap<>();
+        try {
+            conn = this.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.getChunks(enrolmentIds,
+                    DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS)) {
+                String sql = "SELECT * FROM DM_DEVICE_DETAIL WHERE ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                int index = 1;
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(index++, enrolmentId);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    deviceInfoMap.put(rs.getInt("ENROLMENT_ID"), DeviceManagementDAOUtil.loadDeviceInfo(rs));
+                }
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+                stmt = null;
+                rs = null;
+            }
+            return deviceInfoMap;
+        } catch (SQLException e) {
+            throw new DeviceDetailsMgtDAOException("Error occurred while fetching the details of the registered " +
+                    "devices.", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
     @Override
     public Map<String, String> getDeviceProperties(int deviceId, int enrolmentId) throws DeviceDetailsMgtDAOException {
 
@@ -297,6 +334,53 @@ public class DeviceDetailsDAOImpl implements DeviceDetailsDAO {
         }
     }
 
+    @Override
+    public Map<Integer, DeviceLocation> getDeviceLocations(List<Integer> enrolmentIds)
+            throws DeviceDetailsMgtDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        Map<Integer, DeviceLocation> locations = new HashMap<>();
+        try {
+            conn = this.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.getChunks(enrolmentIds,
+                    DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS)) {
+                String sql = "SELECT DEVICE_ID, ENROLMENT_ID, LATITUDE, LONGITUDE, STREET1, STREET2, CITY, ZIP, " +
+                        "STATE, COUNTRY, UPDATE_TIMESTAMP FROM DM_DEVICE_LOCATION WHERE ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")";
+                stmt = conn.prepareStatement(sql);
+                int index = 1;
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(index++, enrolmentId);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    DeviceLocation location = new DeviceLocation();
+                    location.setDeviceId(rs.getInt("DEVICE_ID"));
+                    location.setLatitude(rs.getDouble("LATITUDE"));
+                    location.setLongitude(rs.getDouble("LONGITUDE"));
+                    location.setStreet1(rs.getString("STREET1"));
+                    location.setStreet2(rs.getString("STREET2"));
+                    location.setCity(rs.getString("CITY"));
+                    location.setZip(rs.getString("ZIP"));
+                    location.setState(rs.getString("STATE"));
+                    location.setCountry(rs.getString("COUNTRY"));
+                    location.setUpdatedTime(new java.util.Date(rs.getLong("UPDATE_TIMESTAMP")));
+                    locations.put(rs.getInt("ENROLMENT_ID"), location);
+                }
+                DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+                stmt = null;
+                rs = null;
+            }
+            return locations;
+        } catch (SQLException e) {
+            throw new DeviceDetailsMgtDAOException("Error occurred while fetching the locations of the registered " +
+                    "devices.", e);
+        } finally {
+            DeviceManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
     @Override
     public void deleteDeviceLocation(int deviceId, int enrollmentId) throws DeviceDetailsMgtDAOException {
 
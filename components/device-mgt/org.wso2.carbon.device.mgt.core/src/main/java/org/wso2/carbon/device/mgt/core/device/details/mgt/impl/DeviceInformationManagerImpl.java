@@ -29,6 +29,8 @@ import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
 import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+import org.wso2.carbon.device.mgt.core.cache.GeoClusterCacheManager;
+import org.wso2.carbon.device.mgt.core.cache.impl.GeoClusterCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
@@ -36,6 +38,7 @@ import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceDetailsMgtExcept
 import org.wso2.carbon.device.mgt.core.device.details.mgt.DeviceInformationManager;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsMgtDAOException;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
 
@@ -271,8 +274,11 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
             Device device = DeviceManagementDataHolder.getInstance().
                     getDeviceManagementProvider().getDevice(deviceLocation.getDeviceIdentifier(), false);
             deviceLocation.setDeviceId(device.getId());
+            int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
             DeviceManagementDAOFactory.beginTransaction();
-            deviceDAO.updateDevice(device, CarbonContext.getThreadLocalCarbonContext().getTenantId());
+            deviceDAO.updateDevice(device, tenantId);
+            DeviceLocation previousLocation = deviceDetailsDAO.getDeviceLocation(deviceLocation.getDeviceId(),
+                    device.getEnrolmentInfo().getId());
             deviceDetailsDAO.deleteDeviceLocation(deviceLocation.getDeviceId(), device.getEnrolmentInfo().getId());
             deviceDetailsDAO.addDeviceLocation(deviceLocation, device.getEnrolmentInfo().getId());
             if (DeviceManagerUtil.isPublishLocationResponseEnabled()) {
@@ -287,6 +293,11 @@ public class DeviceInformationManagerImpl implements DeviceInformationManager {
                 );
             }
             DeviceManagementDAOFactory.commitTransaction();
+            // Only the geo cluster tiles of the old and the new location of the device are affected.
+            GeoClusterCacheManager geoClusterCacheManager = GeoClusterCacheManagerImpl.getInstance();
+            geoClusterCacheManager.invalidate(tenantId, device.getType(),
+                    GeoHashGenerator.encodeGeohash(previousLocation));
+            geoClusterCacheManager.invalidate(tenantId, device.getType(), GeoHashGenerator.encodeGeohash(deviceLocation));
         } catch (TransactionManagementException e) {
             throw new DeviceDetailsMgtException("Transactional error occurred while adding the device location " +
                     "information.", e);
@@ -2,26 +2,39 @@ package org.wso2.carbon.device.mgt.core.geo.geoHash;
 
 import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Encodes locations as geohashes. Geohashes are computed by interleaving the bits of the quantized longitude and
+ * latitude, without dividing ranges bit by bit.
+ * <p>
+ * Besides the string form persisted with device locations, geohashes of up to {@link #MAX_LONG_GEOHASH_LENGTH}
+ * characters have a numeric form: the bits of the geohash are kept in the most significant bits of a long, and its
+ * length in the lowest four bits. Prefixes, neighbours and bounding boxes are computed on the numeric form, and
+ * strings are only built when they are needed.
+ */
 public class GeoHashGenerator {
     private static final String BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final char[] BASE_32_CHARS = BASE_32.toCharArray();
+    private static final int[] BASE_32_INDEXES = new int[128];
     private static final int GEOHASH_LENGTH = 16;
 
-    private GeoHashGenerator(){};
+    public static final int MAX_LONG_GEOHASH_LENGTH = 12;
+    private static final int BITS_PER_CHAR = 5;
+    private static final long LENGTH_MASK = 0xF;
 
-    private static int divideRangeByValue(double value, double[] range) {
-        double mid = middle(range);
-        if (value >= mid) {
-            range[0] = mid;
-            return 1;
-        } else {
-            range[1] = mid;
-            return 0;
+    static {
+        for (int i = 0; i < BASE_32_INDEXES.length; i++) {
+            BASE_32_INDEXES[i] = -1;
+        }
+        for (int i = 0; i < BASE_32_CHARS.length; i++) {
+            BASE_32_INDEXES[BASE_32_CHARS[i]] = i;
         }
     }
 
+    private GeoHashGenerator(){};
+
     private static void divideRangeByBit(int bit, double[] range) {
         double mid = middle(range);
         if (bit > 0) {
@@ -35,40 +48,170 @@ public class GeoHashGenerator {
         return (range[0] + range[1]) / 2;
     }
 
+    /**
+     * Returns the geohash of a location, as persisted with the device locations.
+     */
     public static String encodeGeohash(double latitude, double longitude) {
-        int geohashLength=GEOHASH_LENGTH;
-        double[] latRange = new double[]{-90.0, 90.0};
-        double[] lonRange = new double[]{-180.0, 180.0};
-        boolean isEven = true;
-        int bit = 0;
-        int base32CharIndex = 0;
-        StringBuilder geohash = new StringBuilder();
-
-        while (geohash.length() < geohashLength) {
-            if (isEven) {
-                base32CharIndex = (base32CharIndex << 1) | divideRangeByValue(longitude, lonRange);
-            } else {
-                base32CharIndex = (base32CharIndex << 1) | divideRangeByValue(latitude, latRange);
-            }
-
-            isEven = !isEven;
+        // 16 characters need 40 bits of each coordinate. The leading 32 bits of both are interleaved into the first
+        // 64 bits of the geohash, and the remaining 8 bits of both into its last 16 bits.
+        long quantizedLongitude = quantize(longitude, -180.0, 360.0, 40);
+        long quantizedLatitude = quantize(latitude, -90.0, 180.0, 40);
+        long leadingBits = interleave(quantizedLongitude >>> 8, quantizedLatitude >>> 8);
+        long trailingBits = interleave(quantizedLongitude & 0xFF, quantizedLatitude & 0xFF);
 
-            if (bit < 4) {
-                bit++;
-            } else {
-                geohash.append(BASE_32.charAt(base32CharIndex));
-                bit = 0;
-                base32CharIndex = 0;
-            }
+        char[] geohash = new char[GEOHASH_LENGTH];
+        for (int i = 0; i < MAX_LONG_GEOHASH_LENGTH; i++) {
+            geohash[i] = BASE_32_CHARS[(int) (leadingBits >>> (59 - i * BITS_PER_CHAR)) & 0x1F];
         }
-
-        return geohash.toString();
+        geohash[12] = BASE_32_CHARS[(int) (((leadingBits & 0xF) << 1) | ((trailingBits >>> 15) & 1))];
+        geohash[13] = BASE_32_CHARS[(int) (trailingBits >>> 10) & 0x1F];
+        geohash[14] = BASE_32_CHARS[(int) (trailingBits >>> 5) & 0x1F];
+        geohash[15] = BASE_32_CHARS[(int) trailingBits & 0x1F];
+        return new String(geohash);
     }
 
     public static String encodeGeohash(DeviceLocation deviceLocation) {
         return encodeGeohash(deviceLocation.getLatitude(), deviceLocation.getLongitude());
     }
 
+    /**
+     * Returns the numeric geohash of a location.
+     *
+     * @param latitude  latitude of the location.
+     * @param longitude longitude of the location.
+     * @param length    length of the geohash, between 1 and {@link #MAX_LONG_GEOHASH_LENGTH}.
+     * @return numeric geohash.
+     */
+    public static long encodeLongGeohash(double latitude, double longitude, int length) {
+        checkLength(length);
+        long bits = interleave(quantize(longitude, -180.0, 360.0, 32), quantize(latitude, -90.0, 180.0, 32));
+        return (bits & getBitsMask(length)) | length;
+    }
+
+    /**
+     * @param geohash numeric geohash.
+     * @return number of characters of the geohash.
+     */
+    public static int getLength(long geohash) {
+        return (int) (geohash & LENGTH_MASK);
+    }
+
+    /**
+     * Returns the prefix of a numeric geohash, i.e. the geohash of the cell of the given length which contains it.
+     */
+    public static long getPrefix(long geohash, int length) {
+        checkLength(length);
+        if (length > getLength(geohash)) {
+            throw new IllegalArgumentException("Prefix length " + length + " is greater than the geohash length " +
+                    getLength(geohash));
+        }
+        return (geohash & getBitsMask(length)) | length;
+    }
+
+    /**
+     * Returns the geohash of the cell at the given offset from a cell, of the same length. Longitude wraps around
+     * the 180th meridian, while latitude is clamped at the poles.
+     *
+     * @param geohash         numeric geohash of the cell.
+     * @param latitudeOffset  number of cells to the north, or to the south if negative.
+     * @param longitudeOffset number of cells to the east, or to the west if negative.
+     * @return numeric geohash of the neighbour.
+     */
+    public static long getNeighbour(long geohash, int latitudeOffset, int longitudeOffset) {
+        int length = getLength(geohash);
+        int longitudeBits = getLongitudeBits(length);
+        int latitudeBits = getLatitudeBits(length);
+        long longitudeCells = 1L << longitudeBits;
+        long latitudeCells = 1L << latitudeBits;
+        long longitudeIndex = ((getLongitudeIndex(geohash) + longitudeOffset) % longitudeCells + longitudeCells) %
+                longitudeCells;
+        long latitudeIndex = Math.max(0, Math.min(latitudeCells - 1, getLatitudeIndex(geohash) + latitudeOffset));
+        return fromCell(latitudeIndex, longitudeIndex, length);
+    }
+
+    public static double getMinLatitude(long geohash) {
+        return -90.0 + getLatitudeIndex(geohash) * getCellHeight(getLength(geohash));
+    }
+
+    public static double getMaxLatitude(long geohash) {
+        return -90.0 + (getLatitudeIndex(geohash) + 1) * getCellHeight(getLength(geohash));
+    }
+
+    public static double getMinLongitude(long geohash) {
+        return -180.0 + getLongitudeIndex(geohash) * getCellWidth(getLength(geohash));
+    }
+
+    public static double getMaxLongitude(long geohash) {
+        return -180.0 + (getLongitudeIndex(geohash) + 1) * getCellWidth(getLength(geohash));
+    }
+
+    /**
+     * Converts a numeric geohash to its string form.
+     */
+    public static String toString(long geohash) {
+        int length = getLength(geohash);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = BASE_32_CHARS[(int) (geohash >>> (59 - i * BITS_PER_CHAR)) & 0x1F];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Converts a geohash of up to {@link #MAX_LONG_GEOHASH_LENGTH} characters to its numeric form.
+     */
+    public static long fromString(String geohash) {
+        int length = geohash.length();
+        checkLength(length);
+        long bits = 0;
+        for (int i = 0; i < length; i++) {
+            char c = geohash.charAt(i);
+            int index = c < BASE_32_INDEXES.length ? BASE_32_INDEXES[c] : -1;
+            if (index < 0) {
+                throw new IllegalArgumentException("Invalid character '" + c + "' in geohash '" + geohash + "'");
+            }
+            bits |= (long) index << (59 - i * BITS_PER_CHAR);
+        }
+        return bits | length;
+    }
+
+    /**
+     * Returns the geohashes of the given length whose cells cover the given area, ordered from south-west to
+     * north-east.
+     *
+     * @param southWest     south-west corner of the area.
+     * @param northEast     north-east corner of the area.
+     * @param geohashLength length of the geohashes.
+     * @param maxCount      maximum number of geohashes to be returned.
+     * @return geohashes covering the area, or null if more than maxCount cells are needed, the length is greater
+     * than {@link #MAX_LONG_GEOHASH_LENGTH} or the area crosses the 180th meridian.
+     */
+    public static List<String> getCoveringGeohashes(GeoCoordinate southWest, GeoCoordinate northEast,
+                                                    int geohashLength, int maxCount) {
+        if (geohashLength < 1 || geohashLength > MAX_LONG_GEOHASH_LENGTH ||
+                southWest.getLatitude() > northEast.getLatitude() ||
+                southWest.getLongitude() > northEast.getLongitude()) {
+            return null;
+        }
+        int latitudeBits = getLatitudeBits(geohashLength);
+        int longitudeBits = getLongitudeBits(geohashLength);
+        long firstRow = quantize(southWest.getLatitude(), -90.0, 180.0, latitudeBits);
+        long lastRow = quantize(northEast.getLatitude(), -90.0, 180.0, latitudeBits);
+        long firstColumn = quantize(southWest.getLongitude(), -180.0, 360.0, longitudeBits);
+        long lastColumn = quantize(northEast.getLongitude(), -180.0, 360.0, longitudeBits);
+        if ((lastRow - firstRow + 1) * (lastColumn - firstColumn + 1) > maxCount) {
+            return null;
+        }
+
+        List<String> geohashes = new ArrayList<>();
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                geohashes.add(toString(fromCell(row, column, geohashLength)));
+            }
+        }
+        return geohashes;
+    }
+
     public static GeoCoordinate decodeGeohash(String geohash) {
         double[] latRange = new double[]{-90.0, 90.0};
         double[] lonRange = new double[]{-180.0, 180.0};
@@ -89,4 +232,90 @@ public class GeoHashGenerator {
         return coordinates;
     }
 
+    private static void checkLength(int length) {
+        if (length < 1 || length > MAX_LONG_GEOHASH_LENGTH) {
+            throw new IllegalArgumentException("Numeric geohash length must be between 1 and " +
+                    MAX_LONG_GEOHASH_LENGTH + ", but was " + length);
+        }
+    }
+
+    /**
+     * Maps a coordinate to the index of its cell among 2^bits cells of equal size.
+     */
+    private static long quantize(double value, double min, double range, int bits) {
+        long cells = 1L << bits;
+        long index = (long) Math.floor((value - min) / range * cells);
+        return Math.max(0, Math.min(cells - 1, index));
+    }
+
+    // Longitude takes the extra bit when the number of bits is odd.
+    private static int getLongitudeBits(int length) {
+        return (length * BITS_PER_CHAR + 1) / 2;
+    }
+
+    private static int getLatitudeBits(int length) {
+        return length * BITS_PER_CHAR / 2;
+    }
+
+    private static double getCellWidth(int length) {
+        return 360.0 / (1L << getLongitudeBits(length));
+    }
+
+    private static double getCellHeight(int length) {
+        return 180.0 / (1L << getLatitudeBits(length));
+    }
+
+    private static long getBitsMask(int length) {
+        return -1L << (64 - length * BITS_PER_CHAR);
+    }
+
+    private static long getLongitudeIndex(long geohash) {
+        int length = getLength(geohash);
+        return compact((geohash & getBitsMask(length)) >>> 1) >>> (32 - getLongitudeBits(length));
+    }
+
+    private static long getLatitudeIndex(long geohash) {
+        int length = getLength(geohash);
+        return compact(geohash & getBitsMask(length)) >>> (32 - getLatitudeBits(length));
+    }
+
+    private static long fromCell(long latitudeIndex, long longitudeIndex, int length) {
+        long bits = interleave(longitudeIndex << (32 - getLongitudeBits(length)),
+                latitudeIndex << (32 - getLatitudeBits(length)));
+        return (bits & getBitsMask(length)) | length;
+    }
+
+    /**
+     * Interleaves the lowest 32 bits of both values, starting with the most significant bit of the first one.
+     */
+    private static long interleave(long first, long second) {
+        return (spread(first) << 1) | spread(second);
+    }
+
+    /**
+     * Moves the lowest 32 bits of a value to the even bit positions.
+     */
+    private static long spread(long value) {
+        value &= 0xFFFFFFFFL;
+        value = (value | (value << 16)) & 0x0000FFFF0000FFFFL;
+        value = (value | (value << 8)) & 0x00FF00FF00FF00FFL;
+        value = (value | (value << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        value = (value | (value << 2)) & 0x3333333333333333L;
+        value = (value | (value << 1)) & 0x5555555555555555L;
+        return value;
+    }
+
+    /**
+     * Reverse of {@link #spread(long)}, i.e. collects the bits at the even positions to the lowest 32 bits.
+     */
+    private static long compact(long value) {
+        value &= 0x5555555555555555L;
+        value = (value | (value >>> 1)) & 0x3333333333333333L;
+        value = (value | (value >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        value = (value | (value >>> 4)) & 0x00FF00FF00FF00FFL;
+        value = (value | (value >>> 8)) & 0x0000FFFF0000FFFFL;
+        value = (value | (value >>> 16)) & 0x00000000FFFFFFFFL;
+        return value;
+    }
+
 }
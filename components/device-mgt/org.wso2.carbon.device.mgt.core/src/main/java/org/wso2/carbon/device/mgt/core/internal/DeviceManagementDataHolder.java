@@ -31,6 +31,8 @@ import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.dto.DeviceTypeServiceIdentifier;
 import org.wso2.carbon.device.mgt.core.privacy.PrivacyComplianceProvider;
 import org.wso2.carbon.device.mgt.core.push.notification.mgt.PushNotificationProviderRepository;
+import org.wso2.carbon.device.mgt.core.push.notification.mgt.task.PushNotificationDispatcher;
+import org.wso2.carbon.device.mgt.core.service.DeviceChangeListener;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderService;
 import org.wso2.carbon.device.mgt.core.status.task.DeviceStatusTaskManagerService;
@@ -44,7 +46,9 @@ import org.wso2.carbon.utils.ConfigurationContextService;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DeviceManagementDataHolder {
 
@@ -65,10 +69,12 @@ public class DeviceManagementDataHolder {
     private TaskService taskService;
     private EmailSenderService emailSenderService;
     private PushNotificationProviderRepository pushNotificationProviderRepository;
+    private PushNotificationDispatcher pushNotificationDispatcher;
     private DeviceTaskManagerService deviceTaskManagerService;
     private DeviceStatusTaskManagerService deviceStatusTaskManagerService;
     private DeviceTypeGeneratorService deviceTypeGeneratorService;
     private PrivacyComplianceProvider privacyComplianceProvider;
+    private List<DeviceChangeListener> deviceChangeListeners = new CopyOnWriteArrayList<>();
     private Map<DeviceType, DeviceStatusTaskPluginConfig> deviceStatusTaskPluginConfigs = Collections.synchronizedMap(
             new HashMap<DeviceType, DeviceStatusTaskPluginConfig>());
 
@@ -228,6 +234,14 @@ public class DeviceManagementDataHolder {
         return pushNotificationProviderRepository;
     }
 
+    public PushNotificationDispatcher getPushNotificationDispatcher() {
+        return pushNotificationDispatcher;
+    }
+
+    public void setPushNotificationDispatcher(PushNotificationDispatcher pushNotificationDispatcher) {
+        this.pushNotificationDispatcher = pushNotificationDispatcher;
+    }
+
     public DeviceTaskManagerService getDeviceTaskManagerService() {
         return deviceTaskManagerService;
     }
@@ -276,4 +290,16 @@ public class DeviceManagementDataHolder {
     public void setPrivacyComplianceProvider(PrivacyComplianceProvider privacyComplianceProvider) {
         this.privacyComplianceProvider = privacyComplianceProvider;
     }
-}
\ No newline at end of file
+
+    public List<DeviceChangeListener> getDeviceChangeListeners() {
+        return deviceChangeListeners;
+    }
+
+    public void addDeviceChangeListener(DeviceChangeListener deviceChangeListener) {
+        this.deviceChangeListeners.add(deviceChangeListener);
+    }
+
+    public void removeDeviceChangeListener(DeviceChangeListener deviceChangeListener) {
+        this.deviceChangeListeners.remove(deviceChangeListener);
+    }
+}
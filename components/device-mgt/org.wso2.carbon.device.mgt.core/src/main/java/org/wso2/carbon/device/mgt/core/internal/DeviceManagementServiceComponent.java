@@ -42,6 +42,7 @@ import org.wso2.carbon.device.mgt.core.authorization.DeviceAccessAuthorizationSe
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.config.DeviceManagementConfig;
 import org.wso2.carbon.device.mgt.core.config.datasource.DataSourceConfig;
+import org.wso2.carbon.device.mgt.core.config.operation.OperationPayloadConfiguration;
 import org.wso2.carbon.device.mgt.core.config.tenant.PlatformConfigurationManagementServiceImpl;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.dao.GroupManagementDAOFactory;
@@ -49,12 +50,15 @@ import org.wso2.carbon.device.mgt.core.geo.service.GeoLocationProviderServiceImp
 import org.wso2.carbon.device.mgt.core.notification.mgt.NotificationManagementServiceImpl;
 import org.wso2.carbon.device.mgt.core.notification.mgt.dao.NotificationManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationManagerImpl;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationPayloadMigrator;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.permission.mgt.PermissionManagerServiceImpl;
 import org.wso2.carbon.device.mgt.core.privacy.PrivacyComplianceProvider;
 import org.wso2.carbon.device.mgt.core.privacy.impl.PrivacyComplianceProviderImpl;
 import org.wso2.carbon.device.mgt.core.push.notification.mgt.PushNotificationProviderRepository;
+import org.wso2.carbon.device.mgt.core.push.notification.mgt.task.PushNotificationDispatcher;
 import org.wso2.carbon.device.mgt.core.push.notification.mgt.task.PushNotificationSchedulerTask;
+import org.wso2.carbon.device.mgt.core.service.DeviceChangeListener;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceImpl;
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderService;
@@ -65,12 +69,14 @@ import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
 import org.wso2.carbon.email.sender.core.service.EmailSenderService;
 import org.wso2.carbon.ndatasource.core.DataSourceService;
 import org.wso2.carbon.registry.core.service.RegistryService;
+import org.wso2.carbon.user.core.listener.UserOperationEventListener;
 import org.wso2.carbon.user.core.service.RealmService;
 import org.wso2.carbon.utils.Axis2ConfigurationContextObserver;
 import org.wso2.carbon.utils.ConfigurationContextService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -119,6 +125,12 @@ import java.util.concurrent.TimeUnit;
  * policy="dynamic"
  * bind="setDeviceTypeGeneratorService"
  * unbind="unsetDeviceTypeGeneratorService"
+ * @scr.reference name="device.change.listener"
+ * interface="org.wso2.carbon.device.mgt.core.service.DeviceChangeListener"
+ * cardinality="0..n"
+ * policy="dynamic"
+ * bind="setDeviceChangeListener"
+ * unbind="unsetDeviceChangeListener"
  */
 public class DeviceManagementServiceComponent {
 
@@ -127,6 +139,8 @@ public class DeviceManagementServiceComponent {
     private static List<PluginInitializationListener> listeners = new ArrayList<>();
     private static List<DeviceManagementService> deviceManagers = new ArrayList<>();
     private static List<DeviceManagerStartupListener> startupListeners = new ArrayList<>();
+    private ScheduledExecutorService pushNotificationExecutor;
+    private OperationPayloadMigrator operationPayloadMigrator;
 
     public static void registerPluginInitializationListener(PluginInitializationListener listener) {
         synchronized (LOCK) {
@@ -164,6 +178,7 @@ public class DeviceManagementServiceComponent {
             GroupManagementDAOFactory.init(dsConfig);
             NotificationManagementDAOFactory.init(dsConfig);
             OperationManagementDAOFactory.init(dsConfig);
+            OperationManagementDAOFactory.initOperationPayloadCodec(config.getOperationPayloadConfiguration());
             /*Initialize the device cache*/
             DeviceManagerUtil.initializeDeviceCache();
 
@@ -222,12 +237,27 @@ public class DeviceManagementServiceComponent {
                     config.getPushNotificationConfiguration().setSchedulerTaskInitialDelay(DeviceManagementConstants
                             .PushNotifications.DEFAULT_SCHEDULER_TASK_INITIAL_DELAY);
                 }
-                ScheduledExecutorService pushNotificationExecutor = Executors.newSingleThreadScheduledExecutor();
-                pushNotificationExecutor.scheduleWithFixedDelay(new PushNotificationSchedulerTask(), config
+                PushNotificationDispatcher pushNotificationDispatcher = new PushNotificationDispatcher(config
+                        .getPushNotificationConfiguration().getSchedulerWorkerPoolSize(), config
+                        .getPushNotificationConfiguration().getSchedulerWorkerQueueSize());
+                DeviceManagementDataHolder.getInstance().setPushNotificationDispatcher(pushNotificationDispatcher);
+                pushNotificationExecutor = Executors.newSingleThreadScheduledExecutor();
+                pushNotificationExecutor.scheduleWithFixedDelay(new PushNotificationSchedulerTask(
+                        pushNotificationDispatcher), config
                         .getPushNotificationConfiguration().getSchedulerTaskInitialDelay(), config
                         .getPushNotificationConfiguration().getSchedulerBatchDelayMills(), TimeUnit.MILLISECONDS);
             }
 
+            // Start migrating operation responses persisted with Java serialization
+            OperationPayloadConfiguration operationPayloadConfig = config.getOperationPayloadConfiguration();
+            if (operationPayloadConfig != null && operationPayloadConfig.isMigrationEnabled()) {
+                operationPayloadMigrator = new OperationPayloadMigrator(
+                        operationPayloadConfig.getMigrationBatchSize());
+                ExecutorService operationPayloadMigrationExecutor = Executors.newSingleThreadExecutor();
+                operationPayloadMigrationExecutor.submit(operationPayloadMigrator);
+                operationPayloadMigrationExecutor.shutdown();
+            }
+
             PrivacyComplianceProvider privacyComplianceProvider = new PrivacyComplianceProviderImpl();
             DeviceManagementDataHolder.getInstance().setPrivacyComplianceProvider(privacyComplianceProvider);
             componentContext.getBundleContext().registerService(PrivacyComplianceProvider.class.getName(),
@@ -243,7 +273,20 @@ public class DeviceManagementServiceComponent {
 
     @SuppressWarnings("unused")
     protected void deactivate(ComponentContext componentContext) {
-        //do nothing
+        if (operationPayloadMigrator != null) {
+            operationPayloadMigrator.stop();
+            operationPayloadMigrator = null;
+        }
+        if (pushNotificationExecutor != null) {
+            pushNotificationExecutor.shutdownNow();
+            pushNotificationExecutor = null;
+        }
+        PushNotificationDispatcher pushNotificationDispatcher = DeviceManagementDataHolder.getInstance()
+                .getPushNotificationDispatcher();
+        if (pushNotificationDispatcher != null) {
+            pushNotificationDispatcher.shutdown();
+            DeviceManagementDataHolder.getInstance().setPushNotificationDispatcher(null);
+        }
     }
 
     private void initOperationsManager() throws OperationManagementException {
@@ -260,6 +303,10 @@ public class DeviceManagementServiceComponent {
         TenantCreateObserver listener = new TenantCreateObserver();
         bundleContext.registerService(Axis2ConfigurationContextObserver.class.getName(), listener, null);
 
+        /* Registering the listener which invalidates the cached roles of users */
+        bundleContext.registerService(UserOperationEventListener.class.getName(),
+                new UserRoleCacheInvalidationListener(), null);
+
         /* Registering Device Management Service */
         DeviceManagementProviderService deviceManagementProvider = new DeviceManagementProviderServiceImpl();
         DeviceManagementDataHolder.getInstance().setDeviceManagementProvider(deviceManagementProvider);
@@ -517,6 +564,30 @@ public class DeviceManagementServiceComponent {
         }
         DeviceManagementDataHolder.getInstance().setDeviceTypeGeneratorService(null);
     }
+
+    /**
+     * Sets DeviceChangeListener.
+     *
+     * @param deviceChangeListener An Instance of DeviceChangeListener
+     */
+    protected void setDeviceChangeListener(DeviceChangeListener deviceChangeListener) {
+        if (log.isDebugEnabled()) {
+            log.debug("Setting DeviceChangeListener");
+        }
+        DeviceManagementDataHolder.getInstance().addDeviceChangeListener(deviceChangeListener);
+    }
+
+    /**
+     * Unsets DeviceChangeListener.
+     *
+     * @param deviceChangeListener An Instance of DeviceChangeListener
+     */
+    protected void unsetDeviceChangeListener(DeviceChangeListener deviceChangeListener) {
+        if (log.isDebugEnabled()) {
+            log.debug("Un setting DeviceChangeListener");
+        }
+        DeviceManagementDataHolder.getInstance().removeDeviceChangeListener(deviceChangeListener);
+    }
 }
 
 
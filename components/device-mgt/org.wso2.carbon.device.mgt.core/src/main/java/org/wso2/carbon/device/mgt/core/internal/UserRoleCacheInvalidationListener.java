@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.internal;
+
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.core.cache.UserRoleCacheManager;
+import org.wso2.carbon.device.mgt.core.cache.impl.UserRoleCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
+import org.wso2.carbon.user.api.Permission;
+import org.wso2.carbon.user.core.UserCoreConstants;
+import org.wso2.carbon.user.core.UserStoreException;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.common.AbstractUserOperationEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Invalidates the cached roles of users when the roles of users are changed in the user store, and then notifies the
+ * device change listeners, so that the data cached against the devices of those users is dropped after their roles.
+ */
+public class UserRoleCacheInvalidationListener extends AbstractUserOperationEventListener {
+
+    private static final int EXECUTION_ORDER_ID = 9000;
+
+    private final UserRoleCacheManager userRoleCacheManager = UserRoleCacheManagerImpl.getInstance();
+
+    @Override
+    public int getExecutionOrderId() {
+        return EXECUTION_ORDER_ID;
+    }
+
+    @Override
+    public boolean doPostAddUser(String userName, Object credential, String[] roleList, Map<String, String> claims,
+                                 String profile, UserStoreManager userStoreManager) throws UserStoreException {
+        userRoleCacheManager.invalidateUser(getDomainQualifiedName(userName, userStoreManager),
+                userStoreManager.getTenantId());
+        notifyUsersChanged(Collections.singletonList(userName), userStoreManager.getTenantId());
+        return true;
+    }
+
+    @Override
+    public boolean doPostDeleteUser(String userName, UserStoreManager userStoreManager) throws UserStoreException {
+        userRoleCacheManager.invalidateUser(getDomainQualifiedName(userName, userStoreManager),
+                userStoreManager.getTenantId());
+        notifyUsersChanged(Collections.singletonList(userName), userStoreManager.getTenantId());
+        return true;
+    }
+
+    @Override
+    public boolean doPostUpdateRoleListOfUser(String userName, String[] deletedRoles, String[] newRoles,
+                                              UserStoreManager userStoreManager) throws UserStoreException {
+        userRoleCacheManager.invalidateUser(getDomainQualifiedName(userName, userStoreManager),
+                userStoreManager.getTenantId());
+        notifyUsersChanged(Collections.singletonList(userName), userStoreManager.getTenantId());
+        return true;
+    }
+
+    @Override
+    public boolean doPostAddRole(String roleName, String[] userList, Permission[] permissions,
+                                 UserStoreManager userStoreManager) throws UserStoreException {
+        int tenantId = userStoreManager.getTenantId();
+        if (userList != null && userList.length > 0) {
+            for (String userName : userList) {
+                userRoleCacheManager.invalidateUser(getDomainQualifiedName(userName, userStoreManager), tenantId);
+            }
+            notifyUsersChanged(Arrays.asList(userList), tenantId);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean doPostUpdateUserListOfRole(String roleName, String[] deletedUsers, String[] newUsers,
+                                              UserStoreManager userStoreManager) throws UserStoreException {
+        // Users of a role may be given in a different form than the one they are cached with, hence the tenant is
+        // invalidated as a whole.
+        userRoleCacheManager.invalidateTenant(userStoreManager.getTenantId());
+        List<String> userNames = new ArrayList<>();
+        if (deletedUsers != null) {
+            Collections.addAll(userNames, deletedUsers);
+        }
+        if (newUsers != null) {
+            Collections.addAll(userNames, newUsers);
+        }
+        if (!userNames.isEmpty()) {
+            notifyUsersChanged(userNames, userStoreManager.getTenantId());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean doPostDeleteRole(String roleName, UserStoreManager userStoreManager) throws UserStoreException {
+        userRoleCacheManager.invalidateTenant(userStoreManager.getTenantId());
+        notifyRoleChanged(roleName, userStoreManager.getTenantId());
+        return true;
+    }
+
+    @Override
+    public boolean doPostUpdateRoleName(String roleName, String newRoleName, UserStoreManager userStoreManager)
+            throws UserStoreException {
+        userRoleCacheManager.invalidateTenant(userStoreManager.getTenantId());
+        notifyRoleChanged(roleName, userStoreManager.getTenantId());
+        return true;
+    }
+
+    private static void notifyUsersChanged(List<String> userNames, int tenantId) {
+        try {
+            PrivilegedCarbonContext.startTenantFlow();
+            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId, true);
+            DeviceManagerUtil.notifyUsersChanged(userNames);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    private static void notifyRoleChanged(String roleName, int tenantId) {
+        try {
+            PrivilegedCarbonContext.startTenantFlow();
+            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId, true);
+            DeviceManagerUtil.notifyRoleChanged(roleName);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    /**
+     * Users of a secondary user store may be given without their domain, which is added so that they are not taken
+     * for users of the primary user store.
+     */
+    private static String getDomainQualifiedName(String userName, UserStoreManager userStoreManager) {
+        if (userName.contains(UserCoreConstants.DOMAIN_SEPARATOR)) {
+            return userName;
+        }
+        String domainName = userStoreManager.getRealmConfiguration()
+                .getUserStoreProperty(UserCoreConstants.RealmConfig.PROPERTY_DOMAIN_NAME);
+        return domainName == null ? userName : domainName + UserCoreConstants.DOMAIN_SEPARATOR + userName;
+    }
+
+}
@@ -45,6 +45,9 @@ import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecu
 import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationProvider;
 import org.wso2.carbon.device.mgt.common.spi.DeviceManagementService;
 import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheEntry;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheManager;
+import org.wso2.carbon.device.mgt.core.cache.impl.PendingOperationCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
@@ -59,6 +62,7 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.OperationDAOUtil;
 import org.wso2.carbon.device.mgt.core.operation.mgt.util.DeviceIDHolder;
 import org.wso2.carbon.device.mgt.core.operation.mgt.util.OperationIdComparator;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
+import org.wso2.carbon.device.mgt.core.status.task.DeviceActivityIndex;
 import org.wso2.carbon.device.mgt.core.task.DeviceTaskManager;
 import org.wso2.carbon.device.mgt.core.task.impl.DeviceTaskManagerImpl;
 import org.wso2.carbon.device.mgt.core.util.DeviceManagerUtil;
@@ -187,35 +191,40 @@ public class OperationManagerImpl implements OperationManager {
                     operation.setInitiatedBy(initiatedBy);
                 }
 
+                List<Device> authorizedDevices = this.getDevices(authorizedDeviceIds);
+
                 OperationManagementDAOFactory.beginTransaction();
                 org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation operationDto =
                         OperationDAOUtil.convertOperation(operation);
-                int enrolmentId;
                 String operationCode = operationDto.getCode();
 
-                List<Device> authorizedDevices = new ArrayList<>();
                 List<Device> ignoredDevices = new ArrayList<>();
-                for (DeviceIdentifier deviceId : authorizedDeviceIds) {
-                    Device device = getDevice(deviceId);
-                    authorizedDevices.add(device);
-                }
-
                 if (operationDto.getControl() ==
                     org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Control.NO_REPEAT) {
-                    int existingOperationID;
+                    List<Integer> enrolmentIds = new ArrayList<>(authorizedDevices.size());
                     for (Device device : authorizedDevices) {
-                        enrolmentId = device.getEnrolmentInfo().getId();
-                        existingOperationID = operationDAO.getExistingOperationID(enrolmentId, operationCode);
-                        if (existingOperationID > 0) {
-                            ignoredDevices.add(device);
-                            operation.setId(existingOperationID);
-                            this.sendNotification(operation, device);
+                        enrolmentIds.add(device.getEnrolmentInfo().getId());
+                    }
+                    Map<Integer, Integer> existingOperationIDs =
+                            operationDAO.getExistingOperationIDs(enrolmentIds, operationCode);
+                    if (!existingOperationIDs.isEmpty()) {
+                        List<Device> newDevices = new ArrayList<>(authorizedDevices.size());
+                        for (Device device : authorizedDevices) {
+                            Integer existingOperationID = existingOperationIDs.get(device.getEnrolmentInfo().getId());
+                            if (existingOperationID != null) {
+                                ignoredDevices.add(device);
+                                operation.setId(existingOperationID);
+                                this.sendNotification(operation, device);
+                            } else {
+                                newDevices.add(device);
+                            }
                         }
+                        authorizedDevices = newDevices;
                     }
                 }
 
                 if (ignoredDevices.size() > 0) {
-                    if (authorizedDevices.size() == ignoredDevices.size()) {
+                    if (authorizedDevices.isEmpty()) {
                         if (log.isDebugEnabled()) {
                             log.debug("All the devices contain a pending operation for the Operation Code: "
                                     + operationCode);
@@ -226,8 +235,6 @@ public class OperationManagerImpl implements OperationManager {
                         activity.setActivityStatus(this.getActivityStatus(deviceValidationResult, deviceAuthorizationResult,
                                 deviceType));
                         return activity;
-                    } else {
-                        authorizedDevices.removeAll(ignoredDevices);
                     }
                 }
 
@@ -244,13 +251,14 @@ public class OperationManagerImpl implements OperationManager {
                     isScheduled = notificationStrategy.getConfig().isScheduled();
                 }
 
-                //TODO have to create a sql to load device details from deviceDAO using single query.
-                for (Device device : authorizedDevices) {
-                    enrolmentId = device.getEnrolmentInfo().getId();
-                    //Do not repeat the task operations
-                    operationMappingDAO.addOperationMapping(operationId, enrolmentId, isScheduled);
+                int[] enrolmentIds = new int[authorizedDevices.size()];
+                for (int i = 0; i < enrolmentIds.length; i++) {
+                    enrolmentIds[i] = authorizedDevices.get(i).getEnrolmentInfo().getId();
                 }
+                operationMappingDAO.addOperationMappings(operationId, enrolmentIds, isScheduled);
                 OperationManagementDAOFactory.commitTransaction();
+                PendingOperationCacheManagerImpl.getInstance().invalidate(authorizedDeviceIds,
+                        CarbonContext.getThreadLocalCarbonContext().getTenantId());
 
                 if (!isScheduled) {
                     for (Device device : authorizedDevices) {
@@ -379,6 +387,43 @@ public class OperationManagerImpl implements OperationManager {
         return deviceIDHolder;
     }
 
+    /**
+     * Resolves the given device identifiers to devices along with their latest enrolments, using a single query per
+     * device type. Identifiers which do not belong to a device of the current tenant are skipped.
+     */
+    private List<Device> getDevices(List<DeviceIdentifier> deviceIds) throws OperationManagementException {
+        Map<String, List<String>> deviceIdsByType = new HashMap<>();
+        for (DeviceIdentifier deviceId : deviceIds) {
+            List<String> identifiers = deviceIdsByType.get(deviceId.getType());
+            if (identifiers == null) {
+                identifiers = new ArrayList<>();
+                deviceIdsByType.put(deviceId.getType(), identifiers);
+            }
+            identifiers.add(deviceId.getId());
+        }
+        List<Device> devices = new ArrayList<>(deviceIds.size());
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+            for (Map.Entry<String, List<String>> entry : deviceIdsByType.entrySet()) {
+                devices.addAll(deviceDAO.getDevices(entry.getKey(), entry.getValue(), tenantId));
+            }
+        } catch (DeviceManagementDAOException e) {
+            throw new OperationManagementException("Error occurred while retrieving info of " + deviceIds.size() +
+                    " devices", e);
+        } catch (SQLException e) {
+            throw new OperationManagementException(
+                    "Error occurred while opening a connection to the data source", e);
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        if (log.isDebugEnabled() && devices.size() < deviceIds.size()) {
+            log.debug((deviceIds.size() - devices.size()) + " of the given device identifiers do not match an " +
+                    "enrolled device");
+        }
+        return devices;
+    }
+
     private Device getDevice(DeviceIdentifier deviceId) throws OperationManagementException {
         try {
             return DeviceManagementDataHolder.getInstance().getDeviceManagementProvider().getDevice(deviceId, false);
@@ -499,6 +544,7 @@ public class OperationManagerImpl implements OperationManager {
                     deviceId.getType());
         }
         int enrolmentId = enrolmentInfo.getId();
+        DeviceActivityIndex.getInstance().recordActivity(deviceId.getType(), enrolmentId);
         //Changing the enrollment status & attempt count if the device is marked as inactive or unreachable
         switch (enrolmentInfo.getStatus()) {
             case INACTIVE:
@@ -550,12 +596,30 @@ public class OperationManagerImpl implements OperationManager {
         }
         Operation operation = null;
 
-        if (!isActionAuthorized(deviceId)) {
-            throw new OperationManagementException("User '" + getUser() + "' is not authorized to access the '" +
+        int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        PendingOperationCacheManager pendingOperationCacheManager = PendingOperationCacheManagerImpl.getInstance();
+        // Devices which poll without having any operation assigned are answered without querying the database. The
+        // entry of an idle device holds its active enrolment, and the owner of the enrolment, who is authorized to
+        // access the device.
+        PendingOperationCacheEntry idleEnrolment = notNowOperationFrequency <= 0 ?
+                pendingOperationCacheManager.getIdleEnrolment(deviceId, tenantId) : null;
+        String user = this.getUser();
+        boolean isIdleEnrolmentOwner = idleEnrolment != null && user != null &&
+                this.isSameUser(user, idleEnrolment.getOwner());
+        if (!isIdleEnrolmentOwner && !isActionAuthorized(deviceId)) {
+            throw new OperationManagementException("User '" + user + "' is not authorized to access the '" +
                     deviceId.getType() + "' device, which carries the identifier '" +
                     deviceId.getId() + "'");
         }
+        if (idleEnrolment != null) {
+            DeviceActivityIndex.getInstance().recordActivity(deviceId.getType(), idleEnrolment.getEnrolmentId());
+            return null;
+        }
 
+        // Recorded before the enrolment and the operations are looked up, so that the device is not marked idle if
+        // an operation is added, or the enrolment is changed, in the meantime.
+        long pollId = notNowOperationFrequency <= 0 ?
+                pendingOperationCacheManager.startPoll(deviceId, tenantId) : 0;
         EnrolmentInfo enrolmentInfo = this.getActiveEnrolmentInfo(deviceId);
         if (enrolmentInfo == null) {
             throw new OperationManagementException("Device not found for given device " +
@@ -563,6 +627,7 @@ public class OperationManagerImpl implements OperationManager {
                     deviceId.getType());
         }
         int enrolmentId = enrolmentInfo.getId();
+        DeviceActivityIndex.getInstance().recordActivity(deviceId.getType(), enrolmentId);
         //Changing the enrollment status & attempt count if the device is marked as inactive or unreachable
         switch (enrolmentInfo.getStatus()) {
             case INACTIVE:
@@ -578,7 +643,7 @@ public class OperationManagerImpl implements OperationManager {
             // check whether notnow is set
             if (notNowOperationFrequency > 0) {
                 // retrieve Notnow operations
-                dtoOperation = operationDAO.getNextOperation(enrolmentInfo.getId(),
+                dtoOperation = operationDAO.getNextOperationWithDetails(enrolmentInfo.getId(),
                         org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Status.NOTNOW);
             }
 
@@ -591,32 +656,20 @@ public class OperationManagerImpl implements OperationManager {
                 // check if notnow frequency is met and set next pending operation if not, otherwise let notnow
                 // operation to proceed
                 if ((currentTime - updatedTime) < notNowOperationFrequency) {
-                    dtoOperation = operationDAO.getNextOperation(enrolmentInfo.getId(),
+                    dtoOperation = operationDAO.getNextOperationWithDetails(enrolmentInfo.getId(),
                             org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Status.PENDING);
                 }
             } else {
-                dtoOperation = operationDAO.getNextOperation(enrolmentInfo.getId(),
+                dtoOperation = operationDAO.getNextOperationWithDetails(enrolmentInfo.getId(),
                         org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Status.PENDING);
+                if (dtoOperation == null && notNowOperationFrequency <= 0 &&
+                        EnrolmentInfo.Status.ACTIVE.equals(enrolmentInfo.getStatus())) {
+                    pendingOperationCacheManager.markIdle(deviceId, enrolmentId, enrolmentInfo.getOwner(), pollId,
+                            tenantId);
+                }
             }
 
             if (dtoOperation != null) {
-                if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.COMMAND.equals(dtoOperation.getType()
-                )) {
-                    org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation commandOperation;
-                    commandOperation =
-                            (org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation) commandOperationDAO.
-                                    getOperation(dtoOperation.getId());
-                    dtoOperation.setEnabled(commandOperation.isEnabled());
-                } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.CONFIG.equals(dtoOperation.
-                        getType())) {
-                    dtoOperation = configOperationDAO.getOperation(dtoOperation.getId());
-                } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.PROFILE.equals(dtoOperation.
-                        getType())) {
-                    dtoOperation = profileOperationDAO.getOperation(dtoOperation.getId());
-                } else if (org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation.Type.POLICY.equals(dtoOperation.
-                        getType())) {
-                    dtoOperation = policyOperationDAO.getOperation(dtoOperation.getId());
-                }
                 operation = OperationDAOUtil.convertOperation(dtoOperation);
             }
         } catch (OperationManagementDAOException e) {
@@ -663,6 +716,9 @@ public class OperationManagerImpl implements OperationManager {
                 operationDAO.addOperationResponse(enrolmentId, operationId, operation.getOperationResponse());
             }
             OperationManagementDAOFactory.commitTransaction();
+            PendingOperationCacheManagerImpl.getInstance().invalidate(deviceId,
+                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
+            DeviceActivityIndex.getInstance().recordActivity(deviceId.getType(), enrolmentId);
         } catch (OperationManagementDAOException e) {
             OperationManagementDAOFactory.rollbackTransaction();
             throw new OperationManagementException(
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.operation.mgt;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationDAO;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOException;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
+
+/**
+ * Re-encodes the operation responses and the configuration, profile and policy operation details persisted with Java
+ * serialization using the configured operation payload codec. Each table is processed in batches of ascending ids,
+ * each within its own transaction, so the migrator can run in the background while the server is serving requests.
+ * Rows which are already in the current format are skipped, hence it is safe to run the migrator again or on several
+ * nodes.
+ */
+public class OperationPayloadMigrator implements Runnable {
+
+    private static final Log log = LogFactory.getLog(OperationPayloadMigrator.class);
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final Operation.Type[] OPERATION_DETAIL_TYPES = {Operation.Type.CONFIG, Operation.Type.PROFILE,
+            Operation.Type.POLICY};
+
+    private final OperationDAO operationDAO;
+    private final int batchSize;
+    private volatile boolean stopped;
+
+    public OperationPayloadMigrator(int batchSize) {
+        this.operationDAO = OperationManagementDAOFactory.getOperationDAO();
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    @Override
+    public void run() {
+        long startTime = System.currentTimeMillis();
+        if (log.isDebugEnabled()) {
+            log.debug("Operation payload migration started with batch size " + batchSize);
+        }
+        boolean completed = this.migrate(new PayloadBatch("operation responses") {
+            @Override
+            int migrate(int lastId) throws OperationManagementDAOException {
+                return operationDAO.migrateOperationResponses(lastId, batchSize);
+            }
+        });
+        for (final Operation.Type type : OPERATION_DETAIL_TYPES) {
+            if (!completed) {
+                break;
+            }
+            completed = this.migrate(new PayloadBatch(type + " operation details") {
+                @Override
+                int migrate(int lastId) throws OperationManagementDAOException {
+                    return operationDAO.migrateOperationDetails(type, lastId, batchSize);
+                }
+            });
+        }
+        if (completed) {
+            log.info("Operation payload migration completed in " + (System.currentTimeMillis() - startTime) +
+                    " ms");
+        }
+    }
+
+    /**
+     * Stops the migration after the batch in progress. The migration continues from the beginning, skipping the
+     * rows already migrated, the next time it is started.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private boolean migrate(PayloadBatch payloadBatch) {
+        int lastId = 0;
+        while (lastId >= 0) {
+            if (stopped || Thread.currentThread().isInterrupted()) {
+                log.info("Migration of " + payloadBatch.name + " is stopped at the id '" + lastId + "'");
+                return false;
+            }
+            try {
+                OperationManagementDAOFactory.beginTransaction();
+                lastId = payloadBatch.migrate(lastId);
+                OperationManagementDAOFactory.commitTransaction();
+            } catch (OperationManagementDAOException e) {
+                OperationManagementDAOFactory.rollbackTransaction();
+                log.error("Error occurred while migrating " + payloadBatch.name + ". Migration is stopped at the " +
+                        "id '" + lastId + "'", e);
+                return false;
+            } catch (TransactionManagementException e) {
+                log.error("Error occurred while initiating the transaction to migrate " + payloadBatch.name, e);
+                return false;
+            } finally {
+                OperationManagementDAOFactory.closeConnection();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Migrates a batch of the payloads of a single table.
+     */
+    private abstract static class PayloadBatch {
+
+        private final String name;
+
+        PayloadBatch(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param lastId id of the last row migrated by the previous batch.
+         * @return id of the last row scanned, or -1 if there are no rows after the given id.
+         */
+        abstract int migrate(int lastId) throws OperationManagementDAOException;
+    }
+
+}
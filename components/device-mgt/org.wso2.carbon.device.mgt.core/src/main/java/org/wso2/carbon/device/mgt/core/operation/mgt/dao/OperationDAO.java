@@ -48,6 +48,18 @@ public interface OperationDAO {
 
     Operation getNextOperation(int enrolmentId, Operation.Status status) throws OperationManagementDAOException;
 
+    /**
+     * Returns the next operation of the given enrolment and status along with its type specific details, e.g. the
+     * payload of a profile operation, using a single query.
+     *
+     * @param enrolmentId id of the enrolment.
+     * @param status      status of the operation.
+     * @return the next operation, or null if there is no operation of the given status.
+     * @throws OperationManagementDAOException
+     */
+    Operation getNextOperationWithDetails(int enrolmentId, Operation.Status status)
+            throws OperationManagementDAOException;
+
     boolean updateOperationStatus(int enrolmentId, int operationId,Operation.Status status)
             throws OperationManagementDAOException;
 
@@ -56,6 +68,41 @@ public interface OperationDAO {
 
     int getExistingOperationID(int enrolmentId, String operationCode) throws OperationManagementDAOException;
 
+    /**
+     * Returns the ids of the pending operations carrying the given operation code, for each of the given enrolments.
+     *
+     * @param enrolmentIds  ids of the enrolments to look up.
+     * @param operationCode code of the operation.
+     * @return map of enrolment id to pending operation id. Enrolments without such an operation are not included.
+     * @throws OperationManagementDAOException
+     */
+    Map<Integer, Integer> getExistingOperationIDs(List<Integer> enrolmentIds, String operationCode)
+            throws OperationManagementDAOException;
+
+    /**
+     * Re-encodes the operation responses which are not in the format of the current operation payload codec, by
+     * scanning a batch of responses in the order of their ids.
+     *
+     * @param lastResponseId id of the last response scanned by the previous batch, 0 to start from the beginning.
+     * @param batchSize      maximum number of responses to be scanned.
+     * @return id of the last response scanned, or -1 if there are no responses after the given id.
+     * @throws OperationManagementDAOException
+     */
+    int migrateOperationResponses(int lastResponseId, int batchSize) throws OperationManagementDAOException;
+
+    /**
+     * Re-encodes the details of the operations of the given type which are not in the format of the current
+     * operation payload codec, by scanning a batch of operations in the order of their ids.
+     *
+     * @param type            type of the operations, one of CONFIG, PROFILE and POLICY.
+     * @param lastOperationId id of the last operation scanned by the previous batch, 0 to start from the beginning.
+     * @param batchSize       maximum number of operations to be scanned.
+     * @return id of the last operation scanned, or -1 if there are no operations after the given id.
+     * @throws OperationManagementDAOException
+     */
+    int migrateOperationDetails(Operation.Type type, int lastOperationId, int batchSize)
+            throws OperationManagementDAOException;
+
     void addOperationResponse(int enrolmentId, int operationId, Object operationResponse)
             throws OperationManagementDAOException;
 
@@ -26,12 +26,15 @@ import org.wso2.carbon.device.mgt.common.TransactionManagementException;
 import org.wso2.carbon.device.mgt.common.UnsupportedDatabaseEngineException;
 import org.wso2.carbon.device.mgt.core.config.datasource.DataSourceConfig;
 import org.wso2.carbon.device.mgt.core.config.datasource.JNDILookupDefinition;
+import org.wso2.carbon.device.mgt.core.config.operation.OperationPayloadConfiguration;
 import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.impl.*;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.impl.operation.MySQLOperationDAOImpl;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.impl.operation.OracleOperationDAOImpl;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.impl.operation.PostgreSQLOperationDAOImpl;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.impl.operation.SQLServerOperationDAOImpl;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.CompactOperationPayloadCodec;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.OperationPayloadCodec;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
@@ -45,6 +48,7 @@ public class OperationManagementDAOFactory {
     private static DataSource dataSource;
     private static String databaseEngine;
     private static ThreadLocal<Connection> currentConnection = new ThreadLocal<Connection>();
+    private static OperationPayloadCodec operationPayloadCodec = new CompactOperationPayloadCodec();
 
     public static OperationDAO getCommandOperationDAO() {
         return new CommandOperationDAOImpl();
@@ -104,6 +108,35 @@ public class OperationManagementDAOFactory {
         }
     }
 
+    /**
+     * Initializes the codec used to encode operation payloads and responses. The default codec is kept if the
+     * configured one cannot be loaded.
+     *
+     * @param config operation payload configuration, which may be null.
+     */
+    public static void initOperationPayloadCodec(OperationPayloadConfiguration config) {
+        if (config == null) {
+            return;
+        }
+        String codecClass = config.getCodec();
+        if (codecClass == null || codecClass.isEmpty() ||
+                CompactOperationPayloadCodec.class.getName().equals(codecClass.trim())) {
+            operationPayloadCodec = new CompactOperationPayloadCodec(config.getCompressionThreshold());
+            return;
+        }
+        try {
+            operationPayloadCodec = (OperationPayloadCodec) Class.forName(codecClass.trim()).getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            log.error("Error occurred while loading operation payload codec '" + codecClass + "'. Hence " +
+                    "falling back to the default codec", e);
+        }
+    }
+
+    public static OperationPayloadCodec getOperationPayloadCodec() {
+        return operationPayloadCodec;
+    }
+
     public static void beginTransaction() throws TransactionManagementException {
         try {
             Connection conn = dataSource.getConnection();
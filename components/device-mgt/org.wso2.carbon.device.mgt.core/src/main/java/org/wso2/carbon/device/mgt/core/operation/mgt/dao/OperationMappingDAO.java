@@ -30,6 +30,17 @@ public interface OperationMappingDAO {
 
     void addOperationMapping(int operationId, Integer deviceId, boolean isScheduled) throws OperationManagementDAOException;
 
+    /**
+     * This method maps the given operation to all the given enrolments using batched inserts.
+     *
+     * @param operationId - Id of the operation
+     * @param enrolmentIds - Ids of the enrolments the operation is added to
+     * @param isScheduled - Whether the push notifications of the operation are sent by the scheduler task
+     * @throws OperationManagementDAOException
+     */
+    void addOperationMappings(int operationId, int[] enrolmentIds, boolean isScheduled)
+            throws OperationManagementDAOException;
+
     void removeOperationMapping(int operationId, Integer deviceId) throws OperationManagementDAOException;
 
     void updateOperationMapping(int operationId, Integer deviceId, Operation.PushNotificationStatus pushNotificationStatus) throws
@@ -51,6 +62,18 @@ public interface OperationMappingDAO {
                                                                                         long maxDuration, int deviceTypeId)
             throws OperationManagementDAOException;
 
+    /**
+     * This method returns first pending/repeated operation available for each unreachable enrolment of given
+     * device-type where the operation was created before the given timestamp.
+     *
+     * @param maxDuration - Upper limit of Operation created time
+     * @param deviceTypeId - Device Type Id of required devices
+     * @return List<OperationEnrolmentMapping> - List of OperationEnrolmentMapping objects containing required data
+     * @throws OperationManagementDAOException
+     */
+    List<OperationEnrolmentMapping> getFirstPendingOperationMappingsForUnreachableEnrolments(long maxDuration,
+                                   int deviceTypeId) throws OperationManagementDAOException;
+
     /**
      * This method returns the timestamp of last completed Operation for each active enrolment of given device-type
      * where the operation was completed after the given timestamp.
@@ -63,4 +86,14 @@ public interface OperationMappingDAO {
     Map<Integer, Long> getLastConnectedTimeForActiveEnrolments(long timeStamp, int deviceTypeId)
             throws OperationManagementDAOException;
 
+    /**
+     * This method returns the timestamp of last completed Operation of each of the given enrolments.
+     *
+     * @param enrolmentIds - Ids of the enrolments
+     * @return Map<Integer, Long> - Timestamp of the last completed operation keyed by enrolment id. Enrolments without
+     * any completed operation are not included.
+     * @throws OperationManagementDAOException
+     */
+    Map<Integer, Long> getLastConnectedTimes(List<Integer> enrolmentIds) throws OperationManagementDAOException;
+
 }
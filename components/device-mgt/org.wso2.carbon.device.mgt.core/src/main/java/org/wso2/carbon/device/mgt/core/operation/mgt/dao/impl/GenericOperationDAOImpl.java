@@ -25,19 +25,21 @@ import org.wso2.carbon.device.mgt.common.PaginationRequest;
 import org.wso2.carbon.device.mgt.common.operation.mgt.Activity;
 import org.wso2.carbon.device.mgt.common.operation.mgt.ActivityStatus;
 import org.wso2.carbon.device.mgt.common.operation.mgt.OperationResponse;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ConfigOperation;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.PolicyOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ProfileOperation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationDAO;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOException;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.OperationDAOUtil;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.OperationPayloadCodec;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -178,12 +180,48 @@ public class GenericOperationDAOImpl implements OperationDAO {
         return result;
     }
 
+    @Override
+    public Map<Integer, Integer> getExistingOperationIDs(List<Integer> enrolmentIds, String operationCode)
+            throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        Map<Integer, Integer> existingOperationIds = new HashMap<>();
+        try {
+            Connection connection = OperationManagementDAOFactory.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.getChunks(enrolmentIds,
+                    DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS)) {
+                String query = "SELECT EOM.ENROLMENT_ID, DM.ID FROM DM_ENROLMENT_OP_MAPPING EOM INNER JOIN " +
+                        "DM_OPERATION DM ON DM.ID = EOM.OPERATION_ID WHERE DM.OPERATION_CODE = ? AND " +
+                        "EOM.STATUS = ? AND EOM.ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ")";
+                stmt = connection.prepareStatement(query);
+                int index = 1;
+                stmt.setString(index++, operationCode);
+                stmt.setString(index++, Operation.Status.PENDING.toString());
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(index++, enrolmentId);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    existingOperationIds.put(rs.getInt("ENROLMENT_ID"), rs.getInt("ID"));
+                }
+                OperationManagementDAOUtil.cleanupResources(stmt, rs);
+                stmt = null;
+                rs = null;
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while retrieving pending '" + operationCode +
+                    "' operations of " + enrolmentIds.size() + " enrolments", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return existingOperationIds;
+    }
+
     @Override
     public void addOperationResponse(int enrolmentId, int operationId, Object operationResponse)
             throws OperationManagementDAOException {
         PreparedStatement stmt = null;
-        ByteArrayOutputStream bao = null;
-        ObjectOutputStream oos = null;
         ResultSet rs = null;
         try {
             Connection connection = OperationManagementDAOFactory.getConnection();
@@ -198,39 +236,103 @@ public class GenericOperationDAOImpl implements OperationDAO {
             if(rs.next()){
                 enPrimaryId = rs.getInt("ID");
             }
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+            rs = null;
             stmt = connection.prepareStatement("INSERT INTO DM_DEVICE_OPERATION_RESPONSE(OPERATION_ID, ENROLMENT_ID, " +
                     "EN_OP_MAP_ID, OPERATION_RESPONSE, RECEIVED_TIMESTAMP) VALUES(?, ?, ?, ?, ?)");
-            bao = new ByteArrayOutputStream();
-            oos = new ObjectOutputStream(bao);
-            oos.writeObject(operationResponse);
-
             stmt.setInt(1, operationId);
             stmt.setInt(2, enrolmentId);
             stmt.setInt(3, enPrimaryId);
-            stmt.setBytes(4, bao.toByteArray());
+            stmt.setBytes(4, OperationManagementDAOFactory.getOperationPayloadCodec().encode(operationResponse));
             stmt.setTimestamp(5, new Timestamp(new Date().getTime()));
             stmt.executeUpdate();
         } catch (SQLException e) {
             throw new OperationManagementDAOException("Error occurred while inserting operation response", e);
         } catch (IOException e) {
-            throw new OperationManagementDAOException("Error occurred while serializing policy operation object", e);
+            throw new OperationManagementDAOException("Error occurred while encoding operation response", e);
         } finally {
-            if (bao != null) {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    @Override
+    public int migrateOperationResponses(int lastResponseId, int batchSize) throws OperationManagementDAOException {
+        return this.migratePayloads("DM_DEVICE_OPERATION_RESPONSE", "ID", "OPERATION_RESPONSE", lastResponseId,
+                batchSize);
+    }
+
+    @Override
+    public int migrateOperationDetails(Operation.Type type, int lastOperationId, int batchSize)
+            throws OperationManagementDAOException {
+        switch (type) {
+            case CONFIG:
+                return this.migratePayloads("DM_CONFIG_OPERATION", "OPERATION_ID", "OPERATION_CONFIG",
+                        lastOperationId, batchSize);
+            case PROFILE:
+                return this.migratePayloads("DM_PROFILE_OPERATION", "OPERATION_ID", "OPERATION_DETAILS",
+                        lastOperationId, batchSize);
+            case POLICY:
+                return this.migratePayloads("DM_POLICY_OPERATION", "OPERATION_ID", "OPERATION_DETAILS",
+                        lastOperationId, batchSize);
+            default:
+                return -1;
+        }
+    }
+
+    private int migratePayloads(String tableName, String idColumn, String payloadColumn, int lastId, int batchSize)
+            throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        OperationPayloadCodec codec = OperationManagementDAOFactory.getOperationPayloadCodec();
+        Map<Integer, byte[]> migratedPayloads = new HashMap<>();
+        int lastScannedId = -1;
+        try {
+            Connection connection = OperationManagementDAOFactory.getConnection();
+            stmt = connection.prepareStatement("SELECT " + idColumn + ", " + payloadColumn + " FROM " + tableName +
+                    " WHERE " + idColumn + " > ? ORDER BY " + idColumn);
+            stmt.setInt(1, lastId);
+            stmt.setMaxRows(batchSize);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                lastScannedId = rs.getInt(idColumn);
+                byte[] content = rs.getBytes(payloadColumn);
+                if (content == null || codec.isCurrentFormat(content)) {
+                    continue;
+                }
                 try {
-                    bao.close();
-                } catch (IOException e) {
-                    log.warn("Error occurred while closing ByteArrayOutputStream", e);
+                    migratedPayloads.put(lastScannedId, codec.encode(codec.decode(content)));
+                } catch (IOException | ClassNotFoundException e) {
+                    log.warn("Payload of the " + tableName + " entry '" + lastScannedId + "' cannot be decoded, " +
+                            "hence it is left in its original format", e);
                 }
             }
-            if (oos != null) {
-                try {
-                    oos.close();
-                } catch (IOException e) {
-                    log.warn("Error occurred while closing ObjectOutputStream", e);
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+            rs = null;
+
+            if (!migratedPayloads.isEmpty()) {
+                stmt = connection.prepareStatement("UPDATE " + tableName + " SET " + payloadColumn + " = ? WHERE " +
+                        idColumn + " = ?");
+                boolean isBatchSupported = connection.getMetaData().supportsBatchUpdates();
+                for (Map.Entry<Integer, byte[]> migratedPayload : migratedPayloads.entrySet()) {
+                    stmt.setBytes(1, migratedPayload.getValue());
+                    stmt.setInt(2, migratedPayload.getKey());
+                    if (isBatchSupported) {
+                        stmt.addBatch();
+                    } else {
+                        stmt.executeUpdate();
+                    }
+                }
+                if (isBatchSupported) {
+                    stmt.executeBatch();
                 }
             }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while migrating the payloads of " + tableName +
+                    " after the id '" + lastId + "'", e);
+        } finally {
             OperationManagementDAOUtil.cleanupResources(stmt, rs);
         }
+        return lastScannedId;
     }
 
     @Override
@@ -1412,6 +1514,107 @@ public class GenericOperationDAOImpl implements OperationDAO {
     }
 
 
+    @Override
+    public Operation getNextOperationWithDetails(int enrolmentId, Operation.Status status)
+            throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection connection = OperationManagementDAOFactory.getConnection();
+            stmt = connection.prepareStatement("SELECT o.ID, o.TYPE, o.CREATED_TIMESTAMP, o.OPERATION_CODE, " +
+                    "om.UPDATED_TIMESTAMP, co.ENABLED AS COMMAND_ENABLED, cfo.ENABLED AS CONFIG_ENABLED, " +
+                    "cfo.OPERATION_CONFIG, po.OPERATION_DETAILS AS PROFILE_DETAILS, " +
+                    "plo.OPERATION_DETAILS AS POLICY_DETAILS FROM DM_ENROLMENT_OP_MAPPING om " +
+                    "INNER JOIN DM_OPERATION o ON o.ID = om.OPERATION_ID " +
+                    "LEFT JOIN DM_COMMAND_OPERATION co ON co.OPERATION_ID = o.ID " +
+                    "LEFT JOIN DM_CONFIG_OPERATION cfo ON cfo.OPERATION_ID = o.ID " +
+                    "LEFT JOIN DM_PROFILE_OPERATION po ON po.OPERATION_ID = o.ID " +
+                    "LEFT JOIN DM_POLICY_OPERATION plo ON plo.OPERATION_ID = o.ID " +
+                    "WHERE om.ENROLMENT_ID = ? AND om.STATUS = ? ORDER BY om.UPDATED_TIMESTAMP ASC, om.ID ASC");
+            stmt.setInt(1, enrolmentId);
+            stmt.setString(2, status.toString());
+            stmt.setMaxRows(1);
+            rs = stmt.executeQuery();
+
+            Operation operation = null;
+            if (rs.next()) {
+                operation = new Operation();
+                operation.setType(OperationDAOUtil.getType(rs.getString("TYPE")));
+                operation.setId(rs.getInt("ID"));
+                operation.setCreatedTimeStamp(rs.getTimestamp("CREATED_TIMESTAMP").toString());
+                if (rs.getLong("UPDATED_TIMESTAMP") == 0) {
+                    operation.setReceivedTimeStamp("");
+                } else {
+                    operation.setReceivedTimeStamp(
+                            new java.sql.Timestamp((rs.getLong("UPDATED_TIMESTAMP") * 1000)).toString());
+                }
+                operation.setCode(rs.getString("OPERATION_CODE"));
+                operation.setStatus(Operation.Status.PENDING);
+                OperationDAOUtil.setActivityId(operation, rs.getInt("ID"));
+                operation = this.loadOperationDetails(operation, rs);
+            }
+            return operation;
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while retrieving the next operation of " +
+                    "enrolment '" + enrolmentId + "'", e);
+        } catch (IOException e) {
+            throw new OperationManagementDAOException("IO Error occurred while de serialize the next operation of " +
+                    "enrolment '" + enrolmentId + "'", e);
+        } catch (ClassNotFoundException e) {
+            throw new OperationManagementDAOException("Class not found error occurred while de serialize the next " +
+                    "operation of enrolment '" + enrolmentId + "'", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+    }
+
+    /**
+     * Builds the operation the same way as the type specific operation DAOs do, out of the details columns
+     * selected by {@link #getNextOperationWithDetails(int, Operation.Status)}.
+     */
+    private Operation loadOperationDetails(Operation operation, ResultSet rs)
+            throws SQLException, IOException, ClassNotFoundException {
+        byte[] details;
+        switch (operation.getType()) {
+            case COMMAND:
+                operation.setEnabled(rs.getBoolean("COMMAND_ENABLED"));
+                return operation;
+            case CONFIG:
+                details = rs.getBytes("OPERATION_CONFIG");
+                if (details == null) {
+                    return operation;
+                }
+                ConfigOperation configOperation = (ConfigOperation) OperationManagementDAOFactory
+                        .getOperationPayloadCodec().decode(details);
+                configOperation.setId(operation.getId());
+                configOperation.setEnabled(rs.getBoolean("CONFIG_ENABLED"));
+                return configOperation;
+            case PROFILE:
+                details = rs.getBytes("PROFILE_DETAILS");
+                if (details == null) {
+                    return operation;
+                }
+                Object payload = OperationManagementDAOFactory.getOperationPayloadCodec().decode(details);
+                if (payload instanceof String) {
+                    ProfileOperation profileOperation = new ProfileOperation();
+                    profileOperation.setCode(operation.getCode());
+                    profileOperation.setId(operation.getId());
+                    profileOperation.setCreatedTimeStamp(operation.getCreatedTimeStamp());
+                    profileOperation.setPayLoad(payload);
+                    return profileOperation;
+                }
+                return (ProfileOperation) payload;
+            case POLICY:
+                details = rs.getBytes("POLICY_DETAILS");
+                if (details == null) {
+                    return operation;
+                }
+                return (PolicyOperation) OperationManagementDAOFactory.getOperationPayloadCodec().decode(details);
+            default:
+                return operation;
+        }
+    }
+
     public List<? extends Operation> getOperationsByDeviceStatusAndType(
             int enrolmentId, Operation.Status status, Operation.Type type) throws OperationManagementDAOException {
         PreparedStatement stmt = null;
@@ -19,6 +19,8 @@
 package org.wso2.carbon.device.mgt.core.operation.mgt.dao.impl;
 
 import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationEnrolmentMapping;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
@@ -66,6 +68,48 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
         }
     }
 
+    @Override
+    public void addOperationMappings(int operationId, int[] enrolmentIds, boolean isScheduled)
+            throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        try {
+            long time = System.currentTimeMillis() / 1000;
+            String pushNotificationStatus = isScheduled ? Operation.PushNotificationStatus.SCHEDULED.toString() :
+                    Operation.PushNotificationStatus.COMPLETED.toString();
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            String sql = "INSERT INTO DM_ENROLMENT_OP_MAPPING(ENROLMENT_ID, OPERATION_ID, STATUS, " +
+                    "PUSH_NOTIFICATION_STATUS, CREATED_TIMESTAMP, UPDATED_TIMESTAMP) VALUES (?, ?, ?, ?, ?, ?)";
+            stmt = conn.prepareStatement(sql);
+            boolean isBatchSupported = conn.getMetaData().supportsBatchUpdates();
+            int batchSize = 0;
+            for (int enrolmentId : enrolmentIds) {
+                stmt.setInt(1, enrolmentId);
+                stmt.setInt(2, operationId);
+                stmt.setString(3, Operation.Status.PENDING.toString());
+                stmt.setString(4, pushNotificationStatus);
+                stmt.setLong(5, time);
+                stmt.setLong(6, time);
+                if (isBatchSupported) {
+                    stmt.addBatch();
+                    if (++batchSize == DeviceManagementConstants.DataBaseQueries.MAX_BATCH_SIZE) {
+                        stmt.executeBatch();
+                        batchSize = 0;
+                    }
+                } else {
+                    stmt.executeUpdate();
+                }
+            }
+            if (batchSize > 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while persisting mappings of operation '" +
+                    operationId + "' for " + enrolmentIds.length + " enrolments", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
     @Override
     public void removeOperationMapping(int operationId,
                                        Integer deviceId) throws OperationManagementDAOException {
@@ -173,6 +217,37 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
         return enrolmentOperationMappingList;
     }
 
+    @Override
+    public List<OperationEnrolmentMapping> getFirstPendingOperationMappingsForUnreachableEnrolments(long maxDuration,
+                                   int deviceTypeId) throws OperationManagementDAOException {
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        List<OperationEnrolmentMapping> enrolmentOperationMappingList = new ArrayList<>();
+        try {
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            String sql = "SELECT ENROLMENT_ID, D.DEVICE_IDENTIFICATION AS DEVICE_IDENTIFIER, MIN(CREATED_TIMESTAMP) " +
+                    "AS CREATED_TIMESTAMP, E.STATUS AS ENROLMENT_STATUS, E.TENANT_ID FROM " +
+                    "DM_ENROLMENT_OP_MAPPING OP INNER JOIN DM_ENROLMENT E ON OP.ENROLMENT_ID = E.ID INNER JOIN " +
+                    "DM_DEVICE D ON E.DEVICE_ID = D.ID WHERE " +
+                    "OP.STATUS IN ('"+ Operation.Status.PENDING.name() + "','" + Operation.Status.REPEATED.name() + "') " +
+                    "AND OP.CREATED_TIMESTAMP <= ? AND E.STATUS = '" + EnrolmentInfo.Status.UNREACHABLE.name() +
+                    "' AND D.DEVICE_TYPE_ID = ? GROUP BY ENROLMENT_ID, D.DEVICE_IDENTIFICATION, E.STATUS, E.TENANT_ID";
+            stmt = conn.prepareStatement(sql);
+            stmt.setLong(1, maxDuration);
+            stmt.setInt(2, deviceTypeId);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                enrolmentOperationMappingList.add(this.getEnrolmentOpMapping(rs));
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while fetching pending operation mappings for " +
+                    "unreachable devices of type '" + deviceTypeId + "'", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return enrolmentOperationMappingList;
+    }
+
     @Override
     public Map<Integer, Long> getLastConnectedTimeForActiveEnrolments(long timeStamp, int deviceTypeId) throws OperationManagementDAOException {
         PreparedStatement stmt = null;
@@ -205,6 +280,42 @@ public class OperationMappingDAOImpl implements OperationMappingDAO {
         return lastConnectedTimeMap;
     }
 
+    @Override
+    public Map<Integer, Long> getLastConnectedTimes(List<Integer> enrolmentIds)
+            throws OperationManagementDAOException {
+        Map<Integer, Long> lastConnectedTimeMap = new HashMap<>();
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            for (List<Integer> chunk : DeviceManagementDAOUtil.getChunks(enrolmentIds,
+                    DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS)) {
+                String sql = "SELECT ENROLMENT_ID, MAX(UPDATED_TIMESTAMP) AS LAST_CONNECTED_TIME FROM " +
+                        "DM_ENROLMENT_OP_MAPPING WHERE STATUS = ? AND ENROLMENT_ID IN (" +
+                        DeviceManagementDAOUtil.getInClausePlaceholders(chunk.size()) + ") GROUP BY ENROLMENT_ID";
+                stmt = conn.prepareStatement(sql);
+                int index = 1;
+                stmt.setString(index++, Operation.Status.COMPLETED.name());
+                for (Integer enrolmentId : chunk) {
+                    stmt.setInt(index++, enrolmentId);
+                }
+                rs = stmt.executeQuery();
+                while (rs.next()) {
+                    lastConnectedTimeMap.put(rs.getInt("ENROLMENT_ID"), rs.getLong("LAST_CONNECTED_TIME"));
+                }
+                OperationManagementDAOUtil.cleanupResources(stmt, rs);
+                stmt = null;
+                rs = null;
+            }
+        } catch (SQLException e) {
+            throw new OperationManagementDAOException("Error occurred while fetching last connected time of " +
+                    enrolmentIds.size() + " enrolments", e);
+        } finally {
+            OperationManagementDAOUtil.cleanupResources(stmt, rs);
+        }
+        return lastConnectedTimeMap;
+    }
+
     private OperationEnrolmentMapping getEnrolmentOpMapping(ResultSet rs) throws SQLException {
         OperationEnrolmentMapping enrolmentOperationMapping = new OperationEnrolmentMapping();
         enrolmentOperationMapping.setEnrolmentId(rs.getInt("ENROLMENT_ID"));
@@ -0,0 +1,296 @@
+/*
+ *   Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.wso2.carbon.device.mgt.core.operation.mgt.dao.util;
+
+import com.google.gson.FieldNamingStrategy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ConfigOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.PolicyOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ProfileOperation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Default {@link OperationPayloadCodec}. The encoded content starts with a four byte header, which carries a magic
+ * byte, the format version, flags and the type of the payload:
+ * <pre>
+ *   | MAGIC | VERSION | FLAGS | TYPE | body ... |
+ * </pre>
+ * String payloads, which are what devices send as operation responses, are written as UTF-8 instead of a Java
+ * serialization stream. Command, config, profile and policy operations are written as JSON, with the class of the
+ * operation given by the type, provided that their payloads and responses are strings, as JSON does not keep the
+ * class of an untyped value. Any other payload is still written with Java serialization. Bodies larger than the
+ * compression threshold are deflated, provided that it makes them smaller.
+ * <p>
+ * Content which starts with the Java serialization stream header is read as a legacy row.
+ */
+public class CompactOperationPayloadCodec implements OperationPayloadCodec {
+
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 512;
+
+    // Differs from the first byte of a Java serialization stream (0xACED), so legacy rows can be told apart.
+    private static final byte MAGIC = (byte) 0xC0;
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 4;
+
+    private static final byte FLAG_DEFLATED = 0x01;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_SERIALIZED = 2;
+    private static final byte TYPE_COMMAND_OPERATION = 3;
+    private static final byte TYPE_CONFIG_OPERATION = 4;
+    private static final byte TYPE_PROFILE_OPERATION = 5;
+    private static final byte TYPE_POLICY_OPERATION = 6;
+
+    private static final byte LEGACY_STREAM_MAGIC_0 = (byte) 0xAC;
+    private static final byte LEGACY_STREAM_MAGIC_1 = (byte) 0xED;
+
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().setFieldNamingStrategy(
+            new FieldNamingStrategy() {
+                @Override
+                public String translateName(Field field) {
+                    // The config properties of ConfigOperation would otherwise clash with the properties of Operation.
+                    if (field.getDeclaringClass() == ConfigOperation.class) {
+                        return "config" + Character.toUpperCase(field.getName().charAt(0)) +
+                                field.getName().substring(1);
+                    }
+                    return field.getName();
+                }
+            }).create();
+
+    private final int compressionThreshold;
+
+    public CompactOperationPayloadCodec() {
+        this(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * @param compressionThreshold minimum size in bytes of a body to be compressed. A negative value disables the
+     *                             compression.
+     */
+    public CompactOperationPayloadCodec(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] encode(Object payload) throws IOException {
+        byte type;
+        byte[] body;
+        if (payload == null) {
+            type = TYPE_NULL;
+            body = new byte[0];
+        } else if (payload instanceof String) {
+            type = TYPE_STRING;
+            body = ((String) payload).getBytes(StandardCharsets.UTF_8);
+        } else {
+            type = getOperationType(payload);
+            body = type == TYPE_SERIALIZED ? serialize(payload) : gson.toJson(payload).getBytes(StandardCharsets.UTF_8);
+        }
+        byte flags = 0;
+        if (compressionThreshold >= 0 && body.length >= compressionThreshold) {
+            byte[] deflated = deflate(body);
+            if (deflated.length < body.length) {
+                body = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+        byte[] content = new byte[HEADER_LENGTH + body.length];
+        content[0] = MAGIC;
+        content[1] = VERSION;
+        content[2] = flags;
+        content[3] = type;
+        System.arraycopy(body, 0, content, HEADER_LENGTH, body.length);
+        return content;
+    }
+
+    @Override
+    public Object decode(byte[] content) throws IOException, ClassNotFoundException {
+        if (content == null) {
+            return null;
+        }
+        if (isLegacyFormat(content)) {
+            return deserialize(content);
+        }
+        if (!isCurrentFormat(content)) {
+            throw new IOException("Unknown operation payload format");
+        }
+        if (content[1] > VERSION) {
+            throw new IOException("Unsupported operation payload format version '" + content[1] + "'");
+        }
+        byte[] body = Arrays.copyOfRange(content, HEADER_LENGTH, content.length);
+        if ((content[2] & FLAG_DEFLATED) != 0) {
+            body = inflate(body);
+        }
+        switch (content[3]) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return new String(body, StandardCharsets.UTF_8);
+            case TYPE_SERIALIZED:
+                return deserialize(body);
+            case TYPE_COMMAND_OPERATION:
+                return fromJson(body, CommandOperation.class);
+            case TYPE_CONFIG_OPERATION:
+                return fromJson(body, ConfigOperation.class);
+            case TYPE_PROFILE_OPERATION:
+                return fromJson(body, ProfileOperation.class);
+            case TYPE_POLICY_OPERATION:
+                return fromJson(body, PolicyOperation.class);
+            default:
+                throw new IOException("Unknown operation payload type '" + content[3] + "'");
+        }
+    }
+
+    @Override
+    public boolean isCurrentFormat(byte[] content) {
+        return content != null && content.length >= HEADER_LENGTH && content[0] == MAGIC;
+    }
+
+    private boolean isLegacyFormat(byte[] content) {
+        return content.length >= 2 && content[0] == LEGACY_STREAM_MAGIC_0 && content[1] == LEGACY_STREAM_MAGIC_1;
+    }
+
+    /**
+     * @return the type an operation is written as JSON with, or TYPE_SERIALIZED if the payload is not an operation
+     * which can be read back from JSON as it was.
+     */
+    private static byte getOperationType(Object payload) {
+        Class<?> payloadClass = payload.getClass();
+        byte type;
+        if (payloadClass == CommandOperation.class) {
+            type = TYPE_COMMAND_OPERATION;
+        } else if (payloadClass == ConfigOperation.class) {
+            type = TYPE_CONFIG_OPERATION;
+        } else if (payloadClass == ProfileOperation.class) {
+            type = TYPE_PROFILE_OPERATION;
+        } else if (payloadClass == PolicyOperation.class) {
+            type = TYPE_POLICY_OPERATION;
+        } else {
+            return TYPE_SERIALIZED;
+        }
+        return isJsonCompatible((Operation) payload) ? type : TYPE_SERIALIZED;
+    }
+
+    private static boolean isJsonCompatible(Operation operation) {
+        if (!isJsonCompatible(operation.getPayLoad()) || !isJsonCompatible(operation.getOperationResponse()) ||
+                (operation.getProperties() != null && !operation.getProperties().isEmpty())) {
+            return false;
+        }
+        if (operation instanceof ConfigOperation) {
+            // Config properties keep the class of their values, which is not written to JSON.
+            List<ConfigOperation.Property> configProperties = ((ConfigOperation) operation).getConfigProperties();
+            if (configProperties != null && !configProperties.isEmpty()) {
+                return false;
+            }
+        }
+        if (operation instanceof PolicyOperation) {
+            List<ProfileOperation> profileOperations = ((PolicyOperation) operation).getProfileOperations();
+            if (profileOperations != null) {
+                for (ProfileOperation profileOperation : profileOperations) {
+                    if (profileOperation == null || profileOperation.getClass() != ProfileOperation.class ||
+                            !isJsonCompatible(profileOperation)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isJsonCompatible(Object value) {
+        return value == null || value instanceof String;
+    }
+
+    private static Object fromJson(byte[] body, Class<? extends Operation> operationClass) throws IOException {
+        try {
+            return gson.fromJson(new String(body, StandardCharsets.UTF_8), operationClass);
+        } catch (JsonParseException e) {
+            throw new IOException("Corrupted operation payload", e);
+        }
+    }
+
+    private static byte[] serialize(Object payload) throws IOException {
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bao)) {
+            oos.writeObject(payload);
+        }
+        return bao.toByteArray();
+    }
+
+    private static Object deserialize(byte[] content) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(content))) {
+            return ois.readObject();
+        }
+    }
+
+    private static byte[] deflate(byte[] body) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream bao = new ByteArrayOutputStream(body.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                bao.write(buffer, 0, count);
+            }
+            return bao.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] body) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(body);
+            ByteArrayOutputStream bao = new ByteArrayOutputStream(body.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated operation payload");
+                }
+                bao.write(buffer, 0, count);
+            }
+            return bao.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted operation payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
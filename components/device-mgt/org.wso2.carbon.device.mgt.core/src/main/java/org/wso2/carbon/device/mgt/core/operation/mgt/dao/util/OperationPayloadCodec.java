@@ -0,0 +1,56 @@
+/*
+ *   Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *   WSO2 Inc. licenses this file to you under the Apache License,
+ *   Version 2.0 (the "License"); you may not use this file except
+ *   in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.wso2.carbon.device.mgt.core.operation.mgt.dao.util;
+
+import java.io.IOException;
+
+/**
+ * Converts operation payloads and operation responses to the binary content persisted in the operation tables
+ * (i.e. OPERATION_DETAILS and OPERATION_RESPONSE columns) and back.
+ */
+public interface OperationPayloadCodec {
+
+    /**
+     * Encodes the given payload to be persisted.
+     *
+     * @param payload payload to be encoded, which may be a String or any serializable object.
+     * @return encoded content.
+     * @throws IOException if the payload cannot be encoded.
+     */
+    byte[] encode(Object payload) throws IOException;
+
+    /**
+     * Decodes persisted content. Implementations must be able to read the content written with plain Java
+     * serialization, which is how payloads were persisted before the codec was introduced.
+     *
+     * @param content persisted content.
+     * @return decoded payload.
+     * @throws IOException            if the content is corrupted or of an unknown format.
+     * @throws ClassNotFoundException if the class of a serialized payload is not available.
+     */
+    Object decode(byte[] content) throws IOException, ClassNotFoundException;
+
+    /**
+     * @param content persisted content.
+     * @return true if the content is already encoded in the format written by this codec, false if it has to be
+     * re-encoded to be migrated to this format.
+     */
+    boolean isCurrentFormat(byte[] content);
+
+}
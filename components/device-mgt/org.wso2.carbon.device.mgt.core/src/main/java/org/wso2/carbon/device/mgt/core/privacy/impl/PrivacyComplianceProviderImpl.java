@@ -27,6 +27,7 @@ import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.PrivacyComplianceException;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.core.cache.impl.PendingOperationCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.privacy.PrivacyComplianceProvider;
@@ -123,6 +124,7 @@ public class PrivacyComplianceProviderImpl implements PrivacyComplianceProvider
             complianceDAO.deleteDeviceEnrollments(device.getId(), tenantId);
             complianceDAO.deleteDevice(device.getId(), tenantId);
             DeviceManagementDAOFactory.commitTransaction();
+            PendingOperationCacheManagerImpl.getInstance().invalidate(deviceIdentifier, tenantId);
         } catch (TransactionManagementException e) {
             DeviceManagementDAOFactory.rollbackTransaction();
             String msg = "Database error occurred while deleting the device details.";
@@ -0,0 +1,218 @@
+/*
+*  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.wso2.carbon.device.mgt.core.push.notification.mgt.task;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
+import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link PushNotificationDispatcher} sends push notifications through a single bounded worker pool owned by the
+ * device management component and shared by all tenants and device types. When the queue of the pool is full, the
+ * submitting thread sends the notification itself, which throttles the scheduler task instead of growing the queue
+ * without a limit. The pool has to be released with {@link #shutdown()} once the component is deactivated, after which
+ * notifications are not sent and are left scheduled.
+ * <p>
+ * A pool per tenant and device type would keep a slow notification strategy from holding back the others, but the
+ * number of threads would then grow with the number of tenants, while the scheduler task waits for the whole batch
+ * anyway. Hence SchedulerWorkerPoolSize bounds all the workers instead.
+ */
+public class PushNotificationDispatcher {
+
+    private static final Log log = LogFactory.getLog(PushNotificationDispatcher.class);
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+    private final ThreadPoolExecutor workerPool;
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile double lastBatchThroughput;
+
+    public PushNotificationDispatcher(int poolSize, int queueSize) {
+        if (poolSize <= 0) {
+            poolSize = DeviceManagementConstants.PushNotifications.DEFAULT_WORKER_POOL_SIZE;
+        }
+        if (queueSize <= 0) {
+            queueSize = DeviceManagementConstants.PushNotifications.DEFAULT_WORKER_QUEUE_SIZE;
+        }
+        this.workerPool = new ThreadPoolExecutor(poolSize, poolSize, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "push-notification-dispatcher-" +
+                        threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable notification, ThreadPoolExecutor executor) {
+                // CallerRunsPolicy would discard the notification once the pool is shut down, leaving its future
+                // incomplete.
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Push notification dispatcher is shut down.");
+                }
+                notification.run();
+            }
+        });
+        // Workers should not be kept alive while no notifications are scheduled.
+        this.workerPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a push notification to be sent with the given strategy within the flow of the given tenant.
+     *
+     * @param tenantId     tenant the device belongs to.
+     * @param deviceType   type of the device, which identifies the notification strategy.
+     * @param strategy     notification strategy of the device type.
+     * @param context      notification to be sent.
+     * @return a future that resolves to true once the notification is sent and to false if sending failed or the
+     * dispatcher is shut down.
+     */
+    public Future<Boolean> dispatch(final int tenantId, String deviceType, final NotificationStrategy strategy,
+                                    final NotificationContext context) {
+        Callable<Boolean> notification = new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                try {
+                    PrivilegedCarbonContext.startTenantFlow();
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId, true);
+                    strategy.execute(context);
+                    sentCount.incrementAndGet();
+                    return true;
+                } catch (PushNotificationExecutionFailedException e) {
+                    failedCount.incrementAndGet();
+                    log.error("Error occurred while sending push notification to " + context.getDeviceId().getType() +
+                            " device '" + context.getDeviceId().getId() + "'", e);
+                    return false;
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+            }
+        };
+        try {
+            return workerPool.submit(notification);
+        } catch (RejectedExecutionException e) {
+            log.warn("Push notification to " + deviceType + " device '" + context.getDeviceId().getId() +
+                    "' is left scheduled, as the dispatcher is shut down.");
+            FutureTask<Boolean> notSent = new FutureTask<>(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return false;
+                }
+            });
+            notSent.run();
+            return notSent;
+        }
+    }
+
+    /**
+     * Records the outcome of a scheduler batch, used to compute the throughput of the dispatcher.
+     *
+     * @param notificationCount number of notifications sent within the batch.
+     * @param durationMillis    time taken to send the batch.
+     */
+    public void recordBatch(int notificationCount, long durationMillis) {
+        lastBatchThroughput = durationMillis > 0 ? notificationCount * 1000.0 / durationMillis : notificationCount;
+        if (log.isDebugEnabled()) {
+            log.debug("Push notification batch of " + notificationCount + " notifications completed in " +
+                    durationMillis + " ms. Queue depth: " + getQueueDepth() + ", sent: " + sentCount.get() +
+                    ", failed: " + failedCount.get());
+        }
+    }
+
+    /**
+     * @return number of notifications waiting in the queue of the worker pool.
+     */
+    public int getQueueDepth() {
+        return workerPool.getQueue().size();
+    }
+
+    /**
+     * @return number of workers that are currently sending notifications.
+     */
+    public int getActiveWorkerCount() {
+        return workerPool.getActiveCount();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return notifications sent per second during the last scheduler batch.
+     */
+    public double getLastBatchThroughput() {
+        return lastBatchThroughput;
+    }
+
+    /**
+     * Stops accepting notifications and waits for the queued ones to be sent within the given timeout.
+     *
+     * @param timeoutMillis maximum time to wait for queued notifications.
+     */
+    public void shutdown(long timeoutMillis) {
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Push notification dispatcher did not drain within " + timeoutMillis + " ms, " +
+                        workerPool.getQueue().size() + " queued notifications are dropped.");
+                this.dropQueuedNotifications();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.dropQueuedNotifications();
+        }
+    }
+
+    /**
+     * Cancels the notifications which were not sent, so that the threads waiting for them are not blocked.
+     */
+    private void dropQueuedNotifications() {
+        for (Runnable notification : workerPool.shutdownNow()) {
+            if (notification instanceof Future) {
+                ((Future<?>) notification).cancel(false);
+            }
+        }
+    }
+
+    public void shutdown() {
+        shutdown(DeviceManagementConstants.PushNotifications.DISPATCHER_SHUTDOWN_TIMEOUT_MILLIS);
+    }
+}
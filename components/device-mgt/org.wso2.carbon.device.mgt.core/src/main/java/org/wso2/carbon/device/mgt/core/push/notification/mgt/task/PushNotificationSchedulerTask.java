@@ -25,8 +25,9 @@ import org.wso2.carbon.device.mgt.common.TransactionManagementException;
 import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManagementException;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
 import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
-import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMapping;
@@ -36,13 +37,19 @@ import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOF
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationMappingDAO;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
- * ${{@link PushNotificationSchedulerTask}} is for sending push notifications for given device batch.
+ * {@link PushNotificationSchedulerTask} is for sending push notifications for given device batch.
+ * Notifications are handed over to the {@link PushNotificationDispatcher} of the device management component, which
+ * sends them in parallel. Each operation and notification strategy is looked up once per batch, no matter how many
+ * devices it is scheduled for.
  */
 public class PushNotificationSchedulerTask implements Runnable {
 
@@ -51,12 +58,16 @@ public class PushNotificationSchedulerTask implements Runnable {
     private final OperationMappingDAO operationMappingDAO = OperationManagementDAOFactory.getOperationMappingDAO();
     private final DeviceManagementProviderService provider = DeviceManagementDataHolder.getInstance()
             .getDeviceManagementProvider();
+    private final PushNotificationDispatcher dispatcher;
+
+    public PushNotificationSchedulerTask(PushNotificationDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
 
     @Override
     public void run() {
         try {
             Map<Integer, List<OperationMapping>> operationMappingsTenantMap = new HashMap<>();
-            List<OperationMapping> operationsCompletedList = new LinkedList<>();
             if (log.isDebugEnabled()) {
                 log.debug("Push notification job started");
             }
@@ -71,44 +82,40 @@ public class PushNotificationSchedulerTask implements Runnable {
             } finally {
                 OperationManagementDAOFactory.closeConnection();
             }
-            // Sending push notification to each device
-            for (List<OperationMapping> operationMappings : operationMappingsTenantMap.values()) {
-                for (OperationMapping operationMapping : operationMappings) {
-                    try {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Sending push notification for operationId :" + operationMapping.getOperationId() +
-                                    " to deviceId : " + operationMapping.getDeviceIdentifier().getId());
-                        }
-                        // Set tenant id and domain
-                        PrivilegedCarbonContext.startTenantFlow();
-                        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(operationMapping.getTenantId(), true);
-                        // Get notification strategy for given device type
-                        NotificationStrategy notificationStrategy = provider.getNotificationStrategyByDeviceType
-                                (operationMapping.getDeviceIdentifier().getType());
-                        // Send the push notification on given strategy
-                        notificationStrategy.execute(new NotificationContext(operationMapping.getDeviceIdentifier(),
-                                provider.getOperation(operationMapping.getDeviceIdentifier().getType(), operationMapping
-                                        .getOperationId())));
+            long startTime = System.currentTimeMillis();
+            List<OperationMapping> dispatchedList = new ArrayList<>();
+            List<Future<Boolean>> dispatchResults = new ArrayList<>();
+            for (Map.Entry<Integer, List<OperationMapping>> tenantMappings : operationMappingsTenantMap.entrySet()) {
+                this.dispatchNotifications(tenantMappings.getKey(), tenantMappings.getValue(), dispatchedList,
+                        dispatchResults);
+            }
+            List<OperationMapping> operationsCompletedList = new ArrayList<>();
+            for (int i = 0; i < dispatchResults.size(); i++) {
+                OperationMapping operationMapping = dispatchedList.get(i);
+                try {
+                    if (dispatchResults.get(i).get()) {
                         operationMapping.setPushNotificationStatus(Operation.PushNotificationStatus.COMPLETED);
                         operationsCompletedList.add(operationMapping);
-                    } catch (DeviceManagementException e) {
-                        log.error("Error occurred while getting notification strategy for operation mapping " +
-                                operationMapping.getDeviceIdentifier().getType(), e);
-                    } catch (OperationManagementException e) {
-                        log.error("Unable to get the operation for operation " + operationMapping.getOperationId(), e);
-                    } catch (PushNotificationExecutionFailedException e) {
-                        log.error("Error occurred while sending push notification to operation:  " + operationMapping
-                                .getOperationId(), e);
-                    } finally {
-                        PrivilegedCarbonContext.endTenantFlow();
                     }
+                } catch (ExecutionException e) {
+                    log.error("Error occurred while sending push notification to operation:  " + operationMapping
+                            .getOperationId(), e.getCause());
+                } catch (CancellationException e) {
+                    log.warn("Push notification to operation: " + operationMapping.getOperationId() + " is left " +
+                            "scheduled, as the dispatcher is shut down.");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Push notification job interrupted while waiting for notifications to be sent.");
+                    break;
                 }
             }
+            dispatcher.recordBatch(operationsCompletedList.size(), System.currentTimeMillis() - startTime);
             // Update push notification status to competed for operations which already sent
-            if (operationsCompletedList.size() > 0) {
+            for (List<OperationMapping> completedBatch : DeviceManagementDAOUtil.getChunks(operationsCompletedList,
+                    DeviceManagementConstants.PushNotifications.STATUS_UPDATE_BATCH_SIZE)) {
                 try {
                     OperationManagementDAOFactory.beginTransaction();
-                    operationMappingDAO.updateOperationMapping(operationsCompletedList);
+                    operationMappingDAO.updateOperationMapping(completedBatch);
                     OperationManagementDAOFactory.commitTransaction();
                 } catch (TransactionManagementException | OperationManagementDAOException e) {
                     OperationManagementDAOFactory.rollbackTransaction();
@@ -124,4 +131,61 @@ public class PushNotificationSchedulerTask implements Runnable {
             log.error("PushNotificationSchedulerTask failed due to " + cause);
         }
     }
+
+    /**
+     * Resolves the notification strategies and operations of the given tenant's mappings, and hands the
+     * notifications over to the dispatcher.
+     */
+    private void dispatchNotifications(int tenantId, List<OperationMapping> operationMappings,
+                                       List<OperationMapping> dispatchedList, List<Future<Boolean>> dispatchResults) {
+        Map<String, NotificationStrategy> strategies = new HashMap<>();
+        Map<String, org.wso2.carbon.device.mgt.common.operation.mgt.Operation> operations = new HashMap<>();
+        try {
+            // Set tenant id and domain
+            PrivilegedCarbonContext.startTenantFlow();
+            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId, true);
+            for (OperationMapping operationMapping : operationMappings) {
+                String deviceType = operationMapping.getDeviceIdentifier().getType();
+                if (log.isDebugEnabled()) {
+                    log.debug("Sending push notification for operationId :" + operationMapping.getOperationId() +
+                            " to deviceId : " + operationMapping.getDeviceIdentifier().getId());
+                }
+                // Get notification strategy for given device type
+                if (!strategies.containsKey(deviceType)) {
+                    try {
+                        strategies.put(deviceType, provider.getNotificationStrategyByDeviceType(deviceType));
+                    } catch (DeviceManagementException e) {
+                        log.error("Error occurred while getting notification strategy for operation mapping " +
+                                deviceType, e);
+                        strategies.put(deviceType, null);
+                    }
+                }
+                NotificationStrategy notificationStrategy = strategies.get(deviceType);
+                if (notificationStrategy == null) {
+                    continue;
+                }
+                String operationKey = deviceType + ":" + operationMapping.getOperationId();
+                if (!operations.containsKey(operationKey)) {
+                    try {
+                        operations.put(operationKey, provider.getOperation(deviceType,
+                                operationMapping.getOperationId()));
+                    } catch (OperationManagementException e) {
+                        log.error("Unable to get the operation for operation " + operationMapping.getOperationId(),
+                                e);
+                        operations.put(operationKey, null);
+                    }
+                }
+                org.wso2.carbon.device.mgt.common.operation.mgt.Operation operation = operations.get(operationKey);
+                if (operation == null) {
+                    continue;
+                }
+                // Send the push notification on given strategy
+                dispatchResults.add(dispatcher.dispatch(tenantId, deviceType, notificationStrategy,
+                        new NotificationContext(operationMapping.getDeviceIdentifier(), operation)));
+                dispatchedList.add(operationMapping);
+            }
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
 }
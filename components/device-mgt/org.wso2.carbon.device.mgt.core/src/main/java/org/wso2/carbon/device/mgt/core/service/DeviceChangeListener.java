@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.service;
+
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+
+import java.util.List;
+
+/**
+ * Listener which is notified after the enrolment, ownership, owner or groups of devices, or a group itself, are
+ * changed through the device and group management services, and after the roles of device owners are changed in the
+ * user store, e.g. to drop the data cached against the devices.
+ * Listeners are registered as OSGi services and are called in the tenant flow of the change.
+ */
+public interface DeviceChangeListener {
+
+    /**
+     * This method is called after devices are enrolled, re-enrolled, modified or removed, after their ownership or
+     * status is changed, and after they are added to or removed from a group.
+     * @param deviceIdentifiers - Identifiers of the changed devices.
+     */
+    void onDevicesChanged(List<DeviceIdentifier> deviceIdentifiers);
+
+    /**
+     * This method is called after a group is updated, shared with other roles or deleted.
+     * @param groupId - Id of the changed group.
+     */
+    void onGroupChanged(int groupId);
+
+    /**
+     * This method is called after users are added or deleted, or their roles are changed, in the user store.
+     * @param userNames - Names of the changed users, with or without their user store domain.
+     */
+    default void onUsersChanged(List<String> userNames) {
+    }
+
+    /**
+     * This method is called after a role is deleted or renamed in the user store.
+     * @param roleName - Name of the changed role, before it is renamed.
+     */
+    default void onRoleChanged(String roleName) {
+    }
+
+}
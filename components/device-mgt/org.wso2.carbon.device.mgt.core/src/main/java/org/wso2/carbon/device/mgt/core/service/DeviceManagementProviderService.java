@@ -175,6 +175,17 @@ public interface DeviceManagementProviderService {
      */
     Device getDeviceWithTypeProperties(DeviceIdentifier deviceId) throws DeviceManagementException;
 
+    /**
+     * Returns the data held by the device type plugins of the specified devices, fetching the devices of each
+     * device type in one go.
+     *
+     * @param deviceIds device Ids
+     * @return Devices carrying the identifier, type, features and properties of each device found by its device type
+     * plugin, in no particular order. Devices which are not found are omitted.
+     * @throws DeviceManagementException
+     */
+    List<Device> getDevicesWithTypeProperties(List<DeviceIdentifier> deviceIds) throws DeviceManagementException;
+
     /**
      * Returns the device of specified id.
      *
@@ -446,6 +457,20 @@ public interface DeviceManagementProviderService {
      */
     List<Device> getDevicesByStatus(EnrolmentInfo.Status status, boolean requireDeviceInfo) throws DeviceManagementException;
 
+    /**
+     * This method is used to retrieve a chunk of the devices of a given type, whose enrollments are in any of the
+     * given statuses, in the order of the enrollment ids. The device-info is not included.
+     *
+     * @param deviceType      Device type
+     * @param statuses        Enrollment statuses to be included
+     * @param fromEnrolmentId Only the enrollments with a greater id are returned
+     * @param limit           Maximum number of devices to be returned
+     * @return List of devices
+     * @throws DeviceManagementException
+     */
+    List<Device> getDevicesByStatus(String deviceType, List<EnrolmentInfo.Status> statuses, int fromEnrolmentId,
+                                    int limit) throws DeviceManagementException;
+
     /**
      * Method to get the device count of user.
      *
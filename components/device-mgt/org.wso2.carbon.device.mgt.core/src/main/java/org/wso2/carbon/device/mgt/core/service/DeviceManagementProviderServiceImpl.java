@@ -60,7 +60,10 @@ import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
 import org.wso2.carbon.device.mgt.common.spi.DeviceManagementService;
 import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.DeviceManagementPluginRepository;
+import org.wso2.carbon.device.mgt.core.cache.GeoClusterCacheManager;
 import org.wso2.carbon.device.mgt.core.cache.impl.DeviceCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.cache.impl.GeoClusterCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.cache.impl.PendingOperationCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.dao.ApplicationDAO;
 import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
@@ -75,6 +78,7 @@ import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.dto.DeviceTypeServiceIdentifier;
 import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
 import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementServiceComponent;
 import org.wso2.carbon.device.mgt.core.internal.PluginInitializationListener;
@@ -91,6 +95,7 @@ import org.wso2.carbon.user.api.UserStoreException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -262,6 +267,8 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
                     int deviceId = deviceDAO.addDevice(type.getId(), device, tenantId);
                     enrolmentId = enrollmentDAO.addEnrollment(deviceId, device.getEnrolmentInfo(), tenantId);
                     DeviceManagementDAOFactory.commitTransaction();
+                    // The device may have been enrolled and deleted before, entries of it must not be reused.
+                    this.removeDeviceFromCache(deviceIdentifier);
                 } else {
                     DeviceManagementDAOFactory.rollbackTransaction();
                     throw new DeviceManagementException("No device type registered with name - " + device.getType()
@@ -985,6 +992,49 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
         return device;
     }
 
+    @Override
+    public List<Device> getDevicesWithTypeProperties(List<DeviceIdentifier> deviceIds)
+            throws DeviceManagementException {
+        if (deviceIds == null) {
+            String msg = "Received null deviceIdentifiers for getDevicesWithTypeProperties";
+            log.error(msg);
+            throw new DeviceManagementException(msg);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Get devices with type properties, number of devices: " + deviceIds.size());
+        }
+        Map<String, List<DeviceIdentifier>> identifiersOfType = new HashMap<>();
+        for (DeviceIdentifier deviceId : deviceIds) {
+            List<DeviceIdentifier> identifiers = identifiersOfType.get(deviceId.getType());
+            if (identifiers == null) {
+                identifiers = new ArrayList<>();
+                identifiersOfType.put(deviceId.getType(), identifiers);
+            }
+            identifiers.add(deviceId);
+        }
+        List<Device> devices = new ArrayList<>();
+        for (Map.Entry<String, List<DeviceIdentifier>> entry : identifiersOfType.entrySet()) {
+            DeviceManager deviceManager = this.getDeviceManager(entry.getKey());
+            if (deviceManager == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Device Manager associated with the device type '" + entry.getKey() + "' is null. " +
+                            "Therefore, not attempting method 'getDevices'");
+                }
+                continue;
+            }
+            List<Device> pluginDevices = deviceManager.getDevices(entry.getValue());
+            if (pluginDevices != null) {
+                for (Device dmsDevice : pluginDevices) {
+                    if (dmsDevice != null) {
+                        dmsDevice.setType(entry.getKey());
+                        devices.add(dmsDevice);
+                    }
+                }
+            }
+        }
+        return devices;
+    }
+
     @Override
     public Device getDevice(DeviceIdentifier deviceId, Date since) throws DeviceManagementException {
         return this.getDevice(deviceId, since, true);
@@ -1245,7 +1295,11 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
             }
             return false;
         }
-        return deviceManager.setOwnership(deviceId, ownershipType);
+        boolean status = deviceManager.setOwnership(deviceId, ownershipType);
+        if (status) {
+            this.removeDeviceFromCache(deviceId);
+        }
+        return status;
     }
 
     @Override
@@ -1314,6 +1368,8 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
             DeviceManagementDAOFactory.beginTransaction();
             success = enrollmentDAO.setStatus(currentOwner, status, tenantId);
             DeviceManagementDAOFactory.commitTransaction();
+            // The devices of the owner are not known here, hence all the idle devices of the tenant are dropped.
+            PendingOperationCacheManagerImpl.getInstance().invalidate(tenantId);
             return success;
         } catch (DeviceManagementDAOException e) {
             DeviceManagementDAOFactory.rollbackTransaction();
@@ -2073,6 +2129,28 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
         return allDevices;
     }
 
+    @Override
+    public List<Device> getDevicesByStatus(String deviceType, List<EnrolmentInfo.Status> statuses,
+                                           int fromEnrolmentId, int limit) throws DeviceManagementException {
+        if (log.isDebugEnabled()) {
+            log.debug("Get devices of type '" + deviceType + "' by statuses " + statuses + " after enrolment " +
+                    fromEnrolmentId);
+        }
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            return deviceDAO.getDevices(deviceType, statuses, fromEnrolmentId, limit, this.getTenantId());
+        } catch (DeviceManagementDAOException e) {
+            throw new DeviceManagementException("Error occurred while fetching the list of devices of type '" +
+                    deviceType + "' that matches to statuses: " + statuses, e);
+        } catch (SQLException e) {
+            String msg = "Error occurred while opening a connection to the data source";
+            log.error(msg, e);
+            throw new DeviceManagementException(msg, e);
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
     @Override
     public PaginationResult getDevicesByStatus(PaginationRequest request) throws DeviceManagementException {
         return this.getDevicesByStatus(request, true);
@@ -2180,6 +2258,9 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
             default:
                 throw new DeviceManagementException("Invalid status retrieved. Status : " + newStatus);
         }
+        if (isDeviceUpdated && newStatus != EnrolmentInfo.Status.REMOVED) {
+            this.removeDeviceFromCache(deviceIdentifier);
+        }
         return isDeviceUpdated;
     }
 
@@ -2559,27 +2640,90 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
 
     /**
      * Returns all the available information (device-info, location, applications and plugin-db data)
-     * of the given device list.
+     * of the given device list. The details are fetched in bulk for the whole list, so that the number of
+     * queries does not grow with the number of devices.
      */
     private List<Device> getAllDeviceInfo(List<Device> allDevices) throws DeviceManagementException {
         if (log.isDebugEnabled()) {
             log.debug("Get all device info of devices, num of devices: " + allDevices.size());
         }
         List<Device> devices = new ArrayList<>();
+        if (allDevices.isEmpty()) {
+            return devices;
+        }
+        List<Integer> enrolmentIds = new ArrayList<>();
         for (Device device : allDevices) {
-            device.setDeviceInfo(this.getDeviceInfo(device));
-            device.setApplications(this.getInstalledApplications(device));
-            DeviceManager deviceManager = this.getDeviceManager(device.getType());
+            enrolmentIds.add(device.getEnrolmentInfo().getId());
+        }
+        Map<Integer, DeviceInfo> deviceInfoMap;
+        Map<Integer, DeviceLocation> locationMap;
+        Map<Integer, List<Application>> applicationMap;
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            deviceInfoMap = deviceInfoDAO.getDeviceInformation(enrolmentIds);
+            locationMap = deviceInfoDAO.getDeviceLocations(enrolmentIds);
+            applicationMap = applicationDAO.getInstalledApplications(enrolmentIds);
+        } catch (DeviceDetailsMgtDAOException e) {
+            String msg = "Error occurred while retrieving advance info of " + allDevices.size() + " devices";
+            log.error(msg, e);
+            throw new DeviceManagementException(msg, e);
+        } catch (DeviceManagementDAOException e) {
+            String msg = "Error occurred while retrieving the application list of " + allDevices.size() + " devices";
+            log.error(msg, e);
+            throw new DeviceManagementException(msg, e);
+        } catch (SQLException e) {
+            String msg = "Error occurred while opening a connection to the data source";
+            log.error(msg, e);
+            throw new DeviceManagementException(msg, e);
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+
+        Map<String, List<DeviceIdentifier>> identifiersOfType = new HashMap<>();
+        for (Device device : allDevices) {
+            int enrolmentId = device.getEnrolmentInfo().getId();
+            DeviceInfo info = deviceInfoMap.get(enrolmentId);
+            DeviceLocation location = locationMap.get(enrolmentId);
+            if (location != null) {
+                //There are some cases where the device-info is not updated properly. Hence returning a null value.
+                if (info == null) {
+                    info = new DeviceInfo();
+                }
+                info.setLocation(location);
+            }
+            device.setDeviceInfo(info);
+            List<Application> applications = applicationMap.get(enrolmentId);
+            device.setApplications(applications != null ? applications : new ArrayList<Application>());
+
+            List<DeviceIdentifier> identifiers = identifiersOfType.get(device.getType());
+            if (identifiers == null) {
+                identifiers = new ArrayList<>();
+                identifiersOfType.put(device.getType(), identifiers);
+            }
+            identifiers.add(new DeviceIdentifier(device.getDeviceIdentifier(), device.getType()));
+        }
+
+        Map<String, Device> dmsDevices = new HashMap<>();
+        for (Map.Entry<String, List<DeviceIdentifier>> entry : identifiersOfType.entrySet()) {
+            DeviceManager deviceManager = this.getDeviceManager(entry.getKey());
             if (deviceManager == null) {
                 if (log.isDebugEnabled()) {
-                    log.debug("Device Manager associated with the device type '" + device.getType() + "' is null. " +
-                            "Therefore, not attempting method 'isEnrolled'");
+                    log.debug("Device Manager associated with the device type '" + entry.getKey() + "' is null. " +
+                            "Therefore, not attempting method 'getDevices'");
                 }
-                devices.add(device);
                 continue;
             }
-            Device dmsDevice =
-                    deviceManager.getDevice(new DeviceIdentifier(device.getDeviceIdentifier(), device.getType()));
+            List<Device> pluginDevices = deviceManager.getDevices(entry.getValue());
+            if (pluginDevices != null) {
+                for (Device dmsDevice : pluginDevices) {
+                    if (dmsDevice != null) {
+                        dmsDevices.put(entry.getKey() + ":" + dmsDevice.getDeviceIdentifier(), dmsDevice);
+                    }
+                }
+            }
+        }
+        for (Device device : allDevices) {
+            Device dmsDevice = dmsDevices.get(device.getType() + ":" + device.getDeviceIdentifier());
             if (dmsDevice != null) {
                 device.setFeatures(dmsDevice.getFeatures());
                 device.setProperties(dmsDevice.getProperties());
@@ -2630,8 +2774,14 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
         DeviceCacheManagerImpl.getInstance().addDeviceToCache(deviceIdentifier, device, this.getTenantId());
     }
 
+    /**
+     * Drops the data cached against a device after its enrolment is changed. The device change listeners are notified
+     * as well, so that the data other components cache against the device, e.g. effective policies, is dropped too.
+     */
     private void removeDeviceFromCache(DeviceIdentifier deviceIdentifier) {
         DeviceCacheManagerImpl.getInstance().removeDeviceFromCache(deviceIdentifier, this.getTenantId());
+        PendingOperationCacheManagerImpl.getInstance().invalidate(deviceIdentifier, this.getTenantId());
+        DeviceManagerUtil.notifyDevicesChanged(Collections.singletonList(deviceIdentifier));
     }
 
     @Override
@@ -2644,9 +2794,20 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
                 log.debug("get information about geo clusters for device type: " + deviceType);
             }
         }
+        int tenantId = this.getTenantId();
+        // Cells of longer geohashes are a few centimeters wide, hence they would not form any larger cluster.
+        if (geohashLength > GeoHashGenerator.MAX_LONG_GEOHASH_LENGTH) {
+            geohashLength = GeoHashGenerator.MAX_LONG_GEOHASH_LENGTH;
+        }
+        List<String> geohashPrefixes = GeoHashGenerator.getCoveringGeohashes(southWest, northEast, geohashLength,
+                DeviceManagementConstants.MAX_GEO_CLUSTER_TILES);
         try {
             DeviceManagementDAOFactory.openConnection();
-            return deviceDAO.findGeoClusters(deviceType, southWest, northEast, geohashLength, this.getTenantId());
+            if (geohashPrefixes == null) {
+                // Too many tiles to be served from the cache, hence clusters are computed over the map boundaries.
+                return deviceDAO.findGeoClusters(deviceType, southWest, northEast, geohashLength, tenantId);
+            }
+            return this.findGeoClusters(deviceType, geohashPrefixes, geohashLength, tenantId);
         } catch (DeviceManagementDAOException e) {
             String msg = "Error occurred while retrieving the geo clusters.";
             log.error(msg, e);
@@ -2664,6 +2825,48 @@ public class DeviceManagementProviderServiceImpl implements DeviceManagementProv
         }
     }
 
+    /**
+     * Returns the geo clusters of the given geohash tiles. Tiles are served from the geo cluster cache, and the tiles
+     * which are not cached are fetched with a single query and cached, including the ones without any device.
+     */
+    private List<GeoCluster> findGeoClusters(String deviceType, List<String> geohashPrefixes, int geohashLength,
+                                             int tenantId) throws DeviceManagementDAOException {
+        GeoClusterCacheManager geoClusterCacheManager = GeoClusterCacheManagerImpl.getInstance();
+        List<GeoCluster> geoClusters = new ArrayList<>();
+        List<String> missingPrefixes = new ArrayList<>();
+        for (String geohashPrefix : geohashPrefixes) {
+            List<GeoCluster> tileClusters = geoClusterCacheManager.getClusters(tenantId, deviceType, geohashPrefix);
+            if (tileClusters == null) {
+                missingPrefixes.add(geohashPrefix);
+            } else {
+                geoClusters.addAll(tileClusters);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Geo cluster tiles found in cache: " + (geohashPrefixes.size() - missingPrefixes.size()) +
+                    " of " + geohashPrefixes.size());
+        }
+        if (missingPrefixes.isEmpty()) {
+            return geoClusters;
+        }
+        Map<String, GeoCluster> fetchedClusters = new HashMap<>();
+        for (GeoCluster geoCluster : deviceDAO.findGeoClusters(deviceType, missingPrefixes, geohashLength, tenantId)) {
+            fetchedClusters.put(geoCluster.getGeohashPrefix(), geoCluster);
+        }
+        for (String geohashPrefix : missingPrefixes) {
+            GeoCluster geoCluster = fetchedClusters.get(geohashPrefix);
+            if (geoCluster == null) {
+                geoClusterCacheManager.addClusters(tenantId, deviceType, geohashPrefix,
+                        Collections.<GeoCluster>emptyList());
+            } else {
+                geoClusterCacheManager.addClusters(tenantId, deviceType, geohashPrefix,
+                        Collections.singletonList(geoCluster));
+                geoClusters.add(geoCluster);
+            }
+        }
+        return geoClusters;
+    }
+
     private void extractDeviceLocationToUpdate(Device device) {
         List<Device.Property> properties = device.getProperties();
         if (properties != null) {
@@ -36,6 +36,7 @@ import org.wso2.carbon.device.mgt.common.group.mgt.GroupAlreadyExistException;
 import org.wso2.carbon.device.mgt.common.group.mgt.GroupManagementException;
 import org.wso2.carbon.device.mgt.common.group.mgt.GroupNotExistException;
 import org.wso2.carbon.device.mgt.common.group.mgt.RoleDoesNotExistException;
+import org.wso2.carbon.device.mgt.core.cache.impl.UserRoleCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.dao.GroupDAO;
 import org.wso2.carbon.device.mgt.core.dao.GroupManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.GroupManagementDAOFactory;
@@ -133,6 +134,7 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
             if (existingGroup != null) {
                 this.groupDAO.updateGroup(deviceGroup, groupId, tenantId);
                 GroupManagementDAOFactory.commitTransaction();
+                DeviceManagerUtil.notifyGroupChanged(groupId);
             } else {
                 throw new GroupNotExistException("Group with ID - '" + groupId + "' doesn't exists!");
             }
@@ -172,6 +174,7 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
             GroupManagementDAOFactory.beginTransaction();
             this.groupDAO.deleteGroup(groupId, CarbonContext.getThreadLocalCarbonContext().getTenantId());
             GroupManagementDAOFactory.commitTransaction();
+            DeviceManagerUtil.notifyGroupChanged(groupId);
             if (log.isDebugEnabled()) {
                 log.debug("DeviceGroup " + deviceGroup.getName() + " removed.");
             }
@@ -335,12 +338,9 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
             log.debug("Get groups of owner '" + username + "'");
         }
         Map<Integer, DeviceGroup> groups = new HashMap<>();
-        UserStoreManager userStoreManager;
         try {
             int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
-            userStoreManager = DeviceManagementDataHolder.getInstance().getRealmService().getTenantUserRealm(tenantId)
-                    .getUserStoreManager();
-            String[] roleList = userStoreManager.getRoleListOfUser(username);
+            String[] roleList = UserRoleCacheManagerImpl.getInstance().getRoleListOfUser(username, tenantId);
             GroupManagementDAOFactory.openConnection();
             List<DeviceGroup> deviceGroups = this.groupDAO.getOwnGroups(username, tenantId);
             for (DeviceGroup deviceGroup : deviceGroups) {
@@ -368,13 +368,10 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
         if (log.isDebugEnabled()) {
             log.debug("Get groups Ids of owner '" + username + "'");
         }
-        UserStoreManager userStoreManager;
         List<Integer> deviceGroupIds;
         try {
             int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
-            userStoreManager = DeviceManagementDataHolder.getInstance().getRealmService().getTenantUserRealm(tenantId)
-                    .getUserStoreManager();
-            String[] roleList = userStoreManager.getRoleListOfUser(username);
+            String[] roleList = UserRoleCacheManagerImpl.getInstance().getRoleListOfUser(username, tenantId);
             GroupManagementDAOFactory.openConnection();
             deviceGroupIds = this.groupDAO.getOwnGroupIds(username, tenantId);
             deviceGroupIds.addAll(this.groupDAO.getGroupIds(roleList, tenantId));
@@ -483,13 +480,10 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
         if (log.isDebugEnabled()) {
             log.debug("Get groups count of '" + username + "'");
         }
-        UserStoreManager userStoreManager;
         int count;
         try {
             int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
-            userStoreManager = DeviceManagementDataHolder.getInstance().getRealmService().getTenantUserRealm(tenantId)
-                    .getUserStoreManager();
-            String[] roleList = userStoreManager.getRoleListOfUser(username);
+            String[] roleList = UserRoleCacheManagerImpl.getInstance().getRoleListOfUser(username, tenantId);
             GroupManagementDAOFactory.openConnection();
             count = groupDAO.getOwnGroupsCount(username, tenantId);
             count += groupDAO.getGroupsCount(roleList, tenantId);
@@ -549,6 +543,7 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
                 groupDAO.removeRole(groupId, role, tenantId);
             }
             GroupManagementDAOFactory.commitTransaction();
+            DeviceManagerUtil.notifyGroupChanged(groupId);
         } catch (GroupManagementDAOException e) {
             GroupManagementDAOFactory.rollbackTransaction();
             log.error(e);
@@ -667,6 +662,7 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
                 }
             }
             GroupManagementDAOFactory.commitTransaction();
+            DeviceManagerUtil.notifyDevicesChanged(deviceIdentifiers);
         } catch (DeviceManagementException e) {
             String msg = "Error occurred while retrieving device.";
             log.error(msg, e);
@@ -711,6 +707,7 @@ public class GroupManagementProviderServiceImpl implements GroupManagementProvid
                 this.groupDAO.removeDevice(groupId, device.getId(), tenantId);
             }
             GroupManagementDAOFactory.commitTransaction();
+            DeviceManagerUtil.notifyDevicesChanged(deviceIdentifiers);
         } catch (DeviceManagementException e) {
             String msg = "Error occurred while retrieving device.";
             log.error(msg, e);
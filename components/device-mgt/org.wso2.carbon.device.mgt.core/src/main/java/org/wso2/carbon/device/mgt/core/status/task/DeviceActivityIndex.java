@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.status.task;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This keeps the last time each enrolment contacted the server, as seen by this node. It is updated whenever a device
+ * polls for or updates its operations, and lets DeviceStatusMonitoringTask tell that a device is still reachable
+ * without querying its operation history. A missing entry only means that the device was not seen by this node, hence
+ * the database has to be consulted in that case. Enrolments are kept per device type, as each device type is
+ * monitored with its own time windows.
+ */
+public class DeviceActivityIndex {
+
+    private static final DeviceActivityIndex deviceActivityIndex = new DeviceActivityIndex();
+
+    private final ConcurrentMap<String, ConcurrentMap<Integer, Long>> lastSeenTimes = new ConcurrentHashMap<>();
+
+    private DeviceActivityIndex() {
+    }
+
+    public static DeviceActivityIndex getInstance() {
+        return deviceActivityIndex;
+    }
+
+    /**
+     * Records that the given enrolment contacted the server now.
+     *
+     * @param deviceType  - Device type of the enrolment
+     * @param enrolmentId - Id of the enrolment
+     */
+    public void recordActivity(String deviceType, int enrolmentId) {
+        ConcurrentMap<Integer, Long> enrolments = lastSeenTimes.get(deviceType);
+        if (enrolments == null) {
+            ConcurrentMap<Integer, Long> newEnrolments = new ConcurrentHashMap<>();
+            enrolments = lastSeenTimes.putIfAbsent(deviceType, newEnrolments);
+            if (enrolments == null) {
+                enrolments = newEnrolments;
+            }
+        }
+        enrolments.put(enrolmentId, System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * @param deviceType  - Device type of the enrolment
+     * @param enrolmentId - Id of the enrolment
+     * @return the last time, in seconds, the enrolment contacted this node, or -1 if it is not known.
+     */
+    public long getLastSeenTime(String deviceType, int enrolmentId) {
+        ConcurrentMap<Integer, Long> enrolments = lastSeenTimes.get(deviceType);
+        Long lastSeenTime = enrolments != null ? enrolments.get(enrolmentId) : null;
+        return lastSeenTime != null ? lastSeenTime : -1;
+    }
+
+    /**
+     * Removes the enrolments of the given device type which have not been seen since the given time, as they are no
+     * longer of use for status monitoring. Enrolments of the other device types are left untouched.
+     *
+     * @param deviceType - Device type whose enrolments are evicted
+     * @param timestamp  - Time in seconds
+     */
+    public void evictBefore(String deviceType, long timestamp) {
+        ConcurrentMap<Integer, Long> enrolments = lastSeenTimes.get(deviceType);
+        if (enrolments == null) {
+            return;
+        }
+        for (Iterator<Long> iterator = enrolments.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next() < timestamp) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentMap<Integer, Long> enrolments : lastSeenTimes.values()) {
+            size += enrolments.size();
+        }
+        return size;
+    }
+}
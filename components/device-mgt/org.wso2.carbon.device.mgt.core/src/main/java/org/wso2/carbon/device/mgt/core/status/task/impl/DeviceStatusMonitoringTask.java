@@ -25,18 +25,26 @@ import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceStatusTaskPluginConfig;
 import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.core.cache.DeviceCacheKey;
+import org.wso2.carbon.device.mgt.core.cache.impl.DeviceCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.cache.impl.PendingOperationCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationEnrolmentMapping;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOException;
 import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationMappingDAO;
+import org.wso2.carbon.device.mgt.core.status.task.DeviceActivityIndex;
 import org.wso2.carbon.device.mgt.core.status.task.DeviceStatusTaskException;
 import org.wso2.carbon.ntask.core.Task;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This implements the Task service which monitors the device activity periodically & update the device-status if
@@ -45,6 +53,8 @@ import java.util.Map;
 public class DeviceStatusMonitoringTask implements Task {
 
     private static final Log log = LogFactory.getLog(DeviceStatusMonitoringTask.class);
+    // Time, in seconds, of the last successful run for each device type.
+    private static final ConcurrentMap<Integer, Long> lastCheckedTimes = new ConcurrentHashMap<>();
     private String deviceType;
     private DeviceStatusTaskPluginConfig deviceStatusTaskPluginConfig;
     private int deviceTypeId = -1;
@@ -65,27 +75,31 @@ public class DeviceStatusMonitoringTask implements Task {
 
     @Override
     public void execute() {
-        List<OperationEnrolmentMapping> operationEnrolmentMappings = null;
-        List<EnrolmentInfo> enrolmentInfoTobeUpdated = new ArrayList<>();
-        List<DeviceIdentifier> identifiers = new ArrayList<>();
+        long currentTime = System.currentTimeMillis() / 1000;
+        List<OperationEnrolmentMapping> operationEnrolmentMappings;
         Map<Integer, Long> lastActivities = null;
-        EnrolmentInfo enrolmentInfo;
-        DeviceIdentifier deviceIdentifier;
         try {
-            operationEnrolmentMappings = this.getOperationEnrolmentMappings();
-            if (operationEnrolmentMappings != null && operationEnrolmentMappings.size() > 0) {
-                lastActivities = this.getLastDeviceActivities();
+            operationEnrolmentMappings = this.getOperationEnrolmentMappings(currentTime);
+            if (operationEnrolmentMappings.size() > 0) {
+                lastActivities = this.getLastDeviceActivities(operationEnrolmentMappings);
             }
         } catch (DeviceStatusTaskException e) {
             log.error("Error occurred while fetching OperationEnrolment mappings of deviceType '" + deviceType + "'", e);
+            return;
         }
-        for (OperationEnrolmentMapping mapping:operationEnrolmentMappings) {
+
+        List<EnrolmentInfo> enrolmentInfoTobeUpdated = new ArrayList<>();
+        List<DeviceCacheKey> deviceCacheKeys = new ArrayList<>();
+        Map<Integer, List<DeviceIdentifier>> identifiersByTenant = new HashMap<>();
+        EnrolmentInfo enrolmentInfo;
+        DeviceIdentifier deviceIdentifier;
+        for (OperationEnrolmentMapping mapping : operationEnrolmentMappings) {
             long lastActivity = -1;
             if (lastActivities != null && lastActivities.containsKey(mapping.getEnrolmentId())) {
                 lastActivity = lastActivities.get(mapping.getEnrolmentId());
             }
             EnrolmentInfo.Status newStatus = this.determineDeviceStatus(mapping, lastActivity);
-            if (newStatus != mapping.getDeviceStatus()) {
+            if (newStatus != null && newStatus != mapping.getDeviceStatus()) {
                 enrolmentInfo = new EnrolmentInfo();
                 enrolmentInfo.setId(mapping.getEnrolmentId());
                 enrolmentInfo.setStatus(newStatus);
@@ -93,20 +107,38 @@ public class DeviceStatusMonitoringTask implements Task {
 
                 deviceIdentifier = new DeviceIdentifier();
                 deviceIdentifier.setId(mapping.getDeviceId());
-                deviceIdentifier.setId(mapping.getDeviceType());
+                deviceIdentifier.setType(deviceType);
+                List<DeviceIdentifier> identifiers = identifiersByTenant.get(mapping.getTenantId());
+                if (identifiers == null) {
+                    identifiers = new ArrayList<>();
+                    identifiersByTenant.put(mapping.getTenantId(), identifiers);
+                }
                 identifiers.add(deviceIdentifier);
+                deviceCacheKeys.add(new DeviceCacheKey(mapping.getDeviceId(), deviceType, mapping.getTenantId()));
             }
         }
 
         if (enrolmentInfoTobeUpdated.size() > 0) {
             try {
                 this.updateDeviceStatus(enrolmentInfoTobeUpdated);
-                //Remove updated entries from cache
-                //DeviceCacheManagerImpl.getInstance().removeDevicesFromCache(identifiers);
+                //Remove updated entries from caches, so that the devices are re-activated on their next poll
+                DeviceCacheManagerImpl.getInstance().removeDevicesFromCache(deviceCacheKeys);
+                for (Map.Entry<Integer, List<DeviceIdentifier>> entry : identifiersByTenant.entrySet()) {
+                    PendingOperationCacheManagerImpl.getInstance().invalidate(entry.getValue(), entry.getKey());
+                }
             } catch (DeviceStatusTaskException e) {
-                log.error("Error occurred while updating non-responsive device-status of devices of type '" + deviceType + "'",e);
+                log.error("Error occurred while updating non-responsive device-status of devices of type '" +
+                        deviceType + "'", e);
+                return;
             }
         }
+        lastCheckedTimes.put(deviceTypeId, currentTime);
+        // Devices not seen since the start of the widest window can no longer prove that they are reachable.
+        DeviceActivityIndex.getInstance().evictBefore(deviceType, this.getMaxTimeWindow(currentTime));
+        if (log.isDebugEnabled()) {
+            log.debug("Checked " + operationEnrolmentMappings.size() + " enrolments of deviceType '" + deviceType +
+                    "' and updated the status of " + enrolmentInfoTobeUpdated.size() + " of them");
+        }
     }
 
     private EnrolmentInfo.Status determineDeviceStatus(OperationEnrolmentMapping opMapping, long lastActivityTime) {
@@ -126,13 +158,13 @@ public class DeviceStatusMonitoringTask implements Task {
         return newStatus;
     }
 
-    private long getMinTimeWindow() {
-        return (System.currentTimeMillis()/1000) - this.deviceStatusTaskPluginConfig.getIdleTimeToMarkUnreachable();
+    private long getMinTimeWindow(long currentTime) {
+        return currentTime - this.deviceStatusTaskPluginConfig.getIdleTimeToMarkUnreachable();
     }
 
-    private long getMaxTimeWindow() {
+    private long getMaxTimeWindow(long currentTime) {
         //Need to consider the frequency of the task as well
-        return (System.currentTimeMillis()/1000) - this.deviceStatusTaskPluginConfig.getIdleTimeToMarkInactive() -
+        return currentTime - this.deviceStatusTaskPluginConfig.getIdleTimeToMarkInactive() -
                 this.deviceStatusTaskPluginConfig.getFrequency();
     }
 
@@ -156,41 +188,100 @@ public class DeviceStatusMonitoringTask implements Task {
         return updateStatus;
     }
 
-    private List<OperationEnrolmentMapping> getOperationEnrolmentMappings() throws DeviceStatusTaskException {
-        List<OperationEnrolmentMapping> operationEnrolmentMappings = null;
+    /**
+     * Returns the first pending operation of the enrolments which may have to change their status. Once the task has
+     * run, only the pending operations which crossed the unreachable or the inactive threshold since the last run are
+     * fetched, instead of the whole [inactive, unreachable] window of the device type. Unreachable enrolments with a
+     * pending operation older than the inactive threshold are always fetched, so that none of them stays unreachable
+     * once it is out of the windows.
+     */
+    private List<OperationEnrolmentMapping> getOperationEnrolmentMappings(long currentTime)
+            throws DeviceStatusTaskException {
+        long idleTimeToMarkUnreachable = this.deviceStatusTaskPluginConfig.getIdleTimeToMarkUnreachable();
+        long idleTimeToMarkInactive = this.deviceStatusTaskPluginConfig.getIdleTimeToMarkInactive();
+        Long lastCheckedTime = lastCheckedTimes.get(deviceTypeId);
         try {
             OperationManagementDAOFactory.openConnection();
-            operationEnrolmentMappings = OperationManagementDAOFactory.
-                    getOperationMappingDAO().getFirstPendingOperationMappingsForActiveEnrolments(this.getMinTimeWindow(),
-                    this.getMaxTimeWindow(), this.deviceTypeId);
+            OperationMappingDAO operationMappingDAO = OperationManagementDAOFactory.getOperationMappingDAO();
+            Map<Integer, OperationEnrolmentMapping> mappings = new HashMap<>();
+            if (lastCheckedTime == null || lastCheckedTime >= currentTime ||
+                    currentTime - lastCheckedTime >= idleTimeToMarkInactive) {
+                this.mergeMappings(mappings, operationMappingDAO.getFirstPendingOperationMappingsForActiveEnrolments(
+                        this.getMinTimeWindow(currentTime), this.getMaxTimeWindow(currentTime), this.deviceTypeId));
+            } else {
+                this.mergeMappings(mappings, operationMappingDAO.getFirstPendingOperationMappingsForActiveEnrolments(
+                        currentTime - idleTimeToMarkUnreachable, lastCheckedTime - idleTimeToMarkUnreachable,
+                        this.deviceTypeId));
+                this.mergeMappings(mappings, operationMappingDAO.getFirstPendingOperationMappingsForActiveEnrolments(
+                        currentTime - idleTimeToMarkInactive, lastCheckedTime - idleTimeToMarkInactive,
+                        this.deviceTypeId));
+            }
+            // Unreachable devices whose pending operation has already left the windows, e.g. as they were marked
+            // unreachable on another node or were seen after the operation was created, are checked again as well.
+            this.mergeMappings(mappings, operationMappingDAO.getFirstPendingOperationMappingsForUnreachableEnrolments(
+                    currentTime - idleTimeToMarkInactive, this.deviceTypeId));
+            return new ArrayList<>(mappings.values());
         } catch (SQLException e) {
-            throw new DeviceStatusTaskException("Error occurred while getting Enrolment operation mappings for " +
-                    "determining device status of deviceType '" + deviceType + "'", e);
-        } catch (OperationManagementDAOException e) {
             throw new DeviceStatusTaskException("Error occurred obtaining a DB connection for fetching " +
                     "operation-enrolment mappings for status monitoring of deviceType '" + deviceType + "'", e);
+        } catch (OperationManagementDAOException e) {
+            throw new DeviceStatusTaskException("Error occurred while getting Enrolment operation mappings for " +
+                    "determining device status of deviceType '" + deviceType + "'", e);
         } finally {
             OperationManagementDAOFactory.closeConnection();
         }
-        return operationEnrolmentMappings;
     }
 
-    private Map<Integer, Long> getLastDeviceActivities() throws DeviceStatusTaskException {
-        Map<Integer, Long> lastActivities = null;
+    private void mergeMappings(Map<Integer, OperationEnrolmentMapping> mappings,
+                               List<OperationEnrolmentMapping> operationEnrolmentMappings) {
+        for (OperationEnrolmentMapping mapping : operationEnrolmentMappings) {
+            OperationEnrolmentMapping existingMapping = mappings.get(mapping.getEnrolmentId());
+            if (existingMapping == null || mapping.getCreatedTime() < existingMapping.getCreatedTime()) {
+                mappings.put(mapping.getEnrolmentId(), mapping);
+            }
+        }
+    }
+
+    /**
+     * Returns the last activity of the given enrolments. Enrolments seen by this node after their pending operation
+     * was created are resolved from the {@link DeviceActivityIndex}, hence only the rest are looked up in the database.
+     */
+    private Map<Integer, Long> getLastDeviceActivities(List<OperationEnrolmentMapping> operationEnrolmentMappings)
+            throws DeviceStatusTaskException {
+        Map<Integer, Long> lastActivities = new HashMap<>();
+        List<Integer> enrolmentIds = new ArrayList<>();
+        DeviceActivityIndex deviceActivityIndex = DeviceActivityIndex.getInstance();
+        for (OperationEnrolmentMapping mapping : operationEnrolmentMappings) {
+            long lastSeenTime = deviceActivityIndex.getLastSeenTime(deviceType, mapping.getEnrolmentId());
+            if (lastSeenTime >= 0) {
+                lastActivities.put(mapping.getEnrolmentId(), lastSeenTime);
+            }
+            if (lastSeenTime < mapping.getCreatedTime()) {
+                enrolmentIds.add(mapping.getEnrolmentId());
+            }
+        }
+        if (enrolmentIds.isEmpty()) {
+            return lastActivities;
+        }
         try {
             OperationManagementDAOFactory.openConnection();
-            lastActivities = OperationManagementDAOFactory.
-                    getOperationMappingDAO().getLastConnectedTimeForActiveEnrolments(this.getMaxTimeWindow(),
-                    this.deviceTypeId);
+            Map<Integer, Long> lastConnectedTimes = OperationManagementDAOFactory.getOperationMappingDAO().
+                    getLastConnectedTimes(enrolmentIds);
+            for (Map.Entry<Integer, Long> entry : lastConnectedTimes.entrySet()) {
+                Long lastSeenTime = lastActivities.get(entry.getKey());
+                if (lastSeenTime == null || lastSeenTime < entry.getValue()) {
+                    lastActivities.put(entry.getKey(), entry.getValue());
+                }
+            }
         } catch (SQLException e) {
-            throw new DeviceStatusTaskException("Error occurred while getting last activities for " +
-                    "determining device status of deviceType '" + deviceType + "'", e);
-        } catch (OperationManagementDAOException e) {
             throw new DeviceStatusTaskException("Error occurred obtaining a DB connection for fetching " +
                     "last activities for status monitoring of deviceType '" + deviceType + "'", e);
+        } catch (OperationManagementDAOException e) {
+            throw new DeviceStatusTaskException("Error occurred while getting last activities for " +
+                    "determining device status of deviceType '" + deviceType + "'", e);
         } finally {
             OperationManagementDAOFactory.closeConnection();
         }
         return lastActivities;
     }
-}
\ No newline at end of file
+}
@@ -37,8 +37,10 @@ import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManagementExcept
 import org.wso2.carbon.device.mgt.common.type.mgt.DeviceTypeMetaDefinition;
 import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
 import org.wso2.carbon.device.mgt.core.cache.DeviceCacheKey;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheEntry;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.config.DeviceManagementConfig;
+import org.wso2.carbon.device.mgt.core.config.cache.PendingOperationCacheConfiguration;
 import org.wso2.carbon.device.mgt.core.config.datasource.DataSourceConfig;
 import org.wso2.carbon.device.mgt.core.config.datasource.JNDILookupDefinition;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
@@ -47,6 +49,7 @@ import org.wso2.carbon.device.mgt.core.dao.DeviceTypeDAO;
 import org.wso2.carbon.device.mgt.core.dao.util.DeviceManagementDAOUtil;
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
+import org.wso2.carbon.device.mgt.core.service.DeviceChangeListener;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMgtConstants;
 import org.wso2.carbon.device.mgt.core.operation.mgt.util.DeviceIDHolder;
 import org.wso2.carbon.user.api.TenantManager;
@@ -78,6 +81,7 @@ public final class DeviceManagerUtil {
     private static final Log log = LogFactory.getLog(DeviceManagerUtil.class);
 
     private  static boolean isDeviceCacheInitialized = false;
+    private static boolean isPendingOperationCacheInitialized = false;
 
     public static Document convertToDocument(File file) throws DeviceManagementException {
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -588,4 +592,118 @@ public final class DeviceManagerUtil {
         }
         return deviceCache;
     }
+
+    public static void initializePendingOperationCache() {
+        PendingOperationCacheConfiguration cacheConfig = DeviceConfigurationManager.getInstance()
+                .getDeviceManagementConfig().getPendingOperationCacheConfiguration();
+        if (cacheConfig == null || !cacheConfig.isEnabled() || isPendingOperationCacheInitialized) {
+            return;
+        }
+        isPendingOperationCacheInitialized = true;
+        CacheManager manager = getCacheManager();
+        if (manager == null) {
+            manager = Caching.getCacheManager(DeviceManagementConstants.DM_CACHE_MANAGER);
+        }
+        if (cacheConfig.getExpiryTime() > 0) {
+            manager.<DeviceCacheKey, PendingOperationCacheEntry>createCacheBuilder(
+                    DeviceManagementConstants.PENDING_OPERATION_CACHE).setExpiry(CacheConfiguration.ExpiryType.MODIFIED,
+                    new CacheConfiguration.Duration(TimeUnit.SECONDS, cacheConfig.getExpiryTime()))
+                    .setStoreByValue(true).build();
+            if (cacheConfig.getCapacity() > 0) {
+                ((CacheImpl) (manager.<DeviceCacheKey, PendingOperationCacheEntry>getCache(DeviceManagementConstants.
+                        PENDING_OPERATION_CACHE))).setCapacity(cacheConfig.getCapacity());
+            }
+        } else {
+            manager.<DeviceCacheKey, PendingOperationCacheEntry>getCache(
+                    DeviceManagementConstants.PENDING_OPERATION_CACHE);
+        }
+    }
+
+    /**
+     * Returns the cache of the devices which are known to have no pending operations, keyed by device and holding
+     * the id and the owner of the active enrolment of the device, or the id of a poll in progress.
+     *
+     * @return the pending operation cache, or null if the cache is disabled.
+     */
+    public static Cache<DeviceCacheKey, PendingOperationCacheEntry> getPendingOperationCache() {
+        PendingOperationCacheConfiguration cacheConfig = DeviceConfigurationManager.getInstance()
+                .getDeviceManagementConfig().getPendingOperationCacheConfiguration();
+        if (cacheConfig == null || !cacheConfig.isEnabled()) {
+            return null;
+        }
+        if (!isPendingOperationCacheInitialized) {
+            initializePendingOperationCache();
+        }
+        CacheManager manager = getCacheManager();
+        if (manager == null) {
+            manager = Caching.getCacheManager(DeviceManagementConstants.DM_CACHE_MANAGER);
+        }
+        return manager.<DeviceCacheKey, PendingOperationCacheEntry>getCache(
+                DeviceManagementConstants.PENDING_OPERATION_CACHE);
+    }
+
+    /**
+     * Notifies the registered device change listeners of a committed change of devices. A failing listener is only
+     * logged, as the change itself has already succeeded.
+     *
+     * @param deviceIdentifiers identifiers of the changed devices.
+     */
+    public static void notifyDevicesChanged(List<DeviceIdentifier> deviceIdentifiers) {
+        for (DeviceChangeListener listener : DeviceManagementDataHolder.getInstance().getDeviceChangeListeners()) {
+            try {
+                listener.onDevicesChanged(deviceIdentifiers);
+            } catch (RuntimeException e) {
+                log.error("Error occurred while notifying the change of devices to " + listener.getClass().getName(),
+                        e);
+            }
+        }
+    }
+
+    /**
+     * Notifies the registered device change listeners of a committed change of a group.
+     *
+     * @param groupId id of the changed group.
+     */
+    public static void notifyGroupChanged(int groupId) {
+        for (DeviceChangeListener listener : DeviceManagementDataHolder.getInstance().getDeviceChangeListeners()) {
+            try {
+                listener.onGroupChanged(groupId);
+            } catch (RuntimeException e) {
+                log.error("Error occurred while notifying the change of group " + groupId + " to " +
+                        listener.getClass().getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Notifies the registered device change listeners of a change of the roles of users in the user store.
+     *
+     * @param userNames names of the changed users.
+     */
+    public static void notifyUsersChanged(List<String> userNames) {
+        for (DeviceChangeListener listener : DeviceManagementDataHolder.getInstance().getDeviceChangeListeners()) {
+            try {
+                listener.onUsersChanged(userNames);
+            } catch (RuntimeException e) {
+                log.error("Error occurred while notifying the change of users to " + listener.getClass().getName(),
+                        e);
+            }
+        }
+    }
+
+    /**
+     * Notifies the registered device change listeners of a deleted or renamed role in the user store.
+     *
+     * @param roleName name of the changed role.
+     */
+    public static void notifyRoleChanged(String roleName) {
+        for (DeviceChangeListener listener : DeviceManagementDataHolder.getInstance().getDeviceChangeListeners()) {
+            try {
+                listener.onRoleChanged(roleName);
+            } catch (RuntimeException e) {
+                log.error("Error occurred while notifying the change of role " + roleName + " to " +
+                        listener.getClass().getName(), e);
+            }
+        }
+    }
 }
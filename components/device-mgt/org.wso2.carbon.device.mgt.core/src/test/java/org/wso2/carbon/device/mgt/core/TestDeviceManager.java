@@ -92,6 +92,15 @@ public class TestDeviceManager implements DeviceManager {
         return device;
     }
 
+    @Override
+    public List<Device> getDevices(List<DeviceIdentifier> deviceIds) throws DeviceManagementException {
+        List<Device> devices = new ArrayList<>();
+        for (DeviceIdentifier deviceId : deviceIds) {
+            devices.add(getDevice(deviceId));
+        }
+        return devices;
+    }
+
     @Override public boolean updateDeviceProperties(DeviceIdentifier deviceId, List<Device.Property> list)
             throws DeviceManagementException {
         return false;
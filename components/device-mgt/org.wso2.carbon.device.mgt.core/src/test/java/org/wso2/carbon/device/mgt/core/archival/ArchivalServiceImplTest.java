@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.archival;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAO;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDAOException;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDestinationDAOFactory;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalSourceDAOFactory;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * This class contains unit tests to test the chunking and the checkpoints of {@link ArchivalServiceImpl}.
+ */
+public class ArchivalServiceImplTest extends BaseDeviceManagementTest {
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        ArchivalSourceDAOFactory.init(this.getDataSource());
+        ArchivalDestinationDAOFactory.init(this.getDataSource());
+    }
+
+    @Test(description = "Tests that the operations are archived in chunks and the run is marked as completed")
+    public void testArchiveInChunks() throws Exception {
+        TestArchivalDAO archivalDAO = new TestArchivalDAO(1, 25);
+        new ArchivalServiceImpl(archivalDAO, null, 10, 2, 0).archiveTransactionalRecords();
+
+        Assert.assertEquals(archivalDAO.chunkSizes, Arrays.asList(10, 10, 5),
+                "Operations are not archived in chunks of the batch size");
+        Assert.assertTrue(archivalDAO.operations.isEmpty(), "Operations are left unarchived");
+        Assert.assertEquals(archivalDAO.archivedTables, 8 * 3, "Tables of a chunk are not archived");
+        Assert.assertEquals(archivalDAO.checkpoint, 25);
+        Assert.assertTrue(archivalDAO.completed, "Run is not marked as completed");
+        Assert.assertEquals(archivalDAO.getArchivalCheckpoint(), 0, "Completed run is resumed");
+    }
+
+    @Test(description = "Tests that an interrupted run resumes after the last archived chunk")
+    public void testResumeFromCheckpoint() throws Exception {
+        TestArchivalDAO archivalDAO = new TestArchivalDAO(1, 25);
+        archivalDAO.failingOperationId = 15;
+        try {
+            new ArchivalServiceImpl(archivalDAO, null, 10, 1, 0).archiveTransactionalRecords();
+            Assert.fail("Failure of a chunk is not reported");
+        } catch (ArchivalException e) {
+            // Expected, as the second chunk fails.
+        }
+        Assert.assertEquals(archivalDAO.checkpoint, 10, "Checkpoint is not saved after the first chunk");
+        Assert.assertFalse(archivalDAO.completed, "Interrupted run is marked as completed");
+
+        archivalDAO.failingOperationId = 0;
+        archivalDAO.requestedAfter.clear();
+        new ArchivalServiceImpl(archivalDAO, null, 10, 1, 0).archiveTransactionalRecords();
+        Assert.assertEquals((int) archivalDAO.requestedAfter.get(0), 10,
+                "Run does not resume after the last archived chunk");
+        Assert.assertTrue(archivalDAO.operations.isEmpty(), "Operations are left unarchived");
+        Assert.assertTrue(archivalDAO.completed, "Resumed run is not marked as completed");
+    }
+
+    @Test(description = "Tests that a run without operations to be archived is marked as completed")
+    public void testArchiveWithoutOperations() throws Exception {
+        TestArchivalDAO archivalDAO = new TestArchivalDAO(1, 0);
+        new ArchivalServiceImpl(archivalDAO, null, 10, 1, 0).archiveTransactionalRecords();
+
+        Assert.assertTrue(archivalDAO.chunkSizes.isEmpty());
+        Assert.assertTrue(archivalDAO.completed, "Run is not marked as completed");
+    }
+
+    /**
+     * Keeps the operations and the checkpoint in memory, and checks that the checkpoint is saved in a transaction.
+     */
+    private static class TestArchivalDAO implements ArchivalDAO {
+
+        private final TreeSet<Integer> operations = new TreeSet<>();
+        private final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        private final List<Integer> requestedAfter = new ArrayList<>();
+        private volatile int archivedTables;
+        private volatile int failingOperationId;
+        private int checkpoint;
+        private boolean completed;
+
+        private TestArchivalDAO(int firstOperationId, int count) {
+            for (int i = firstOperationId; i < firstOperationId + count; i++) {
+                operations.add(i);
+            }
+        }
+
+        @Override
+        public List<Integer> getOperationIdsForArchival(int lastOperationId, int limit) {
+            requestedAfter.add(lastOperationId);
+            List<Integer> operationIds = new ArrayList<>();
+            for (Integer operationId : operations.tailSet(lastOperationId, false)) {
+                if (operationIds.size() == limit) {
+                    break;
+                }
+                operationIds.add(operationId);
+            }
+            return operationIds;
+        }
+
+        @Override
+        public int archiveOperationResponses(List<Integer> operationIds) throws ArchivalDAOException {
+            return this.archive(operationIds);
+        }
+
+        @Override
+        public int archiveNotifications(List<Integer> operationIds) throws ArchivalDAOException {
+            return this.archive(operationIds);
+        }
+
+        @Override
+        public int archiveCommandOperations(List<Integer> operationIds) throws ArchivalDAOException {
+            return this.archive(operationIds);
+        }
+
+        @Override
+        public int archiveConfigOperations(List<Integer> operationIds) throws ArchivalDAOException {
+            return this.archive(operationIds);
+        }
+
+        @Override
+        public int archiveProfileOperations(List<Integer> operationIds) throws ArchivalDAOException {
+            return this.archive(operationIds);
+        }
+
+        @Override
+        public int archivePolicyOperations(List<Integer> operationIds) throws ArchivalDAOException {
+            return this.archive(operationIds);
+        }
+
+        @Override
+        public int archiveEnrolmentMappings(List<Integer> operationIds) throws ArchivalDAOException {
+            return this.archive(operationIds);
+        }
+
+        @Override
+        public int archiveOperations(List<Integer> operationIds) throws ArchivalDAOException {
+            int count = this.archive(operationIds);
+            chunkSizes.add(operationIds.size());
+            operations.removeAll(operationIds);
+            return count;
+        }
+
+        @Override
+        public int getArchivalCheckpoint() {
+            return completed ? 0 : checkpoint;
+        }
+
+        @Override
+        public void saveArchivalCheckpoint(int lastOperationId, boolean completed) throws ArchivalDAOException {
+            try {
+                if (ArchivalDestinationDAOFactory.getConnection().getAutoCommit()) {
+                    throw new ArchivalDAOException("Checkpoint is saved outside of a transaction");
+                }
+            } catch (SQLException e) {
+                throw new ArchivalDAOException("Unable to check the transaction of the checkpoint", e);
+            }
+            this.checkpoint = lastOperationId;
+            this.completed = completed;
+        }
+
+        private synchronized int archive(List<Integer> operationIds) throws ArchivalDAOException {
+            if (operationIds.contains(failingOperationId)) {
+                throw new ArchivalDAOException("Unable to archive operation " + failingOperationId);
+            }
+            archivedTables++;
+            return operationIds.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.archival.dao.impl;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalDestinationDAOFactory;
+import org.wso2.carbon.device.mgt.core.archival.dao.ArchivalSourceDAOFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class contains unit tests of the statements {@link ArchivalDAOImpl} runs, since the archival queries are
+ * written for MySQL, which the archival database script targets.
+ */
+public class ArchivalDAOImplTest {
+
+    private Connection sourceConnection;
+    private Connection destinationConnection;
+    private List<String> sourceStatements;
+    private List<String> destinationStatements;
+    private PreparedStatement selectStmt;
+    private PreparedStatement insertStmt;
+    private PreparedStatement deleteStmt;
+    private PreparedStatement updateStmt;
+    private ResultSet resultSet;
+
+    @BeforeMethod
+    public void init() throws Exception {
+        sourceStatements = new ArrayList<>();
+        destinationStatements = new ArrayList<>();
+        selectStmt = Mockito.mock(PreparedStatement.class);
+        insertStmt = Mockito.mock(PreparedStatement.class);
+        deleteStmt = Mockito.mock(PreparedStatement.class);
+        updateStmt = Mockito.mock(PreparedStatement.class);
+        resultSet = Mockito.mock(ResultSet.class);
+        Mockito.when(selectStmt.executeQuery()).thenReturn(resultSet);
+        sourceConnection = this.mockConnection(sourceStatements);
+        destinationConnection = this.mockConnection(destinationStatements);
+        ArchivalSourceDAOFactory.init(this.mockDataSource(sourceConnection));
+        ArchivalDestinationDAOFactory.init(this.mockDataSource(destinationConnection));
+        ArchivalSourceDAOFactory.beginTransaction();
+        ArchivalDestinationDAOFactory.beginTransaction();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        ArchivalSourceDAOFactory.closeConnection();
+        ArchivalDestinationDAOFactory.closeConnection();
+    }
+
+    @Test(description = "Tests that the next chunk starts after the last archived operation and is limited")
+    public void testGetOperationIdsForArchival() throws Exception {
+        Mockito.when(resultSet.next()).thenReturn(true, true, false);
+        Mockito.when(resultSet.getInt("ID")).thenReturn(11, 12);
+        ArchivalDAOImpl archivalDAO = new ArchivalDAOImpl(30, 2, false);
+
+        Assert.assertEquals(archivalDAO.getOperationIdsForArchival(10, 2), Arrays.asList(11, 12));
+        String sql = sourceStatements.get(0);
+        Assert.assertTrue(sql.contains("o.ID > ?") && sql.contains("ORDER BY o.ID LIMIT ?"),
+                "Chunk is not selected by the keyset of the operation IDs");
+        Assert.assertTrue(sql.contains("NOT EXISTS"), "Pending operations are selected for archival");
+        Mockito.verify(selectStmt).setInt(1, 10);
+        Mockito.verify(selectStmt).setInt(3, 2);
+    }
+
+    @Test(description = "Tests that the rows are locked, inserted in batches and deleted once copied")
+    public void testArchiveRowsInBatches() throws Exception {
+        Mockito.when(resultSet.next()).thenReturn(true, true, true, true, true, false);
+        ArchivalDAOImpl archivalDAO = new ArchivalDAOImpl(30, 2, false);
+
+        Assert.assertEquals(archivalDAO.archiveNotifications(Arrays.asList(1, 2, 3)), 5);
+        Assert.assertTrue(sourceStatements.get(0).startsWith("SELECT ") &&
+                sourceStatements.get(0).endsWith("FOR UPDATE"), "Selected rows are not locked");
+        Assert.assertTrue(destinationStatements.get(0).startsWith("INSERT IGNORE INTO DM_NOTIFICATION_ARCH"));
+        Mockito.verify(insertStmt, Mockito.times(5)).addBatch();
+        Mockito.verify(insertStmt, Mockito.times(3)).executeBatch();
+        Assert.assertTrue(sourceStatements.get(1).startsWith("DELETE FROM DM_NOTIFICATION WHERE OPERATION_ID IN"));
+        Mockito.verify(deleteStmt).setInt(3, 3);
+        Mockito.verify(deleteStmt).executeUpdate();
+    }
+
+    @Test(description = "Tests that nothing is deleted when there are no rows to be archived")
+    public void testArchiveNoRows() throws Exception {
+        Mockito.when(resultSet.next()).thenReturn(false);
+        ArchivalDAOImpl archivalDAO = new ArchivalDAOImpl(30, 2, false);
+
+        Assert.assertEquals(archivalDAO.archiveCommandOperations(Collections.singletonList(1)), 0);
+        Mockito.verify(insertStmt, Mockito.never()).executeBatch();
+        Assert.assertEquals(sourceStatements.size(), 1, "Rows are deleted although none were archived");
+
+        Assert.assertEquals(archivalDAO.archiveOperations(Collections.<Integer>emptyList()), 0);
+        Assert.assertEquals(sourceStatements.size(), 1, "Statements are run for an empty chunk");
+    }
+
+    @Test(description = "Tests that the checkpoint is inserted once and updated afterwards")
+    public void testSaveArchivalCheckpoint() throws Exception {
+        ArchivalDAOImpl archivalDAO = new ArchivalDAOImpl(30, 2, false);
+        Mockito.when(updateStmt.executeUpdate()).thenReturn(0);
+        archivalDAO.saveArchivalCheckpoint(10, false);
+        Assert.assertEquals(destinationStatements.size(), 2, "Missing checkpoint is not inserted");
+        Assert.assertTrue(destinationStatements.get(1).startsWith("INSERT INTO DM_ARCHIVAL_CHECKPOINT"));
+        Mockito.verify(insertStmt).setInt(2, 10);
+        Mockito.verify(insertStmt).setBoolean(3, false);
+
+        Mockito.when(updateStmt.executeUpdate()).thenReturn(1);
+        archivalDAO.saveArchivalCheckpoint(20, true);
+        Assert.assertEquals(destinationStatements.size(), 3, "Existing checkpoint is inserted again");
+        Mockito.verify(updateStmt).setInt(1, 20);
+        Mockito.verify(updateStmt).setBoolean(2, true);
+    }
+
+    @Test(description = "Tests that only the checkpoint of an incomplete run is resumed")
+    public void testGetArchivalCheckpoint() throws Exception {
+        ArchivalDAOImpl archivalDAO = new ArchivalDAOImpl(30, 2, false);
+        Mockito.when(resultSet.next()).thenReturn(true);
+        Mockito.when(resultSet.getInt("LAST_OPERATION_ID")).thenReturn(10);
+        Mockito.when(resultSet.getBoolean("COMPLETED")).thenReturn(false);
+        Assert.assertEquals(archivalDAO.getArchivalCheckpoint(), 10, "Incomplete run is not resumed");
+
+        Mockito.when(resultSet.getBoolean("COMPLETED")).thenReturn(true);
+        Assert.assertEquals(archivalDAO.getArchivalCheckpoint(), 0, "Completed run is resumed");
+
+        Mockito.when(resultSet.next()).thenReturn(false);
+        Assert.assertEquals(archivalDAO.getArchivalCheckpoint(), 0, "Missing checkpoint is resumed");
+    }
+
+    private DataSource mockDataSource(Connection connection) throws Exception {
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        DatabaseMetaData metaData = Mockito.mock(DatabaseMetaData.class);
+        Mockito.when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        Mockito.when(connection.getMetaData()).thenReturn(metaData);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    /**
+     * Returns a connection which records the statements it prepares and hands out the statement of each kind.
+     */
+    private Connection mockConnection(final List<String> statements) throws Exception {
+        Connection connection = Mockito.mock(Connection.class);
+        Answer<PreparedStatement> prepare = new Answer<PreparedStatement>() {
+            @Override
+            public PreparedStatement answer(InvocationOnMock invocation) {
+                String sql = (String) invocation.getArguments()[0];
+                statements.add(sql);
+                if (sql.startsWith("SELECT")) {
+                    return selectStmt;
+                } else if (sql.startsWith("INSERT")) {
+                    return insertStmt;
+                } else if (sql.startsWith("DELETE")) {
+                    return deleteStmt;
+                }
+                return updateStmt;
+            }
+        };
+        Mockito.when(connection.prepareStatement(Mockito.anyString())).thenAnswer(prepare);
+        Mockito.when(connection.prepareStatement(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt()))
+                .thenAnswer(prepare);
+        return connection;
+    }
+
+}
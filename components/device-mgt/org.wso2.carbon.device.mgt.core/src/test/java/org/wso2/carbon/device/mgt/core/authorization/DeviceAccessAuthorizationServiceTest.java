@@ -39,6 +39,7 @@ import org.wso2.carbon.device.mgt.common.group.mgt.GroupManagementException;
 import org.wso2.carbon.device.mgt.common.group.mgt.RoleDoesNotExistException;
 import org.wso2.carbon.device.mgt.common.permission.mgt.PermissionManagementException;
 import org.wso2.carbon.device.mgt.core.TestDeviceManagementService;
+import org.wso2.carbon.device.mgt.core.cache.impl.UserRoleCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
@@ -163,6 +164,8 @@ public class DeviceAccessAuthorizationServiceTest {
         //Adding role with permission to non Admin user
         userStoreManager.addRole(NON_ADMIN_ROLE, new String[]{NON_ADMIN_ALLOWED_USER},
                 new Permission[]{deviceViewPermission});
+        //Listeners are not registered with the user store in tests, hence the cached roles are invalidated here
+        UserRoleCacheManagerImpl.getInstance().invalidateTenant(MultitenantConstants.SUPER_TENANT_ID);
         //Creating default group
         GroupManagementProviderService groupManagementProviderService = DeviceManagementDataHolder.getInstance()
                 .getGroupManagementProviderService();
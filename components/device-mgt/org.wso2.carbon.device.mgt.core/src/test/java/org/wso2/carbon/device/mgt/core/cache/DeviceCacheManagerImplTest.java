@@ -109,11 +109,46 @@ public class DeviceCacheManagerImplTest extends BaseDeviceManagementTest {
                 "with the saved device");
     }
 
+    @Test(description = "test getting a device which is not in the cache",
+            dependsOnMethods = {"testGetDeviceFromCache"})
+    public void testGetUnknownDeviceFromCache() {
+        Assert.assertNotNull(deviceCacheManager.getDeviceFromCache(deviceIds.get(2), MultitenantConstants
+                .SUPER_TENANT_ID), "Device is not found in the cache");
+        Assert.assertNull(deviceCacheManager.getDeviceFromCache(new DeviceIdentifier(DEVICE_ID_PREFIX +
+                NO_OF_DEVICES, DEVICE_TYPE), MultitenantConstants.SUPER_TENANT_ID), "Unknown device is found in the " +
+                "cache");
+    }
+
+    @Test(description = "test that the devices in the cache are isolated from the callers",
+            dependsOnMethods = {"testGetUnknownDeviceFromCache"})
+    public void testCachedDeviceIsCopied() {
+        // A device of its own, so that the devices shared by the other tests are not changed.
+        DeviceIdentifier deviceId = new DeviceIdentifier(DEVICE_ID_PREFIX + "COPIED", DEVICE_TYPE);
+        Device device = TestDataHolder.generateDummyDeviceData(deviceId);
+        String name = device.getName();
+        deviceCacheManager.addDeviceToCache(deviceId, device, MultitenantConstants.SUPER_TENANT_ID);
+        device.setName(UPDATE_NAME);
+        Device cachedDevice = deviceCacheManager.getDeviceFromCache(deviceId, MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertEquals(cachedDevice.getName(), name, "Changes made to a cached device are seen in the cache");
+        cachedDevice.setName(UPDATE_NAME);
+        Device tempDevice = deviceCacheManager.getDeviceFromCache(deviceId, MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertNotSame(tempDevice, cachedDevice, "Same device instance is returned by the cache");
+        Assert.assertEquals(tempDevice.getName(), name, "Changes made to a device returned by the cache are seen " +
+                "in the cache");
+        deviceCacheManager.removeDeviceFromCache(deviceId, MultitenantConstants.SUPER_TENANT_ID);
+    }
+
     @Test(description = "test removing a device from cache", dependsOnMethods = {"testUpdateDeviceInCache"})
     public void testRemoveDeviceFromCache() throws DeviceManagementException {
         deviceCacheManager.removeDeviceFromCache(deviceIds.get(0), MultitenantConstants.SUPER_TENANT_ID);
     }
 
+    @Test(description = "test getting a removed device from cache", dependsOnMethods = {"testRemoveDeviceFromCache"})
+    public void testGetRemovedDeviceFromCache() {
+        Assert.assertNull(deviceCacheManager.getDeviceFromCache(deviceIds.get(0), MultitenantConstants
+                .SUPER_TENANT_ID), "Removed device is still served from the cache");
+    }
+
     @Test(description = "test removing list of devices from cache", dependsOnMethods = {"testRemoveDeviceFromCache"})
     public void testRemoveDevicesFromCache() {
         //starting from index 1 since 0 is already deleted
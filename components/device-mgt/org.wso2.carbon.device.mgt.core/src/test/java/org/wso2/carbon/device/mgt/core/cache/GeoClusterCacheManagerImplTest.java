@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.core.cache.impl.GeoClusterCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.geo.GeoCluster;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoCoordinate;
+import org.wso2.carbon.device.mgt.core.geo.geoHash.GeoHashGenerator;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Unit tests for GeoClusterCacheManagerImpl
+ */
+public class GeoClusterCacheManagerImplTest {
+    private static final int TENANT_ID = -1234;
+    private static final String DEVICE_TYPE = "TEST_TYPE";
+    private static final double LATITUDE = 6.9271;
+    private static final double LONGITUDE = 79.8612;
+    private GeoClusterCacheManager geoClusterCacheManager;
+    private String geohash;
+
+    @BeforeClass
+    public void init() throws DeviceManagementException {
+        DeviceConfigurationManager.getInstance().initConfig();
+        geoClusterCacheManager = GeoClusterCacheManagerImpl.getInstance();
+        geohash = GeoHashGenerator.encodeGeohash(LATITUDE, LONGITUDE);
+    }
+
+    @Test(description = "test getting the geohash tiles covering an area")
+    public void testGetCoveringGeohashes() {
+        List<String> geohashes = GeoHashGenerator.getCoveringGeohashes(new GeoCoordinate(LATITUDE, LONGITUDE),
+                new GeoCoordinate(LATITUDE, LONGITUDE), 5, 10);
+        Assert.assertNotNull(geohashes, "Geohashes covering a point are not returned");
+        Assert.assertEquals(geohashes, Collections.singletonList(geohash.substring(0, 5)),
+                "Geohash covering a point is not the prefix of the geohash of the point");
+
+        geohashes = GeoHashGenerator.getCoveringGeohashes(new GeoCoordinate(-90, -180), new GeoCoordinate(90, 180), 1,
+                100);
+        Assert.assertNotNull(geohashes, "Geohashes covering the world are not returned");
+        Assert.assertEquals(geohashes.size(), 32, "World is not covered by all the geohashes of length 1");
+
+        Assert.assertNull(GeoHashGenerator.getCoveringGeohashes(new GeoCoordinate(-90, -180),
+                new GeoCoordinate(90, 180), 3, 100), "Geohashes are returned even though the limit is exceeded");
+    }
+
+    @Test(description = "test caching the clusters of tiles")
+    public void testAddClusters() {
+        String geohashPrefix = geohash.substring(0, 4);
+        Assert.assertNull(geoClusterCacheManager.getClusters(TENANT_ID, DEVICE_TYPE, geohashPrefix),
+                "Tile which was not cached is found in the cache");
+        GeoCluster geoCluster = new GeoCluster(new GeoCoordinate(LATITUDE, LONGITUDE),
+                new GeoCoordinate(LATITUDE, LONGITUDE), new GeoCoordinate(LATITUDE, LONGITUDE), 1, geohashPrefix,
+                "GEO-TEST-DEVICE", DEVICE_TYPE, null);
+        geoClusterCacheManager.addClusters(TENANT_ID, DEVICE_TYPE, geohashPrefix,
+                Collections.singletonList(geoCluster));
+        geoClusterCacheManager.addClusters(TENANT_ID, null, geohashPrefix, Collections.singletonList(geoCluster));
+        geoClusterCacheManager.addClusters(TENANT_ID, DEVICE_TYPE, "zzzz", Collections.<GeoCluster>emptyList());
+
+        Assert.assertEquals(geoClusterCacheManager.getClusters(TENANT_ID, DEVICE_TYPE, geohashPrefix).size(), 1,
+                "Cached tile is not found");
+        Assert.assertEquals(geoClusterCacheManager.getClusters(TENANT_ID, null, geohashPrefix).size(), 1,
+                "Cached tile of all device types is not found");
+        Assert.assertTrue(geoClusterCacheManager.getClusters(TENANT_ID, DEVICE_TYPE, "zzzz").isEmpty(),
+                "Cached empty tile is not found");
+        Assert.assertNull(geoClusterCacheManager.getClusters(TENANT_ID + 1, DEVICE_TYPE, geohashPrefix),
+                "Tile of another tenant is found");
+    }
+
+    @Test(description = "test invalidating the tiles of a location", dependsOnMethods = {"testAddClusters"})
+    public void testInvalidate() {
+        String geohashPrefix = geohash.substring(0, 4);
+        geoClusterCacheManager.invalidate(TENANT_ID, DEVICE_TYPE, geohash);
+        Assert.assertNull(geoClusterCacheManager.getClusters(TENANT_ID, DEVICE_TYPE, geohashPrefix),
+                "Tile containing the location is not invalidated");
+        Assert.assertNull(geoClusterCacheManager.getClusters(TENANT_ID, null, geohashPrefix),
+                "Tile of all device types containing the location is not invalidated");
+        Assert.assertNotNull(geoClusterCacheManager.getClusters(TENANT_ID, DEVICE_TYPE, "zzzz"),
+                "Tile not containing the location is invalidated");
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.core.cache.impl.PendingOperationCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.DeviceManagementConfig;
+import org.wso2.carbon.device.mgt.core.config.cache.PendingOperationCacheConfiguration;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Unit tests for PendingOperationCacheManagerImpl
+ */
+public class PendingOperationCacheManagerImplTest extends BaseDeviceManagementTest {
+    private static final int NO_OF_DEVICES = 5;
+    private static final String DEVICE_TYPE = "TEST_TYPE";
+    private static final String DEVICE_ID_PREFIX = "PENDING-OP-TEST-DEVICE-ID-";
+    private static final String OWNER = "admin";
+    private PendingOperationCacheManager pendingOperationCacheManager;
+    private List<DeviceIdentifier> deviceIds = new ArrayList<>();
+
+    @BeforeClass
+    public void init() throws DeviceManagementException {
+        DeviceConfigurationManager.getInstance().initConfig();
+        for (int i = 0; i < NO_OF_DEVICES; i++) {
+            deviceIds.add(new DeviceIdentifier(DEVICE_ID_PREFIX + i, DEVICE_TYPE));
+        }
+        PendingOperationCacheConfiguration configuration = new PendingOperationCacheConfiguration();
+        configuration.setEnabled(true);
+        DeviceManagementConfig config = DeviceConfigurationManager.getInstance().getDeviceManagementConfig();
+        config.setPendingOperationCacheConfiguration(configuration);
+        initializeCarbonContext();
+        pendingOperationCacheManager = PendingOperationCacheManagerImpl.getInstance();
+    }
+
+    private void initializeCarbonContext() {
+        if (System.getProperty("carbon.home") == null) {
+            File file = new File("src/test/resources");
+            if (file.exists()) {
+                System.setProperty("carbon.home", file.getAbsolutePath());
+            }
+        }
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(
+                org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(
+                org.wso2.carbon.base.MultitenantConstants.SUPER_TENANT_ID);
+    }
+
+    @Test(description = "test getting a device which is not known to be idle")
+    public void testGetUnknownDevice() {
+        Assert.assertNull(pendingOperationCacheManager.getIdleEnrolment(deviceIds.get(0),
+                MultitenantConstants.SUPER_TENANT_ID), "Device which was not marked as idle is found idle");
+    }
+
+    @Test(description = "test marking devices as idle", dependsOnMethods = {"testGetUnknownDevice"})
+    public void testMarkIdle() {
+        for (int i = 0; i < NO_OF_DEVICES; i++) {
+            long pollId = pendingOperationCacheManager.startPoll(deviceIds.get(i),
+                    MultitenantConstants.SUPER_TENANT_ID);
+            Assert.assertNull(pendingOperationCacheManager.getIdleEnrolment(deviceIds.get(i),
+                    MultitenantConstants.SUPER_TENANT_ID), "Device which is being polled is found idle");
+            Assert.assertTrue(pendingOperationCacheManager.markIdle(deviceIds.get(i), i + 1, OWNER, pollId,
+                    MultitenantConstants.SUPER_TENANT_ID), "Device is not marked as idle");
+        }
+        for (int i = 0; i < NO_OF_DEVICES; i++) {
+            PendingOperationCacheEntry idleEnrolment = pendingOperationCacheManager.getIdleEnrolment(
+                    deviceIds.get(i), MultitenantConstants.SUPER_TENANT_ID);
+            Assert.assertNotNull(idleEnrolment, "Device which was marked as idle is not found idle");
+            Assert.assertEquals(idleEnrolment.getEnrolmentId(), i + 1, "Idle enrolment of the device is not matching");
+            Assert.assertEquals(idleEnrolment.getOwner(), OWNER, "Owner of the idle enrolment is not matching");
+        }
+    }
+
+    @Test(description = "test that idle devices are kept per tenant", dependsOnMethods = {"testMarkIdle"})
+    public void testGetIdleDeviceOfOtherTenant() {
+        Assert.assertNull(pendingOperationCacheManager.getIdleEnrolment(deviceIds.get(0),
+                MultitenantConstants.SUPER_TENANT_ID + 1),
+                "Device marked as idle in a tenant is found idle in another tenant");
+    }
+
+    @Test(description = "test invalidating a device", dependsOnMethods = {"testGetIdleDeviceOfOtherTenant"})
+    public void testInvalidateDevice() {
+        pendingOperationCacheManager.invalidate(deviceIds.get(0), MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertNull(pendingOperationCacheManager.getIdleEnrolment(deviceIds.get(0),
+                MultitenantConstants.SUPER_TENANT_ID), "Invalidated device is still found idle");
+        Assert.assertNotNull(pendingOperationCacheManager.getIdleEnrolment(deviceIds.get(1),
+                MultitenantConstants.SUPER_TENANT_ID), "Device which was not invalidated is not found idle");
+    }
+
+    @Test(description = "test invalidating a list of devices", dependsOnMethods = {"testInvalidateDevice"})
+    public void testInvalidateDevices() {
+        pendingOperationCacheManager.invalidate(deviceIds, MultitenantConstants.SUPER_TENANT_ID);
+        for (DeviceIdentifier deviceId : deviceIds) {
+            Assert.assertNull(pendingOperationCacheManager.getIdleEnrolment(deviceId,
+                    MultitenantConstants.SUPER_TENANT_ID), "Invalidated device is still found idle");
+        }
+    }
+
+    @Test(description = "test that a device invalidated while it is polled is not marked as idle",
+            dependsOnMethods = {"testInvalidateDevices"})
+    public void testInvalidateDuringPoll() {
+        long pollId = pendingOperationCacheManager.startPoll(deviceIds.get(0), MultitenantConstants.SUPER_TENANT_ID);
+        // An operation is added to the device after the poll looked up its pending operations.
+        pendingOperationCacheManager.invalidate(deviceIds.get(0), MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertFalse(pendingOperationCacheManager.markIdle(deviceIds.get(0), 1, OWNER, pollId,
+                MultitenantConstants.SUPER_TENANT_ID), "Device invalidated during a poll is marked as idle");
+        Assert.assertNull(pendingOperationCacheManager.getIdleEnrolment(deviceIds.get(0),
+                MultitenantConstants.SUPER_TENANT_ID), "Device invalidated during a poll is found idle");
+    }
+
+    @Test(description = "test that only the latest poll of a device marks the device as idle",
+            dependsOnMethods = {"testInvalidateDuringPoll"})
+    public void testOverlappingPolls() {
+        long firstPollId = pendingOperationCacheManager.startPoll(deviceIds.get(1),
+                MultitenantConstants.SUPER_TENANT_ID);
+        pendingOperationCacheManager.invalidate(deviceIds.get(1), MultitenantConstants.SUPER_TENANT_ID);
+        long secondPollId = pendingOperationCacheManager.startPoll(deviceIds.get(1),
+                MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertFalse(pendingOperationCacheManager.markIdle(deviceIds.get(1), 2, OWNER, firstPollId,
+                MultitenantConstants.SUPER_TENANT_ID), "Device is marked as idle by a poll started before it was " +
+                "invalidated");
+        Assert.assertTrue(pendingOperationCacheManager.markIdle(deviceIds.get(1), 2, OWNER, secondPollId,
+                MultitenantConstants.SUPER_TENANT_ID), "Device is not marked as idle by the latest poll");
+    }
+}
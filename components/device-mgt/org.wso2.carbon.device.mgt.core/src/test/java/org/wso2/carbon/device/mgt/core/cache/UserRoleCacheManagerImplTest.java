@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.cache;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.cache.impl.UserRoleCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
+import org.wso2.carbon.user.api.Permission;
+import org.wso2.carbon.user.api.UserStoreException;
+import org.wso2.carbon.user.api.UserStoreManager;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.util.Arrays;
+
+/*
+    Unit tests for UserRoleCacheManagerImpl
+ */
+public class UserRoleCacheManagerImplTest extends BaseDeviceManagementTest {
+    private static final String USER = "role-cache-test-user";
+    private static final String PASSWORD = "password";
+    private static final String ROLE_1 = "ROLE_CACHE_TEST_ROLE_1";
+    private static final String ROLE_2 = "ROLE_CACHE_TEST_ROLE_2";
+    private static final String ROLE_3 = "ROLE_CACHE_TEST_ROLE_3";
+    private UserRoleCacheManager userRoleCacheManager;
+    private UserStoreManager userStoreManager;
+
+    @BeforeClass
+    public void init() throws UserStoreException {
+        userStoreManager = DeviceManagementDataHolder.getInstance().getRealmService()
+                .getTenantUserRealm(MultitenantConstants.SUPER_TENANT_ID).getUserStoreManager();
+        userStoreManager.addUser(USER, PASSWORD, null, null, null);
+        userRoleCacheManager = UserRoleCacheManagerImpl.getInstance();
+    }
+
+    @Test(description = "test getting the roles of a user from the user store")
+    public void testGetRoleListOfUser() throws UserStoreException {
+        String[] roles = userRoleCacheManager.getRoleListOfUser(USER, MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertFalse(Arrays.asList(roles).contains(ROLE_1), "User has a role which is not assigned");
+    }
+
+    @Test(description = "test that the roles of a user are served from the cache",
+            dependsOnMethods = {"testGetRoleListOfUser"})
+    public void testGetCachedRoleListOfUser() throws UserStoreException {
+        // Listeners are not registered with the user store in tests, hence the cache is not notified of the change.
+        userStoreManager.addRole(ROLE_1, new String[]{USER}, new Permission[0]);
+        String[] roles = userRoleCacheManager.getRoleListOfUser(USER, MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertFalse(Arrays.asList(roles).contains(ROLE_1), "Roles of the user are not served from the cache");
+    }
+
+    @Test(description = "test invalidating the roles of a user", dependsOnMethods = {"testGetCachedRoleListOfUser"})
+    public void testInvalidateUser() throws UserStoreException {
+        userRoleCacheManager.invalidateUser(USER, MultitenantConstants.SUPER_TENANT_ID);
+        String[] roles = userRoleCacheManager.getRoleListOfUser(USER, MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertTrue(Arrays.asList(roles).contains(ROLE_1), "Invalidated roles of the user are still served");
+    }
+
+    @Test(description = "test invalidating the roles of the users of a tenant",
+            dependsOnMethods = {"testInvalidateUser"})
+    public void testInvalidateTenant() throws UserStoreException {
+        userStoreManager.addRole(ROLE_2, new String[]{USER}, new Permission[0]);
+        userRoleCacheManager.invalidateTenant(MultitenantConstants.SUPER_TENANT_ID);
+        String[] roles = userRoleCacheManager.getRoleListOfUser(USER, MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertTrue(Arrays.asList(roles).contains(ROLE_2), "Invalidated roles of the tenant are still served");
+    }
+
+    @Test(description = "test invalidating the roles of a user given with the domain of the primary user store",
+            dependsOnMethods = {"testInvalidateTenant"})
+    public void testInvalidateUserWithDomain() throws UserStoreException {
+        userStoreManager.addRole(ROLE_3, new String[]{USER}, new Permission[0]);
+        userRoleCacheManager.invalidateUser("primary/" + USER, MultitenantConstants.SUPER_TENANT_ID);
+        String[] roles = userRoleCacheManager.getRoleListOfUser(USER, MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertTrue(Arrays.asList(roles).contains(ROLE_3),
+                "Roles of the user are still served after invalidating the domain qualified user");
+    }
+}
@@ -28,6 +28,9 @@ import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
 import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public class ApplicationPersistenceTests extends BaseDeviceManagementTest {
 
@@ -62,6 +65,24 @@ public class ApplicationPersistenceTests extends BaseDeviceManagementTest {
         }
     }
 
+    @Test
+    public void testGetInstalledApplicationsOfEnrolments() throws DeviceManagementDAOException, SQLException {
+        /* More enrolment ids than a single IN clause accepts, so that the lookup is split into chunks */
+        List<Integer> enrolmentIds = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            enrolmentIds.add(100000 + i);
+        }
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            Map<Integer, List<Application>> applications = applicationDAO.getInstalledApplications(enrolmentIds);
+            if (!isMock()) {
+                Assert.assertTrue(applications.isEmpty(), "Applications retrieved for non-existing enrolments");
+            }
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
     private Application getApplication(String appIdentifier, int tenantId) throws DeviceManagementDAOException {
         Application application = null;
         try {
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.dao;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceInfo;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
+import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsMgtDAOException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class DeviceDetailsPersistenceTests extends BaseDeviceManagementTest {
+
+    private static final String DEVICE_ID_PREFIX = "bulk-details-device-";
+    private static final int UNKNOWN_ENROLMENT_ID_OFFSET = 900000;
+
+    private DeviceDAO deviceDAO;
+    private DeviceDetailsDAO deviceDetailsDAO;
+    private List<Device> devices = new ArrayList<>();
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        initDataSource();
+        deviceDAO = DeviceManagementDAOFactory.getDeviceDAO();
+        deviceDetailsDAO = DeviceManagementDAOFactory.getDeviceDetailsDAO();
+    }
+
+    @Test
+    public void testAddDeviceDetails() throws DeviceManagementDAOException, DeviceDetailsMgtDAOException,
+            TransactionManagementException {
+        if (isMock()) {
+            return;
+        }
+        int tenantId = TestDataHolder.SUPER_TENANT_ID;
+        try {
+            DeviceManagementDAOFactory.beginTransaction();
+            for (int i = 0; i < 2; i++) {
+                Device device = TestDataHolder.generateDummyDeviceData(DEVICE_ID_PREFIX + i,
+                        TestDataHolder.TEST_DEVICE_TYPE, TestDataHolder.generateEnrollmentInfo(new Date().getTime(),
+                                new Date().getTime(), TestDataHolder.OWNER, EnrolmentInfo.OwnerShip.BYOD,
+                                EnrolmentInfo.Status.ACTIVE));
+                device.setId(deviceDAO.addDevice(TestDataHolder.initialTestDeviceType.getId(), device, tenantId));
+                device.getEnrolmentInfo().setId(deviceDAO.addEnrollment(device, tenantId));
+
+                DeviceInfo deviceInfo = TestDataHolder.generateDummyDeviceInfo();
+                deviceInfo.setDeviceModel("BULK_MODEL_" + i);
+                deviceDetailsDAO.addDeviceInformation(device.getId(), device.getEnrolmentInfo().getId(), deviceInfo);
+
+                DeviceLocation location = new DeviceLocation();
+                location.setDeviceId(device.getId());
+                location.setLatitude(6.9 + i);
+                location.setLongitude(79.8 + i);
+                location.setCity("City " + i);
+                deviceDetailsDAO.addDeviceLocation(location, device.getEnrolmentInfo().getId());
+                devices.add(device);
+            }
+            DeviceManagementDAOFactory.commitTransaction();
+        } catch (DeviceManagementDAOException | DeviceDetailsMgtDAOException e) {
+            DeviceManagementDAOFactory.rollbackTransaction();
+            throw e;
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @Test(dependsOnMethods = "testAddDeviceDetails")
+    public void testGetDeviceInformationOfEnrolments() throws DeviceDetailsMgtDAOException, SQLException {
+        if (isMock()) {
+            return;
+        }
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            Map<Integer, DeviceInfo> deviceInfoMap = deviceDetailsDAO.getDeviceInformation(getEnrolmentIds());
+            Assert.assertEquals(deviceInfoMap.size(), devices.size(), "Unexpected number of device information " +
+                    "entries retrieved");
+            for (int i = 0; i < devices.size(); i++) {
+                DeviceInfo deviceInfo = deviceInfoMap.get(devices.get(i).getEnrolmentInfo().getId());
+                Assert.assertNotNull(deviceInfo, "Device information is not retrieved for device " + i);
+                Assert.assertEquals(deviceInfo.getDeviceModel(), "BULK_MODEL_" + i);
+            }
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @Test(dependsOnMethods = "testAddDeviceDetails")
+    public void testGetDeviceLocationsOfEnrolments() throws DeviceDetailsMgtDAOException, SQLException {
+        if (isMock()) {
+            return;
+        }
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            Map<Integer, DeviceLocation> locations = deviceDetailsDAO.getDeviceLocations(getEnrolmentIds());
+            Assert.assertEquals(locations.size(), devices.size(), "Unexpected number of device locations retrieved");
+            for (int i = 0; i < devices.size(); i++) {
+                DeviceLocation location = locations.get(devices.get(i).getEnrolmentInfo().getId());
+                Assert.assertNotNull(location, "Device location is not retrieved for device " + i);
+                Assert.assertEquals(location.getDeviceId(), devices.get(i).getId());
+                Assert.assertEquals(location.getCity(), "City " + i);
+            }
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @Test
+    public void testGetDeviceDetailsOfEmptyEnrolments() throws DeviceDetailsMgtDAOException, SQLException {
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            Assert.assertTrue(deviceDetailsDAO.getDeviceInformation(new ArrayList<Integer>()).isEmpty());
+            Assert.assertTrue(deviceDetailsDAO.getDeviceLocations(new ArrayList<Integer>()).isEmpty());
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+    }
+
+    /**
+     * Builds an enrolment id list longer than two IN clauses, with the persisted enrolments placed in the first and
+     * the last chunk so that every chunk of the lookup has to be read.
+     */
+    private List<Integer> getEnrolmentIds() {
+        int max = DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS;
+        List<Integer> enrolmentIds = new ArrayList<>();
+        enrolmentIds.add(devices.get(0).getEnrolmentInfo().getId());
+        for (int i = 0; i < 2 * max; i++) {
+            enrolmentIds.add(UNKNOWN_ENROLMENT_ID_OFFSET + i);
+        }
+        enrolmentIds.add(devices.get(1).getEnrolmentInfo().getId());
+        return enrolmentIds;
+    }
+}
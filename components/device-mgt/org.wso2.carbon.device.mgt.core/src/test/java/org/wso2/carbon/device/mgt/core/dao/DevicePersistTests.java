@@ -33,6 +33,8 @@ import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 
 import java.sql.*;
+import java.util.Arrays;
+import java.util.List;
 
 public class DevicePersistTests extends BaseDeviceManagementTest {
 
@@ -209,6 +211,24 @@ public class DevicePersistTests extends BaseDeviceManagementTest {
         }
     }
 
+    @Test(dependsOnMethods = "testAddDeviceTest")
+    public void testGetDevicesByIdentifiers() throws DeviceManagementDAOException, SQLException {
+        Device device = TestDataHolder.initialTestDevice;
+        List<Device> devices;
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            devices = deviceDAO.getDevices(device.getType(), Arrays.asList(device.getDeviceIdentifier(),
+                    "non-existing-device"), TestDataHolder.SUPER_TENANT_ID);
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        if (!isMock()) {
+            Assert.assertEquals(devices.size(), 1, "Only the enrolled device should be returned");
+            Assert.assertEquals(devices.get(0).getDeviceIdentifier(), device.getDeviceIdentifier());
+            Assert.assertTrue(devices.get(0).getEnrolmentInfo().getId() > 0, "Enrolment of the device is not loaded");
+        }
+    }
+
     private Status getEnrolmentStatus(String identifier, String deviceType, int tenantId)
             throws DeviceManagementDAOException {
 
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.dao;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.TransactionManagementException;
+import org.wso2.carbon.device.mgt.core.DeviceManagementConstants;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.CommandOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationDAO;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOException;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationMappingDAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class OperationMappingPersistenceTests extends BaseDeviceManagementTest {
+
+    private static final String DEVICE_ID_PREFIX = "bulk-mapping-device-";
+    private static final String OPERATION_CODE = "BULK_MAPPING_OPERATION";
+    private static final int UNKNOWN_ENROLMENT_ID_OFFSET = 900000;
+
+    private DeviceDAO deviceDAO;
+    private OperationDAO operationDAO;
+    private OperationMappingDAO operationMappingDAO;
+    private List<Device> devices = new ArrayList<>();
+    private int operationId;
+
+    @BeforeClass
+    @Override
+    public void init() throws Exception {
+        initDataSource();
+        deviceDAO = DeviceManagementDAOFactory.getDeviceDAO();
+        operationDAO = OperationManagementDAOFactory.getCommandOperationDAO();
+        operationMappingDAO = OperationManagementDAOFactory.getOperationMappingDAO();
+    }
+
+    @Test
+    public void testAddOperationMappings() throws DeviceManagementDAOException, OperationManagementDAOException,
+            TransactionManagementException, SQLException {
+        if (isMock()) {
+            return;
+        }
+        int tenantId = TestDataHolder.SUPER_TENANT_ID;
+        try {
+            DeviceManagementDAOFactory.beginTransaction();
+            for (int i = 0; i < 3; i++) {
+                Device device = TestDataHolder.generateDummyDeviceData(DEVICE_ID_PREFIX + i,
+                        TestDataHolder.TEST_DEVICE_TYPE, TestDataHolder.generateEnrollmentInfo(new Date().getTime(),
+                                new Date().getTime(), TestDataHolder.OWNER, EnrolmentInfo.OwnerShip.BYOD,
+                                EnrolmentInfo.Status.ACTIVE));
+                device.setId(deviceDAO.addDevice(TestDataHolder.initialTestDeviceType.getId(), device, tenantId));
+                device.getEnrolmentInfo().setId(deviceDAO.addEnrollment(device, tenantId));
+                devices.add(device);
+            }
+            DeviceManagementDAOFactory.commitTransaction();
+        } catch (DeviceManagementDAOException e) {
+            DeviceManagementDAOFactory.rollbackTransaction();
+            throw e;
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+
+        // The enrolments are repeated so that the mappings span more than one batch.
+        int[] enrolmentIds = new int[DeviceManagementConstants.DataBaseQueries.MAX_BATCH_SIZE + devices.size()];
+        for (int i = 0; i < enrolmentIds.length; i++) {
+            enrolmentIds[i] = devices.get(i % devices.size()).getEnrolmentInfo().getId();
+        }
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            CommandOperation operation = new CommandOperation();
+            operation.setType(Operation.Type.COMMAND);
+            operation.setCode(OPERATION_CODE);
+            operation.setInitiatedBy(TestDataHolder.OWNER);
+            operation.setEnabled(true);
+            operationId = operationDAO.addOperation(operation);
+            operationMappingDAO.addOperationMappings(operationId, enrolmentIds, false);
+            operationMappingDAO.addOperationMappings(operationId, new int[0], false);
+            OperationManagementDAOFactory.commitTransaction();
+        } catch (OperationManagementDAOException e) {
+            OperationManagementDAOFactory.rollbackTransaction();
+            throw e;
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+        Assert.assertEquals(getMappingCount(operationId), enrolmentIds.length,
+                "Mappings of all the batches are not persisted");
+    }
+
+    @Test(dependsOnMethods = "testAddOperationMappings")
+    public void testGetExistingOperationIDs() throws OperationManagementDAOException, SQLException {
+        if (isMock()) {
+            return;
+        }
+        try {
+            OperationManagementDAOFactory.openConnection();
+            Map<Integer, Integer> existingOperationIds = operationDAO.getExistingOperationIDs(getEnrolmentIds(),
+                    OPERATION_CODE);
+            Assert.assertEquals(existingOperationIds.size(), devices.size(),
+                    "Pending operations of all the chunks are not retrieved");
+            for (Device device : devices) {
+                Assert.assertEquals(existingOperationIds.get(device.getEnrolmentInfo().getId()),
+                        Integer.valueOf(operationId), "Pending operation of " + device.getDeviceIdentifier() +
+                                " is not retrieved");
+            }
+            Assert.assertTrue(operationDAO.getExistingOperationIDs(getEnrolmentIds(), "UNKNOWN_OPERATION")
+                    .isEmpty(), "Pending operations of another code are retrieved");
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @Test
+    public void testGetExistingOperationIDsOfEmptyEnrolments() throws OperationManagementDAOException,
+            SQLException {
+        try {
+            OperationManagementDAOFactory.openConnection();
+            Assert.assertTrue(operationDAO.getExistingOperationIDs(new ArrayList<Integer>(), OPERATION_CODE)
+                    .isEmpty());
+        } finally {
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+    private int getMappingCount(int operationId) throws SQLException {
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM DM_ENROLMENT_OP_MAPPING WHERE OPERATION_ID = ? AND STATUS = ?")) {
+            stmt.setInt(1, operationId);
+            stmt.setString(2, Operation.Status.PENDING.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Builds an enrolment id list longer than two IN clauses, with the persisted enrolments spread over the first
+     * and the last chunk so that every chunk of the lookup has to be read.
+     */
+    private List<Integer> getEnrolmentIds() {
+        int max = DeviceManagementConstants.DataBaseQueries.MAX_IN_CLAUSE_PARAMETERS;
+        List<Integer> enrolmentIds = new ArrayList<>();
+        enrolmentIds.add(devices.get(0).getEnrolmentInfo().getId());
+        for (int i = 0; i < 2 * max; i++) {
+            enrolmentIds.add(UNKNOWN_ENROLMENT_ID_OFFSET + i);
+        }
+        for (int i = 1; i < devices.size(); i++) {
+            enrolmentIds.add(devices.get(i).getEnrolmentInfo().getId());
+        }
+        return enrolmentIds;
+    }
+}
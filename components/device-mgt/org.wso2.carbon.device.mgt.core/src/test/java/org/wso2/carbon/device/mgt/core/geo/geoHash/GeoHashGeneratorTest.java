@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.geo.geoHash;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/*
+    Unit tests for GeoHashGenerator
+ */
+public class GeoHashGeneratorTest {
+    private static final String BASE_32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int NO_OF_LOCATIONS = 10000;
+
+    @Test(description = "test encoding well known locations")
+    public void testEncodeGeohash() {
+        Assert.assertTrue(GeoHashGenerator.encodeGeohash(57.64911, 10.40744).startsWith("u4pruydqqvj"),
+                "Geohash of a well known location is not as expected");
+        Assert.assertTrue(GeoHashGenerator.encodeGeohash(42.6, -5.6).startsWith("ezs42"),
+                "Geohash of a well known location is not as expected");
+        Assert.assertEquals(GeoHashGenerator.encodeGeohash(90, 180), "zzzzzzzzzzzzzzzz",
+                "Geohash of the north-east corner of the map is not as expected");
+    }
+
+    @Test(description = "test encoding the same geohashes as the range dividing encoder")
+    public void testEncodeGeohashAsRangeDividingEncoder() {
+        Random random = new Random(1);
+        for (int i = 0; i < NO_OF_LOCATIONS; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            String geohash = encodeByDividingRanges(latitude, longitude);
+            Assert.assertEquals(GeoHashGenerator.encodeGeohash(latitude, longitude), geohash,
+                    "Geohash of " + latitude + ", " + longitude + " is not as expected");
+            Assert.assertEquals(GeoHashGenerator.toString(GeoHashGenerator.encodeLongGeohash(latitude, longitude,
+                    GeoHashGenerator.MAX_LONG_GEOHASH_LENGTH)), geohash.substring(0,
+                    GeoHashGenerator.MAX_LONG_GEOHASH_LENGTH), "Numeric geohash of " + latitude + ", " + longitude +
+                    " is not as expected");
+        }
+    }
+
+    @Test(description = "test converting numeric geohashes to strings and back")
+    public void testLongGeohashConversion() {
+        long geohash = GeoHashGenerator.fromString("u4pruydqqvj");
+        Assert.assertEquals(GeoHashGenerator.getLength(geohash), 11, "Length of the numeric geohash is not kept");
+        Assert.assertEquals(GeoHashGenerator.toString(geohash), "u4pruydqqvj",
+                "Numeric geohash is not converted back to the same string");
+        Assert.assertEquals(GeoHashGenerator.toString(GeoHashGenerator.getPrefix(geohash, 5)), "u4pru",
+                "Prefix of the numeric geohash is not as expected");
+        Assert.assertEquals(GeoHashGenerator.encodeLongGeohash(57.64911, 10.40744, 11), geohash,
+                "Encoded numeric geohash is not as expected");
+    }
+
+    @Test(description = "test getting the neighbours and the bounding box of a numeric geohash")
+    public void testNeighboursAndBoundingBox() {
+        long geohash = GeoHashGenerator.fromString("ezs42");
+        Assert.assertEquals(GeoHashGenerator.toString(GeoHashGenerator.getNeighbour(geohash, 0, 1)), "ezs43",
+                "Eastern neighbour is not as expected");
+        Assert.assertEquals(GeoHashGenerator.toString(GeoHashGenerator.getNeighbour(geohash, 1, 0)), "ezs48",
+                "Northern neighbour is not as expected");
+        Assert.assertEquals(GeoHashGenerator.toString(GeoHashGenerator.getNeighbour(geohash, -1, -1)), "ezefp",
+                "South-western neighbour is not as expected");
+
+        long eastern = GeoHashGenerator.getNeighbour(geohash, 0, 1);
+        Assert.assertEquals(GeoHashGenerator.getMinLongitude(eastern), GeoHashGenerator.getMaxLongitude(geohash),
+                "Eastern neighbour does not share the eastern edge of the cell");
+        Assert.assertTrue(GeoHashGenerator.getMinLatitude(geohash) <= 42.6 &&
+                GeoHashGenerator.getMaxLatitude(geohash) > 42.6 && GeoHashGenerator.getMinLongitude(geohash) <= -5.6 &&
+                GeoHashGenerator.getMaxLongitude(geohash) > -5.6, "Bounding box does not contain the location");
+    }
+
+    /**
+     * Reference encoder, which divides the coordinate ranges bit by bit.
+     */
+    private String encodeByDividingRanges(double latitude, double longitude) {
+        double[] latRange = new double[]{-90.0, 90.0};
+        double[] lonRange = new double[]{-180.0, 180.0};
+        boolean isEven = true;
+        int bit = 0;
+        int base32CharIndex = 0;
+        StringBuilder geohash = new StringBuilder();
+        while (geohash.length() < 16) {
+            double[] range = isEven ? lonRange : latRange;
+            double value = isEven ? longitude : latitude;
+            double mid = (range[0] + range[1]) / 2;
+            if (value >= mid) {
+                range[0] = mid;
+                base32CharIndex = (base32CharIndex << 1) | 1;
+            } else {
+                range[1] = mid;
+                base32CharIndex = base32CharIndex << 1;
+            }
+            isEven = !isEven;
+            if (bit < 4) {
+                bit++;
+            } else {
+                geohash.append(BASE_32.charAt(base32CharIndex));
+                bit = 0;
+                base32CharIndex = 0;
+            }
+        }
+        return geohash.toString();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.internal;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.service.DeviceChangeListener;
+import org.wso2.carbon.user.api.Permission;
+import org.wso2.carbon.user.api.RealmConfiguration;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/*
+    Unit tests for UserRoleCacheInvalidationListener
+ */
+public class UserRoleCacheInvalidationListenerTest extends BaseDeviceManagementTest {
+    private static final int TENANT_ID = MultitenantConstants.SUPER_TENANT_ID;
+
+    private UserRoleCacheInvalidationListener listener;
+    private DeviceChangeListener deviceChangeListener;
+    private UserStoreManager userStoreManager;
+    private int notifiedTenantId;
+
+    @BeforeClass
+    public void init() throws Exception {
+        listener = new UserRoleCacheInvalidationListener();
+        userStoreManager = Mockito.mock(UserStoreManager.class);
+        Mockito.when(userStoreManager.getTenantId()).thenReturn(TENANT_ID);
+        Mockito.when(userStoreManager.getRealmConfiguration()).thenReturn(new RealmConfiguration());
+    }
+
+    @BeforeMethod
+    public void registerDeviceChangeListener() {
+        deviceChangeListener = Mockito.mock(DeviceChangeListener.class);
+        notifiedTenantId = -1;
+        Answer<Void> recordTenant = new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                notifiedTenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+                return null;
+            }
+        };
+        Mockito.doAnswer(recordTenant).when(deviceChangeListener).onUsersChanged(Mockito.anyListOf(String.class));
+        Mockito.doAnswer(recordTenant).when(deviceChangeListener).onRoleChanged(Mockito.anyString());
+        DeviceManagementDataHolder.getInstance().addDeviceChangeListener(deviceChangeListener);
+    }
+
+    @AfterMethod
+    public void unregisterDeviceChangeListener() {
+        DeviceManagementDataHolder.getInstance().removeDeviceChangeListener(deviceChangeListener);
+    }
+
+    @Test(description = "test that the users whose roles change are notified within their tenant")
+    public void testUserChanges() throws Exception {
+        Assert.assertTrue(listener.doPostUpdateRoleListOfUser("user1", new String[0], new String[]{"role1"},
+                userStoreManager));
+        Mockito.verify(deviceChangeListener).onUsersChanged(Collections.singletonList("user1"));
+        Assert.assertEquals(notifiedTenantId, TENANT_ID, "Users are not notified within their tenant");
+
+        Assert.assertTrue(listener.doPostDeleteUser("user2", userStoreManager));
+        Mockito.verify(deviceChangeListener).onUsersChanged(Collections.singletonList("user2"));
+
+        Assert.assertTrue(listener.doPostAddRole("role1", new String[]{"user3", "user4"}, new Permission[0],
+                userStoreManager));
+        Mockito.verify(deviceChangeListener).onUsersChanged(Arrays.asList("user3", "user4"));
+        Assert.assertTrue(listener.doPostAddRole("role2", new String[0], new Permission[0], userStoreManager));
+        Mockito.verify(deviceChangeListener, Mockito.times(3)).onUsersChanged(Mockito.anyListOf(String.class));
+
+        Assert.assertTrue(listener.doPostUpdateUserListOfRole("role1", new String[]{"user3"},
+                new String[]{"user5"}, userStoreManager));
+        Mockito.verify(deviceChangeListener).onUsersChanged(Arrays.asList("user3", "user5"));
+        Mockito.verify(deviceChangeListener, Mockito.never()).onRoleChanged(Mockito.anyString());
+    }
+
+    @Test(description = "test that deleted and renamed roles are notified within their tenant")
+    public void testRoleChanges() throws Exception {
+        Assert.assertTrue(listener.doPostDeleteRole("role1", userStoreManager));
+        Mockito.verify(deviceChangeListener).onRoleChanged("role1");
+        Assert.assertEquals(notifiedTenantId, TENANT_ID, "Role is not notified within its tenant");
+
+        Assert.assertTrue(listener.doPostUpdateRoleName("role2", "role3", userStoreManager));
+        Mockito.verify(deviceChangeListener).onRoleChanged("role2");
+        Mockito.verify(deviceChangeListener, Mockito.never()).onUsersChanged(Mockito.anyListOf(String.class));
+    }
+
+}
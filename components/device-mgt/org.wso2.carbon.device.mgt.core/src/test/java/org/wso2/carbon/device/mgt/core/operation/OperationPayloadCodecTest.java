@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.operation;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.PolicyOperation;
+import org.wso2.carbon.device.mgt.core.dto.operation.mgt.ProfileOperation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.CompactOperationPayloadCodec;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.util.OperationPayloadCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class holds the unit test cases of {@link CompactOperationPayloadCodec}, including a size comparison against
+ * the Java serialization format that was used to persist operation payloads earlier.
+ */
+public class OperationPayloadCodecTest {
+
+    private static final String SMALL_RESPONSE = "{\"battery\":\"93\"}";
+
+    private final OperationPayloadCodec codec = new CompactOperationPayloadCodec();
+
+    @Test(description = "Test encoding and decoding of a response below the compression threshold")
+    public void testSmallStringRoundTrip() throws Exception {
+        byte[] content = codec.encode(SMALL_RESPONSE);
+        Assert.assertTrue(codec.isCurrentFormat(content));
+        Assert.assertEquals(codec.decode(content), SMALL_RESPONSE);
+        Assert.assertTrue(content.length < serialize(SMALL_RESPONSE).length,
+                "Encoded content is not smaller than the Java serialized content");
+    }
+
+    @Test(description = "Test encoding and decoding of a large response, which gets compressed")
+    public void testLargeStringRoundTrip() throws Exception {
+        String response = getApplicationListResponse(200);
+        byte[] content = codec.encode(response);
+        byte[] legacyContent = serialize(response);
+        Assert.assertEquals(codec.decode(content), response);
+        Assert.assertTrue(content.length * 4 < legacyContent.length, "Encoded size " + content.length +
+                " is not significantly smaller than the Java serialized size " + legacyContent.length);
+    }
+
+    @Test(description = "Test encoding and decoding of payloads which are not strings")
+    public void testSerializableRoundTrip() throws Exception {
+        HashMap<String, String> payload = new HashMap<>();
+        payload.put("PASSCODE_POLICY", getApplicationListResponse(20));
+        Assert.assertEquals(codec.decode(codec.encode(payload)), payload);
+        Assert.assertNull(codec.decode(codec.encode(null)));
+    }
+
+    @Test(description = "Test encoding and decoding of a policy operation, which is written as JSON")
+    public void testPolicyOperationRoundTrip() throws Exception {
+        PolicyOperation operation = new PolicyOperation();
+        operation.setId(10);
+        operation.setCode("POLICY_BUNDLE");
+        operation.setStatus(Operation.Status.PENDING);
+        operation.setEnabled(true);
+        operation.setCreatedTimeStamp("2017-10-17 12:00:00.0");
+        List<ProfileOperation> profileOperations = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ProfileOperation profileOperation = new ProfileOperation();
+            profileOperation.setCode("PROFILE_" + i);
+            profileOperation.setPayLoad(getApplicationListResponse(i + 1));
+            profileOperations.add(profileOperation);
+        }
+        operation.setProfileOperations(profileOperations);
+
+        byte[] content = new CompactOperationPayloadCodec(-1).encode(operation);
+        Assert.assertTrue(content.length < serialize(operation).length, "Encoded size " + content.length +
+                " is not smaller than the Java serialized size " + serialize(operation).length);
+        PolicyOperation decodedOperation = (PolicyOperation) codec.decode(content);
+        Assert.assertEquals(decodedOperation.getId(), 10);
+        Assert.assertEquals(decodedOperation.getCode(), "POLICY_BUNDLE");
+        Assert.assertEquals(decodedOperation.getStatus(), Operation.Status.PENDING);
+        Assert.assertTrue(decodedOperation.isEnabled());
+        Assert.assertEquals(decodedOperation.getCreatedTimeStamp(), "2017-10-17 12:00:00.0");
+        Assert.assertEquals(decodedOperation.getProfileOperations().size(), profileOperations.size());
+        for (int i = 0; i < profileOperations.size(); i++) {
+            ProfileOperation profileOperation = decodedOperation.getProfileOperations().get(i);
+            Assert.assertEquals(profileOperation.getClass(), ProfileOperation.class);
+            Assert.assertEquals(profileOperation.getCode(), "PROFILE_" + i);
+            Assert.assertEquals(profileOperation.getPayLoad(), getApplicationListResponse(i + 1));
+        }
+    }
+
+    @Test(description = "Test encoding and decoding of an operation whose payload is not a string")
+    public void testOperationWithObjectPayloadRoundTrip() throws Exception {
+        HashMap<String, String> payload = new HashMap<>();
+        payload.put("PASSCODE_POLICY", getApplicationListResponse(2));
+        ProfileOperation operation = new ProfileOperation();
+        operation.setCode("PASSCODE_POLICY");
+        operation.setPayLoad(payload);
+        ProfileOperation decodedOperation = (ProfileOperation) codec.decode(codec.encode(operation));
+        Assert.assertEquals(decodedOperation.getCode(), "PASSCODE_POLICY");
+        Assert.assertEquals(decodedOperation.getPayLoad(), payload, "Payload is not read back as it was written");
+    }
+
+    @Test(description = "Test decoding the content persisted with Java serialization")
+    public void testLegacyContent() throws Exception {
+        String response = getApplicationListResponse(10);
+        byte[] legacyContent = serialize(response);
+        Assert.assertFalse(codec.isCurrentFormat(legacyContent));
+        Assert.assertEquals(codec.decode(legacyContent), response);
+    }
+
+    @Test(description = "Test decoding content of an unknown format", expectedExceptions = IOException.class)
+    public void testUnknownContent() throws Exception {
+        codec.decode(new byte[]{1, 2, 3, 4, 5});
+    }
+
+    @Test(description = "Test disabling the compression")
+    public void testCompressionDisabled() throws Exception {
+        String response = getApplicationListResponse(50);
+        OperationPayloadCodec uncompressedCodec = new CompactOperationPayloadCodec(-1);
+        byte[] content = uncompressedCodec.encode(response);
+        Assert.assertTrue(content.length > codec.encode(response).length);
+        Assert.assertEquals(codec.decode(content), response);
+    }
+
+    private static String getApplicationListResponse(int applicationCount) {
+        StringBuilder response = new StringBuilder("[");
+        for (int i = 0; i < applicationCount; i++) {
+            if (i > 0) {
+                response.append(",");
+            }
+            response.append("{\"name\":\"Application ").append(i).append("\",\"package\":\"org.wso2.app")
+                    .append(i).append("\",\"version\":\"1.0.").append(i)
+                    .append("\",\"isActive\":true,\"USS\":\"").append(i * 1024).append("\"}");
+        }
+        return response.append("]").toString();
+    }
+
+    private static byte[] serialize(Object payload) throws IOException {
+        ByteArrayOutputStream bao = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bao)) {
+            oos.writeObject(payload);
+        }
+        return bao.toByteArray();
+    }
+}
@@ -21,10 +21,15 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.mockito.Mockito;
 import org.testng.Assert;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManagementException;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationContext;
+import org.wso2.carbon.device.mgt.common.push.notification.NotificationStrategy;
+import org.wso2.carbon.device.mgt.common.push.notification.PushNotificationExecutionFailedException;
 import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.dto.operation.mgt.Operation;
@@ -40,8 +45,14 @@ import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceIm
 import org.wso2.carbon.registry.core.exceptions.RegistryException;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class contains unit tests to test {@link PushNotificationSchedulerTask} class.
@@ -49,6 +60,7 @@ import java.util.Map;
 public class PushNotificationSchedulerTaskTest extends BaseDeviceManagementTest {
     private static final Log log = LogFactory.getLog(PushNotificationSchedulerTask.class);
     private DeviceManagementProviderService deviceMgtProviderService;
+    private PushNotificationDispatcher pushNotificationDispatcher;
     private PushNotificationSchedulerTask pushNotificationSchedulerTask;
     private OperationDAO operationDAO;
 
@@ -60,7 +72,13 @@ public class PushNotificationSchedulerTaskTest extends BaseDeviceManagementTest
         this.deviceMgtProviderService = Mockito.mock(DeviceManagementProviderServiceImpl.class, Mockito.CALLS_REAL_METHODS);
         DeviceManagementDataHolder.getInstance().setDeviceManagementProvider(this.deviceMgtProviderService);
         this.operationDAO = OperationManagementDAOFactory.getOperationDAO();
-        this.pushNotificationSchedulerTask = new PushNotificationSchedulerTask();
+        this.pushNotificationDispatcher = new PushNotificationDispatcher(2, 10);
+        this.pushNotificationSchedulerTask = new PushNotificationSchedulerTask(this.pushNotificationDispatcher);
+    }
+
+    @AfterClass
+    public void cleanup() {
+        this.pushNotificationDispatcher.shutdown();
     }
 
     @Test(description = "Tests the push notification scheduling for devices")
@@ -85,4 +103,86 @@ public class PushNotificationSchedulerTaskTest extends BaseDeviceManagementTest
             OperationManagementDAOFactory.closeConnection();
         }
     }
+
+    @Test(description = "Tests that the dispatcher reports sent and failed notifications")
+    public void testPushNotificationDispatcher() throws ExecutionException, InterruptedException {
+        PushNotificationDispatcher dispatcher = new PushNotificationDispatcher(2, 10);
+        NotificationContext context = new NotificationContext(new DeviceIdentifier("1", "TEST"),
+                new org.wso2.carbon.device.mgt.common.operation.mgt.Operation());
+        try {
+            Assert.assertTrue(dispatcher.dispatch(-1234, "TEST", new TestNotificationStrategy(), context).get());
+            Assert.assertFalse(dispatcher.dispatch(-1234, "TEST", new TestNotificationStrategy(true), context).get());
+            Assert.assertEquals(dispatcher.getSentCount(), 1);
+            Assert.assertEquals(dispatcher.getFailedCount(), 1);
+            Assert.assertEquals(dispatcher.getQueueDepth(), 0);
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test(description = "Tests that notifications of all tenants share one pool, which drains before shutting down")
+    public void testPushNotificationDispatcherShutdown() {
+        PushNotificationDispatcher dispatcher = new PushNotificationDispatcher(1, 2);
+        NotificationContext context = new NotificationContext(new DeviceIdentifier("1", "TEST"),
+                new org.wso2.carbon.device.mgt.common.operation.mgt.Operation());
+        for (int i = 0; i < 10; i++) {
+            dispatcher.dispatch(-1234 - (i % 3), "TEST" + (i % 2), new TestNotificationStrategy(), context);
+        }
+        dispatcher.shutdown(5000);
+        Assert.assertEquals(dispatcher.getSentCount(), 10, "Queued notifications are not sent before shutting down");
+        Assert.assertEquals(dispatcher.getQueueDepth(), 0);
+        Assert.assertEquals(dispatcher.getActiveWorkerCount(), 0);
+    }
+
+    @Test(description = "Tests that the dispatching thread sends the notification when the queue of the pool is full")
+    public void testSaturatedPushNotificationDispatcher() throws Exception {
+        PushNotificationDispatcher dispatcher = new PushNotificationDispatcher(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread dispatchingThread = Thread.currentThread();
+        final AtomicInteger sentByDispatchingThread = new AtomicInteger();
+        NotificationStrategy strategy = new TestNotificationStrategy() {
+            @Override
+            public void execute(NotificationContext ctx) throws PushNotificationExecutionFailedException {
+                if (Thread.currentThread() == dispatchingThread) {
+                    sentByDispatchingThread.incrementAndGet();
+                    return;
+                }
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        NotificationContext context = new NotificationContext(new DeviceIdentifier("1", "TEST"),
+                new org.wso2.carbon.device.mgt.common.operation.mgt.Operation());
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                results.add(dispatcher.dispatch(-1234, "TEST", strategy, context));
+            }
+            Assert.assertEquals(sentByDispatchingThread.get(), 1,
+                    "Dispatching thread does not send the notification of a saturated pool");
+            Assert.assertTrue(results.get(2).isDone());
+            release.countDown();
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            release.countDown();
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test(description = "Tests that notifications dispatched after shutting down are not sent and do not block")
+    public void testPushNotificationDispatcherAfterShutdown() throws Exception {
+        PushNotificationDispatcher dispatcher = new PushNotificationDispatcher(1, 2);
+        dispatcher.shutdown(5000);
+        NotificationContext context = new NotificationContext(new DeviceIdentifier("1", "TEST"),
+                new org.wso2.carbon.device.mgt.common.operation.mgt.Operation());
+        Future<Boolean> result = dispatcher.dispatch(-1234, "TEST", new TestNotificationStrategy(), context);
+        Assert.assertTrue(result.isDone(), "Notification dispatched after shutting down is not completed");
+        Assert.assertFalse(result.get(), "Notification dispatched after shutting down is reported as sent");
+        Assert.assertEquals(dispatcher.getSentCount(), 0);
+    }
 }
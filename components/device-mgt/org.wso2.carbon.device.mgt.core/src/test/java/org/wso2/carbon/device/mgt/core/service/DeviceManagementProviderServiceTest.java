@@ -30,12 +30,17 @@ import org.wso2.carbon.device.mgt.common.PaginationRequest;
 import org.wso2.carbon.device.mgt.common.PaginationResult;
 import org.wso2.carbon.device.mgt.common.TransactionManagementException;
 import org.wso2.carbon.device.mgt.common.configuration.mgt.ConfigurationManagementException;
+import org.wso2.carbon.device.mgt.common.device.details.DeviceLocation;
 import org.wso2.carbon.device.mgt.common.license.mgt.License;
 import org.wso2.carbon.device.mgt.core.TestDeviceManagementService;
 import org.wso2.carbon.device.mgt.core.authorization.DeviceAccessAuthorizationServiceImpl;
+import org.wso2.carbon.device.mgt.core.cache.PendingOperationCacheManager;
+import org.wso2.carbon.device.mgt.core.cache.impl.PendingOperationCacheManagerImpl;
 import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
 import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.DeviceManagementConfig;
+import org.wso2.carbon.device.mgt.core.config.cache.PendingOperationCacheConfiguration;
 import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsDAO;
 import org.wso2.carbon.device.mgt.core.device.details.mgt.dao.DeviceDetailsMgtDAOException;
@@ -58,6 +63,8 @@ import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
@@ -70,6 +77,9 @@ public class DeviceManagementProviderServiceTest extends BaseDeviceManagementTes
     private static final Log log = LogFactory.getLog(DeviceManagementProviderServiceTest.class);
     public static final String DEVICE_ID = "9999";
     private static final String ALTERNATE_DEVICE_ID = "1128";
+    private static final String MISSING_INFO_DEVICE_ID = "1129";
+    private static final String STATUS_CHANGE_DEVICE_ID = "1130";
+    private static final String STATUS_CHANGE_OWNER = "status-change-user";
     private DeviceManagementProviderService providerService;
     private static final String DEVICE_TYPE = "RANDOM_DEVICE_TYPE";
     private DeviceDetailsDAO deviceDetailsDAO = DeviceManagementDAOFactory.getDeviceDetailsDAO();
@@ -164,6 +174,23 @@ public class DeviceManagementProviderServiceTest extends BaseDeviceManagementTes
         }
     }
 
+    @Test(dependsOnMethods = "testSuccessfulDeviceEnrollment")
+    public void testGetDevicesByStatuses() throws DeviceManagementException {
+        if (!isMock()) {
+            List<EnrolmentInfo.Status> statuses = Arrays.asList(EnrolmentInfo.Status.values());
+            List<Device> devices = deviceMgtService.getDevicesByStatus(DEVICE_TYPE, statuses, 0, 1);
+            Assert.assertEquals(devices.size(), 1);
+            int lastEnrolmentId = devices.get(0).getEnrolmentInfo().getId();
+            for (Device device : deviceMgtService.getDevicesByStatus(DEVICE_TYPE, statuses, lastEnrolmentId, 100)) {
+                Assert.assertTrue(device.getEnrolmentInfo().getId() > lastEnrolmentId,
+                        "Devices are not returned in the order of the enrolments.");
+                lastEnrolmentId = device.getEnrolmentInfo().getId();
+            }
+            Assert.assertTrue(deviceMgtService.getDevicesByStatus(DEVICE_TYPE,
+                    new ArrayList<EnrolmentInfo.Status>(), 0, 100).isEmpty());
+        }
+    }
+
     @Test(dependsOnMethods = "testSuccessfulDeviceEnrollment")
     public void testIsEnrolled() throws DeviceManagementException {
         DeviceIdentifier deviceIdentifier = new DeviceIdentifier();
@@ -662,6 +689,44 @@ public class DeviceManagementProviderServiceTest extends BaseDeviceManagementTes
         Assert.assertTrue(result.getRecordsTotal() > 0);
     }
 
+    @Test(dependsOnMethods = {"testSuccessfulDeviceEnrollment"})
+    public void testGetAllDevicesWithMissingInfo() throws DeviceManagementException, TransactionManagementException,
+            DeviceDetailsMgtDAOException {
+        if (!isMock()) {
+            DeviceIdentifier deviceIdentifier = new DeviceIdentifier(MISSING_INFO_DEVICE_ID, DEVICE_TYPE);
+            Assert.assertTrue(deviceMgtService.enrollDevice(TestDataHolder.generateDummyDeviceData(deviceIdentifier)));
+            Device device = getDevice(deviceMgtService.getAllDevices(true), deviceIdentifier);
+            Assert.assertNull(device.getDeviceInfo(), "Device info is returned for a device without info");
+
+            DeviceLocation location = new DeviceLocation();
+            location.setDeviceId(device.getId());
+            location.setLatitude(6.9);
+            location.setLongitude(79.8);
+            DeviceManagementDAOFactory.beginTransaction();
+            try {
+                deviceDetailsDAO.addDeviceLocation(location, device.getEnrolmentInfo().getId());
+                DeviceManagementDAOFactory.commitTransaction();
+            } finally {
+                DeviceManagementDAOFactory.closeConnection();
+            }
+            device = getDevice(deviceMgtService.getAllDevices(true), deviceIdentifier);
+            Assert.assertNotNull(device.getDeviceInfo(), "Device info is not returned for a device with a location");
+            Assert.assertEquals(device.getDeviceInfo().getLocation().getLatitude(), Double.valueOf(6.9));
+            Assert.assertNull(device.getDeviceInfo().getDeviceModel(), "Device info is made up for the location");
+        }
+    }
+
+    private Device getDevice(List<Device> devices, DeviceIdentifier deviceIdentifier) {
+        for (Device device : devices) {
+            if (deviceIdentifier.getId().equals(device.getDeviceIdentifier()) &&
+                    deviceIdentifier.getType().equalsIgnoreCase(device.getType())) {
+                return device;
+            }
+        }
+        Assert.fail("Device " + deviceIdentifier.getId() + " is not returned");
+        return null;
+    }
+
     @Test(dependsOnMethods = {"testSuccessfulDeviceEnrollment"})
     public void testGetTenantedDevice() throws DeviceManagementException {
         HashMap<Integer, Device> deviceMap = deviceMgtService.getTenantedDevice(new
@@ -810,6 +875,42 @@ public class DeviceManagementProviderServiceTest extends BaseDeviceManagementTes
         Assert.assertFalse(status);
     }
 
+    @Test(dependsOnMethods = {"testSuccessfulDeviceEnrollment"})
+    public void testStatusChangeInvalidatesPendingOperationCache() throws DeviceManagementException {
+        if (!isMock()) {
+            DeviceManagementConfig config = DeviceConfigurationManager.getInstance().getDeviceManagementConfig();
+            PendingOperationCacheConfiguration defaultConfiguration = config.getPendingOperationCacheConfiguration();
+            PendingOperationCacheConfiguration configuration = new PendingOperationCacheConfiguration();
+            configuration.setEnabled(true);
+            config.setPendingOperationCacheConfiguration(configuration);
+            try {
+                DeviceIdentifier deviceIdentifier = new DeviceIdentifier(STATUS_CHANGE_DEVICE_ID, DEVICE_TYPE);
+                Device device = TestDataHolder.generateDummyDeviceData(deviceIdentifier);
+                device.getEnrolmentInfo().setOwner(STATUS_CHANGE_OWNER);
+                Assert.assertTrue(deviceMgtService.enrollDevice(device));
+                PendingOperationCacheManager cacheManager = PendingOperationCacheManagerImpl.getInstance();
+
+                markIdle(cacheManager, deviceIdentifier);
+                Assert.assertTrue(deviceMgtService.changeDeviceStatus(deviceIdentifier, EnrolmentInfo.Status.INACTIVE));
+                Assert.assertNull(cacheManager.getIdleEnrolment(deviceIdentifier, MultitenantConstants.SUPER_TENANT_ID),
+                        "Device is found idle after its status was changed");
+
+                markIdle(cacheManager, deviceIdentifier);
+                Assert.assertTrue(deviceMgtService.setStatus(STATUS_CHANGE_OWNER, EnrolmentInfo.Status.ACTIVE));
+                Assert.assertNull(cacheManager.getIdleEnrolment(deviceIdentifier, MultitenantConstants.SUPER_TENANT_ID),
+                        "Device is found idle after the status of the devices of its owner was changed");
+            } finally {
+                config.setPendingOperationCacheConfiguration(defaultConfiguration);
+            }
+        }
+    }
+
+    private void markIdle(PendingOperationCacheManager cacheManager, DeviceIdentifier deviceIdentifier) {
+        long pollId = cacheManager.startPoll(deviceIdentifier, MultitenantConstants.SUPER_TENANT_ID);
+        Assert.assertTrue(cacheManager.markIdle(deviceIdentifier, 1, STATUS_CHANGE_OWNER, pollId,
+                MultitenantConstants.SUPER_TENANT_ID), "Device is not marked as idle");
+    }
+
     @Test(dependsOnMethods = {"testSuccessfulDeviceEnrollment"})
     public void testGetDeviesOfUserAndDeviceType() throws DeviceManagementException {
         if (!isMock()) {
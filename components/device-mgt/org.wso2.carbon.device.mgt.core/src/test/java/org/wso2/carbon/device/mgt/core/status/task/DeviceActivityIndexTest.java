@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.core.status.task;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/*
+    Unit tests for DeviceActivityIndex
+ */
+public class DeviceActivityIndexTest {
+    private static final String DEVICE_TYPE = "ACTIVITY_TEST_TYPE";
+    private static final String OTHER_DEVICE_TYPE = "ACTIVITY_TEST_OTHER_TYPE";
+    private static final int ENROLMENT_ID = 100001;
+    private static final int OTHER_ENROLMENT_ID = 100002;
+
+    @Test(description = "test recording and getting the activity of an enrolment")
+    public void testRecordActivity() {
+        DeviceActivityIndex deviceActivityIndex = DeviceActivityIndex.getInstance();
+        long now = System.currentTimeMillis() / 1000;
+        deviceActivityIndex.recordActivity(DEVICE_TYPE, ENROLMENT_ID);
+        Assert.assertTrue(deviceActivityIndex.getLastSeenTime(DEVICE_TYPE, ENROLMENT_ID) >= now,
+                "Activity of the enrolment is not recorded");
+        Assert.assertEquals(deviceActivityIndex.getLastSeenTime(OTHER_DEVICE_TYPE, ENROLMENT_ID), -1,
+                "Activity is recorded against another device type");
+    }
+
+    @Test(description = "test that eviction only affects the given device type",
+            dependsOnMethods = {"testRecordActivity"})
+    public void testEvictBeforePerDeviceType() {
+        DeviceActivityIndex deviceActivityIndex = DeviceActivityIndex.getInstance();
+        deviceActivityIndex.recordActivity(OTHER_DEVICE_TYPE, OTHER_ENROLMENT_ID);
+        long future = System.currentTimeMillis() / 1000 + 60;
+        deviceActivityIndex.evictBefore(DEVICE_TYPE, future);
+        Assert.assertEquals(deviceActivityIndex.getLastSeenTime(DEVICE_TYPE, ENROLMENT_ID), -1,
+                "Enrolment is not evicted");
+        Assert.assertNotEquals(deviceActivityIndex.getLastSeenTime(OTHER_DEVICE_TYPE, OTHER_ENROLMENT_ID), -1,
+                "Enrolment of another device type is evicted");
+        deviceActivityIndex.evictBefore(OTHER_DEVICE_TYPE, future);
+        Assert.assertEquals(deviceActivityIndex.getLastSeenTime(OTHER_DEVICE_TYPE, OTHER_ENROLMENT_ID), -1,
+                "Enrolment is not evicted");
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.device.mgt.core.status.task.impl;
+
+import com.google.gson.Gson;
+import org.powermock.api.mockito.PowerMockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.DeviceStatusTaskPluginConfig;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.operation.mgt.Operation;
+import org.wso2.carbon.device.mgt.common.operation.mgt.OperationManager;
+import org.wso2.carbon.device.mgt.core.TestDeviceManagementService;
+import org.wso2.carbon.device.mgt.core.TestUtils;
+import org.wso2.carbon.device.mgt.core.common.BaseDeviceManagementTest;
+import org.wso2.carbon.device.mgt.core.common.TestDataHolder;
+import org.wso2.carbon.device.mgt.core.internal.DeviceManagementDataHolder;
+import org.wso2.carbon.device.mgt.core.operation.TestNotificationStrategy;
+import org.wso2.carbon.device.mgt.core.operation.mgt.CommandOperation;
+import org.wso2.carbon.device.mgt.core.operation.mgt.OperationManagerImpl;
+import org.wso2.carbon.device.mgt.core.operation.mgt.dao.OperationManagementDAOFactory;
+import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+    Unit tests for DeviceStatusMonitoringTask. The task is run several times while the pending operations of the
+    devices, and the last run of the task, are moved back in time.
+ */
+public class DeviceStatusMonitoringTaskTest extends BaseDeviceManagementTest {
+    private static final String DEVICE_TYPE = "STATUS_TEST_TYPE";
+    private static final String DEVICE_ID = "STATUS-TEST-DEVICE-ID-0";
+    private static final String UNREACHABLE_DEVICE_ID = "STATUS-TEST-DEVICE-ID-1";
+    private static final String COMMAND_OPERATION_CODE = "STATUS-TEST";
+    private static final int IDLE_TIME_TO_MARK_UNREACHABLE = 100;
+    private static final int IDLE_TIME_TO_MARK_INACTIVE = 200;
+    private static final int FREQUENCY = 30;
+    private static final int STEP = 60;
+
+    private DeviceManagementProviderService deviceMgtService;
+    private OperationManager operationManager;
+    private DeviceStatusMonitoringTask deviceStatusMonitoringTask;
+    private int deviceTypeId;
+
+    @BeforeClass
+    public void init() throws Exception {
+        deviceMgtService = DeviceManagementDataHolder.getInstance().getDeviceManagementProvider();
+        TestDeviceManagementService deviceManagementService = new TestDeviceManagementService(DEVICE_TYPE,
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        deviceMgtService.registerDeviceType(deviceManagementService);
+        deviceTypeId = deviceMgtService.getDeviceType(DEVICE_TYPE).getId();
+        operationManager = PowerMockito.spy(new OperationManagerImpl(DEVICE_TYPE, deviceManagementService));
+        PowerMockito.when(operationManager, "getNotificationStrategy").thenReturn(new TestNotificationStrategy());
+
+        DeviceStatusTaskPluginConfig config = new DeviceStatusTaskPluginConfig();
+        config.setRequireStatusMonitoring(true);
+        config.setIdleTimeToMarkUnreachable(IDLE_TIME_TO_MARK_UNREACHABLE);
+        config.setIdleTimeToMarkInactive(IDLE_TIME_TO_MARK_INACTIVE);
+        config.setFrequency(FREQUENCY);
+        Map<String, String> properties = new HashMap<>();
+        properties.put(DeviceStatusTaskManagerServiceImpl.DEVICE_TYPE, DEVICE_TYPE);
+        properties.put(DeviceStatusTaskManagerServiceImpl.DEVICE_TYPE_ID, String.valueOf(deviceTypeId));
+        properties.put(DeviceStatusTaskManagerServiceImpl.DEVICE_STATUS_TASK_CONFIG, new Gson().toJson(config));
+        deviceStatusMonitoringTask = new DeviceStatusMonitoringTask();
+        deviceStatusMonitoringTask.setProperties(properties);
+    }
+
+    @Test(description = "test that a device becomes unreachable and then inactive over several runs")
+    public void testActiveToUnreachableToInactive() throws Exception {
+        DeviceIdentifier deviceId = new DeviceIdentifier(DEVICE_ID, DEVICE_TYPE);
+        int enrolmentId = this.enrollDeviceWithPendingOperation(deviceId);
+
+        deviceStatusMonitoringTask.execute();
+        Assert.assertEquals(this.getStatus(deviceId), EnrolmentInfo.Status.ACTIVE,
+                "Device with a new pending operation is not active");
+        this.passTime(enrolmentId, STEP);
+        deviceStatusMonitoringTask.execute();
+        Assert.assertEquals(this.getStatus(deviceId), EnrolmentInfo.Status.ACTIVE,
+                "Device is not active before its pending operation crossed the unreachable threshold");
+        this.passTime(enrolmentId, STEP);
+        deviceStatusMonitoringTask.execute();
+        Assert.assertEquals(this.getStatus(deviceId), EnrolmentInfo.Status.UNREACHABLE,
+                "Device is not unreachable once its pending operation crossed the unreachable threshold");
+        this.passTime(enrolmentId, STEP);
+        deviceStatusMonitoringTask.execute();
+        Assert.assertEquals(this.getStatus(deviceId), EnrolmentInfo.Status.UNREACHABLE,
+                "Device is not unreachable before its pending operation crossed the inactive threshold");
+        this.passTime(enrolmentId, STEP);
+        deviceStatusMonitoringTask.execute();
+        Assert.assertEquals(this.getStatus(deviceId), EnrolmentInfo.Status.INACTIVE,
+                "Device is not inactive once its pending operation crossed the inactive threshold");
+    }
+
+    @Test(description = "test that an unreachable device becomes inactive once its pending operation has left the " +
+            "windows of the task", dependsOnMethods = {"testActiveToUnreachableToInactive"})
+    public void testUnreachableOutsideWindowsToInactive() throws Exception {
+        DeviceIdentifier deviceId = new DeviceIdentifier(UNREACHABLE_DEVICE_ID, DEVICE_TYPE);
+        int enrolmentId = this.enrollDeviceWithPendingOperation(deviceId);
+        Assert.assertTrue(deviceMgtService.setStatus(deviceId, deviceMgtService.getDevice(deviceId)
+                .getEnrolmentInfo().getOwner(), EnrolmentInfo.Status.UNREACHABLE));
+        // Only moves the operation, as if the device was marked as unreachable by a run on another node.
+        this.moveOperationsBack(enrolmentId, IDLE_TIME_TO_MARK_INACTIVE * 2);
+        deviceStatusMonitoringTask.execute();
+        Assert.assertEquals(this.getStatus(deviceId), EnrolmentInfo.Status.INACTIVE,
+                "Unreachable device is not inactive once its pending operation crossed the inactive threshold");
+    }
+
+    private int enrollDeviceWithPendingOperation(DeviceIdentifier deviceId) throws Exception {
+        Device device = TestDataHolder.generateDummyDeviceData(deviceId);
+        device.getEnrolmentInfo().setStatus(EnrolmentInfo.Status.ACTIVE);
+        Assert.assertTrue(deviceMgtService.enrollDevice(device), "Device is not enrolled");
+        Operation operation = new CommandOperation();
+        operation.setType(Operation.Type.COMMAND);
+        operation.setCode(COMMAND_OPERATION_CODE);
+        operationManager.addOperation(operation, Collections.singletonList(deviceId));
+        return deviceMgtService.getDevice(deviceId).getEnrolmentInfo().getId();
+    }
+
+    private EnrolmentInfo.Status getStatus(DeviceIdentifier deviceId) throws Exception {
+        return deviceMgtService.getDevice(deviceId, false).getEnrolmentInfo().getStatus();
+    }
+
+    /**
+     * Moves the operations of an enrolment, and the last run of the task, back by the given number of seconds, as if
+     * that much time has passed.
+     */
+    private void passTime(int enrolmentId, long seconds) throws Exception {
+        this.moveOperationsBack(enrolmentId, seconds);
+        this.moveLastRunBack(seconds);
+    }
+
+    private void moveOperationsBack(int enrolmentId, long seconds) throws Exception {
+        PreparedStatement stmt = null;
+        try {
+            OperationManagementDAOFactory.beginTransaction();
+            Connection conn = OperationManagementDAOFactory.getConnection();
+            stmt = conn.prepareStatement("UPDATE DM_ENROLMENT_OP_MAPPING SET CREATED_TIMESTAMP = CREATED_TIMESTAMP " +
+                    "- ?, UPDATED_TIMESTAMP = UPDATED_TIMESTAMP - ? WHERE ENROLMENT_ID = ?");
+            stmt.setLong(1, seconds);
+            stmt.setLong(2, seconds);
+            stmt.setInt(3, enrolmentId);
+            stmt.executeUpdate();
+            OperationManagementDAOFactory.commitTransaction();
+        } finally {
+            TestUtils.cleanupResources(null, stmt, null);
+            OperationManagementDAOFactory.closeConnection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void moveLastRunBack(long seconds) throws Exception {
+        Field lastCheckedTimesField = DeviceStatusMonitoringTask.class.getDeclaredField("lastCheckedTimes");
+        lastCheckedTimesField.setAccessible(true);
+        Map<Integer, Long> lastCheckedTimes = (Map<Integer, Long>) lastCheckedTimesField.get(null);
+        Long lastCheckedTime = lastCheckedTimes.get(deviceTypeId);
+        if (lastCheckedTime != null) {
+            lastCheckedTimes.put(deviceTypeId, lastCheckedTime - seconds);
+        }
+    }
+}
@@ -136,6 +136,7 @@ CREATE TABLE IF NOT EXISTS DM_ENROLMENT_OP_MAPPING (
     CONSTRAINT fk_dm_device_operation_mapping_operation FOREIGN KEY (OPERATION_ID) REFERENCES
     DM_OPERATION (ID) ON DELETE NO ACTION ON UPDATE NO ACTION
 );
+CREATE INDEX IDX_EN_OP_MAPPING_STATUS_CREATED ON DM_ENROLMENT_OP_MAPPING(STATUS, CREATED_TIMESTAMP);
 
 CREATE TABLE IF NOT EXISTS DM_DEVICE_OPERATION_RESPONSE (
     ID INTEGER AUTO_INCREMENT NOT NULL,
@@ -62,6 +62,7 @@ import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -300,6 +301,8 @@ public class DeviceTypeManager implements DeviceManager {
                 }
                 String msg = "Error while enrolling the " + deviceType + " device : " + device.getDeviceIdentifier();
                 throw new DeviceManagementException(msg, e);
+            } finally {
+                deviceTypePluginDAOManager.getDeviceDAO().invalidateDevice(device.getDeviceIdentifier());
             }
             return status;
         }
@@ -328,6 +331,8 @@ public class DeviceTypeManager implements DeviceManager {
                 String msg = "Error while updating the enrollment of the " + deviceType + " device : " +
                         device.getDeviceIdentifier();
                 throw new DeviceManagementException(msg, e);
+            } finally {
+                deviceTypePluginDAOManager.getDeviceDAO().invalidateDevice(device.getDeviceIdentifier());
             }
             return status;
         }
@@ -415,6 +420,38 @@ public class DeviceTypeManager implements DeviceManager {
         return null;
     }
 
+    @Override
+    public List<Device> getDevices(List<DeviceIdentifier> deviceIds) throws DeviceManagementException {
+        if (deviceIds == null) {
+            throw new DeviceManagementException("Cannot get the devices. DeviceIdentifier list is null");
+        }
+        List<Device> devices = new ArrayList<>();
+        if (propertiesExist && !deviceIds.isEmpty()) {
+            try {
+                if (log.isDebugEnabled()) {
+                    log.debug("Getting the details of " + deviceIds.size() + " " + deviceType + " devices");
+                }
+                List<String> ids = new ArrayList<>(deviceIds.size());
+                for (DeviceIdentifier deviceId : deviceIds) {
+                    ids.add(deviceId.getId());
+                }
+                deviceTypePluginDAOManager.getDeviceTypeDAOHandler().beginTransaction();
+                devices = deviceTypePluginDAOManager.getDeviceDAO().getDevices(ids);
+            } catch (DeviceTypeMgtPluginException e) {
+                throw new DeviceManagementException("Error occurred while fetching " + deviceIds.size() + " " +
+                        deviceType + " devices", e);
+            } finally {
+                try {
+                    deviceTypePluginDAOManager.getDeviceTypeDAOHandler().closeConnection();
+                } catch (DeviceTypeMgtPluginException e) {
+                    String msg = "Error occurred while closing the transaction to get devices.";
+                    log.warn(msg, e);
+                }
+            }
+        }
+        return devices;
+    }
+
     @Override
     public boolean updateDeviceProperties(DeviceIdentifier deviceId, List<Device.Property> propertyList)
             throws DeviceManagementException {
@@ -439,6 +476,8 @@ public class DeviceTypeManager implements DeviceManager {
                 }
                 throw new DeviceManagementException(
                         "Error occurred while fetching the " + deviceType + " device: '" + deviceId.getId() + "'", e);
+            } finally {
+                deviceTypePluginDAOManager.getDeviceDAO().invalidateDevice(deviceId.getId());
             }
         }
         return status;
@@ -537,6 +576,8 @@ public class DeviceTypeManager implements DeviceManager {
                 throw new DeviceManagementException(
                         "Error occurred while updating the " + deviceType + " device: '" +
                                 device.getDeviceIdentifier() + "'", e);
+            } finally {
+                deviceTypePluginDAOManager.getDeviceDAO().invalidateDevice(deviceIdentifier.getId());
             }
             return status;
         }
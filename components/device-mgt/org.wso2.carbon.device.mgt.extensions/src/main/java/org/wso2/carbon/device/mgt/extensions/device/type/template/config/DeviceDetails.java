@@ -35,6 +35,9 @@ import javax.xml.bind.annotation.XmlType;
  *   &lt;simpleContent>
  *     &lt;extension base="&lt;http://www.w3.org/2001/XMLSchema>string">
  *       &lt;attribute name="table-id" type="{http://www.w3.org/2001/XMLSchema}string" />
+ *       &lt;attribute name="cache-enabled" type="{http://www.w3.org/2001/XMLSchema}boolean" />
+ *       &lt;attribute name="cache-capacity" type="{http://www.w3.org/2001/XMLSchema}int" />
+ *       &lt;attribute name="cache-expiry-time" type="{http://www.w3.org/2001/XMLSchema}int" />
  *     &lt;/extension>
  *   &lt;/simpleContent>
  * &lt;/complexType>
@@ -50,6 +53,12 @@ public class DeviceDetails {
 
     @XmlAttribute(name = "table-id")
     protected String tableId;
+    @XmlAttribute(name = "cache-enabled")
+    protected Boolean cacheEnabled;
+    @XmlAttribute(name = "cache-capacity")
+    protected Integer cacheCapacity;
+    @XmlAttribute(name = "cache-expiry-time")
+    protected Integer cacheExpiryTime;
     @XmlElement(name = "Properties", required = true)
     protected Properties properties;
 
@@ -77,6 +86,75 @@ public class DeviceDetails {
         this.tableId = value;
     }
 
+    /**
+     * Gets the value of the cacheEnabled property.
+     *
+     * @return
+     *     true if the device properties are cached
+     *
+     */
+    public boolean isCacheEnabled() {
+        return cacheEnabled != null && cacheEnabled;
+    }
+
+    /**
+     * Sets the value of the cacheEnabled property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Boolean }
+     *
+     */
+    public void setCacheEnabled(Boolean value) {
+        this.cacheEnabled = value;
+    }
+
+    /**
+     * Gets the value of the cacheCapacity property.
+     *
+     * @return
+     *     maximum number of devices whose properties are cached, or 0 if it is not set
+     *
+     */
+    public int getCacheCapacity() {
+        return cacheCapacity != null ? cacheCapacity : 0;
+    }
+
+    /**
+     * Sets the value of the cacheCapacity property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Integer }
+     *
+     */
+    public void setCacheCapacity(Integer value) {
+        this.cacheCapacity = value;
+    }
+
+    /**
+     * Gets the value of the cacheExpiryTime property.
+     *
+     * @return
+     *     time in seconds the properties of a device are cached for, or 0 if it is not set
+     *
+     */
+    public int getCacheExpiryTime() {
+        return cacheExpiryTime != null ? cacheExpiryTime : 0;
+    }
+
+    /**
+     * Sets the value of the cacheExpiryTime property.
+     *
+     * @param value
+     *     allowed object is
+     *     {@link Integer }
+     *
+     */
+    public void setCacheExpiryTime(Integer value) {
+        this.cacheExpiryTime = value;
+    }
+
     /**
      * Gets the value of the properties property.
      *
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.device.mgt.extensions.device.type.template.dao;
+
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.cache.BoundedExpiringMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the properties of the devices of a device type, so that listing devices does not read the properties
+ * table each time. Properties expire after a while, which bounds how long changes made by other nodes of a cluster
+ * go unnoticed. Changes made through this node invalidate the cached properties right away. Once the cache is full,
+ * the properties of the least recently read device are evicted.
+ */
+class DevicePropertyCache {
+
+    private final BoundedExpiringMap<String, List<Device.Property>> entries;
+
+    /**
+     * @param capacity   maximum number of cached devices.
+     * @param expiryTime time the properties of a device are cached for, in seconds.
+     */
+    DevicePropertyCache(int capacity, int expiryTime) {
+        this.entries = new BoundedExpiringMap<>(capacity, TimeUnit.SECONDS.toMillis(expiryTime));
+    }
+
+    /**
+     * @return a copy of the cached properties of the device, or null if they are not cached or expired.
+     */
+    List<Device.Property> getProperties(int tenantId, String deviceId) {
+        List<Device.Property> properties = entries.get(getKey(tenantId, deviceId));
+        return properties != null ? copy(properties) : null;
+    }
+
+    void putProperties(int tenantId, String deviceId, List<Device.Property> properties) {
+        entries.put(getKey(tenantId, deviceId), copy(properties));
+    }
+
+    void invalidate(int tenantId, String deviceId) {
+        entries.remove(getKey(tenantId, deviceId));
+    }
+
+    private static String getKey(int tenantId, String deviceId) {
+        return tenantId + "/" + deviceId;
+    }
+
+    private static List<Device.Property> copy(List<Device.Property> properties) {
+        List<Device.Property> copies = new ArrayList<>(properties.size());
+        for (Device.Property property : properties) {
+            Device.Property copy = new Device.Property();
+            copy.setName(property.getName());
+            copy.setValue(property.getValue());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+}
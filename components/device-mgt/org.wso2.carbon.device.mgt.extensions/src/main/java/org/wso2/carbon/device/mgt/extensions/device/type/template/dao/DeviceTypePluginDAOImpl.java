@@ -23,6 +23,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.extensions.device.type.template.exception.DeviceTypeMgtPluginException;
+import org.wso2.carbon.device.mgt.extensions.device.type.template.util.DeviceTypePluginConstants;
 import org.wso2.carbon.device.mgt.extensions.device.type.template.util.DeviceTypeUtils;
 
 import java.sql.Connection;
@@ -30,7 +31,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implements CRUD for Devices. This holds the generic implementation. An instance of this will be created for
@@ -45,6 +49,7 @@ public class DeviceTypePluginDAOImpl implements PluginDAO {
     private String createDBqueryForAddDevice;
     private String updateDBQueryForUpdateDevice;
     private String selectDBQueryToGetAllDevice;
+    private String selectDBQueryForGetDevices;
 
     public DeviceTypePluginDAOImpl(DeviceDAODefinition deviceDAODefinition,
                                    DeviceTypeDAOHandler deviceTypeDAOHandler) {
@@ -94,6 +99,65 @@ public class DeviceTypePluginDAOImpl implements PluginDAO {
         return device;
     }
 
+    public List<Device> getDevices(Collection<String> deviceIds) throws DeviceTypeMgtPluginException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        List<Device> devices = new ArrayList<>(deviceIds.size());
+        if (deviceIds.isEmpty()) {
+            return devices;
+        }
+        Map<String, Device> deviceMap = new HashMap<>();
+        try {
+            conn = deviceTypeDAOHandler.getConnection();
+            for (List<String> chunk : DeviceTypeUtils.getChunks(new ArrayList<>(deviceIds),
+                    DeviceTypePluginConstants.MAX_IN_CLAUSE_PARAMETERS)) {
+                stmt = conn.prepareStatement(selectDBQueryForGetDevices +
+                        DeviceTypeUtils.getInClausePlaceholders(chunk.size()) + ")");
+                int index = 1;
+                for (String deviceId : chunk) {
+                    stmt.setString(index++, deviceId);
+                }
+                resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    Device device = new Device();
+                    device.setDeviceIdentifier(resultSet.getString(deviceDAODefinition.getPrimaryKey()));
+                    List<Device.Property> properties = new ArrayList<>();
+                    for (String columnName : deviceDAODefinition.getColumnNames()) {
+                        Device.Property property = new Device.Property();
+                        property.setName(columnName);
+                        property.setValue(resultSet.getString(columnName));
+                        properties.add(property);
+                    }
+                    device.setProperties(properties);
+                    deviceMap.put(device.getDeviceIdentifier(), device);
+                }
+                DeviceTypeUtils.cleanupResources(stmt, resultSet);
+                stmt = null;
+                resultSet = null;
+            }
+            for (String deviceId : deviceIds) {
+                Device device = deviceMap.remove(deviceId);
+                if (device != null) {
+                    devices.add(device);
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(devices.size() + " of " + deviceIds.size() + " devices have been fetched from " +
+                        deviceDAODefinition.getDeviceTableName() + " database.");
+            }
+            return devices;
+        } catch (SQLException e) {
+            String msg = "Error occurred while fetching " + deviceIds.size() + " devices from " +
+                    deviceDAODefinition.getDeviceTableName();
+            log.error(msg, e);
+            throw new DeviceTypeMgtPluginException(msg, e);
+        } finally {
+            DeviceTypeUtils.cleanupResources(stmt, resultSet);
+            deviceTypeDAOHandler.closeConnection();
+        }
+    }
+
     public boolean addDevice(Device device) throws DeviceTypeMgtPluginException {
         boolean status = false;
         Connection conn = null;
@@ -239,5 +303,10 @@ public class DeviceTypePluginDAOImpl implements PluginDAO {
         selectDBQueryToGetAllDevice =
                 "SELECT " + getDeviceTableColumnNames() + "," + deviceDAODefinition.getPrimaryKey() + " FROM "
                         + deviceDAODefinition.getDeviceTableName();
+
+        selectDBQueryForGetDevices =
+                "SELECT " + getDeviceTableColumnNames() + "," + deviceDAODefinition.getPrimaryKey() + " FROM "
+                        + deviceDAODefinition.getDeviceTableName() + " WHERE " + deviceDAODefinition.getPrimaryKey()
+                        + " IN (";
     }
 }
@@ -20,15 +20,29 @@ package org.wso2.carbon.device.mgt.extensions.device.type.template.dao;
 
 import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.extensions.device.type.template.exception.DeviceTypeMgtPluginException;
+import java.util.Collection;
 import java.util.List;
 
 public interface PluginDAO {
 
     Device getDevice(String deviceId) throws DeviceTypeMgtPluginException;
 
+    /**
+     * Retrieves the devices with the given identifiers in bulk, in the order of the identifiers. Devices which are
+     * not found are omitted.
+     */
+    List<Device> getDevices(Collection<String> deviceIds) throws DeviceTypeMgtPluginException;
+
     boolean addDevice(Device device) throws DeviceTypeMgtPluginException;
 
     boolean updateDevice(Device device) throws DeviceTypeMgtPluginException;
 
     List<Device> getAllDevices() throws DeviceTypeMgtPluginException;
+
+    /**
+     * Drops the data of the device cached by the DAO, if any. This is called once a transaction that adds or updates
+     * the device is committed or rolled back, so that the device is read again from the database.
+     */
+    default void invalidateDevice(String deviceId) {
+    }
 }
@@ -24,6 +24,7 @@ import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.extensions.device.type.template.config.DeviceDetails;
 import org.wso2.carbon.device.mgt.extensions.device.type.template.exception.DeviceTypeMgtPluginException;
+import org.wso2.carbon.device.mgt.extensions.device.type.template.util.DeviceTypePluginConstants;
 import org.wso2.carbon.device.mgt.extensions.device.type.template.util.DeviceTypeUtils;
 
 import java.sql.Connection;
@@ -31,10 +32,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Implements CRUD for Devices. This holds the generic implementation. An instance of this will be created for
@@ -45,7 +49,10 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
     private static final Log log = LogFactory.getLog(PropertyBasedPluginDAOImpl.class);
     private DeviceTypeDAOHandler deviceTypeDAOHandler;
     private List<String> deviceProps;
+    private Set<String> devicePropSet;
     private String deviceType;
+    private DevicePropertyCache devicePropertyCache;
+    private static final String DEVICE_ID_COLUMN_NAME = "DEVICE_IDENTIFICATION";
     private static final String PROPERTY_KEY_COLUMN_NAME = "PROPERTY_NAME";
     private static final String PROPERTY_VALUE_COLUMN_NAME = "PROPERTY_VALUE";
 
@@ -53,10 +60,25 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
                                       DeviceTypeDAOHandler deviceTypeDAOHandler, String deviceType) {
         this.deviceTypeDAOHandler = deviceTypeDAOHandler;
         this.deviceProps = deviceDetails.getProperties().getProperty();
+        this.devicePropSet = new HashSet<>(deviceProps);
         this.deviceType = deviceType;
+        if (deviceDetails.isCacheEnabled()) {
+            int capacity = deviceDetails.getCacheCapacity() > 0 ? deviceDetails.getCacheCapacity() :
+                    DeviceTypePluginConstants.DEFAULT_DEVICE_CACHE_CAPACITY;
+            int expiryTime = deviceDetails.getCacheExpiryTime() > 0 ? deviceDetails.getCacheExpiryTime() :
+                    DeviceTypePluginConstants.DEFAULT_DEVICE_CACHE_EXPIRY_TIME;
+            this.devicePropertyCache = new DevicePropertyCache(capacity, expiryTime);
+        }
     }
 
     public Device getDevice(String deviceId) throws DeviceTypeMgtPluginException {
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true);
+        if (devicePropertyCache != null) {
+            List<Device.Property> cachedProperties = devicePropertyCache.getProperties(tenantId, deviceId);
+            if (cachedProperties != null) {
+                return createDevice(deviceId, cachedProperties);
+            }
+        }
         Connection conn = null;
         PreparedStatement stmt = null;
         Device device = null;
@@ -64,24 +86,21 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
         try {
             conn = deviceTypeDAOHandler.getConnection();
             stmt = conn.prepareStatement(
-                    "SELECT * FROM DM_DEVICE_PROPERTIES WHERE DEVICE_TYPE_NAME = ? AND DEVICE_IDENTIFICATION = ? " +
-                            "AND TENANT_ID = ?");
+                    "SELECT PROPERTY_NAME, PROPERTY_VALUE FROM DM_DEVICE_PROPERTIES WHERE DEVICE_TYPE_NAME = ? AND " +
+                            "DEVICE_IDENTIFICATION = ? AND TENANT_ID = ?");
             stmt.setString(1, deviceType);
             stmt.setString(2, deviceId);
-            stmt.setInt(3, PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true));
+            stmt.setInt(3, tenantId);
             resultSet = stmt.executeQuery();
             List<Device.Property> properties = new ArrayList<>();
             while (resultSet.next()) {
-                Device.Property property = new Device.Property();
-                property.setName(resultSet.getString(PROPERTY_KEY_COLUMN_NAME));
-                property.setValue(resultSet.getString(PROPERTY_VALUE_COLUMN_NAME));
-                properties.add(property);
+                properties.add(loadProperty(resultSet));
             }
             if (properties.size() > 0) {
-                device = new Device();
-                device.setDeviceIdentifier(deviceId);
-                device.setType(deviceType);
-                device.setProperties(properties);
+                device = createDevice(deviceId, properties);
+                if (devicePropertyCache != null) {
+                    devicePropertyCache.putProperties(tenantId, deviceId, properties);
+                }
             }
         } catch (SQLException e) {
             String msg = "Error occurred while fetching device : '" + deviceId + "' type " + deviceType;
@@ -95,10 +114,74 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
         return device;
     }
 
+    public List<Device> getDevices(Collection<String> deviceIds) throws DeviceTypeMgtPluginException {
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true);
+        Map<String, Device> deviceMap = new HashMap<>();
+        List<String> uncachedDeviceIds = new ArrayList<>(deviceIds.size());
+        for (String deviceId : deviceIds) {
+            List<Device.Property> cachedProperties = devicePropertyCache != null ?
+                    devicePropertyCache.getProperties(tenantId, deviceId) : null;
+            if (cachedProperties != null) {
+                deviceMap.put(deviceId, createDevice(deviceId, cachedProperties));
+            } else {
+                uncachedDeviceIds.add(deviceId);
+            }
+        }
+        if (uncachedDeviceIds.isEmpty()) {
+            return getDevicesInOrder(deviceIds, deviceMap);
+        }
+        int cachedDeviceCount = deviceMap.size();
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        try {
+            conn = deviceTypeDAOHandler.getConnection();
+            for (List<String> chunk : DeviceTypeUtils.getChunks(uncachedDeviceIds,
+                    DeviceTypePluginConstants.MAX_IN_CLAUSE_PARAMETERS)) {
+                stmt = conn.prepareStatement("SELECT DEVICE_IDENTIFICATION, PROPERTY_NAME, PROPERTY_VALUE FROM " +
+                        "DM_DEVICE_PROPERTIES WHERE TENANT_ID = ? AND DEVICE_TYPE_NAME = ? AND " +
+                        "DEVICE_IDENTIFICATION IN (" + DeviceTypeUtils.getInClausePlaceholders(chunk.size()) + ")");
+                int index = 1;
+                stmt.setInt(index++, tenantId);
+                stmt.setString(index++, deviceType);
+                for (String deviceId : chunk) {
+                    stmt.setString(index++, deviceId);
+                }
+                resultSet = stmt.executeQuery();
+                loadDevices(resultSet, deviceMap);
+                DeviceTypeUtils.cleanupResources(stmt, resultSet);
+                stmt = null;
+                resultSet = null;
+            }
+            if (devicePropertyCache != null) {
+                for (String deviceId : uncachedDeviceIds) {
+                    Device device = deviceMap.get(deviceId);
+                    if (device != null) {
+                        devicePropertyCache.putProperties(tenantId, deviceId, device.getProperties());
+                    }
+                }
+            }
+            List<Device> devices = getDevicesInOrder(deviceIds, deviceMap);
+            if (log.isDebugEnabled()) {
+                log.debug(devices.size() + " of " + deviceIds.size() + " " + deviceType + " devices have been " +
+                        "fetched, " + (devices.size() - cachedDeviceCount) + " of which from the database.");
+            }
+            return devices;
+        } catch (SQLException e) {
+            String msg = "Error occurred while fetching " + deviceIds.size() + " devices of type " + deviceType;
+            log.error(msg, e);
+            throw new DeviceTypeMgtPluginException(msg, e);
+        } finally {
+            DeviceTypeUtils.cleanupResources(stmt, resultSet);
+            deviceTypeDAOHandler.closeConnection();
+        }
+    }
+
     public boolean addDevice(Device device) throws DeviceTypeMgtPluginException {
         boolean status = false;
         Connection conn = null;
         PreparedStatement stmt = null;
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true);
         try {
             conn = deviceTypeDAOHandler.getConnection();
             stmt = conn.prepareStatement(
@@ -109,7 +192,7 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
                 stmt.setString(2, device.getDeviceIdentifier());
                 stmt.setString(3, propertyKey);
                 stmt.setString(4, getPropertyValue(device.getProperties(), propertyKey));
-                stmt.setInt(5, PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true));
+                stmt.setInt(5, tenantId);
                 stmt.addBatch();
             }
             stmt.executeBatch();
@@ -128,24 +211,50 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
     public boolean updateDevice(Device device) throws DeviceTypeMgtPluginException {
         Connection conn;
         PreparedStatement stmt = null;
+        PreparedStatement insertStmt = null;
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true);
         try {
             conn = deviceTypeDAOHandler.getConnection();
             stmt = conn.prepareStatement(
                     "UPDATE DM_DEVICE_PROPERTIES SET PROPERTY_VALUE = ? WHERE  DEVICE_TYPE_NAME = ? AND "
                             + "DEVICE_IDENTIFICATION = ? AND PROPERTY_NAME = ? AND TENANT_ID= ?");
-
+            List<Device.Property> updatedProperties = new ArrayList<>();
             for (Device.Property property : device.getProperties()) {
-                if (!deviceProps.contains(property.getName())) {
+                if (!devicePropSet.contains(property.getName())) {
                     continue;
                 }
                 stmt.setString(1, property.getValue());
                 stmt.setString(2, deviceType);
                 stmt.setString(3, device.getDeviceIdentifier());
                 stmt.setString(4, property.getName());
-                stmt.setInt(5, PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true));
+                stmt.setInt(5, tenantId);
                 stmt.addBatch();
+                updatedProperties.add(property);
+            }
+            int[] updateCounts = stmt.executeBatch();
+
+            // Properties which do not have a row yet, e.g. the ones added to the device type after the device was
+            // enrolled, are inserted with a second batch. Drivers which do not report the update counts are assumed
+            // to have updated the rows.
+            for (int i = 0; i < updateCounts.length && i < updatedProperties.size(); i++) {
+                if (updateCounts[i] != 0) {
+                    continue;
+                }
+                if (insertStmt == null) {
+                    insertStmt = conn.prepareStatement(
+                            "INSERT INTO DM_DEVICE_PROPERTIES(DEVICE_TYPE_NAME, DEVICE_IDENTIFICATION, " +
+                                    "PROPERTY_NAME, PROPERTY_VALUE, TENANT_ID) VALUES (?, ?, ?, ?, ?)");
+                }
+                insertStmt.setString(1, deviceType);
+                insertStmt.setString(2, device.getDeviceIdentifier());
+                insertStmt.setString(3, updatedProperties.get(i).getName());
+                insertStmt.setString(4, updatedProperties.get(i).getValue());
+                insertStmt.setInt(5, tenantId);
+                insertStmt.addBatch();
+            }
+            if (insertStmt != null) {
+                insertStmt.executeBatch();
             }
-            stmt.executeBatch();
             return true;
         } catch (SQLException e) {
             String msg = "Error occurred while modifying the device '" + device.getDeviceIdentifier() + "' data on"
@@ -154,6 +263,15 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
             throw new DeviceTypeMgtPluginException(msg, e);
         } finally {
             DeviceTypeUtils.cleanupResources(stmt, null);
+            DeviceTypeUtils.cleanupResources(insertStmt, null);
+        }
+    }
+
+    @Override
+    public void invalidateDevice(String deviceId) {
+        if (devicePropertyCache != null) {
+            devicePropertyCache.invalidate(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true),
+                    deviceId);
         }
     }
 
@@ -161,7 +279,7 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
         Connection conn;
         PreparedStatement stmt = null;
         ResultSet resultSet = null;
-        Map<String, Device> deviceMap = new HashMap<>();
+        Map<String, Device> deviceMap = new LinkedHashMap<>();
         try {
             conn = deviceTypeDAOHandler.getConnection();
             stmt = conn.prepareStatement("SELECT DEVICE_IDENTIFICATION, PROPERTY_NAME, PROPERTY_VALUE FROM " +
@@ -169,22 +287,7 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
             stmt.setString(1, deviceType);
             stmt.setInt(2, PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(true));
             resultSet = stmt.executeQuery();
-            while (resultSet.next()) {
-                String deviceId = resultSet.getString("DEVICE_IDENTIFICATION");
-                Device deviceInMap = deviceMap.get(deviceId);
-                if (deviceInMap == null) {
-                    deviceInMap = new Device();
-                    deviceInMap.setDeviceIdentifier(deviceId);
-                    deviceInMap.setType(deviceType);
-                    List<Device.Property> properties = new ArrayList<>();
-                    deviceInMap.setProperties(properties);
-                    deviceMap.put(deviceId, deviceInMap);
-                }
-                Device.Property prop = new Device.Property();
-                prop.setName(resultSet.getString(PROPERTY_KEY_COLUMN_NAME));
-                prop.setName(resultSet.getString(PROPERTY_VALUE_COLUMN_NAME));
-                deviceInMap.getProperties().add(prop);
-            }
+            loadDevices(resultSet, deviceMap);
             if (log.isDebugEnabled()) {
                 log.debug(
                         "All device details have fetched from " + deviceType + " table.");
@@ -201,6 +304,44 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
         }
     }
 
+    private void loadDevices(ResultSet resultSet, Map<String, Device> deviceMap) throws SQLException {
+        while (resultSet.next()) {
+            String deviceId = resultSet.getString(DEVICE_ID_COLUMN_NAME);
+            Device deviceInMap = deviceMap.get(deviceId);
+            if (deviceInMap == null) {
+                deviceInMap = createDevice(deviceId, new ArrayList<Device.Property>());
+                deviceMap.put(deviceId, deviceInMap);
+            }
+            deviceInMap.getProperties().add(loadProperty(resultSet));
+        }
+    }
+
+    private static List<Device> getDevicesInOrder(Collection<String> deviceIds, Map<String, Device> deviceMap) {
+        List<Device> devices = new ArrayList<>(deviceMap.size());
+        for (String deviceId : deviceIds) {
+            Device device = deviceMap.remove(deviceId);
+            if (device != null) {
+                devices.add(device);
+            }
+        }
+        return devices;
+    }
+
+    private Device createDevice(String deviceId, List<Device.Property> properties) {
+        Device device = new Device();
+        device.setDeviceIdentifier(deviceId);
+        device.setType(deviceType);
+        device.setProperties(properties);
+        return device;
+    }
+
+    private static Device.Property loadProperty(ResultSet resultSet) throws SQLException {
+        Device.Property property = new Device.Property();
+        property.setName(resultSet.getString(PROPERTY_KEY_COLUMN_NAME));
+        property.setValue(resultSet.getString(PROPERTY_VALUE_COLUMN_NAME));
+        return property;
+    }
+
     private String getPropertyValue(List<Device.Property> properties, String propertyName) {
         for (Device.Property property : properties) {
             if (property.getName() != null && property.getName().equals(propertyName)) {
@@ -210,4 +351,4 @@ public class PropertyBasedPluginDAOImpl implements PluginDAO {
         return null;
     }
 
-}
\ No newline at end of file
+}
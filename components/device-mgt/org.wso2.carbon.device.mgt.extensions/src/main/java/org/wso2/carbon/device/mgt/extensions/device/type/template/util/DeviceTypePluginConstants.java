@@ -25,4 +25,8 @@ public class DeviceTypePluginConstants {
     public static final String MEDIA_TYPE_XML = "application/xml";
     public static final String CHARSET_UTF8 = "UTF8";
     public static final String LANGUAGE_CODE_ENGLISH_US = "en_US";
+    // Kept well below the IN clause limits of Oracle (1000) and MSSQL (2100 parameters).
+    public static final int MAX_IN_CLAUSE_PARAMETERS = 500;
+    public static final int DEFAULT_DEVICE_CACHE_CAPACITY = 10000;
+    public static final int DEFAULT_DEVICE_CACHE_EXPIRY_TIME = 5 * 60;
 }
@@ -40,6 +40,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Contains utility methods used by plugin.
@@ -76,6 +78,32 @@ public class DeviceTypeUtils {
         cleanupResources(null, stmt, rs);
     }
 
+    /**
+     * Builds the comma separated placeholders of an IN clause with the given number of parameters.
+     */
+    public static String getInClausePlaceholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('?');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Splits the given list into consecutive chunks so that each chunk can be bound to a single IN clause
+     * without exceeding the parameter limits of the underlying database.
+     */
+    public static <T> List<List<T>> getChunks(List<T> elements, int chunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < elements.size(); i += chunkSize) {
+            chunks.add(elements.subList(i, Math.min(i + chunkSize, elements.size())));
+        }
+        return chunks;
+    }
+
     /**
      * Creates the device management schema.
      */
@@ -163,6 +163,27 @@ public class DeviceTypeManagerTest {
                 "GetDevice call" + " failed in custom deviceTypeManager");
     }
 
+    @Test(description = "This test case tests the getDevices method of the DeviceTypeManager", dependsOnMethods =
+            {"testEnrollDevice"})
+    public void testGetDevices() throws DeviceManagementException {
+        DeviceIdentifier existingDeviceIdentifier = new DeviceIdentifier(sampleDevice2.getDeviceIdentifier(),
+                androidDeviceType);
+        List<Device> androidDevices = androidDeviceTypeManager.getDevices(
+                Arrays.asList(existingDeviceIdentifier, nonExistingDeviceIdentifier));
+        Assert.assertEquals(androidDevices.size(), 1, "Existing devices are not fetched in bulk");
+        Assert.assertEquals(androidDevices.get(0).getDeviceIdentifier(), sampleDevice2.getDeviceIdentifier(),
+                "Wrong device is fetched in bulk");
+        List<Device> customDevices = customDeviceTypeManager.getDevices(Arrays.asList(
+                new DeviceIdentifier(customDeviceType, customDeviceType),
+                new DeviceIdentifier("NON-EXISTING", customDeviceType)));
+        Assert.assertEquals(customDevices.size(), 1, "Existing devices are not fetched in bulk in custom " +
+                "deviceTypeManager");
+        Assert.assertEquals(customDevices.get(0).getProperties().size(), 2,
+                "GetDevices call failed in custom deviceTypeManager");
+        Assert.assertTrue(customDeviceTypeManager.getDevices(new ArrayList<DeviceIdentifier>()).isEmpty(),
+                "Devices are fetched for an empty list of identifiers");
+    }
+
     @Test(description = "This test case tests the enrollment of the device")
     public void testEnrollDevice() throws DeviceManagementException {
         Assert.assertTrue(androidDeviceTypeManager.enrollDevice(sampleDevice1), "New android device enrollment failed");
@@ -27,6 +27,8 @@ import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
 import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
 import org.wso2.carbon.policy.mgt.common.*;
 import org.wso2.carbon.policy.mgt.core.PolicyManagerService;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheEntry;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheManager;
 import org.wso2.carbon.policy.decision.point.internal.PolicyDecisionPointDataHolder;
 
 import java.sql.Timestamp;
@@ -41,6 +43,7 @@ public class MergedEvaluationPoint implements PolicyEvaluationPoint {
     private PolicyManagerService policyManagerService;
     private static final String effectivePolicyName = "Effective-Policy";
     private static final String policyEvaluationPoint = "Merged";
+    private final MergedProfileCache mergedProfileCache = new MergedProfileCache();
 
     @Override
     public List<ProfileFeature> getEffectiveFeatures(DeviceIdentifier deviceIdentifier)
@@ -63,18 +66,31 @@ public class MergedEvaluationPoint implements PolicyEvaluationPoint {
             if (policyManagerService == null) {
                 return null;
             }
+            EffectivePolicyCacheManager cacheManager = policyManagerService.getEffectivePolicyCacheManager();
+            EffectivePolicyCacheEntry cacheEntry = cacheManager.getEntry(deviceIdentifier);
+            if (cacheEntry != null) {
+                return cacheEntry.getPolicy();
+            }
+            // Both are read before the device data, so that the policy is not cached if any of its inputs change
+            // while it is evaluated.
+            long policyVersion = cacheManager.getPolicyVersion();
+            long invalidationCount = cacheManager.getInvalidationCount();
+
             PolicyInformationPoint policyInformationPoint = policyManagerService.getPIP();
             pipDevice = policyInformationPoint.getDeviceData(deviceIdentifier);
             policyList = policyInformationPoint.getRelatedPolicies(pipDevice);
 
             if (policyList.size() == 0) {
+                cacheManager.addEntry(pipDevice, null, policyVersion, invalidationCount);
                 return null;
             }
 
             // Set effective-policy information
+            Collections.sort(policyList);
+            MergedProfileCache.MergedProfile mergedProfile = mergedProfileCache.getMergedProfile(policyList);
+            policy = new Policy();
             Profile profile = new Profile();
-            policy = policyResolve(policyList);
-            profile.setProfileFeaturesList(policy.getProfile().getProfileFeaturesList());
+            profile.setProfileFeaturesList(mergedProfile.getProfileFeatures());
             policy.setProfile(profile);
             Timestamp currentTimestamp = new Timestamp(Calendar.getInstance().getTime().getTime());
             profile.setCreatedDate(currentTimestamp);
@@ -88,17 +104,13 @@ public class MergedEvaluationPoint implements PolicyEvaluationPoint {
             policy.setActive(true);
             policy.setUpdated(true);
             policy.setTenantId(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId());
-            String policyIds = "";
-            Collections.sort(policyList);
-            for (Policy appliedPolicy : policyList) {
-                policyIds += appliedPolicy.getId() + ", ";
-            }
-            policyIds = policyIds.substring(0, policyIds.length() - 2);
-            policy.setDescription("This is a system generated effective policy by merging Policy Id : " + policyIds);
+            policy.setDescription("This is a system generated effective policy by merging Policy Id : " +
+                    mergedProfile.getPolicyIds());
             // Need to set compliance of the effective policy. Get compliance of first policy using priority order
-            policy.setCompliance(policyList.get(0).getCompliance());
+            policy.setCompliance(mergedProfile.getCompliance());
             // Change default 0 effective policy id to (-1)
             policy.setId(-1);
+            cacheManager.addEntry(pipDevice, policy, policyVersion, invalidationCount);
             return policy;
         } catch (PolicyManagementException e) {
             String msg = "Error occurred when retrieving the policy related data from policy management service.";
@@ -107,29 +119,6 @@ public class MergedEvaluationPoint implements PolicyEvaluationPoint {
         }
     }
 
-    private Policy policyResolve(List<Policy> policyList) throws PolicyEvaluationException, PolicyManagementException {
-        Collections.sort(policyList, Collections.reverseOrder());
-
-        // Iterate through all policies
-        Map<String, ProfileFeature> featureMap = new HashMap<>();
-        for (Policy policy : policyList) {
-            List<ProfileFeature> profileFeaturesList = policy.getProfile().getProfileFeaturesList();
-            if (profileFeaturesList != null) {
-                for (ProfileFeature feature : profileFeaturesList) {
-                    featureMap.put(feature.getFeatureCode(), feature);
-                }
-            }
-        }
-
-        // Get prioritized features list
-        List<ProfileFeature> newFeaturesList = new ArrayList<>(featureMap.values());
-        Profile profile = new Profile();
-        profile.setProfileFeaturesList(newFeaturesList);
-        Policy effectivePolicy = new Policy();
-        effectivePolicy.setProfile(profile);
-        return effectivePolicy;
-    }
-
     private PolicyManagerService getPolicyManagerService() {
         return PolicyDecisionPointDataHolder.getInstance().getPolicyManagerService();
     }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.decision.point.merged;
+
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
+import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the result of merging a set of policies, so that it is computed once for all the devices which the same set of
+ * policies applies to. A set of policies is identified by the id and the profile update time of each policy in
+ * priority order, so that a result is not reused once any of the policies is updated. Policies without a profile
+ * update time are merged on every call.
+ */
+final class MergedProfileCache {
+
+    static final int MAX_ENTRIES = 1000;
+
+    private final Map<String, MergedProfile> mergedProfiles = Collections.synchronizedMap(
+            new LinkedHashMap<String, MergedProfile>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MergedProfile> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+
+    /**
+     * @param policies policies which apply to a device, in priority order.
+     * @return the merged profile of the given policies.
+     */
+    MergedProfile getMergedProfile(List<Policy> policies) {
+        StringBuilder ids = new StringBuilder();
+        StringBuilder key = new StringBuilder();
+        boolean cacheable = true;
+        for (Policy policy : policies) {
+            ids.append(policy.getId()).append(", ");
+            Profile profile = policy.getProfile();
+            if (profile == null || profile.getUpdatedDate() == null) {
+                cacheable = false;
+            } else {
+                key.append(policy.getId()).append('@').append(profile.getUpdatedDate().getTime()).append(',');
+            }
+        }
+        ids.setLength(ids.length() - 2);
+        String policyIds = ids.toString();
+        if (!cacheable) {
+            return new MergedProfile(policies, policyIds);
+        }
+
+        String policyVersions = key.toString();
+        MergedProfile mergedProfile = mergedProfiles.get(policyVersions);
+        if (mergedProfile == null) {
+            mergedProfile = new MergedProfile(policies, policyIds);
+            mergedProfiles.put(policyVersions, mergedProfile);
+        }
+        return mergedProfile;
+    }
+
+    /**
+     * Immutable result of merging a set of policies.
+     */
+    static final class MergedProfile {
+
+        private final Policy[] policies;
+        private final String policyIds;
+        private final List<ProfileFeature> profileFeatures;
+
+        private MergedProfile(List<Policy> policies, String policyIds) {
+            this.policies = policies.toArray(new Policy[policies.size()]);
+            this.policyIds = policyIds;
+
+            // Features of the policies with a higher priority override the features of the others.
+            Map<String, ProfileFeature> featureMap = new HashMap<>();
+            for (int i = this.policies.length - 1; i >= 0; i--) {
+                List<ProfileFeature> profileFeaturesList = this.policies[i].getProfile().getProfileFeaturesList();
+                if (profileFeaturesList != null) {
+                    for (ProfileFeature feature : profileFeaturesList) {
+                        featureMap.put(feature.getFeatureCode(), feature);
+                    }
+                }
+            }
+            this.profileFeatures = Collections.unmodifiableList(new ArrayList<>(featureMap.values()));
+        }
+
+        /**
+         * @return ids of the merged policies in priority order, separated by commas.
+         */
+        String getPolicyIds() {
+            return policyIds;
+        }
+
+        /**
+         * @return unmodifiable list of the merged features.
+         */
+        List<ProfileFeature> getProfileFeatures() {
+            return profileFeatures;
+        }
+
+        /**
+         * @return compliance of the policy with the highest priority.
+         */
+        String getCompliance() {
+            return policies[0].getCompliance();
+        }
+    }
+
+}
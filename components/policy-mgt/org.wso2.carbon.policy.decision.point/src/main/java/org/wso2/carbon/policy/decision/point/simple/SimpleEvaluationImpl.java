@@ -25,6 +25,8 @@ import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
 import org.wso2.carbon.policy.decision.point.internal.PolicyDecisionPointDataHolder;
 import org.wso2.carbon.policy.mgt.common.*;
 import org.wso2.carbon.policy.mgt.core.PolicyManagerService;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheEntry;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheManager;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -46,14 +48,22 @@ public class SimpleEvaluationImpl implements SimpleEvaluation {
         try {
             if (policyManagerService != null) {
 
-                policyInformationPoint = policyManagerService.getPIP();
-                PIPDevice pipDevice = policyInformationPoint.getDeviceData(deviceIdentifier);
-                policyList = policyInformationPoint.getRelatedPolicies(pipDevice);
                 policyAdministratorPoint = policyManagerService.getPAP();
-                sortPolicies();
-                if(!policyList.isEmpty()) {
-                    policy = policyList.get(0);
+                EffectivePolicyCacheManager cacheManager = policyManagerService.getEffectivePolicyCacheManager();
+                EffectivePolicyCacheEntry cacheEntry = cacheManager.getEntry(deviceIdentifier);
+                if (cacheEntry != null) {
+                    policy = cacheEntry.getPolicy();
                 } else {
+                    long policyVersion = cacheManager.getPolicyVersion();
+                    long invalidationCount = cacheManager.getInvalidationCount();
+                    policyInformationPoint = policyManagerService.getPIP();
+                    PIPDevice pipDevice = policyInformationPoint.getDeviceData(deviceIdentifier);
+                    policyList = policyInformationPoint.getRelatedPolicies(pipDevice);
+                    sortPolicies();
+                    policy = policyList.isEmpty() ? null : policyList.get(0);
+                    cacheManager.addEntry(pipDevice, policy, policyVersion, invalidationCount);
+                }
+                if (policy == null) {
                     policyAdministratorPoint.removePolicyUsed(deviceIdentifier);
                     return null;
                 }
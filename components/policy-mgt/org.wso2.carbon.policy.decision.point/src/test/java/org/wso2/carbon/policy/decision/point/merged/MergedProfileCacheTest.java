@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.decision.point.merged;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
+import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MergedProfileCacheTest {
+
+    private static final long UPDATED_TIME = 1500000000000L;
+
+    @Test
+    public void testMergedProfileIsReusedForEqualPolicies() {
+        MergedProfileCache cache = new MergedProfileCache();
+        MergedProfileCache.MergedProfile mergedProfile = cache.getMergedProfile(
+                Arrays.asList(createPolicy(1, UPDATED_TIME, "CAMERA"), createPolicy(2, UPDATED_TIME, "WIFI")));
+        // Policies read again from the database are new objects, which must still hit the cache.
+        MergedProfileCache.MergedProfile cachedProfile = cache.getMergedProfile(
+                Arrays.asList(createPolicy(1, UPDATED_TIME, "CAMERA"), createPolicy(2, UPDATED_TIME, "WIFI")));
+        Assert.assertSame(cachedProfile, mergedProfile, "Merged profile of equal policies is not reused");
+        Assert.assertEquals(mergedProfile.getPolicyIds(), "1, 2");
+        Assert.assertEquals(mergedProfile.getProfileFeatures().size(), 2);
+    }
+
+    @Test
+    public void testMergedProfileIsNotReusedForUpdatedPolicy() {
+        MergedProfileCache cache = new MergedProfileCache();
+        MergedProfileCache.MergedProfile mergedProfile = cache.getMergedProfile(
+                Collections.singletonList(createPolicy(1, UPDATED_TIME, "CAMERA")));
+        MergedProfileCache.MergedProfile updatedProfile = cache.getMergedProfile(
+                Collections.singletonList(createPolicy(1, UPDATED_TIME + 1, "WIFI")));
+        Assert.assertNotSame(updatedProfile, mergedProfile, "Merged profile of an updated policy is reused");
+        Assert.assertEquals(updatedProfile.getProfileFeatures().get(0).getFeatureCode(), "WIFI");
+    }
+
+    @Test
+    public void testMergedProfileIsNotReusedForOtherPriorityOrder() {
+        MergedProfileCache cache = new MergedProfileCache();
+        MergedProfileCache.MergedProfile mergedProfile = cache.getMergedProfile(
+                Arrays.asList(createPolicy(1, UPDATED_TIME, "CAMERA"), createPolicy(2, UPDATED_TIME, "CAMERA")));
+        MergedProfileCache.MergedProfile reorderedProfile = cache.getMergedProfile(
+                Arrays.asList(createPolicy(2, UPDATED_TIME, "CAMERA"), createPolicy(1, UPDATED_TIME, "CAMERA")));
+        Assert.assertNotSame(reorderedProfile, mergedProfile, "Merged profile of another priority order is reused");
+        Assert.assertEquals(reorderedProfile.getPolicyIds(), "2, 1");
+    }
+
+    @Test
+    public void testMergedProfileWithoutUpdateTimeIsNotCached() {
+        MergedProfileCache cache = new MergedProfileCache();
+        Policy policy = createPolicy(1, UPDATED_TIME, "CAMERA");
+        policy.getProfile().setUpdatedDate(null);
+        MergedProfileCache.MergedProfile mergedProfile = cache.getMergedProfile(Collections.singletonList(policy));
+        Assert.assertNotSame(cache.getMergedProfile(Collections.singletonList(policy)), mergedProfile,
+                "Merged profile of a policy without an update time is cached");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedMergedProfileIsEvicted() {
+        MergedProfileCache cache = new MergedProfileCache();
+        List<Policy> firstPolicies = Collections.singletonList(createPolicy(0, UPDATED_TIME, "CAMERA"));
+        List<Policy> secondPolicies = Collections.singletonList(createPolicy(1, UPDATED_TIME, "CAMERA"));
+        MergedProfileCache.MergedProfile firstProfile = cache.getMergedProfile(firstPolicies);
+        MergedProfileCache.MergedProfile secondProfile = cache.getMergedProfile(secondPolicies);
+        List<Policy> otherPolicies = new ArrayList<>();
+        for (int i = 2; i <= MergedProfileCache.MAX_ENTRIES; i++) {
+            // Keeps the first profile recently used, so that the second one is the eldest.
+            if (i == MergedProfileCache.MAX_ENTRIES / 2) {
+                Assert.assertSame(cache.getMergedProfile(firstPolicies), firstProfile);
+            }
+            otherPolicies.clear();
+            otherPolicies.add(createPolicy(i, UPDATED_TIME, "CAMERA"));
+            cache.getMergedProfile(otherPolicies);
+        }
+        Assert.assertSame(cache.getMergedProfile(firstPolicies), firstProfile,
+                "Recently used merged profile is evicted");
+        Assert.assertNotSame(cache.getMergedProfile(secondPolicies), secondProfile,
+                "Least recently used merged profile is not evicted");
+    }
+
+    private static Policy createPolicy(int id, long updatedTime, String featureCode) {
+        ProfileFeature feature = new ProfileFeature();
+        feature.setFeatureCode(featureCode);
+        feature.setContent(featureCode + "-" + id);
+        Profile profile = new Profile();
+        profile.setUpdatedDate(new Timestamp(updatedTime));
+        profile.setProfileFeaturesList(Collections.singletonList(feature));
+        Policy policy = new Policy();
+        policy.setId(id);
+        policy.setProfile(profile);
+        policy.setCompliance("enforce");
+        return policy;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.benchmark;
+
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.common.PolicyAdministratorPoint;
+import org.wso2.carbon.policy.mgt.common.PolicyInformationPoint;
+import org.wso2.carbon.policy.mgt.core.PolicyManagerService;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheManager;
+import org.wso2.carbon.policy.mgt.core.impl.PolicyApplicabilityIndex;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory stubs of the services used by the policy evaluation points, so that the evaluation can be measured
+ * without the database, the user store and the OSGi runtime. Only the methods used in the evaluation are stubbed, and
+ * the others fail.
+ */
+final class InMemoryPolicyServices {
+
+    private InMemoryPolicyServices() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Creates a policy manager service, which serves the given devices and selects their policies from the given
+     * policies. The effective policies are never cached, so that each call evaluates the policies.
+     *
+     * @param policies policies of the tenant.
+     * @param devices  devices which are evaluated.
+     * @return the policy manager service.
+     */
+    static PolicyManagerService createPolicyManagerService(List<Policy> policies, List<PIPDevice> devices) {
+        final PolicyInformationPoint policyInformationPoint = createPolicyInformationPoint(policies, devices);
+        final PolicyAdministratorPoint policyAdministratorPoint = createPolicyAdministratorPoint();
+        final EffectivePolicyCacheManager effectivePolicyCacheManager = createEffectivePolicyCacheManager();
+        return stub(PolicyManagerService.class, new StubHandler() {
+            @Override
+            Object handle(String methodName, Object[] args) {
+                switch (methodName) {
+                    case "getPIP":
+                        return policyInformationPoint;
+                    case "getPAP":
+                        return policyAdministratorPoint;
+                    case "getEffectivePolicyCacheManager":
+                        return effectivePolicyCacheManager;
+                    default:
+                        return unsupported(methodName);
+                }
+            }
+        });
+    }
+
+    private static PolicyInformationPoint createPolicyInformationPoint(List<Policy> policies,
+                                                                       List<PIPDevice> devices) {
+        final PolicyApplicabilityIndex applicabilityIndex = new PolicyApplicabilityIndex(policies);
+        // Device identifiers are compared by reference, hence the devices are kept by id. Ids are unique across types.
+        final Map<String, PIPDevice> deviceMap = new HashMap<>();
+        for (PIPDevice pipDevice : devices) {
+            deviceMap.put(pipDevice.getDeviceIdentifier().getId(), pipDevice);
+        }
+        return stub(PolicyInformationPoint.class, new StubHandler() {
+            @Override
+            Object handle(String methodName, Object[] args) {
+                switch (methodName) {
+                    case "getDeviceData":
+                        return deviceMap.get(((DeviceIdentifier) args[0]).getId());
+                    case "getRelatedPolicies":
+                        return applicabilityIndex.getApplicablePolicies((PIPDevice) args[0]);
+                    default:
+                        return unsupported(methodName);
+                }
+            }
+        });
+    }
+
+    private static PolicyAdministratorPoint createPolicyAdministratorPoint() {
+        return stub(PolicyAdministratorPoint.class, new StubHandler() {
+            @Override
+            Object handle(String methodName, Object[] args) {
+                switch (methodName) {
+                    case "setPolicyUsed":
+                    case "removePolicyUsed":
+                        return null;
+                    default:
+                        return unsupported(methodName);
+                }
+            }
+        });
+    }
+
+    private static EffectivePolicyCacheManager createEffectivePolicyCacheManager() {
+        return stub(EffectivePolicyCacheManager.class, new StubHandler() {
+            @Override
+            Object handle(String methodName, Object[] args) {
+                switch (methodName) {
+                    case "getEntry":
+                    case "addEntry":
+                        return null;
+                    case "getPolicyVersion":
+                    case "getInvalidationCount":
+                        return 0L;
+                    default:
+                        return unsupported(methodName);
+                }
+            }
+        });
+    }
+
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Dispatches the calls of a stub by the name of the method, apart from the methods of {@link Object}.
+     */
+    private abstract static class StubHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return "Stub of " + proxy.getClass().getInterfaces()[0].getName();
+                }
+            }
+            return handle(method.getName(), args);
+        }
+
+        abstract Object handle(String methodName, Object[] args);
+
+        Object unsupported(String methodName) {
+            throw new UnsupportedOperationException(methodName + " is not supported by the stub.");
+        }
+    }
+
+}
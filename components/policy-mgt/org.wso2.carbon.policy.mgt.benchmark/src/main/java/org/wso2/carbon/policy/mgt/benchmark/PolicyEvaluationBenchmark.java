@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.decision.point.internal.PolicyDecisionPointDataHolder;
+import org.wso2.carbon.policy.decision.point.merged.MergedEvaluationPoint;
+import org.wso2.carbon.policy.decision.point.simple.SimpleEvaluationImpl;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.common.PolicyEvaluationException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the evaluation of the effective policy of a device by the merged and the simple evaluation points, with
+ * the policy services stubbed in memory. The effective policies are not cached, so every call selects and merges the
+ * policies of a device.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyEvaluationBenchmark {
+
+    private static final int DEVICE_COUNT = 1024;
+    private static final long SEED = 42;
+
+    private MergedEvaluationPoint mergedEvaluationPoint;
+    private SimpleEvaluationImpl simpleEvaluation;
+    private DeviceIdentifier[] deviceIdentifiers;
+    private int nextDevice;
+
+    /**
+     * Policies and devices of the tenant, which are shared by the benchmark threads.
+     */
+    @State(Scope.Benchmark)
+    public static class PolicySetState {
+
+        @Param({"100", "1000", "10000"})
+        public int policyCount;
+
+        private List<PIPDevice> devices;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            if (System.getProperty("carbon.home") == null) {
+                System.setProperty("carbon.home", System.getProperty("java.io.tmpdir"));
+            }
+            SyntheticPolicySet policySet = new SyntheticPolicySet(policyCount, DEVICE_COUNT, SEED);
+            devices = policySet.getDevices();
+            PolicyDecisionPointDataHolder.getInstance().setPolicyManagerService(
+                    InMemoryPolicyServices.createPolicyManagerService(policySet.getPolicies(), devices));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            PolicyDecisionPointDataHolder.getInstance().setPolicyManagerService(null);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup(PolicySetState policySetState) {
+        // The evaluation points read the tenant from the carbon context of the calling thread.
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                .setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(MultitenantConstants.SUPER_TENANT_ID);
+        mergedEvaluationPoint = new MergedEvaluationPoint();
+        simpleEvaluation = new SimpleEvaluationImpl();
+        deviceIdentifiers = new DeviceIdentifier[DEVICE_COUNT];
+        for (int i = 0; i < DEVICE_COUNT; i++) {
+            deviceIdentifiers[i] = policySetState.devices.get(i).getDeviceIdentifier();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @Benchmark
+    public Policy mergedEvaluation() throws PolicyEvaluationException {
+        return mergedEvaluationPoint.getEffectivePolicy(this.nextDevice());
+    }
+
+    @Benchmark
+    public Policy simpleEvaluation() throws PolicyEvaluationException {
+        return simpleEvaluation.getEffectivePolicy(this.nextDevice());
+    }
+
+    private DeviceIdentifier nextDevice() {
+        nextDevice = (nextDevice + 1) & (DEVICE_COUNT - 1);
+        return deviceIdentifiers[nextDevice];
+    }
+
+}
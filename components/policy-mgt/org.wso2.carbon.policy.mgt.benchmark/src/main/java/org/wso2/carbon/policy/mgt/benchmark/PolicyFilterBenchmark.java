@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.common.PolicyFilter;
+import org.wso2.carbon.policy.mgt.core.impl.PolicyApplicabilityIndex;
+import org.wso2.carbon.policy.mgt.core.impl.PolicyFilterImpl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the selection of the policies which apply to a device, i.e. the {@link PolicyFilterImpl} chain used when
+ * the policy cache is disabled, and the {@link PolicyApplicabilityIndex} used by the policy cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyFilterBenchmark {
+
+    private static final int DEVICE_COUNT = 1024;
+    private static final long SEED = 42;
+
+    @Param({"100", "1000", "10000"})
+    public int policyCount;
+
+    private final PolicyFilter policyFilter = new PolicyFilterImpl();
+    private Map<String, List<Policy>> deviceTypePolicies;
+    private PolicyApplicabilityIndex applicabilityIndex;
+    private List<Policy> policies;
+    private PIPDevice[] devices;
+    private int nextDevice;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticPolicySet policySet = new SyntheticPolicySet(policyCount, DEVICE_COUNT, SEED);
+        policies = policySet.getPolicies();
+        deviceTypePolicies = new HashMap<>();
+        for (String deviceType : SyntheticPolicySet.DEVICE_TYPES) {
+            deviceTypePolicies.put(deviceType, policySet.getPolicies(deviceType));
+        }
+        applicabilityIndex = new PolicyApplicabilityIndex(policies);
+        devices = policySet.getDevices().toArray(new PIPDevice[DEVICE_COUNT]);
+    }
+
+    /**
+     * Filters the policies of the device type of a device, in the same order as PolicyInformationPointImpl.
+     */
+    @Benchmark
+    public List<Policy> filterChain() {
+        PIPDevice pipDevice = this.nextDevice();
+        List<Policy> result = deviceTypePolicies.get(pipDevice.getDeviceType().getName());
+        result = policyFilter.filterActivePolicies(result);
+        result = policyFilter.filterDeviceTypeBasedPolicies(pipDevice.getDeviceType().getName(), result);
+        result = policyFilter.filterOwnershipTypeBasedPolicies(pipDevice.getOwnershipType(), result);
+        result = policyFilter.filterRolesBasedPolicies(pipDevice.getRoles(), result);
+        result = policyFilter.filterUserBasedPolicies(pipDevice.getUserId(), result);
+        if (!pipDevice.getDeviceGroups().isEmpty()) {
+            Map<Integer, DeviceGroup> groupMap = new HashMap<>();
+            for (DeviceGroup deviceGroup : pipDevice.getDeviceGroups()) {
+                groupMap.put(deviceGroup.getGroupId(), deviceGroup);
+            }
+            result = policyFilter.filterDeviceGroupsPolicies(groupMap, result);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Policy> applicabilityIndexLookup() {
+        return applicabilityIndex.getApplicablePolicies(this.nextDevice());
+    }
+
+    /**
+     * Builds the index, which is done whenever the cached policies of a tenant change.
+     */
+    @Benchmark
+    public PolicyApplicabilityIndex applicabilityIndexBuild() {
+        return new PolicyApplicabilityIndex(policies);
+    }
+
+    private PIPDevice nextDevice() {
+        nextDevice = (nextDevice + 1) & (DEVICE_COUNT - 1);
+        return devices[nextDevice];
+    }
+
+}
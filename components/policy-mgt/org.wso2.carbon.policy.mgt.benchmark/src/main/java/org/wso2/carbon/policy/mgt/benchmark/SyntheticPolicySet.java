@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.benchmark;
+
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
+import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
+import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
+import org.wso2.carbon.device.mgt.core.dto.DeviceType;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a synthetic set of policies of a tenant and of devices to be evaluated against them. The policies are
+ * spread over a few device types and are assigned to a mix of roles, users, device groups and ownership types, with
+ * the share of policies which apply to any value of a criterion as commonly seen in deployments. The same seed always
+ * generates the same set, so that the results of different runs can be compared.
+ */
+class SyntheticPolicySet {
+
+    static final String[] DEVICE_TYPES = {"android", "ios", "windows"};
+    static final String[] OWNERSHIP_TYPES = {"BYOD", "COPE"};
+    static final String ANY = "ANY";
+
+    private static final int ROLE_COUNT = 50;
+    private static final int USER_COUNT = 1000;
+    private static final int GROUP_COUNT = 100;
+    private static final int FEATURE_COUNT = 40;
+    private static final int MAX_FEATURES_PER_POLICY = 8;
+
+    private final Random random;
+    private final List<Policy> policies;
+    private final List<PIPDevice> devices;
+
+    /**
+     * @param policyCount number of policies of the tenant.
+     * @param deviceCount number of devices to be evaluated.
+     * @param seed        seed of the generated values.
+     */
+    SyntheticPolicySet(int policyCount, int deviceCount, long seed) {
+        random = new Random(seed);
+        List<Policy> policyList = new ArrayList<>(policyCount);
+        for (int i = 1; i <= policyCount; i++) {
+            policyList.add(this.createPolicy(i));
+        }
+        policies = Collections.unmodifiableList(policyList);
+        List<PIPDevice> deviceList = new ArrayList<>(deviceCount);
+        for (int i = 1; i <= deviceCount; i++) {
+            deviceList.add(this.createDevice(i));
+        }
+        devices = Collections.unmodifiableList(deviceList);
+    }
+
+    /**
+     * @return policies of all the device types, in the order they were created.
+     */
+    List<Policy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * @return policies of the given device type.
+     */
+    List<Policy> getPolicies(String deviceType) {
+        List<Policy> typePolicies = new ArrayList<>();
+        for (Policy policy : policies) {
+            if (deviceType.equalsIgnoreCase(policy.getProfile().getDeviceType())) {
+                typePolicies.add(policy);
+            }
+        }
+        return typePolicies;
+    }
+
+    List<PIPDevice> getDevices() {
+        return devices;
+    }
+
+    private Policy createPolicy(int id) {
+        String deviceType = DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)];
+        Policy policy = new Policy();
+        policy.setId(id);
+        policy.setPriorityId(id);
+        policy.setPolicyName("policy-" + id);
+        policy.setActive(random.nextInt(10) != 0);
+        policy.setCompliance(random.nextBoolean() ? "enforce" : "monitor");
+        policy.setProfile(this.createProfile(id, deviceType));
+
+        int ownership = random.nextInt(10);
+        policy.setOwnershipType(ownership < 4 ? ANY : OWNERSHIP_TYPES[ownership % OWNERSHIP_TYPES.length]);
+
+        List<String> roles = new ArrayList<>();
+        int roleSelector = random.nextInt(10);
+        if (roleSelector == 0) {
+            roles.add(ANY);
+        } else if (roleSelector > 2) {
+            for (int i = random.nextInt(3); i >= 0; i--) {
+                roles.add("role-" + random.nextInt(ROLE_COUNT));
+            }
+        }
+        policy.setRoles(roles);
+
+        List<String> users = new ArrayList<>();
+        if (random.nextInt(5) == 0) {
+            for (int i = random.nextInt(2); i >= 0; i--) {
+                users.add("user-" + random.nextInt(USER_COUNT));
+            }
+        }
+        policy.setUsers(users);
+
+        List<DeviceGroupWrapper> groups = new ArrayList<>();
+        int groupSelector = random.nextInt(20);
+        if (groupSelector == 0) {
+            DeviceGroupWrapper group = new DeviceGroupWrapper();
+            group.setId(-1);
+            group.setName(ANY);
+            groups.add(group);
+        } else if (groupSelector > 13) {
+            for (int i = random.nextInt(2); i >= 0; i--) {
+                DeviceGroupWrapper group = new DeviceGroupWrapper();
+                group.setId(random.nextInt(GROUP_COUNT));
+                group.setName("group-" + group.getId());
+                groups.add(group);
+            }
+        }
+        policy.setDeviceGroups(groups);
+        return policy;
+    }
+
+    private Profile createProfile(int id, String deviceType) {
+        Profile profile = new Profile();
+        profile.setProfileId(id);
+        profile.setProfileName("profile-" + id);
+        profile.setDeviceType(deviceType);
+        List<ProfileFeature> features = new ArrayList<>();
+        for (int i = random.nextInt(MAX_FEATURES_PER_POLICY); i >= 0; i--) {
+            ProfileFeature feature = new ProfileFeature();
+            feature.setId(id * MAX_FEATURES_PER_POLICY + i);
+            feature.setProfileId(id);
+            feature.setDeviceType(deviceType);
+            feature.setFeatureCode("FEATURE_" + random.nextInt(FEATURE_COUNT));
+            feature.setContent("{\"enabled\":" + random.nextBoolean() + "}");
+            features.add(feature);
+        }
+        profile.setProfileFeaturesList(features);
+        return profile;
+    }
+
+    private PIPDevice createDevice(int id) {
+        String deviceType = DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)];
+        PIPDevice pipDevice = new PIPDevice();
+        pipDevice.setDeviceIdentifier(new DeviceIdentifier("device-" + id, deviceType));
+        pipDevice.setDeviceType(new DeviceType(deviceType));
+        pipDevice.setOwnershipType(OWNERSHIP_TYPES[random.nextInt(OWNERSHIP_TYPES.length)]);
+        pipDevice.setUserId("user-" + random.nextInt(USER_COUNT));
+
+        String[] roles = new String[1 + random.nextInt(3)];
+        for (int i = 0; i < roles.length; i++) {
+            roles[i] = "role-" + random.nextInt(ROLE_COUNT);
+        }
+        pipDevice.setRoles(roles);
+
+        List<DeviceGroup> groups = new ArrayList<>();
+        for (int i = random.nextInt(3); i > 0; i--) {
+            DeviceGroup group = new DeviceGroup();
+            group.setGroupId(random.nextInt(GROUP_COUNT));
+            group.setName("group-" + group.getGroupId());
+            groups.add(group);
+        }
+        pipDevice.setDeviceGroups(groups);
+        return pipDevice;
+    }
+
+}
@@ -28,6 +28,7 @@ import org.wso2.carbon.policy.mgt.common.*;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.NonComplianceData;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.ComplianceFeature;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.PolicyComplianceException;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheManager;
 import org.wso2.carbon.policy.mgt.core.task.TaskScheduleService;
 
 import java.util.List;
@@ -68,6 +69,8 @@ public interface PolicyManagerService {
 
     TaskScheduleService getTaskScheduleService() throws PolicyMonitoringTaskException;
 
+    EffectivePolicyCacheManager getEffectivePolicyCacheManager();
+
     int getPolicyCount() throws PolicyManagementException;
 
     Policy getAppliedPolicyToDevice(
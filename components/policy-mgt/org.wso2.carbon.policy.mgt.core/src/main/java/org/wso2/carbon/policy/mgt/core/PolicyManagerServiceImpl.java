@@ -31,6 +31,8 @@ import org.wso2.carbon.policy.mgt.common.*;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.NonComplianceData;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.ComplianceFeature;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.PolicyComplianceException;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheManager;
+import org.wso2.carbon.policy.mgt.core.cache.impl.EffectivePolicyCacheManagerImpl;
 import org.wso2.carbon.policy.mgt.core.impl.PolicyAdministratorPointImpl;
 import org.wso2.carbon.policy.mgt.core.impl.PolicyInformationPointImpl;
 import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
@@ -186,6 +188,11 @@ public class PolicyManagerServiceImpl implements PolicyManagerService {
         return new TaskScheduleServiceImpl();
     }
 
+    @Override
+    public EffectivePolicyCacheManager getEffectivePolicyCacheManager() {
+        return EffectivePolicyCacheManagerImpl.getInstance();
+    }
+
     @Override
     public int getPolicyCount() throws PolicyManagementException {
         return policyAdministratorPoint.getPolicyCount();
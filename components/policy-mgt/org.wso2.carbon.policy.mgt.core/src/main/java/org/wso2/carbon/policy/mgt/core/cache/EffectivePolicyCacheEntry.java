@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache;
+
+import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Effective policy of a device, together with the fingerprint of the inputs it was evaluated from: the version of the
+ * policies, and the groups, owner, owner roles and ownership type of the device. The fingerprint is used to find the
+ * entries affected by a change of the inputs.
+ */
+public class EffectivePolicyCacheEntry {
+
+    private final Policy policy;
+    private final long policyVersion;
+    private final String ownershipType;
+    private final String owner;
+    private final Set<String> roles;
+    private final Set<Integer> groupIds;
+
+    /**
+     * @param pipDevice     device data the policy was evaluated from.
+     * @param policy        effective policy, or null if no policy applies to the device.
+     * @param policyVersion version of the policies the policy was evaluated from.
+     */
+    public EffectivePolicyCacheEntry(PIPDevice pipDevice, Policy policy, long policyVersion) {
+        this.policy = policy;
+        this.policyVersion = policyVersion;
+        this.ownershipType = pipDevice.getOwnershipType();
+        this.owner = pipDevice.getUserId();
+
+        Set<String> roles = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if (pipDevice.getRoles() != null) {
+            Collections.addAll(roles, pipDevice.getRoles());
+        }
+        this.roles = Collections.unmodifiableSet(roles);
+
+        Set<Integer> groupIds = new HashSet<>();
+        if (pipDevice.getDeviceGroups() != null) {
+            for (DeviceGroup deviceGroup : pipDevice.getDeviceGroups()) {
+                groupIds.add(deviceGroup.getGroupId());
+            }
+        }
+        this.groupIds = Collections.unmodifiableSet(groupIds);
+    }
+
+    /**
+     * @return effective policy, or null if no policy applies to the device. The policy is shared by all the readers
+     * of the entry, so it must not be modified.
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public long getPolicyVersion() {
+        return policyVersion;
+    }
+
+    public String getOwnershipType() {
+        return ownershipType;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public Set<Integer> getGroupIds() {
+        return groupIds;
+    }
+
+}
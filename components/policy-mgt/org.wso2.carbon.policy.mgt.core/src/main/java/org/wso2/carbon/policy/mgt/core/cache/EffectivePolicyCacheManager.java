@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache;
+
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.common.PolicyManagementException;
+
+import java.util.Collection;
+
+/**
+ * This interface for manage caching of the effective policies of the devices, per tenant. An entry is used as long as
+ * the policies of the tenant are not changed, which is tracked through the version of the cached policies. Changes of
+ * device groups, roles and users are not tracked, so they have to be reported through the invalidate methods. The
+ * entries also expire after a while, which bounds the use of an entry after a change which is not reported, or which
+ * is reported in another node of the cluster.
+ * <p>
+ * The cache is only used when the policy cache is enabled.
+ */
+public interface EffectivePolicyCacheManager {
+
+    /**
+     * This will return the version of the policies of the current tenant, to be read before reading the inputs of an
+     * effective policy which is added to the cache.
+     * @return - Version of the policies.
+     * @throws PolicyManagementException
+     */
+    long getPolicyVersion() throws PolicyManagementException;
+
+    /**
+     * This will return the number of invalidations of the current tenant, to be read before reading the inputs of an
+     * effective policy which is added to the cache.
+     * @return - Number of invalidations.
+     */
+    long getInvalidationCount();
+
+    /**
+     * This will return the cached effective policy of a device.
+     * @param deviceIdentifier - Identifier of the device.
+     * @return - Cache entry of the device, or null if there is no valid entry, e.g. if the owner or the ownership of
+     * the device differs from the one the entry was evaluated for.
+     * @throws PolicyManagementException
+     */
+    EffectivePolicyCacheEntry getEntry(DeviceIdentifier deviceIdentifier) throws PolicyManagementException;
+
+    /**
+     * This method will add the effective policy of a device to the cache. The policy is not added if the policies,
+     * or any of the groups, roles or users of the tenant have changed since the given version and invalidation count
+     * were read.
+     * @param pipDevice - Device data the policy was evaluated from.
+     * @param policy - Effective policy, or null if no policy applies to the device.
+     * @param policyVersion - Version of the policies read before the device data.
+     * @param invalidationCount - Number of invalidations read before the device data.
+     */
+    void addEntry(PIPDevice pipDevice, Policy policy, long policyVersion, long invalidationCount);
+
+    /**
+     * This method will remove the cached effective policy of a device, e.g. when the device is added to or removed
+     * from a group.
+     * @param deviceIdentifier - Identifier of the device.
+     */
+    void invalidateDevice(DeviceIdentifier deviceIdentifier);
+
+    /**
+     * This method will remove the cached effective policies of the devices in a group.
+     * @param groupId - Id of the group.
+     */
+    void invalidateDeviceGroup(int groupId);
+
+    /**
+     * This method will remove the cached effective policies of the devices owned by the users of a role.
+     * @param roleName - Name of the role.
+     */
+    void invalidateRole(String roleName);
+
+    /**
+     * This method will remove the cached effective policies of the devices owned by the given users, e.g. when their
+     * roles change.
+     * @param usernames - Names of the users.
+     */
+    void invalidateUsers(Collection<String> usernames);
+
+    /**
+     * This will remove all the cached effective policies of the current tenant.
+     */
+    void invalidateAll();
+
+    /**
+     * This will return the statistics of the cache of the current tenant.
+     * @return - Statistics of the cache.
+     */
+    EffectivePolicyCacheStatistics getStatistics();
+}
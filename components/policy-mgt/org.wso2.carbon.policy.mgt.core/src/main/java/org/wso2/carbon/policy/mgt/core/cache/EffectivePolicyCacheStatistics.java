@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache;
+
+/**
+ * Statistics of the effective policy cache of a tenant, in the current node.
+ */
+public class EffectivePolicyCacheStatistics {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long invalidatedEntryCount;
+    private final int size;
+
+    public EffectivePolicyCacheStatistics(long hitCount, long missCount, long invalidatedEntryCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.invalidatedEntryCount = invalidatedEntryCount;
+        this.size = size;
+    }
+
+    /**
+     * @return number of lookups which found a valid entry.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of lookups which did not find a valid entry, including the entries of an older policy version
+     * and the expired entries.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of entries removed because the groups, roles or users they depend on changed.
+     */
+    public long getInvalidatedEntryCount() {
+        return invalidatedEntryCount;
+    }
+
+    /**
+     * @return number of entries in the cache.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "hits : " + hitCount + ", misses : " + missCount + ", invalidated entries : " + invalidatedEntryCount +
+                ", size : " + size;
+    }
+
+}
@@ -21,12 +21,14 @@ package org.wso2.carbon.policy.mgt.core.cache;
 
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
 import org.wso2.carbon.policy.mgt.common.PolicyManagementException;
+import org.wso2.carbon.policy.mgt.core.impl.PolicyApplicabilityIndex;
 
 import java.util.List;
 
 /**
- * This interface for manage caching for policies. This is using the cache implementation comes in kernel, which will
- * automatically sync with the cluster. So all the nodes will receive the updated policies.
+ * This interface for manage caching for policies. The policies are kept in the memory of each node, and the version of
+ * the policies is shared through the cache implementation comes in kernel, which will automatically sync with the
+ * cluster. So all the nodes will reload the policies when they are updated.
  */
 public interface PolicyCacheManager {
 
@@ -44,7 +46,7 @@ public interface PolicyCacheManager {
 
     /**
      * This method will return the all policies.
-     * @return - list of policies
+     * @return - unmodifiable list of policies
      * @throws PolicyManagementException
      */
     List<Policy> getAllPolicies() throws PolicyManagementException;
@@ -93,6 +95,30 @@ public interface PolicyCacheManager {
      */
     Policy getPolicy(int policyId) throws PolicyManagementException;
 
+    /**
+     * This will return the policies of a device type from the cache in priority order.
+     * @param deviceType - Name of the device type.
+     * @return - Unmodifiable list of policies.
+     * @throws PolicyManagementException
+     */
+    List<Policy> getPoliciesOfDeviceType(String deviceType) throws PolicyManagementException;
+
+    /**
+     * This will return the applicability index of the cached policies of the current tenant. The index is built
+     * once per change of the cached policies.
+     * @return - Applicability index of the cached policies.
+     * @throws PolicyManagementException
+     */
+    PolicyApplicabilityIndex getApplicabilityIndex() throws PolicyManagementException;
+
+    /**
+     * This will return the version of the cached policies of the current tenant. The version changes whenever the
+     * policies of the tenant change in any node of the cluster.
+     * @return - Version of the cached policies.
+     * @throws PolicyManagementException
+     */
+    long getPolicyVersion() throws PolicyManagementException;
+
     /**
      * This method will add a policy id against a device id.
      * @param deviceId - Id of the device.
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.DeviceManagementException;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.cache.BoundedExpiringMap;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.common.PolicyManagementException;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheEntry;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheManager;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheStatistics;
+import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class EffectivePolicyCacheManagerImpl implements EffectivePolicyCacheManager {
+
+    private static final Log log = LogFactory.getLog(EffectivePolicyCacheManagerImpl.class);
+
+    private static EffectivePolicyCacheManagerImpl effectivePolicyCacheManager;
+
+    private final ConcurrentMap<Integer, TenantEntries> tenantEntries = new ConcurrentHashMap<>();
+    private final boolean cacheEnabled;
+    private final long entryExpiry;
+    private final int capacity;
+
+    private EffectivePolicyCacheManagerImpl(PolicyConfiguration config) {
+        this(config.getCacheEnable(), TimeUnit.SECONDS.toMillis(config.getCacheExpiryTime() > 0 ?
+                config.getCacheExpiryTime() : PolicyManagementConstants.DEFAULT_EFFECTIVE_POLICY_CACHE_EXPIRY_TIME),
+                config.getCacheCapacity() > 0 ? config.getCacheCapacity() :
+                        PolicyManagementConstants.DEFAULT_EFFECTIVE_POLICY_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param cacheEnabled whether the effective policies are cached.
+     * @param entryExpiry  time in milliseconds after which an entry is not used.
+     * @param capacity     maximum number of entries of a tenant.
+     */
+    EffectivePolicyCacheManagerImpl(boolean cacheEnabled, long entryExpiry, int capacity) {
+        this.cacheEnabled = cacheEnabled;
+        this.entryExpiry = entryExpiry;
+        this.capacity = capacity;
+    }
+
+    public static EffectivePolicyCacheManager getInstance() {
+        if (effectivePolicyCacheManager == null) {
+            synchronized (EffectivePolicyCacheManagerImpl.class) {
+                if (effectivePolicyCacheManager == null) {
+                    effectivePolicyCacheManager = new EffectivePolicyCacheManagerImpl(DeviceConfigurationManager
+                            .getInstance().getDeviceManagementConfig().getPolicyConfiguration());
+                }
+            }
+        }
+        return effectivePolicyCacheManager;
+    }
+
+    @Override
+    public long getPolicyVersion() throws PolicyManagementException {
+        if (!cacheEnabled) {
+            return 0;
+        }
+        return PolicyCacheManagerImpl.getInstance().getPolicyVersion();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return this.getTenantEntries().invalidations.get();
+    }
+
+    @Override
+    public EffectivePolicyCacheEntry getEntry(DeviceIdentifier deviceIdentifier) throws PolicyManagementException {
+        if (!cacheEnabled) {
+            return null;
+        }
+        TenantEntries tenant = this.getTenantEntries();
+        String key = getKey(deviceIdentifier);
+        EffectivePolicyCacheEntry entry = tenant.get(key);
+        if (entry != null && (entry.getPolicyVersion() != this.getPolicyVersion() ||
+                !this.isEnrolmentUnchanged(deviceIdentifier, entry))) {
+            tenant.remove(key, entry);
+            entry = null;
+        }
+        if (entry != null) {
+            tenant.hits.incrementAndGet();
+        } else {
+            tenant.misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    @Override
+    public void addEntry(PIPDevice pipDevice, Policy policy, long policyVersion, long invalidationCount) {
+        if (!cacheEnabled) {
+            return;
+        }
+        TenantEntries tenant = this.getTenantEntries();
+        String key = getKey(pipDevice.getDeviceIdentifier());
+        EffectivePolicyCacheEntry entry = new EffectivePolicyCacheEntry(pipDevice, policy, policyVersion);
+        tenant.add(key, entry);
+        // The invalidate methods count themselves before removing the entries. So either the removal sees the entry
+        // of a device whose inputs changed, or the changed count drops the entry here.
+        if (tenant.invalidations.get() != invalidationCount) {
+            tenant.remove(key, entry);
+        }
+    }
+
+    @Override
+    public void invalidateDevice(DeviceIdentifier deviceIdentifier) {
+        TenantEntries tenant = this.getTenantEntries();
+        tenant.invalidations.incrementAndGet();
+        if (tenant.remove(getKey(deviceIdentifier)) != null) {
+            tenant.invalidatedEntries.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void invalidateDeviceGroup(int groupId) {
+        TenantEntries tenant = this.getTenantEntries();
+        tenant.invalidations.incrementAndGet();
+        tenant.removeAll(tenant.keysByGroup, groupId);
+        if (log.isDebugEnabled()) {
+            log.debug("Effective policies of the devices in group " + groupId + " are invalidated.");
+        }
+    }
+
+    @Override
+    public void invalidateRole(String roleName) {
+        TenantEntries tenant = this.getTenantEntries();
+        tenant.invalidations.incrementAndGet();
+        tenant.removeAll(tenant.keysByRole, roleName.toLowerCase());
+        if (log.isDebugEnabled()) {
+            log.debug("Effective policies of the devices of the users of role " + roleName + " are invalidated.");
+        }
+    }
+
+    @Override
+    public void invalidateUsers(Collection<String> usernames) {
+        if (usernames == null || usernames.isEmpty()) {
+            return;
+        }
+        TenantEntries tenant = this.getTenantEntries();
+        tenant.invalidations.incrementAndGet();
+        for (String username : usernames) {
+            tenant.removeAll(tenant.keysByOwner, getOwnerKey(username));
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        TenantEntries tenant = this.getTenantEntries();
+        tenant.invalidations.incrementAndGet();
+        tenant.removeAllEntries();
+    }
+
+    @Override
+    public EffectivePolicyCacheStatistics getStatistics() {
+        TenantEntries tenant = this.getTenantEntries();
+        return new EffectivePolicyCacheStatistics(tenant.hits.get(), tenant.misses.get(),
+                tenant.invalidatedEntries.get(), tenant.size());
+    }
+
+    private TenantEntries getTenantEntries() {
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        TenantEntries tenant = tenantEntries.get(tenantId);
+        if (tenant == null) {
+            tenantEntries.putIfAbsent(tenantId, new TenantEntries(capacity, entryExpiry));
+            tenant = tenantEntries.get(tenantId);
+        }
+        return tenant;
+    }
+
+    /**
+     * Checks the ownership fingerprint of an entry against the current enrolment of the device, which is read through
+     * the device cache. This catches an enrolment changed without notifying this node, e.g. on another node of a
+     * cluster, once the device cache of this node is refreshed.
+     */
+    private boolean isEnrolmentUnchanged(DeviceIdentifier deviceIdentifier, EffectivePolicyCacheEntry entry)
+            throws PolicyManagementException {
+        Device device;
+        try {
+            device = PolicyManagementDataHolder.getInstance().getDeviceManagementService().getDevice(deviceIdentifier,
+                    false);
+        } catch (DeviceManagementException e) {
+            String msg = "Error occurred while retrieving the enrolment of device " + deviceIdentifier.getId();
+            log.error(msg, e);
+            throw new PolicyManagementException(msg, e);
+        }
+        if (device == null || device.getEnrolmentInfo() == null) {
+            return false;
+        }
+        EnrolmentInfo enrolmentInfo = device.getEnrolmentInfo();
+        String ownershipType = enrolmentInfo.getOwnership() == null ? null : enrolmentInfo.getOwnership().toString();
+        return equals(entry.getOwner(), enrolmentInfo.getOwner()) && equals(entry.getOwnershipType(), ownershipType);
+    }
+
+    private static boolean equals(String first, String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    /**
+     * Users are given with the user store domain by some callers, e.g. SECONDARY/user, and without by others, hence
+     * the owners are indexed by their name without the domain, ignoring the case.
+     */
+    private static String getOwnerKey(String username) {
+        int index = username.indexOf('/');
+        return (index < 0 ? username : username.substring(index + 1)).toLowerCase();
+    }
+
+    private static String getKey(DeviceIdentifier deviceIdentifier) {
+        return deviceIdentifier.getType() + ":" + deviceIdentifier.getId();
+    }
+
+    /**
+     * Cached effective policies of a tenant keyed by device, with the counters of the cache. The keys of the entries
+     * are also indexed by the groups, roles and owner of the devices, so that an invalidation finds its entries without
+     * going through the whole tenant.
+     */
+    private static class TenantEntries extends BoundedExpiringMap<String, EffectivePolicyCacheEntry> {
+
+        private final Map<Integer, Set<String>> keysByGroup = new HashMap<>();
+        private final Map<String, Set<String>> keysByRole = new HashMap<>();
+        private final Map<String, Set<String>> keysByOwner = new HashMap<>();
+        private final AtomicLong invalidations = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong invalidatedEntries = new AtomicLong();
+
+        private TenantEntries(int capacity, long entryExpiry) {
+            super(capacity, entryExpiry);
+        }
+
+        private synchronized void add(String key, EffectivePolicyCacheEntry entry) {
+            this.put(key, entry);
+            for (Integer groupId : entry.getGroupIds()) {
+                index(keysByGroup, groupId, key);
+            }
+            for (String role : entry.getRoles()) {
+                index(keysByRole, role.toLowerCase(), key);
+            }
+            if (entry.getOwner() != null) {
+                index(keysByOwner, getOwnerKey(entry.getOwner()), key);
+            }
+        }
+
+        private synchronized <T> void removeAll(Map<T, Set<String>> keysByValue, T value) {
+            Set<String> keys = keysByValue.remove(value);
+            if (keys == null) {
+                return;
+            }
+            for (String key : keys) {
+                if (this.remove(key) != null) {
+                    invalidatedEntries.incrementAndGet();
+                }
+            }
+        }
+
+        private synchronized void removeAllEntries() {
+            this.clear();
+            keysByGroup.clear();
+            keysByRole.clear();
+            keysByOwner.clear();
+        }
+
+        @Override
+        protected void onRemoval(String key, EffectivePolicyCacheEntry entry) {
+            for (Integer groupId : entry.getGroupIds()) {
+                unindex(keysByGroup, groupId, key);
+            }
+            for (String role : entry.getRoles()) {
+                unindex(keysByRole, role.toLowerCase(), key);
+            }
+            if (entry.getOwner() != null) {
+                unindex(keysByOwner, getOwnerKey(entry.getOwner()), key);
+            }
+        }
+
+        private static <T> void index(Map<T, Set<String>> keysByValue, T value, String key) {
+            Set<String> keys = keysByValue.get(value);
+            if (keys == null) {
+                keys = new HashSet<>();
+                keysByValue.put(value, keys);
+            }
+            keys.add(key);
+        }
+
+        private static <T> void unindex(Map<T, Set<String>> keysByValue, T value, String key) {
+            Set<String> keys = keysByValue.get(value);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByValue.remove(value);
+            }
+        }
+
+    }
+
+}
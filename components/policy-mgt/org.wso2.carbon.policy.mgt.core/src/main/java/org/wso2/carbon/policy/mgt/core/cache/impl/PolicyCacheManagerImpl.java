@@ -21,26 +21,40 @@ package org.wso2.carbon.policy.mgt.core.cache.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
 import org.wso2.carbon.policy.mgt.common.PolicyManagementException;
 import org.wso2.carbon.policy.mgt.core.cache.PolicyCacheManager;
+import org.wso2.carbon.policy.mgt.core.impl.PolicyApplicabilityIndex;
 import org.wso2.carbon.policy.mgt.core.mgt.PolicyManager;
 import org.wso2.carbon.policy.mgt.core.mgt.impl.PolicyManagerImpl;
 import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
 import org.wso2.carbon.policy.mgt.core.util.PolicyManagerUtil;
 
 import javax.cache.Cache;
-import java.util.Iterator;
 import java.util.List;
-
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the policies of each tenant as an immutable {@link PolicyCacheSnapshot} in the memory of the node, which is
+ * replaced as a whole when the policies change, so that readers never lock. The cluster shares only the version of
+ * the policies of each tenant through the kernel cache. A change increments the version, and a node whose snapshot
+ * carries a different version reloads the policies from the database on the next read.
+ */
 public class PolicyCacheManagerImpl implements PolicyCacheManager {
 
     private static final Log log = LogFactory.getLog(PolicyCacheManagerImpl.class);
+    private static final int VERSION_KEY = 1;
 
     private static PolicyCacheManagerImpl policyCacheManager;
 
-    private static Cache<Integer, List<Policy>> getPolicyListCache() {
-        return PolicyManagerUtil.getPolicyListCache(PolicyManagementConstants.DM_CACHE_LIST);
+    private final ConcurrentMap<Integer, PolicyCacheSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+
+    private static Cache<Integer, Long> getPolicyVersionCache() {
+        return PolicyManagerUtil.getPolicyVersionCache(PolicyManagementConstants.DM_CACHE_VERSION);
     }
 
     private PolicyCacheManagerImpl() {
@@ -59,148 +73,80 @@ public class PolicyCacheManagerImpl implements PolicyCacheManager {
 
     @Override
     public void addAllPolicies(List<Policy> policies) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        lCache.put(1, policies);
+        long version = this.publishNewVersion();
+        snapshots.put(getTenantId(), new PolicyCacheSnapshot(version, policies));
     }
 
     @Override
     public void updateAllPolicies(List<Policy> policies) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        lCache.removeAll();
-        lCache.put(1, policies);
+        this.addAllPolicies(policies);
     }
 
     @Override
     public List<Policy> getAllPolicies() throws PolicyManagementException {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (!lCache.containsKey(1)) {
-            PolicyManager policyManager = new PolicyManagerImpl();
-            this.addAllPolicies(policyManager.getPolicies());
-        }
+        List<Policy> policies = this.getSnapshot().getPolicies();
         if (log.isDebugEnabled()) {
-            List<Policy> cachedPolicy = lCache.get(1);
-            for (Policy policy : cachedPolicy) {
-                log.debug("Policy id in cache .. : " + policy.getId() + " policy name : " + policy.
-                        getPolicyName() + " Activated : " + policy.isActive());
-
-                List<String> users = policy.getUsers();
-                for (String user : users) {
-                    log.debug("Users in cached policy : " + user);
-                }
-                List<String> roles = policy.getRoles();
-                for (String role : roles) {
-                    log.debug("Roles in cached policy : " + role);
-                }
-            }
-
+            log.debug("Number of policies in cache : " + policies.size());
         }
-        return lCache.get(1);
-
+        return policies;
     }
 
     @Override
     public void rePopulateCache() throws PolicyManagementException {
-
         this.removeAllPolicies();
-        this.getAllPolicies();
+        this.getSnapshot();
     }
 
     @Override
     public void removeAllPolicies() {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        lCache.removeAll();
+        this.publishNewVersion();
+        snapshots.remove(getTenantId());
     }
 
     @Override
     public void addPolicy(Policy policy) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (lCache.containsKey(1)) {
-            List<Policy> cachedPolicy = lCache.get(1);
-
-            for (Policy pol : cachedPolicy) {
-                if (pol.getId() == policy.getId()) {
-                    return;
-                }
-            }
-            cachedPolicy.add(policy);
-        }
-
+        this.updatePolicy(policy);
     }
 
     @Override
     public void updatePolicy(Policy policy) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (lCache.containsKey(1)) {
-            List<Policy> cachedPolicy = lCache.get(1);
-            Iterator iterator = cachedPolicy.iterator();
-            while (iterator.hasNext()) {
-                Policy pol = (Policy) iterator.next();
-                if (pol.getId() == policy.getId()) {
-                    iterator.remove();
-                    break;
-                }
-            }
-            cachedPolicy.add(policy);
-            lCache.replace(1, cachedPolicy);
-        }
-
+        this.publishChange(policy, policy.getId());
     }
 
     @Override
     public void updatePolicy(int policyId) throws PolicyManagementException {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (lCache.containsKey(1)) {
-            PolicyManager policyManager = new PolicyManagerImpl();
-            Policy policy = policyManager.getPolicy(policyId);
-            this.updatePolicy(policy);
+        if (!snapshots.containsKey(getTenantId())) {
+            this.publishNewVersion();
+            return;
         }
-
+        PolicyManager policyManager = new PolicyManagerImpl();
+        Policy policy = policyManager.getPolicy(policyId);
+        this.updatePolicy(policy);
     }
 
     @Override
     public void removePolicy(int policyId) {
-
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (lCache.containsKey(1)) {
-            List<Policy> cachedPolicy = lCache.get(1);
-            Iterator iterator = cachedPolicy.iterator();
-            while (iterator.hasNext()) {
-                Policy pol = (Policy) iterator.next();
-                if (pol.getId() == policyId) {
-                    iterator.remove();
-                    break;
-                }
-            }
-            lCache.replace(1, cachedPolicy);
-        }
+        this.publishChange(null, policyId);
     }
 
     @Override
     public Policy getPolicy(int policyId) throws PolicyManagementException {
+        return this.getSnapshot().getPolicy(policyId);
+    }
 
-        Cache<Integer, List<Policy>> lCache = getPolicyListCache();
-        if (!lCache.containsKey(1)) {
-            this.removeAllPolicies();
-            this.getAllPolicies();
-        }
+    @Override
+    public List<Policy> getPoliciesOfDeviceType(String deviceType) throws PolicyManagementException {
+        return this.getSnapshot().getPoliciesOfDeviceType(deviceType);
+    }
 
-        Policy policy = null;
-        List<Policy> cachedPolicy = lCache.get(1);
-        Iterator iterator = cachedPolicy.iterator();
-        while (iterator.hasNext()) {
-            Policy pol = (Policy) iterator.next();
-            if (pol.getId() == policyId) {
-                policy = pol;
-            }
-        }
-        return policy;
+    @Override
+    public PolicyApplicabilityIndex getApplicabilityIndex() throws PolicyManagementException {
+        return this.getSnapshot().getApplicabilityIndex();
+    }
+
+    @Override
+    public long getPolicyVersion() throws PolicyManagementException {
+        return this.getSnapshot().getVersion();
     }
 
     @Override
@@ -218,4 +164,113 @@ public class PolicyCacheManagerImpl implements PolicyCacheManager {
         return 0;
     }
 
+    /**
+     * Returns the snapshot of the current tenant, reloading the policies if the snapshot is missing or its version
+     * differs from the version published in the cluster.
+     */
+    private PolicyCacheSnapshot getSnapshot() throws PolicyManagementException {
+        int tenantId = getTenantId();
+        Long version = getPolicyVersionCache().get(VERSION_KEY);
+        if (version == null) {
+            // The version has not been published yet or it has expired from the cache, so none of the snapshots in
+            // the cluster can be trusted.
+            version = this.publishNewVersion();
+        }
+        PolicyCacheSnapshot snapshot = snapshots.get(tenantId);
+        if (snapshot == null || snapshot.getVersion() != version) {
+            // The version is read before the policies. If the policies change meanwhile, the snapshot carries an older
+            // version and it is reloaded on the next read.
+            PolicyManager policyManager = new PolicyManagerImpl();
+            snapshot = new PolicyCacheSnapshot(version, policyManager.getPolicies());
+            snapshots.put(tenantId, snapshot);
+            if (log.isDebugEnabled()) {
+                log.debug("Policies of tenant " + tenantId + " are loaded to the cache with version " + version +
+                        ". Number of policies : " + snapshot.getPolicies().size());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Publishes a new version for a change of a single policy. If the snapshot of this node was up to date before the
+     * change, the change is applied to a copy of it, which replaces it. Otherwise the snapshot is dropped.
+     *
+     * @param policy   policy which is added or updated, or null if the policy is removed.
+     * @param policyId id of the changed policy.
+     */
+    private void publishChange(Policy policy, int policyId) {
+        int tenantId = getTenantId();
+        VersionChange change = publishNewVersion(getPolicyVersionCache(), random);
+        Long version = change.getPreviousVersion();
+        long newVersion = change.getNewVersion();
+
+        PolicyCacheSnapshot snapshot = snapshots.get(tenantId);
+        if (snapshot != null && version != null && snapshot.getVersion() == version) {
+            snapshot = (policy != null) ? snapshot.withPolicy(newVersion, policy) :
+                    snapshot.withoutPolicy(newVersion, policyId);
+            snapshots.put(tenantId, snapshot);
+        } else {
+            snapshots.remove(tenantId);
+        }
+    }
+
+    /**
+     * Publishes a new version of the policies of the current tenant, which invalidates the snapshots of all the
+     * nodes.
+     *
+     * @return the new version.
+     */
+    private long publishNewVersion() {
+        return publishNewVersion(getPolicyVersionCache(), random).getNewVersion();
+    }
+
+    /**
+     * Increments the version in the given cache with a compare-and-set, so that concurrent changes, on this node or
+     * on others, never publish the same version. A random version is used when there is no version to increment, so
+     * that it does not match the version of a snapshot loaded before the previous version expired from the cache.
+     */
+    static VersionChange publishNewVersion(Cache<Integer, Long> versionCache, Random random) {
+        Long version;
+        long newVersion;
+        boolean published;
+        do {
+            version = versionCache.get(VERSION_KEY);
+            if (version == null) {
+                newVersion = random.nextLong();
+                published = versionCache.putIfAbsent(VERSION_KEY, newVersion);
+            } else {
+                newVersion = version + 1;
+                published = versionCache.replace(VERSION_KEY, version, newVersion);
+            }
+        } while (!published);
+        return new VersionChange(version, newVersion);
+    }
+
+    private static int getTenantId() {
+        return PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+    }
+
+    /**
+     * Version published for a change, with the version it replaced, or null if there was none.
+     */
+    static final class VersionChange {
+
+        private final Long previousVersion;
+        private final long newVersion;
+
+        private VersionChange(Long previousVersion, long newVersion) {
+            this.previousVersion = previousVersion;
+            this.newVersion = newVersion;
+        }
+
+        Long getPreviousVersion() {
+            return previousVersion;
+        }
+
+        long getNewVersion() {
+            return newVersion;
+        }
+
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.cache.impl;
+
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.core.impl.PolicyApplicabilityIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable snapshot of the policies of a tenant, indexed by policy id and by device type. A change to the policies
+ * creates a new snapshot, so that readers never see a snapshot while it is being changed.
+ */
+final class PolicyCacheSnapshot {
+
+    private final long version;
+    private final List<Policy> policies;
+    private final Map<Integer, Policy> policyMap = new HashMap<>();
+    private final Map<String, List<Policy>> deviceTypePolicies = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private volatile PolicyApplicabilityIndex applicabilityIndex;
+
+    /**
+     * @param version  version of the policies of the tenant, as published in the cluster.
+     * @param policies policies of the tenant.
+     */
+    PolicyCacheSnapshot(long version, Collection<Policy> policies) {
+        this.version = version;
+        List<Policy> sortedPolicies = new ArrayList<>(policies);
+        Collections.sort(sortedPolicies);
+        this.policies = Collections.unmodifiableList(sortedPolicies);
+        for (Policy policy : sortedPolicies) {
+            policyMap.put(policy.getId(), policy);
+            if (policy.getProfile() != null && policy.getProfile().getDeviceType() != null) {
+                List<Policy> typePolicies = deviceTypePolicies.get(policy.getProfile().getDeviceType());
+                if (typePolicies == null) {
+                    typePolicies = new ArrayList<>();
+                    deviceTypePolicies.put(policy.getProfile().getDeviceType(), typePolicies);
+                }
+                typePolicies.add(policy);
+            }
+        }
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return unmodifiable list of the policies in priority order.
+     */
+    List<Policy> getPolicies() {
+        return policies;
+    }
+
+    Policy getPolicy(int policyId) {
+        return policyMap.get(policyId);
+    }
+
+    /**
+     * @return unmodifiable list of the policies of the device type in priority order.
+     */
+    List<Policy> getPoliciesOfDeviceType(String deviceType) {
+        List<Policy> typePolicies = deviceTypePolicies.get(deviceType);
+        if (typePolicies == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(typePolicies);
+    }
+
+    PolicyApplicabilityIndex getApplicabilityIndex() {
+        PolicyApplicabilityIndex index = applicabilityIndex;
+        if (index == null) {
+            // Concurrent readers may build the index more than once, which is harmless as the snapshot does not
+            // change.
+            index = new PolicyApplicabilityIndex(policies);
+            applicabilityIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * @return a new snapshot in which the given policy is added or replaces the policy with the same id.
+     */
+    PolicyCacheSnapshot withPolicy(long newVersion, Policy policy) {
+        Map<Integer, Policy> newPolicies = new HashMap<>(policyMap);
+        newPolicies.put(policy.getId(), policy);
+        return new PolicyCacheSnapshot(newVersion, newPolicies.values());
+    }
+
+    /**
+     * @return a new snapshot without the policy of the given id.
+     */
+    PolicyCacheSnapshot withoutPolicy(long newVersion, int policyId) {
+        Map<Integer, Policy> newPolicies = new HashMap<>(policyMap);
+        newPolicies.remove(policyId);
+        return new PolicyCacheSnapshot(newVersion, newPolicies.values());
+    }
+
+}
@@ -63,4 +63,27 @@ public interface MonitoringDAO {
 
     void updateAttempts(List<Integer> deviceId, boolean reset) throws MonitoringDAOException;
 
+    /**
+     * Marks the given devices as none compliant, with the policy of each compliance data as the failed policy.
+     * @param complianceDataList compliance data carrying the device, enrolment and policy ids.
+     * @throws MonitoringDAOException
+     */
+    void setDevicesAsNoneCompliance(List<NonComplianceData> complianceDataList) throws MonitoringDAOException;
+
+    /**
+     * Marks the given devices as compliant.
+     * @param complianceDataList compliance data carrying the device and enrolment ids.
+     * @throws MonitoringDAOException
+     */
+    void setDevicesAsCompliance(List<NonComplianceData> complianceDataList) throws MonitoringDAOException;
+
+    /**
+     * Adds the compliance features of each compliance data against its compliance status id.
+     * @param complianceDataList compliance data carrying the compliance status ids and the features.
+     * @throws MonitoringDAOException
+     */
+    void addNonComplianceFeatures(List<NonComplianceData> complianceDataList) throws MonitoringDAOException;
+
+    void deleteNoneComplianceData(List<Integer> policyComplianceStatusIds) throws MonitoringDAOException;
+
 }
\ No newline at end of file
@@ -19,6 +19,7 @@
 package org.wso2.carbon.policy.mgt.core.dao;
 
 import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.policy.mgt.common.Criterion;
 import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
@@ -129,6 +130,38 @@ public interface PolicyDAO {
 
     List<String> getPolicyAppliedUsers(int policyId) throws PolicyManagerDAOException;
 
+    /**
+     * Returns the roles of all the policies of the current tenant with a single query.
+     * @return role names keyed by policy id. Policies without roles are not included.
+     */
+    HashMap<Integer, List<String>> getAllPolicyAppliedRoles() throws PolicyManagerDAOException;
+
+    /**
+     * Returns the users of all the policies of the current tenant with a single query.
+     * @return usernames keyed by policy id. Policies without users are not included.
+     */
+    HashMap<Integer, List<String>> getAllPolicyAppliedUsers() throws PolicyManagerDAOException;
+
+    /**
+     * Returns the criteria of all the policies of the current tenant with a single query.
+     * @return criteria keyed by policy id. Policies without criteria are not included.
+     */
+    HashMap<Integer, List<PolicyCriterion>> getAllPolicyCriteriaOfPolicies() throws PolicyManagerDAOException;
+
+    /**
+     * Returns the device groups of all the policies of the current tenant with a single query. Only the group ids
+     * are set in the returned wrappers.
+     * @return device groups keyed by policy id. Policies without device groups are not included.
+     */
+    HashMap<Integer, List<DeviceGroupWrapper>> getAllDeviceGroupsOfPolicies() throws PolicyManagerDAOException;
+
+    /**
+     * Returns the identifiers of the devices which are directly assigned to the policies of the current tenant with a
+     * single query.
+     * @return device identifiers keyed by policy id. Policies without devices are not included.
+     */
+    HashMap<Integer, List<DeviceIdentifier>> getAllPolicyAppliedDeviceIdentifiers() throws PolicyManagerDAOException;
+
     void addEffectivePolicyToDevice(int deviceId, int enrolmentId, Policy policy)
             throws PolicyManagerDAOException;
 
@@ -280,13 +280,24 @@ public class MonitoringDAOImpl implements MonitoringDAO {
         PreparedStatement stmt = null;
         ResultSet resultSet = null;
         List<NonComplianceData> complianceDataList = new ArrayList<>();
+        if (deviceIds == null || deviceIds.isEmpty()) {
+            return complianceDataList;
+        }
         int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
         try {
             conn = this.getConnection();
-            String query = "SELECT * FROM DM_POLICY_COMPLIANCE_STATUS WHERE TENANT_ID = ? AND DEVICE_ID IN (?)";
-            stmt = conn.prepareStatement(query);
-            stmt.setInt(1, tenantId);
-            stmt.setString(2, PolicyManagerUtil.makeString(deviceIds));
+            StringBuilder query = new StringBuilder("SELECT * FROM DM_POLICY_COMPLIANCE_STATUS WHERE TENANT_ID = ? " +
+                    "AND DEVICE_ID IN (");
+            for (int i = 0; i < deviceIds.size(); i++) {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            query.append(")");
+            stmt = conn.prepareStatement(query.toString());
+            int index = 1;
+            stmt.setInt(index++, tenantId);
+            for (int deviceId : deviceIds) {
+                stmt.setInt(index++, deviceId);
+            }
 
             resultSet = stmt.executeQuery();
             while (resultSet.next()) {
@@ -461,6 +472,115 @@ public class MonitoringDAOImpl implements MonitoringDAO {
         }
     }
 
+    @Override
+    public void setDevicesAsNoneCompliance(List<NonComplianceData> complianceDataList)
+            throws MonitoringDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        Timestamp currentTimestamp = new Timestamp(Calendar.getInstance().getTime().getTime());
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "UPDATE DM_POLICY_COMPLIANCE_STATUS  SET STATUS = 0, LAST_FAILED_TIME = ?, POLICY_ID = ?," +
+                    " ATTEMPTS=0 WHERE  DEVICE_ID = ? AND TENANT_ID = ? AND ENROLMENT_ID = ?";
+            stmt = conn.prepareStatement(query);
+            for (NonComplianceData complianceData : complianceDataList) {
+                stmt.setTimestamp(1, currentTimestamp);
+                stmt.setInt(2, complianceData.getPolicyId());
+                stmt.setInt(3, complianceData.getDeviceId());
+                stmt.setInt(4, tenantId);
+                stmt.setInt(5, complianceData.getEnrolmentId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new MonitoringDAOException("Error occurred while updating the none compliance to the database.", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public void setDevicesAsCompliance(List<NonComplianceData> complianceDataList) throws MonitoringDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        Timestamp currentTimestamp = new Timestamp(Calendar.getInstance().getTime().getTime());
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "UPDATE DM_POLICY_COMPLIANCE_STATUS SET STATUS = ?, ATTEMPTS=0, LAST_SUCCESS_TIME = ?" +
+                    " WHERE  DEVICE_ID = ? AND TENANT_ID = ? AND ENROLMENT_ID = ?";
+            stmt = conn.prepareStatement(query);
+            for (NonComplianceData complianceData : complianceDataList) {
+                stmt.setInt(1, 1);
+                stmt.setTimestamp(2, currentTimestamp);
+                stmt.setInt(3, complianceData.getDeviceId());
+                stmt.setInt(4, tenantId);
+                stmt.setInt(5, complianceData.getEnrolmentId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new MonitoringDAOException("Error occurred while updating the compliance to the database.", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public void addNonComplianceFeatures(List<NonComplianceData> complianceDataList) throws MonitoringDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "INSERT INTO DM_POLICY_COMPLIANCE_FEATURES (COMPLIANCE_STATUS_ID, FEATURE_CODE, STATUS, " +
+                    "TENANT_ID) VALUES (?, ?, ?, ?) ";
+            stmt = conn.prepareStatement(query);
+            for (NonComplianceData complianceData : complianceDataList) {
+                for (ComplianceFeature feature : complianceData.getComplianceFeatures()) {
+                    stmt.setInt(1, complianceData.getId());
+                    stmt.setString(2, feature.getFeatureCode());
+                    if (feature.isCompliant()) {
+                        stmt.setInt(3, 1);
+                    } else {
+                        stmt.setInt(3, 0);
+                    }
+                    stmt.setInt(4, tenantId);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new MonitoringDAOException("Error occurred while adding the none compliance features to the " +
+                    "database.", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
+    @Override
+    public void deleteNoneComplianceData(List<Integer> policyComplianceStatusIds) throws MonitoringDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "DELETE FROM DM_POLICY_COMPLIANCE_FEATURES WHERE COMPLIANCE_STATUS_ID = ? AND TENANT_ID = ?";
+            stmt = conn.prepareStatement(query);
+            for (int policyComplianceStatusId : policyComplianceStatusIds) {
+                stmt.setInt(1, policyComplianceStatusId);
+                stmt.setInt(2, tenantId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new MonitoringDAOException("Unable to delete compliance  data from database.", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, null);
+        }
+    }
+
     private Connection getConnection() throws MonitoringDAOException {
         return PolicyManagementDAOFactory.getConnection();
     }
@@ -22,6 +22,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.policy.mgt.common.Criterion;
 import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
@@ -756,31 +757,14 @@ public class PolicyDAOImpl implements PolicyDAO {
             String query = "SELECT DPC.ID, DPC.CRITERIA_ID, DPCP.PROP_KEY, DPCP.PROP_VALUE, DPCP.CONTENT FROM " +
                     "DM_POLICY_CRITERIA DPC LEFT JOIN DM_POLICY_CRITERIA_PROPERTIES DPCP " +
                     "ON DPCP.POLICY_CRITERION_ID = DPC.ID RIGHT JOIN DM_CRITERIA DC " +
-                    "ON DC.ID=DPC.CRITERIA_ID WHERE DPC.POLICY_ID = ?";
+                    "ON DC.ID=DPC.CRITERIA_ID WHERE DPC.POLICY_ID = ? ORDER BY DPC.ID";
             stmt = conn.prepareStatement(query);
             stmt.setInt(1, policyId);
             resultSet = stmt.executeQuery();
 
-            int criteriaId = 0;
-
             PolicyCriterion policyCriterion = null;
-            Properties prop = null;
             while (resultSet.next()) {
-
-                if (criteriaId != resultSet.getInt("ID")) {
-                    if (policyCriterion != null) {
-                        policyCriterion.setProperties(prop);
-                        criteria.add(policyCriterion);
-                    }
-                    policyCriterion = new PolicyCriterion();
-                    prop = new Properties();
-                    criteriaId = resultSet.getInt("ID");
-
-                    policyCriterion.setId(resultSet.getInt("ID"));
-                    policyCriterion.setCriteriaId(resultSet.getInt("CRITERIA_ID"));
-                } else {
-                    prop.setProperty(resultSet.getString("PROP_KEY"), resultSet.getString("PROP_VALUE"));
-                }
+                policyCriterion = this.readPolicyCriterion(resultSet, policyCriterion, criteria);
             }
         } catch (SQLException e) {
             throw new PolicyManagerDAOException("Error occurred while reading the criteria related to policies from " +
@@ -1079,6 +1063,182 @@ public class PolicyDAOImpl implements PolicyDAO {
         }
     }
 
+    @Override
+    public HashMap<Integer, List<String>> getAllPolicyAppliedRoles() throws PolicyManagerDAOException {
+        String query = "SELECT RP.POLICY_ID, RP.ROLE_NAME FROM DM_ROLE_POLICY RP INNER JOIN DM_POLICY P " +
+                "ON P.ID = RP.POLICY_ID WHERE P.TENANT_ID = ?";
+        try {
+            return this.getPolicyNameMap(query, "ROLE_NAME");
+        } catch (SQLException e) {
+            throw new PolicyManagerDAOException("Error occurred while getting the roles related to policies", e);
+        }
+    }
+
+    @Override
+    public HashMap<Integer, List<String>> getAllPolicyAppliedUsers() throws PolicyManagerDAOException {
+        String query = "SELECT UP.POLICY_ID, UP.USERNAME FROM DM_USER_POLICY UP INNER JOIN DM_POLICY P " +
+                "ON P.ID = UP.POLICY_ID WHERE P.TENANT_ID = ?";
+        try {
+            return this.getPolicyNameMap(query, "USERNAME");
+        } catch (SQLException e) {
+            throw new PolicyManagerDAOException("Error occurred while getting the users related to policies", e);
+        }
+    }
+
+    @Override
+    public HashMap<Integer, List<PolicyCriterion>> getAllPolicyCriteriaOfPolicies() throws PolicyManagerDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        HashMap<Integer, List<PolicyCriterion>> policyCriteria = new HashMap<>();
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "SELECT DPC.POLICY_ID, DPC.ID, DPC.CRITERIA_ID, DPCP.PROP_KEY, DPCP.PROP_VALUE, " +
+                    "DPCP.CONTENT FROM DM_POLICY_CRITERIA DPC INNER JOIN DM_POLICY P ON P.ID = DPC.POLICY_ID " +
+                    "LEFT JOIN DM_POLICY_CRITERIA_PROPERTIES DPCP ON DPCP.POLICY_CRITERION_ID = DPC.ID " +
+                    "WHERE P.TENANT_ID = ? ORDER BY DPC.POLICY_ID, DPC.ID";
+            stmt = conn.prepareStatement(query);
+            stmt.setInt(1, tenantId);
+            resultSet = stmt.executeQuery();
+
+            int policyId = -1;
+            List<PolicyCriterion> criteria = null;
+            PolicyCriterion policyCriterion = null;
+            while (resultSet.next()) {
+                if (criteria == null || policyId != resultSet.getInt("POLICY_ID")) {
+                    policyId = resultSet.getInt("POLICY_ID");
+                    criteria = new ArrayList<>();
+                    policyCriteria.put(policyId, criteria);
+                    policyCriterion = null;
+                }
+                policyCriterion = this.readPolicyCriterion(resultSet, policyCriterion, criteria);
+            }
+        } catch (SQLException e) {
+            throw new PolicyManagerDAOException("Error occurred while reading the criteria related to policies from " +
+                    "the database", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, resultSet);
+        }
+        return policyCriteria;
+    }
+
+    @Override
+    public HashMap<Integer, List<DeviceGroupWrapper>> getAllDeviceGroupsOfPolicies() throws PolicyManagerDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        HashMap<Integer, List<DeviceGroupWrapper>> policyDeviceGroups = new HashMap<>();
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "SELECT POLICY_ID, DEVICE_GROUP_ID FROM DM_DEVICE_GROUP_POLICY WHERE TENANT_ID = ?";
+            stmt = conn.prepareStatement(query);
+            stmt.setInt(1, tenantId);
+            resultSet = stmt.executeQuery();
+
+            while (resultSet.next()) {
+                DeviceGroupWrapper dgw = new DeviceGroupWrapper();
+                dgw.setId(resultSet.getInt("DEVICE_GROUP_ID"));
+                dgw.setTenantId(tenantId);
+                getPolicyValues(policyDeviceGroups, resultSet.getInt("POLICY_ID")).add(dgw);
+            }
+        } catch (SQLException e) {
+            throw new PolicyManagerDAOException("Error occurred while reading the device groups form database.", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, resultSet);
+        }
+        return policyDeviceGroups;
+    }
+
+    @Override
+    public HashMap<Integer, List<DeviceIdentifier>> getAllPolicyAppliedDeviceIdentifiers()
+            throws PolicyManagerDAOException {
+        Connection conn;
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        HashMap<Integer, List<DeviceIdentifier>> policyDeviceIds = new HashMap<>();
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            conn = this.getConnection();
+            String query = "SELECT DP.POLICY_ID, D.DEVICE_IDENTIFICATION, T.NAME AS DEVICE_TYPE " +
+                    "FROM DM_DEVICE_POLICY DP INNER JOIN DM_POLICY P ON P.ID = DP.POLICY_ID " +
+                    "INNER JOIN DM_DEVICE D ON D.ID = DP.DEVICE_ID " +
+                    "INNER JOIN DM_DEVICE_TYPE T ON T.ID = D.DEVICE_TYPE_ID WHERE P.TENANT_ID = ?";
+            stmt = conn.prepareStatement(query);
+            stmt.setInt(1, tenantId);
+            resultSet = stmt.executeQuery();
+
+            while (resultSet.next()) {
+                DeviceIdentifier deviceIdentifier = new DeviceIdentifier(resultSet.getString("DEVICE_IDENTIFICATION"),
+                        resultSet.getString("DEVICE_TYPE"));
+                getPolicyValues(policyDeviceIds, resultSet.getInt("POLICY_ID")).add(deviceIdentifier);
+            }
+        } catch (SQLException e) {
+            throw new PolicyManagerDAOException("Error occurred while getting the device related to policies", e);
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, resultSet);
+        }
+        return policyDeviceIds;
+    }
+
+    /**
+     * Runs a query which selects a POLICY_ID and a name column for the policies of the current tenant, and groups the
+     * names by policy id.
+     */
+    private HashMap<Integer, List<String>> getPolicyNameMap(String query, String nameColumn) throws SQLException {
+        PreparedStatement stmt = null;
+        ResultSet resultSet = null;
+        HashMap<Integer, List<String>> policyNames = new HashMap<>();
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            Connection conn = this.getConnection();
+            stmt = conn.prepareStatement(query);
+            stmt.setInt(1, tenantId);
+            resultSet = stmt.executeQuery();
+
+            while (resultSet.next()) {
+                getPolicyValues(policyNames, resultSet.getInt("POLICY_ID")).add(resultSet.getString(nameColumn));
+            }
+        } finally {
+            PolicyManagementDAOUtil.cleanupResources(stmt, resultSet);
+        }
+        return policyNames;
+    }
+
+    private static <T> List<T> getPolicyValues(Map<Integer, List<T>> policyValues, int policyId) {
+        List<T> values = policyValues.get(policyId);
+        if (values == null) {
+            values = new ArrayList<>();
+            policyValues.put(policyId, values);
+        }
+        return values;
+    }
+
+    /**
+     * Reads a row of a policy criteria query, which has a row per criterion property ordered by the criterion id.
+     * A new criterion is added to the given list when the row belongs to a criterion other than the current one.
+     *
+     * @return the criterion which the row belongs to.
+     */
+    private PolicyCriterion readPolicyCriterion(ResultSet resultSet, PolicyCriterion current,
+                                                List<PolicyCriterion> criteria) throws SQLException {
+        PolicyCriterion policyCriterion = current;
+        if (policyCriterion == null || policyCriterion.getId() != resultSet.getInt("ID")) {
+            policyCriterion = new PolicyCriterion();
+            policyCriterion.setId(resultSet.getInt("ID"));
+            policyCriterion.setCriteriaId(resultSet.getInt("CRITERIA_ID"));
+            policyCriterion.setProperties(new Properties());
+            criteria.add(policyCriterion);
+        }
+        String key = resultSet.getString("PROP_KEY");
+        String value = resultSet.getString("PROP_VALUE");
+        if (key != null && value != null) {
+            policyCriterion.getProperties().setProperty(key, value);
+        }
+        return policyCriterion;
+    }
+
 
     @Override
     public void addEffectivePolicyToDevice(int deviceId, int enrolmentId, Policy policy) throws
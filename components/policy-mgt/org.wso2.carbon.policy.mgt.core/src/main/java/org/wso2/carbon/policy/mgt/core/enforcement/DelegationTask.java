@@ -20,6 +20,7 @@ package org.wso2.carbon.policy.mgt.core.enforcement;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
@@ -33,14 +34,25 @@ import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
 import org.wso2.carbon.policy.mgt.core.mgt.PolicyManager;
 import org.wso2.carbon.policy.mgt.core.mgt.bean.UpdatedPolicyDeviceListBean;
 import org.wso2.carbon.policy.mgt.core.mgt.impl.PolicyManagerImpl;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DelegationTask implements Task {
 
     private static final Log log = LogFactory.getLog(DelegationTask.class);
+    private static final List<EnrolmentInfo.Status> ENFORCED_STATUSES = Arrays.asList(EnrolmentInfo.Status.CREATED,
+            EnrolmentInfo.Status.ACTIVE, EnrolmentInfo.Status.INACTIVE, EnrolmentInfo.Status.UNREACHABLE,
+            EnrolmentInfo.Status.UNCLAIMED, EnrolmentInfo.Status.SUSPENDED, EnrolmentInfo.Status.BLOCKED,
+            EnrolmentInfo.Status.DISENROLLMENT_REQUESTED);
     private PolicyConfiguration policyConfiguration = DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getPolicyConfiguration();
 
     @Override
@@ -67,39 +79,85 @@ public class DelegationTask implements Task {
                 log.debug("Number of device types which policies are changed .......... : " + deviceTypes.size());
             }
             if (!deviceTypes.isEmpty()) {
-                DeviceManagementProviderService service = PolicyManagementDataHolder.getInstance().
-                        getDeviceManagementService();
-                List<Device> devices;
-                List<Device> toBeNotified;
-                for (String deviceType : deviceTypes) {
-                    try {
-                        devices = new ArrayList<>();
-                        toBeNotified = new ArrayList<>();
-                        devices.addAll(service.getAllDevices(deviceType, false));
-                        //HashMap<Integer, Integer> deviceIdPolicy = policyManager.getAppliedPolicyIdsDeviceIds();
-                        for (Device device : devices) {
-                            // if (deviceIdPolicy.containsKey(device.getId())) {
-                            if (device != null && device.getEnrolmentInfo() != null
-                                && device.getEnrolmentInfo().getStatus() != EnrolmentInfo.Status.REMOVED) {
-                                toBeNotified.add(device);
-                            }
-                            // }
-                        }
-                        if (!toBeNotified.isEmpty()) {
-                            PolicyEnforcementDelegator enforcementDelegator = new PolicyEnforcementDelegatorImpl
-                                    (toBeNotified, updatedPolicyDeviceList.getUpdatedPolicyIds());
-                            enforcementDelegator.delegate();
+                this.enforcePolicies(deviceTypes, updatedPolicyDeviceList.getUpdatedPolicyIds());
+            }
+        } catch (PolicyManagementException e) {
+            log.error("Error occurred while getting the policies applied to devices.", e);
+        }
+    }
+
+    /**
+     * Re-enforces the policies on the devices of the given device types. Device types are processed in parallel, and
+     * the devices of a device type are read and re-enforced page by page, so that all the devices are not loaded at
+     * once.
+     */
+    private void enforcePolicies(List<String> deviceTypes, final List<Integer> updatedPolicyIds) {
+        final int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        int threadCount = Math.min(deviceTypes.size(), PolicyManagementConstants.DELEGATION_MAX_THREAD_COUNT);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            Map<String, Future<Integer>> results = new LinkedHashMap<>();
+            for (final String deviceType : deviceTypes) {
+                results.put(deviceType, executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws PolicyManagementException {
+                        try {
+                            PrivilegedCarbonContext.startTenantFlow();
+                            PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId, true);
+                            return enforcePoliciesOfDeviceType(deviceType, updatedPolicyIds);
+                        } finally {
+                            PrivilegedCarbonContext.endTenantFlow();
                         }
-                    } catch (DeviceManagementException e) {
-                        throw new PolicyManagementException("Error occurred while fetching the devices", e);
-                    } catch (PolicyDelegationException e) {
-                        throw new PolicyManagementException("Error occurred while running the delegation task on " +
-                                                            "device-type : " + deviceType, e);
                     }
+                }));
+            }
+            for (Map.Entry<String, Future<Integer>> result : results.entrySet()) {
+                try {
+                    int deviceCount = result.getValue().get();
+                    log.info("Policies re-enforced on " + deviceCount + " devices of device-type : " +
+                            result.getKey());
+                } catch (ExecutionException e) {
+                    log.error("Error occurred while running the delegation task on device-type : " +
+                            result.getKey(), e.getCause());
                 }
             }
-        } catch (PolicyManagementException e) {
-            log.error("Error occurred while getting the policies applied to devices.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Delegation task was interrupted while re-enforcing the policies.", e);
+        } finally {
+            executor.shutdownNow();
         }
     }
+
+    private int enforcePoliciesOfDeviceType(String deviceType, List<Integer> updatedPolicyIds) throws
+            PolicyManagementException {
+        DeviceManagementProviderService service = PolicyManagementDataHolder.getInstance().
+                getDeviceManagementService();
+        int pageSize = PolicyManagementConstants.DELEGATION_DEVICE_PAGE_SIZE;
+        int deviceCount = 0;
+        // Devices are paged on the enrolment id, so that each page is an index range scan, and devices enrolled or
+        // removed meanwhile do not shift the pages.
+        int fromEnrolmentId = 0;
+        List<Device> devices;
+        do {
+            try {
+                devices = service.getDevicesByStatus(deviceType, ENFORCED_STATUSES, fromEnrolmentId, pageSize);
+            } catch (DeviceManagementException e) {
+                throw new PolicyManagementException("Error occurred while fetching the devices", e);
+            }
+            if (!devices.isEmpty()) {
+                try {
+                    PolicyEnforcementDelegator enforcementDelegator = new PolicyEnforcementDelegatorImpl
+                            (devices, updatedPolicyIds);
+                    enforcementDelegator.delegate();
+                } catch (PolicyDelegationException e) {
+                    throw new PolicyManagementException("Error occurred while running the delegation task on " +
+                                                        "device-type : " + deviceType, e);
+                }
+                deviceCount += devices.size();
+                fromEnrolmentId = devices.get(devices.size() - 1).getEnrolmentInfo().getId();
+            }
+        } while (devices.size() == pageSize);
+        return deviceCount;
+    }
 }
@@ -37,7 +37,10 @@ import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
 import org.wso2.carbon.policy.mgt.core.util.PolicyManagerUtil;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegator{
 
@@ -48,9 +51,8 @@ public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegato
 
     public PolicyEnforcementDelegatorImpl(List<Device> devices, List<Integer> updatedPolicyIds) {
 
-        log.info("Policy re-enforcing stared due to change of the policies.");
-
         if (log.isDebugEnabled()) {
+            log.debug("Policy re-enforcing started for " + devices.size() + " devices due to change of the policies.");
             for (Device device : devices) {
                 log.debug("Policy re-enforcing for device :" + device.getDeviceIdentifier() + " - Type : "
                         + device.getType());
@@ -63,6 +65,13 @@ public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegato
 
     @Override
     public void delegate() throws PolicyDelegationException {
+        // Devices of the same type which end up with the same effective policy need the same operations. Hence a
+        // single revoke operation is added for the devices of each type to be re-enforced, followed by a single
+        // policy operation for each effective policy of each type, instead of adding the operations device by device.
+        Map<String, List<DeviceIdentifier>> revokedDevices = new LinkedHashMap<>();
+        Map<String, Policy> effectivePolicies = new LinkedHashMap<>();
+        Map<String, List<DeviceIdentifier>> policyDevices = new HashMap<>();
+        int revokedDeviceCount = 0;
         for (Device device : devices) {
             DeviceIdentifier identifier = new DeviceIdentifier();
             identifier.setId(device.getDeviceIdentifier());
@@ -70,8 +79,6 @@ public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegato
 
             Policy devicePolicy = this.getAppliedPolicyToDevice(identifier);
             Policy policy = this.getEffectivePolicy(identifier);
-            List<DeviceIdentifier> deviceIdentifiers = new ArrayList<>();
-            deviceIdentifiers.add(identifier);
             if (policy != null) {
                  /*
                 We add policy operation for the device if,
@@ -81,14 +88,31 @@ public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegato
                  */
                 if (devicePolicy == null || devicePolicy.getId() != policy.getId() || updatedPolicyIds.contains
                         (policy.getId())) {
-                    this.addPolicyRevokeOperation(deviceIdentifiers);
-                    this.addPolicyOperation(deviceIdentifiers, policy);
+                    this.addToGroup(revokedDevices, identifier.getType(), identifier);
+                    revokedDeviceCount++;
+                    String signature = this.getPolicySignature(identifier.getType(), policy);
+                    if (!effectivePolicies.containsKey(signature)) {
+                        effectivePolicies.put(signature, policy);
+                    }
+                    this.addToGroup(policyDevices, signature, identifier);
                 }
             } else {
                 //This means all the applicable policies have been removed from device. Hence calling a policy revoke.
-                this.addPolicyRevokeOperation(deviceIdentifiers);
+                this.addToGroup(revokedDevices, identifier.getType(), identifier);
+                revokedDeviceCount++;
             }
         }
+
+        for (List<DeviceIdentifier> deviceIdentifiers : revokedDevices.values()) {
+            this.addPolicyRevokeOperation(deviceIdentifiers);
+        }
+        for (Map.Entry<String, Policy> effectivePolicy : effectivePolicies.entrySet()) {
+            this.addPolicyOperation(policyDevices.get(effectivePolicy.getKey()), effectivePolicy.getValue());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Policy re-enforcing completed for " + devices.size() + " devices. Revoked policies of " +
+                    revokedDeviceCount + " devices and added " + effectivePolicies.size() + " policy operations.");
+        }
     }
 
     @Override
@@ -167,6 +191,24 @@ public class PolicyEnforcementDelegatorImpl implements PolicyEnforcementDelegato
         return policyRevokeOperation;
     }
 
+    /**
+     * Merged effective policies all have the id -1. They are told apart by the description, which lists the ids of
+     * the policies they are merged from. The device type is part of the signature, as an operation is added for the
+     * devices of a single type.
+     */
+    private String getPolicySignature(String deviceType, Policy policy) {
+        return deviceType + ":" + policy.getId() + ":" + policy.getDescription();
+    }
+
+    private void addToGroup(Map<String, List<DeviceIdentifier>> groups, String key, DeviceIdentifier identifier) {
+        List<DeviceIdentifier> deviceIdentifiers = groups.get(key);
+        if (deviceIdentifiers == null) {
+            deviceIdentifiers = new ArrayList<>();
+            groups.put(key, deviceIdentifiers);
+        }
+        deviceIdentifiers.add(identifier);
+    }
+
     /**
      * Provides the applied policy for give device
      *
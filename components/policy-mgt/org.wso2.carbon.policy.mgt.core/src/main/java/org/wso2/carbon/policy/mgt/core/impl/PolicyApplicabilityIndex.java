@@ -0,0 +1,202 @@
+/*
+*  Copyright (c) 2017 WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+*
+*  WSO2 Inc. licenses this file to you under the Apache License,
+*  Version 2.0 (the "License"); you may not use this file except
+*  in compliance with the License.
+*  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+
+package org.wso2.carbon.policy.mgt.core.impl;
+
+import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
+import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable index of a list of policies, which answers the same question as the {@link PolicyFilterImpl} chain used
+ * by {@link PolicyInformationPointImpl}: which policies apply to a given device. Each policy gets a position in
+ * priority order and, for every criterion, the index keeps the positions of the policies matching each value as a
+ * bitset. Policies which accept any value of a criterion (i.e. the criterion is empty or "ANY") are kept in a
+ * separate bitset, so that matching a device is a few bitset intersections instead of string comparisons over all
+ * the policies.
+ * <p>
+ * Values are compared ignoring the case, as the filters do. The index has to be rebuilt when the policies change.
+ */
+public class PolicyApplicabilityIndex {
+
+    private final Policy[] policies;
+
+    private final BitSet activePolicies = new BitSet();
+    private final Map<String, BitSet> deviceTypePolicies = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final BitSet anyOwnershipPolicies = new BitSet();
+    private final Map<String, BitSet> ownershipPolicies = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final BitSet anyRolePolicies = new BitSet();
+    private final Map<String, BitSet> rolePolicies = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final BitSet anyUserPolicies = new BitSet();
+    private final Map<String, BitSet> userPolicies = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final BitSet anyGroupPolicies = new BitSet();
+    private final Map<Integer, BitSet> groupPolicies = new HashMap<>();
+
+    /**
+     * @param source policies to be indexed. The list is not modified.
+     */
+    public PolicyApplicabilityIndex(List<Policy> source) {
+        List<Policy> sortedPolicies = new ArrayList<>(source);
+        Collections.sort(sortedPolicies);
+        this.policies = sortedPolicies.toArray(new Policy[sortedPolicies.size()]);
+
+        for (int i = 0; i < policies.length; i++) {
+            Policy policy = policies[i];
+            if (policy.isActive()) {
+                activePolicies.set(i);
+            }
+            if (policy.getProfile() != null && policy.getProfile().getDeviceType() != null) {
+                getBitSet(deviceTypePolicies, policy.getProfile().getDeviceType()).set(i);
+            }
+            indexOwnershipType(policy, i);
+            indexRoles(policy, i);
+            indexUsers(policy, i);
+            indexDeviceGroups(policy, i);
+        }
+    }
+
+    public int size() {
+        return policies.length;
+    }
+
+    /**
+     * Returns the active policies which apply to the given device. Criteria which are not set in the device are not
+     * considered, as in {@link PolicyInformationPointImpl}.
+     *
+     * @param pipDevice device to be matched.
+     * @return applicable policies in priority order.
+     */
+    public List<Policy> getApplicablePolicies(PIPDevice pipDevice) {
+        BitSet result = (BitSet) activePolicies.clone();
+
+        if (pipDevice.getDeviceType() != null) {
+            result.and(getMatches(deviceTypePolicies, null, pipDevice.getDeviceType().getName()));
+        }
+        String ownershipType = pipDevice.getOwnershipType();
+        if (ownershipType != null && !ownershipType.isEmpty() && !result.isEmpty()) {
+            result.and(getMatches(ownershipPolicies, anyOwnershipPolicies, ownershipType));
+        }
+        String[] roles = pipDevice.getRoles();
+        if (roles != null && !result.isEmpty()) {
+            BitSet roleMatches = (BitSet) anyRolePolicies.clone();
+            for (String role : roles) {
+                BitSet matches = rolePolicies.get(role);
+                if (matches != null) {
+                    roleMatches.or(matches);
+                }
+            }
+            result.and(roleMatches);
+        }
+        String userId = pipDevice.getUserId();
+        if (userId != null && !userId.isEmpty() && !result.isEmpty()) {
+            result.and(getMatches(userPolicies, anyUserPolicies, userId));
+        }
+        List<DeviceGroup> deviceGroups = pipDevice.getDeviceGroups();
+        if (deviceGroups != null && !deviceGroups.isEmpty() && !result.isEmpty()) {
+            BitSet groupMatches = (BitSet) anyGroupPolicies.clone();
+            for (DeviceGroup deviceGroup : deviceGroups) {
+                BitSet matches = groupPolicies.get(deviceGroup.getGroupId());
+                if (matches != null) {
+                    groupMatches.or(matches);
+                }
+            }
+            result.and(groupMatches);
+        }
+
+        List<Policy> applicablePolicies = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            applicablePolicies.add(policies[i]);
+        }
+        return applicablePolicies;
+    }
+
+    private void indexOwnershipType(Policy policy, int position) {
+        String ownershipType = policy.getOwnershipType();
+        if (ownershipType == null || PolicyManagementConstants.ANY.equalsIgnoreCase(ownershipType)) {
+            anyOwnershipPolicies.set(position);
+        } else {
+            getBitSet(ownershipPolicies, ownershipType).set(position);
+        }
+    }
+
+    private void indexRoles(Policy policy, int position) {
+        List<String> roles = policy.getRoles();
+        if (roles == null || roles.isEmpty() || PolicyManagementConstants.ANY.equalsIgnoreCase(roles.get(0))) {
+            anyRolePolicies.set(position);
+            return;
+        }
+        for (String role : roles) {
+            getBitSet(rolePolicies, role).set(position);
+        }
+    }
+
+    private void indexUsers(Policy policy, int position) {
+        List<String> users = policy.getUsers();
+        if (users == null || users.isEmpty() || users.contains(PolicyManagementConstants.ANY)) {
+            anyUserPolicies.set(position);
+            return;
+        }
+        for (String user : users) {
+            getBitSet(userPolicies, user).set(position);
+        }
+    }
+
+    private void indexDeviceGroups(Policy policy, int position) {
+        List<DeviceGroupWrapper> wrappers = policy.getDeviceGroups();
+        if (wrappers == null || wrappers.isEmpty() ||
+                PolicyManagementConstants.ANY.equalsIgnoreCase(wrappers.get(0).getName())) {
+            anyGroupPolicies.set(position);
+            return;
+        }
+        for (DeviceGroupWrapper wrapper : wrappers) {
+            getBitSet(groupPolicies, wrapper.getId()).set(position);
+        }
+    }
+
+    private static BitSet getMatches(Map<String, BitSet> valuePolicies, BitSet anyValuePolicies, String value) {
+        BitSet matches = valuePolicies.get(value);
+        if (anyValuePolicies == null) {
+            return matches != null ? matches : new BitSet();
+        }
+        BitSet result = (BitSet) anyValuePolicies.clone();
+        if (matches != null) {
+            result.or(matches);
+        }
+        return result;
+    }
+
+    private static <K> BitSet getBitSet(Map<K, BitSet> valuePolicies, K value) {
+        BitSet bitSet = valuePolicies.get(value);
+        if (bitSet == null) {
+            bitSet = new BitSet();
+            valuePolicies.put(value, bitSet);
+        }
+        return bitSet;
+    }
+
+}
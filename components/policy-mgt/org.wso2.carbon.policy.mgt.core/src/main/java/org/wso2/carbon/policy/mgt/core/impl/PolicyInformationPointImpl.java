@@ -27,6 +27,9 @@ import org.wso2.carbon.device.mgt.common.DeviceManagementException;
 import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
 import org.wso2.carbon.device.mgt.common.group.mgt.GroupManagementException;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.core.cache.impl.UserRoleCacheManagerImpl;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
 import org.wso2.carbon.device.mgt.core.dto.DeviceType;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.common.Feature;
@@ -34,6 +37,7 @@ import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceIm
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.GroupManagementProviderServiceImpl;
 import org.wso2.carbon.policy.mgt.common.*;
+import org.wso2.carbon.policy.mgt.core.cache.impl.PolicyCacheManagerImpl;
 import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
 import org.wso2.carbon.policy.mgt.core.mgt.FeatureManager;
 import org.wso2.carbon.policy.mgt.core.mgt.PolicyManager;
@@ -54,12 +58,15 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
     PolicyManager policyManager;
     FeatureManager featureManager;
     DeviceManagementProviderService deviceManagementService;
+    PolicyConfiguration policyConfiguration;
 
     public PolicyInformationPointImpl() {
         deviceManagementService =
                 PolicyManagementDataHolder.getInstance().getDeviceManagementService();
         policyManager = new PolicyManagerImpl();
         featureManager = new FeatureManagerImpl();
+        policyConfiguration =
+                DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getPolicyConfiguration();
     }
 
     @Override
@@ -101,6 +108,17 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
     @Override
     public List<Policy> getRelatedPolicies(PIPDevice pipDevice) throws PolicyManagementException {
 
+        if (policyConfiguration.getCacheEnable()) {
+            // The index is built once per change of the cached policies, so it is only worth using with the cache.
+            List<Policy> policies = PolicyCacheManagerImpl.getInstance().getApplicabilityIndex().
+                    getApplicablePolicies(pipDevice);
+            if (log.isDebugEnabled()) {
+                log.debug("No of policies selected for the device type : " + pipDevice.getDeviceType().getName() +
+                        " : " + policies.size());
+            }
+            return policies;
+        }
+
         List<Policy> policies = policyManager.getPoliciesOfDeviceType(pipDevice.getDeviceType().getName());
         PolicyFilter policyFilter = new PolicyFilterImpl();
 
@@ -157,7 +175,8 @@ public class PolicyInformationPointImpl implements PolicyInformationPoint {
         try {
             UserRealm userRealm = CarbonContext.getThreadLocalCarbonContext().getUserRealm();
             if (userRealm != null) {
-                return userRealm.getUserStoreManager().getRoleListOfUser(device.getEnrolmentInfo().getOwner());
+                return UserRoleCacheManagerImpl.getInstance().getRoleListOfUser(device.getEnrolmentInfo().getOwner(),
+                        CarbonContext.getThreadLocalCarbonContext().getTenantId());
             } else {
                 return null;
             }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.internal;
+
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.core.service.DeviceChangeListener;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheManager;
+import org.wso2.carbon.policy.mgt.core.cache.impl.EffectivePolicyCacheManagerImpl;
+
+import java.util.List;
+
+/**
+ * Invalidates the cached effective policies of devices when their inputs change: the enrolment, ownership and groups
+ * of devices, and the roles of device owners. The device management core notifies the changes of roles after it has
+ * invalidated the cached roles of the users, so that a re-evaluated policy sees the new roles.
+ */
+public class EffectivePolicyCacheInvalidationListener implements DeviceChangeListener {
+
+    private final EffectivePolicyCacheManager effectivePolicyCacheManager;
+
+    public EffectivePolicyCacheInvalidationListener() {
+        this(EffectivePolicyCacheManagerImpl.getInstance());
+    }
+
+    EffectivePolicyCacheInvalidationListener(EffectivePolicyCacheManager effectivePolicyCacheManager) {
+        this.effectivePolicyCacheManager = effectivePolicyCacheManager;
+    }
+
+    @Override
+    public void onDevicesChanged(List<DeviceIdentifier> deviceIdentifiers) {
+        for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
+            effectivePolicyCacheManager.invalidateDevice(deviceIdentifier);
+        }
+    }
+
+    @Override
+    public void onGroupChanged(int groupId) {
+        effectivePolicyCacheManager.invalidateDeviceGroup(groupId);
+    }
+
+    @Override
+    public void onUsersChanged(List<String> userNames) {
+        effectivePolicyCacheManager.invalidateUsers(userNames);
+    }
+
+    @Override
+    public void onRoleChanged(String roleName) {
+        effectivePolicyCacheManager.invalidateRole(roleName);
+    }
+
+}
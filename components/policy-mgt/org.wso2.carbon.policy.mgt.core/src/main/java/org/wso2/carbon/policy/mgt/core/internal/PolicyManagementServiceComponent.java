@@ -23,6 +23,7 @@ import org.apache.commons.logging.LogFactory;
 import org.osgi.service.component.ComponentContext;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
+import org.wso2.carbon.device.mgt.core.service.DeviceChangeListener;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.ntask.core.service.TaskService;
 import org.wso2.carbon.policy.mgt.common.PolicyEvaluationPoint;
@@ -32,6 +33,8 @@ import org.wso2.carbon.policy.mgt.core.config.PolicyConfigurationManager;
 import org.wso2.carbon.policy.mgt.core.config.PolicyManagementConfig;
 import org.wso2.carbon.policy.mgt.core.config.datasource.DataSourceConfig;
 import org.wso2.carbon.policy.mgt.core.dao.PolicyManagementDAOFactory;
+import org.wso2.carbon.policy.mgt.core.mgt.impl.ComplianceDataWriter;
+import org.wso2.carbon.policy.mgt.core.task.MonitoringTaskExecutor;
 import org.wso2.carbon.policy.mgt.core.task.TaskScheduleService;
 import org.wso2.carbon.policy.mgt.core.task.TaskScheduleServiceImpl;
 import org.wso2.carbon.policy.mgt.core.util.PolicyManagerUtil;
@@ -80,6 +83,9 @@ public class PolicyManagementServiceComponent {
             componentContext.getBundleContext().registerService(
                     PolicyManagerService.class.getName(), new PolicyManagerServiceImpl(), null);
 
+            componentContext.getBundleContext().registerService(
+                    DeviceChangeListener.class.getName(), new EffectivePolicyCacheInvalidationListener(), null);
+
             PolicyConfiguration policyConfiguration =
                     DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getPolicyConfiguration();
             if(policyConfiguration.getMonitoringEnable()) {
@@ -101,6 +107,8 @@ public class PolicyManagementServiceComponent {
                 TaskScheduleService taskScheduleService = new TaskScheduleServiceImpl();
                 taskScheduleService.stopTask();
             }
+            ComplianceDataWriter.getInstance().shutdown();
+            MonitoringTaskExecutor.getInstance().shutdown();
         } catch (Throwable t) {
             log.error("Error occurred while destroying the Policy management core.", t);
         }
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.mgt.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.ComplianceFeature;
+import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.NonComplianceData;
+import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.PolicyComplianceException;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
+import org.wso2.carbon.policy.mgt.core.dao.MonitoringDAO;
+import org.wso2.carbon.policy.mgt.core.dao.MonitoringDAOException;
+import org.wso2.carbon.policy.mgt.core.dao.PolicyManagementDAOFactory;
+import org.wso2.carbon.policy.mgt.core.dao.PolicyManagerDAOException;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the results of policy compliance checks. When batching is enabled, the results are queued and written by
+ * a background thread, which coalesces the results of many devices into a single transaction per tenant. If a device
+ * reports more than once before its results are written, only the latest results are written. When the queue is
+ * full, the reporting thread waits for space in the queue, which slows down the reporting devices instead of growing
+ * the queue without a limit. Results are never written around the queue while it is in use, so the results of a
+ * device are written in the order they are reported. When batching is disabled, or once the writer is shut down, the
+ * results are written by the reporting thread.
+ */
+public class ComplianceDataWriter {
+
+    private static final Log log = LogFactory.getLog(ComplianceDataWriter.class);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private static ComplianceDataWriter complianceDataWriter;
+
+    private final MonitoringDAO monitoringDAO;
+    private final boolean batchingEnabled;
+    private final int batchSize;
+    private BlockingQueue<ComplianceRecord> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private ComplianceDataWriter() {
+        this(PolicyManagementDAOFactory.getMonitoringDAO(),
+                DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getPolicyConfiguration());
+    }
+
+    private ComplianceDataWriter(MonitoringDAO monitoringDAO, PolicyConfiguration policyConfiguration) {
+        this(monitoringDAO, policyConfiguration.getComplianceBatchingEnable(),
+                policyConfiguration.getComplianceBatchSize() > 0 ? policyConfiguration.getComplianceBatchSize() :
+                        PolicyManagementConstants.DEFAULT_COMPLIANCE_BATCH_SIZE,
+                policyConfiguration.getComplianceQueueSize() > 0 ? policyConfiguration.getComplianceQueueSize() :
+                        PolicyManagementConstants.DEFAULT_COMPLIANCE_QUEUE_SIZE);
+    }
+
+    ComplianceDataWriter(MonitoringDAO monitoringDAO, boolean batchingEnabled, int batchSize, int queueSize) {
+        this.monitoringDAO = monitoringDAO;
+        this.batchingEnabled = batchingEnabled;
+        this.batchSize = batchSize;
+        if (batchingEnabled) {
+            queue = new ArrayBlockingQueue<>(queueSize);
+            running = true;
+            writerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeQueuedResults();
+                }
+            }, "policy-compliance-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    public static ComplianceDataWriter getInstance() {
+        if (complianceDataWriter == null) {
+            synchronized (ComplianceDataWriter.class) {
+                if (complianceDataWriter == null) {
+                    complianceDataWriter = new ComplianceDataWriter();
+                }
+            }
+        }
+        return complianceDataWriter;
+    }
+
+    /**
+     * Persists the compliance status and the none compliance features of a device, within the current tenant.
+     *
+     * @param complianceData compliance data of the device, with the device, enrolment and policy ids, and the none
+     *                       compliance features. The device is compliant if there are no features. The compliance
+     *                       status id must be set if there are features. The data is copied, so it may be modified
+     *                       afterwards.
+     * @throws PolicyComplianceException if the results are written by the calling thread and writing fails.
+     */
+    public void write(NonComplianceData complianceData) throws PolicyComplianceException {
+        if (batchingEnabled) {
+            ComplianceRecord record = new ComplianceRecord(
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId(), copyOf(complianceData));
+            try {
+                while (running) {
+                    if (queue.offer(record, 1, TimeUnit.SECONDS)) {
+                        return;
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Compliance queue is full, hence waiting to queue the compliance results of " +
+                                "device " + complianceData.getDeviceId());
+                    }
+                }
+                // Shut down, so the queued results, which may include earlier results of this device, are written
+                // before these.
+                writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PolicyComplianceException("Interrupted while queuing the compliance results of device " +
+                        complianceData.getDeviceId(), e);
+            }
+        }
+        try {
+            this.persist(Collections.singletonList(complianceData));
+        } catch (MonitoringDAOException | PolicyManagerDAOException e) {
+            throw new PolicyComplianceException("Unable to update the compliance status of device " +
+                    complianceData.getDeviceId() + " in database.", e);
+        }
+    }
+
+    /**
+     * @return number of results waiting to be written.
+     */
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Stops the background thread, once the results in the queue are written.
+     */
+    public void shutdown() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeQueuedResults() {
+        List<ComplianceRecord> records = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ComplianceRecord record = queue.poll(1, TimeUnit.SECONDS);
+                if (record == null) {
+                    continue;
+                }
+                records.add(record);
+            } catch (InterruptedException e) {
+                // Interrupted by shutdown, so the remaining results are written before exiting.
+                continue;
+            }
+            queue.drainTo(records, batchSize - 1);
+            this.writeBatch(records);
+            records.clear();
+        }
+    }
+
+    private void writeBatch(List<ComplianceRecord> records) {
+        // Results are grouped by tenant and keyed by device and enrolment, so that the latest results of a device
+        // replace the earlier ones.
+        Map<Integer, Map<String, NonComplianceData>> tenantResults = new LinkedHashMap<>();
+        for (ComplianceRecord record : records) {
+            Map<String, NonComplianceData> results = tenantResults.get(record.tenantId);
+            if (results == null) {
+                results = new LinkedHashMap<>();
+                tenantResults.put(record.tenantId, results);
+            }
+            results.put(record.complianceData.getDeviceId() + ":" + record.complianceData.getEnrolmentId(),
+                    record.complianceData);
+        }
+        for (Map.Entry<Integer, Map<String, NonComplianceData>> entry : tenantResults.entrySet()) {
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(entry.getKey(), true);
+                this.persist(entry.getValue().values());
+                if (log.isDebugEnabled()) {
+                    log.debug("Compliance results of " + entry.getValue().size() + " devices of tenant " +
+                            entry.getKey() + " are written.");
+                }
+            } catch (MonitoringDAOException | PolicyManagerDAOException e) {
+                log.error("Error occurred while writing the compliance results of " + entry.getValue().size() +
+                        " devices of tenant " + entry.getKey(), e);
+            } catch (RuntimeException e) {
+                log.error("Unexpected error occurred while writing the compliance results of tenant " +
+                        entry.getKey(), e);
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+        }
+    }
+
+    private void persist(Collection<NonComplianceData> complianceDataList)
+            throws MonitoringDAOException, PolicyManagerDAOException {
+        List<NonComplianceData> noneCompliantDevices = new ArrayList<>();
+        List<NonComplianceData> compliantDevices = new ArrayList<>();
+        List<Integer> complianceStatusIds = new ArrayList<>();
+        for (NonComplianceData complianceData : complianceDataList) {
+            if (complianceData.getComplianceFeatures() != null && !complianceData.getComplianceFeatures().isEmpty()) {
+                noneCompliantDevices.add(complianceData);
+            } else {
+                compliantDevices.add(complianceData);
+            }
+            complianceStatusIds.add(complianceData.getId());
+        }
+        try {
+            PolicyManagementDAOFactory.beginTransaction();
+            if (!noneCompliantDevices.isEmpty()) {
+                monitoringDAO.setDevicesAsNoneCompliance(noneCompliantDevices);
+            }
+            if (!compliantDevices.isEmpty()) {
+                monitoringDAO.setDevicesAsCompliance(compliantDevices);
+            }
+            monitoringDAO.deleteNoneComplianceData(complianceStatusIds);
+            if (!noneCompliantDevices.isEmpty()) {
+                monitoringDAO.addNonComplianceFeatures(noneCompliantDevices);
+            }
+            PolicyManagementDAOFactory.commitTransaction();
+        } catch (MonitoringDAOException e) {
+            PolicyManagementDAOFactory.rollbackTransaction();
+            throw e;
+        } finally {
+            PolicyManagementDAOFactory.closeConnection();
+        }
+    }
+
+    /**
+     * Copies the compliance data, together with the list of features and the features, which the reporting thread
+     * may still change, e.g. to set the profile feature of each none compliance feature.
+     */
+    private static NonComplianceData copyOf(NonComplianceData complianceData) {
+        NonComplianceData copy = new NonComplianceData();
+        copy.setId(complianceData.getId());
+        copy.setDeviceId(complianceData.getDeviceId());
+        copy.setEnrolmentId(complianceData.getEnrolmentId());
+        copy.setPolicyId(complianceData.getPolicyId());
+        copy.setStatus(complianceData.isStatus());
+        copy.setLastRequestedTime(complianceData.getLastRequestedTime());
+        copy.setLastSucceededTime(complianceData.getLastSucceededTime());
+        copy.setLastFailedTime(complianceData.getLastFailedTime());
+        copy.setAttempts(complianceData.getAttempts());
+        copy.setMessage(complianceData.getMessage());
+        copy.setCompletePolicy(complianceData.isCompletePolicy());
+        copy.setPolicy(complianceData.getPolicy());
+        if (complianceData.getComplianceFeatures() != null) {
+            List<ComplianceFeature> complianceFeatures = new ArrayList<>();
+            for (ComplianceFeature complianceFeature : complianceData.getComplianceFeatures()) {
+                ComplianceFeature featureCopy = new ComplianceFeature();
+                featureCopy.setFeatureCode(complianceFeature.getFeatureCode());
+                featureCopy.setCompliance(complianceFeature.isCompliant());
+                featureCopy.setMessage(complianceFeature.getMessage());
+                featureCopy.setFeature(complianceFeature.getFeature());
+                complianceFeatures.add(featureCopy);
+            }
+            copy.setComplianceFeatures(complianceFeatures);
+        }
+        return copy;
+    }
+
+    /**
+     * Compliance results of a device, with the tenant they belong to.
+     */
+    private static class ComplianceRecord {
+
+        private final int tenantId;
+        private final NonComplianceData complianceData;
+
+        private ComplianceRecord(int tenantId, NonComplianceData complianceData) {
+            this.tenantId = tenantId;
+            this.complianceData = complianceData;
+        }
+
+    }
+
+}
@@ -48,8 +48,10 @@ import org.wso2.carbon.policy.mgt.core.mgt.PolicyManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class MonitoringManagerImpl implements MonitoringManager {
 
@@ -98,8 +100,14 @@ public class MonitoringManagerImpl implements MonitoringManager {
                         complianceData.setId(cmd.getId());
                         complianceData.setPolicy(policy);
                         complianceFeatures = complianceData.getComplianceFeatures();
-                        complianceData.setDeviceId(device.getId());
-                        complianceData.setPolicyId(policy.getId());
+                    } else {
+                        // There is no compliance status of the device to add the none compliance features to, hence
+                        // the device is written as compliant, as before.
+                        if (log.isDebugEnabled()) {
+                            log.debug("There is no compliance status for device " + deviceIdentifier.getId() +
+                                    " - " + deviceIdentifier.getType() + ", hence it is treated as compliant.");
+                        }
+                        complianceData.setComplianceFeatures(new ArrayList<ComplianceFeature>());
                     }
 
                 } catch (SQLException e) {
@@ -113,52 +121,28 @@ public class MonitoringManagerImpl implements MonitoringManager {
                 }
 
                 //This was added because update query below that did not return the update table primary key.
-
+                complianceData.setDeviceId(device.getId());
+                complianceData.setEnrolmentId(device.getEnrolmentInfo().getId());
+                complianceData.setPolicyId(policy.getId());
+                if (log.isDebugEnabled()) {
+                    log.debug("Compliance status primary key " + complianceData.getId());
+                }
                 if (complianceFeatures != null && !complianceFeatures.isEmpty()) {
-                    try {
-                        PolicyManagementDAOFactory.beginTransaction();
-                        monitoringDAO.setDeviceAsNoneCompliance(device.getId(), device.getEnrolmentInfo().getId(),
-                                policy.getId());
-                        if (log.isDebugEnabled()) {
-                            log.debug("Compliance status primary key " + complianceData.getId());
-                        }
-                        monitoringDAO.deleteNoneComplianceData(complianceData.getId());
-                        monitoringDAO.addNonComplianceFeatures(complianceData.getId(), device.getId(),
-                                                               complianceFeatures);
-
-                        PolicyManagementDAOFactory.commitTransaction();
-                    } catch (MonitoringDAOException e) {
-                        PolicyManagementDAOFactory.rollbackTransaction();
-                        throw new PolicyComplianceException(
-                                "Unable to add the none compliance features to database for device " +
-                                deviceIdentifier.getId() + " - " + deviceIdentifier.getType(), e);
-                    } finally {
-                        PolicyManagementDAOFactory.closeConnection();
+                    Map<String, ProfileFeature> profileFeatures = new HashMap<>();
+                    for (ProfileFeature profFeature : policy.getProfile().getProfileFeaturesList()) {
+                        profileFeatures.put(profFeature.getFeatureCode().toLowerCase(), profFeature);
                     }
-                    complianceDecisionPoint.validateDevicePolicyCompliance(deviceIdentifier, complianceData);
-                    List<ProfileFeature> profileFeatures = policy.getProfile().getProfileFeaturesList();
                     for (ComplianceFeature compFeature : complianceFeatures) {
-                        for (ProfileFeature profFeature : profileFeatures) {
-                            if (profFeature.getFeatureCode().equalsIgnoreCase(compFeature.getFeatureCode())) {
-                                compFeature.setFeature(profFeature);
-                            }
+                        ProfileFeature profFeature = profileFeatures.get(compFeature.getFeatureCode().toLowerCase());
+                        if (profFeature != null) {
+                            compFeature.setFeature(profFeature);
                         }
                     }
-                } else {
-                    try {
-                        PolicyManagementDAOFactory.beginTransaction();
-                        monitoringDAO.setDeviceAsCompliance(device.getId(), device.getEnrolmentInfo().getId(), policy
-                                .getId());
-                        monitoringDAO.deleteNoneComplianceData(complianceData.getId());
-                        PolicyManagementDAOFactory.commitTransaction();
-                    } catch (MonitoringDAOException e) {
-                        PolicyManagementDAOFactory.rollbackTransaction();
-                        throw new PolicyComplianceException(
-                                "Unable to remove the none compliance features from database for device " +
-                                deviceIdentifier.getId() + " - " + deviceIdentifier.getType(), e);
-                    } finally {
-                        PolicyManagementDAOFactory.closeConnection();
-                    }
+                }
+                ComplianceDataWriter.getInstance().write(complianceData);
+
+                if (complianceFeatures != null && !complianceFeatures.isEmpty()) {
+                    complianceDecisionPoint.validateDevicePolicyCompliance(deviceIdentifier, complianceData);
                 }
             } else {
                 if (log.isDebugEnabled()) {
@@ -244,20 +228,19 @@ public class MonitoringManagerImpl implements MonitoringManager {
 
         try {
             PolicyManagementDAOFactory.openConnection();
-            //TODO: Return a map from getCompliance to reduce O(n^2) -> O(n)
-            List<NonComplianceData> cd = monitoringDAO.getCompliance();
-
+            Set<Integer> enrolmentIds = new HashSet<>();
             for (Device device : devices) {
                 deviceIds.put(device.getId(), device);
+                enrolmentIds.add(device.getEnrolmentInfo().getId());
+            }
+            List<Integer> deviceIDs = new ArrayList<>(deviceIds.keySet());
 
-                for (NonComplianceData data : cd) {
-                    if (device.getId() == data.getDeviceId() && device.getEnrolmentInfo().getId() == data
-                            .getEnrolmentId()) {
-                        complianceDatas.add(data);
-                    }
+            // Only the compliance data of the given devices are read, and matched by their enrolments.
+            for (NonComplianceData data : monitoringDAO.getCompliance(deviceIDs)) {
+                if (enrolmentIds.contains(data.getEnrolmentId())) {
+                    complianceDatas.add(data);
                 }
             }
-            List<Integer> deviceIDs = new ArrayList<>(deviceIds.keySet());
 
             HashMap<Integer, Integer> temp = policyDAO.getAppliedPolicyIds();
             for (Integer id : deviceIDs) {
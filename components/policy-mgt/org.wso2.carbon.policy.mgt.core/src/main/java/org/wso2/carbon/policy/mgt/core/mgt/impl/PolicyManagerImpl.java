@@ -20,6 +20,7 @@ package org.wso2.carbon.policy.mgt.core.mgt.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.device.mgt.common.Device;
 import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
 import org.wso2.carbon.device.mgt.common.DeviceManagementException;
@@ -35,6 +36,9 @@ import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
 import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
 import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
 import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
+import org.wso2.carbon.device.mgt.core.dao.DeviceDAO;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOException;
+import org.wso2.carbon.device.mgt.core.dao.DeviceManagementDAOFactory;
 import org.wso2.carbon.device.mgt.core.operation.mgt.CommandOperation;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationMgtConstants;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
@@ -623,23 +627,34 @@ public class PolicyManagerImpl implements PolicyManager {
         } catch (ProfileManagementException e) {
             throw new PolicyManagementException("Error occurred while getting all the profiles.", e);
         }
+        Map<Integer, Profile> profileMap = new HashMap<>();
+        for (Profile profile : profileList) {
+            profileMap.put(profile.getProfileId(), profile);
+        }
+        Map<Integer, List<DeviceIdentifier>> policyDeviceIds;
         try {
+            // Related entities of all the policies are read with a query each, instead of a query per policy.
             PolicyManagementDAOFactory.openConnection();
             policyList = policyDAO.getAllPolicies();
+            Map<Integer, List<String>> policyRoles = policyDAO.getAllPolicyAppliedRoles();
+            Map<Integer, List<String>> policyUsers = policyDAO.getAllPolicyAppliedUsers();
+            Map<Integer, List<PolicyCriterion>> policyCriteria = policyDAO.getAllPolicyCriteriaOfPolicies();
+            Map<Integer, List<DeviceGroupWrapper>> policyDeviceGroups = policyDAO.getAllDeviceGroupsOfPolicies();
+            policyDeviceIds = policyDAO.getAllPolicyAppliedDeviceIdentifiers();
 
+            Map<Integer, DeviceGroup> deviceGroups = new HashMap<>();
             for (Policy policy : policyList) {
-                for (Profile profile : profileList) {
-                    if (policy.getProfileId() == profile.getProfileId()) {
-                        policy.setProfile(profile);
-                    }
+                Profile profile = profileMap.get(policy.getProfileId());
+                if (profile != null) {
+                    policy.setProfile(profile);
                 }
-                policy.setRoles(policyDAO.getPolicyAppliedRoles(policy.getId()));
-                policy.setUsers(policyDAO.getPolicyAppliedUsers(policy.getId()));
-                policy.setPolicyCriterias(policyDAO.getPolicyCriteria(policy.getId()));
+                policy.setRoles(getPolicyValues(policyRoles, policy.getId()));
+                policy.setUsers(getPolicyValues(policyUsers, policy.getId()));
+                policy.setPolicyCriterias(getPolicyValues(policyCriteria, policy.getId()));
 
-                List<DeviceGroupWrapper> deviceGroupWrappers = policyDAO.getDeviceGroupsOfPolicy(policy.getId());
+                List<DeviceGroupWrapper> deviceGroupWrappers = getPolicyValues(policyDeviceGroups, policy.getId());
                 if (!deviceGroupWrappers.isEmpty()) {
-                    deviceGroupWrappers = this.getDeviceGroupNames(deviceGroupWrappers);
+                    deviceGroupWrappers = this.getDeviceGroupNames(deviceGroupWrappers, deviceGroups);
                 }
                 policy.setDeviceGroups(deviceGroupWrappers);
 
@@ -657,8 +672,17 @@ public class PolicyManagerImpl implements PolicyManager {
 
         // Following is done because connection close has been implemented in every method.
 
+        Map<String, Map<String, Device>> assignedDevices = this.getAssignedDevices(policyDeviceIds.values());
         for (Policy policy : policyList) {
-            policy.setDevices(this.getPolicyAppliedDevicesIds(policy.getId()));
+            List<Device> devices = new ArrayList<>();
+            for (DeviceIdentifier deviceIdentifier : getPolicyValues(policyDeviceIds, policy.getId())) {
+                Map<String, Device> devicesOfType = assignedDevices.get(deviceIdentifier.getType());
+                Device device = devicesOfType != null ? devicesOfType.get(deviceIdentifier.getId()) : null;
+                if (device != null) {
+                    devices.add(device);
+                }
+            }
+            policy.setDevices(devices);
         }
 
         return policyList;
@@ -710,16 +734,13 @@ public class PolicyManagerImpl implements PolicyManager {
 
     @Override
     public List<Policy> getPoliciesOfDeviceType(String deviceTypeName) throws PolicyManagementException {
+        if (policyConfiguration.getCacheEnable()) {
+            return new ArrayList<>(PolicyCacheManagerImpl.getInstance().getPoliciesOfDeviceType(deviceTypeName));
+        }
         List<Policy> policies = new ArrayList<>();
 //        try {
         // List<Profile> profileList = profileManager.getProfilesOfDeviceType(deviceTypeName);
-//            List<Policy> allPolicies = this.getPolicies();
-        List<Policy> allPolicies;
-        if (policyConfiguration.getCacheEnable()) {
-            allPolicies = PolicyCacheManagerImpl.getInstance().getAllPolicies();
-        } else {
-            allPolicies = this.getPolicies();
-        }
+        List<Policy> allPolicies = this.getPolicies();
 
         for (Policy policy : allPolicies) {
             if (policy.getProfile().getDeviceType().equalsIgnoreCase(deviceTypeName)) {
@@ -1094,16 +1115,79 @@ public class PolicyManagerImpl implements PolicyManager {
         }
     }
 
-    private List<DeviceGroupWrapper> getDeviceGroupNames(List<DeviceGroupWrapper> groupWrappers) throws GroupManagementException {
-        GroupManagementProviderService groupManagementProviderService = new GroupManagementProviderServiceImpl();
+    /**
+     * Sets the names and the owners of the given device groups, looking up each group only once.
+     *
+     * @param deviceGroups groups which have already been looked up, keyed by group id. Looked up groups are added.
+     */
+    private List<DeviceGroupWrapper> getDeviceGroupNames(List<DeviceGroupWrapper> groupWrappers,
+                                                         Map<Integer, DeviceGroup> deviceGroups)
+            throws GroupManagementException {
+        GroupManagementProviderService groupManagementProviderService = null;
         for (DeviceGroupWrapper wrapper : groupWrappers) {
-            DeviceGroup deviceGroup = groupManagementProviderService.getGroup(wrapper.getId());
+            DeviceGroup deviceGroup = deviceGroups.get(wrapper.getId());
+            if (deviceGroup == null) {
+                if (groupManagementProviderService == null) {
+                    groupManagementProviderService = new GroupManagementProviderServiceImpl();
+                }
+                deviceGroup = groupManagementProviderService.getGroup(wrapper.getId());
+                deviceGroups.put(wrapper.getId(), deviceGroup);
+            }
             wrapper.setName(deviceGroup.getName());
             wrapper.setOwner(deviceGroup.getOwner());
         }
         return groupWrappers;
     }
 
+    /**
+     * Looks up the devices which are directly assigned to policies, with a query per device type.
+     *
+     * @return devices keyed by device type and device identifier.
+     */
+    private Map<String, Map<String, Device>> getAssignedDevices(Collection<List<DeviceIdentifier>> deviceIdentifiers)
+            throws PolicyManagementException {
+        Map<String, Set<String>> deviceIdsByType = new HashMap<>();
+        for (List<DeviceIdentifier> identifiers : deviceIdentifiers) {
+            for (DeviceIdentifier identifier : identifiers) {
+                Set<String> deviceIds = deviceIdsByType.get(identifier.getType());
+                if (deviceIds == null) {
+                    deviceIds = new HashSet<>();
+                    deviceIdsByType.put(identifier.getType(), deviceIds);
+                }
+                deviceIds.add(identifier.getId());
+            }
+        }
+        Map<String, Map<String, Device>> devices = new HashMap<>();
+        if (deviceIdsByType.isEmpty()) {
+            return devices;
+        }
+        int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+        try {
+            DeviceManagementDAOFactory.openConnection();
+            DeviceDAO deviceDAO = DeviceManagementDAOFactory.getDeviceDAO();
+            for (Map.Entry<String, Set<String>> entry : deviceIdsByType.entrySet()) {
+                Map<String, Device> devicesOfType = new HashMap<>();
+                for (Device device : deviceDAO.getDevices(entry.getKey(), new ArrayList<>(entry.getValue()),
+                        tenantId)) {
+                    devicesOfType.put(device.getDeviceIdentifier(), device);
+                }
+                devices.put(entry.getKey(), devicesOfType);
+            }
+        } catch (DeviceManagementDAOException e) {
+            throw new PolicyManagementException("Error occurred while getting the devices related to policies", e);
+        } catch (SQLException e) {
+            throw new PolicyManagementException("Error occurred while opening a connection to the data source", e);
+        } finally {
+            DeviceManagementDAOFactory.closeConnection();
+        }
+        return devices;
+    }
+
+    private static <T> List<T> getPolicyValues(Map<Integer, List<T>> policyValues, int policyId) {
+        List<T> values = policyValues.get(policyId);
+        return values != null ? values : new ArrayList<T>();
+    }
+
 
     private List<DeviceIdentifier> convertDevices(List<Device> devices) {
         List<DeviceIdentifier> deviceIdentifiers = new ArrayList<>();
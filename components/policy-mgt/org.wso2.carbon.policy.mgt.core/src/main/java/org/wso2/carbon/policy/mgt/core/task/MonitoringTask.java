@@ -35,13 +35,20 @@ import org.wso2.carbon.policy.mgt.core.mgt.MonitoringManager;
 import org.wso2.carbon.user.api.UserStoreException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class MonitoringTask implements Task {
 
     private static Log log = LogFactory.getLog(MonitoringTask.class);
 
+    // Blocked, removed, unclaimed, suspended devices and the devices requested to be disenrolled are not monitored.
+    private static final List<EnrolmentInfo.Status> MONITORED_STATUSES = Arrays.asList(EnrolmentInfo.Status.CREATED,
+            EnrolmentInfo.Status.ACTIVE, EnrolmentInfo.Status.INACTIVE, EnrolmentInfo.Status.UNREACHABLE);
+
     Map<String, String> properties;
     private boolean executeForTenants = false;
     private final String IS_CLOUD = "is.cloud";
@@ -65,11 +72,27 @@ public class MonitoringTask implements Task {
         if(System.getProperty(IS_CLOUD) != null && Boolean.parseBoolean(System.getProperty(IS_CLOUD))){
             executeForTenants = true;
         }
+        long startTime = System.currentTimeMillis();
+        List<Future<MonitoringUnitStatistics>> units = new ArrayList<>();
         if(executeForTenants) {
-            this.executeforAllTenants();
+            this.executeforAllTenants(units);
         } else {
-            this.executeTask();
+            this.executeTask(units);
         }
+
+        List<MonitoringUnitStatistics> statistics = new ArrayList<>();
+        for (Future<MonitoringUnitStatistics> unit : units) {
+            try {
+                statistics.add(unit.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Monitoring task was interrupted while waiting for the monitoring units to complete.", e);
+                break;
+            } catch (ExecutionException e) {
+                log.error("Error occurred while running a monitoring unit.", e.getCause());
+            }
+        }
+        MonitoringTaskExecutor.getInstance().recordRound(statistics, System.currentTimeMillis() - startTime);
     }
 
     /**
@@ -89,7 +112,7 @@ public class MonitoringTask implements Task {
         return false;
     }
 
-    private void executeforAllTenants() {
+    private void executeforAllTenants(List<Future<MonitoringUnitStatistics>> units) {
 
         if (log.isDebugEnabled()) {
             log.debug("Monitoring task started to run for all tenants.");
@@ -104,7 +127,7 @@ public class MonitoringTask implements Task {
                     PrivilegedCarbonContext.startTenantFlow();
                     PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
                     PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenant);
-                    this.executeTask();
+                    this.executeTask(units);
                 } finally {
                     PrivilegedCarbonContext.endTenantFlow();
                 }
@@ -116,7 +139,13 @@ public class MonitoringTask implements Task {
         }
     }
 
-    private void executeTask(){
+    /**
+     * Splits the devices of the current tenant into work units of device type and enrolment id range, and submits
+     * them to the {@link MonitoringTaskExecutor}.
+     *
+     * @param units futures of the submitted units, to which the futures of the units of the tenant are added.
+     */
+    private void executeTask(List<Future<MonitoringUnitStatistics>> units) {
 
         MonitoringManager monitoringManager = PolicyManagementDataHolder.getInstance().getMonitoringManager();
         List<String> deviceTypes = new ArrayList<>();
@@ -135,46 +164,34 @@ public class MonitoringTask implements Task {
             try {
                 DeviceManagementProviderService deviceManagementProviderService =
                         PolicyManagementDataHolder.getInstance().getDeviceManagementService();
+                MonitoringTaskExecutor monitoringTaskExecutor = MonitoringTaskExecutor.getInstance();
+                int batchSize = monitoringTaskExecutor.getBatchSize();
+                int tenantId = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantId();
+                String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
                 for (String deviceType : configDeviceTypes) {
                     if (log.isDebugEnabled()) {
                         log.debug("Running task for device type : " + deviceType);
                     }
-                    PolicyMonitoringManager monitoringService =
-                            PolicyManagementDataHolder.getInstance().getDeviceManagementService()
-                                    .getPolicyMonitoringManager(deviceType);
-                    List<Device> devices = deviceManagementProviderService.getAllDevices(deviceType, false);
-                    if (monitoringService != null && !devices.isEmpty()) {
-                        List<Device> notifiableDevices = new ArrayList<>();
-                        if (log.isDebugEnabled()) {
-                            log.debug("Removing inactive and blocked devices from the list for the device type : " +
-                                    deviceType);
-                        }
-                        for (Device device : devices) {
-
-                            EnrolmentInfo.Status status = device.getEnrolmentInfo().getStatus();
-                            if (status.equals(EnrolmentInfo.Status.BLOCKED) ||
-                                    status.equals(EnrolmentInfo.Status.REMOVED) ||
-                                    status.equals(EnrolmentInfo.Status.UNCLAIMED) ||
-                                    status.equals(EnrolmentInfo.Status.DISENROLLMENT_REQUESTED) ||
-                                    status.equals(EnrolmentInfo.Status.SUSPENDED)) {
-                                continue;
-                            } else {
-                                notifiableDevices.add(device);
-                            }
-                        }
-                        if (log.isDebugEnabled()) {
-                            log.debug("Following devices selected to send the notification for " + deviceType);
-                            for (Device device : notifiableDevices) {
-                                log.debug(device.getDeviceIdentifier());
+                    int fromEnrolmentId = 0;
+                    List<Device> devices;
+                    do {
+                        devices = deviceManagementProviderService.getDevicesByStatus(deviceType,
+                                MONITORED_STATUSES, fromEnrolmentId, batchSize);
+                        if (!devices.isEmpty()) {
+                            if (log.isDebugEnabled()) {
+                                log.debug("Following devices selected to send the notification for " + deviceType);
+                                for (Device device : devices) {
+                                    log.debug(device.getDeviceIdentifier());
+                                }
                             }
+                            units.add(monitoringTaskExecutor.submit(tenantId, tenantDomain, deviceType,
+                                    fromEnrolmentId, devices));
+                            fromEnrolmentId = devices.get(devices.size() - 1).getEnrolmentInfo().getId();
                         }
-                        if (!notifiableDevices.isEmpty()) {
-                            monitoringManager.addMonitoringOperation(notifiableDevices);
-                        }
-                    }
+                    } while (devices.size() == batchSize);
                 }
                 if (log.isDebugEnabled()) {
-                    log.debug("Monitoring task running completed.");
+                    log.debug("Monitoring units of tenant " + tenantId + " are submitted.");
                 }
             } catch (Exception e) {
                 log.error("Error occurred while trying to run a task.", e);
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.task;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.PolicyComplianceException;
+import org.wso2.carbon.device.mgt.core.config.DeviceConfigurationManager;
+import org.wso2.carbon.device.mgt.core.config.policy.PolicyConfiguration;
+import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the work units of the monitoring task, i.e. adds the monitoring operations of the devices of a tenant and a
+ * device type within a range of enrolment ids. When a worker pool is configured, the units of all the tenants and
+ * device types run in parallel. When the queue of the pool is full, or the pool is shut down, the task thread runs
+ * the unit itself, which bounds the number of devices held in memory. Without a worker pool, the units run in the
+ * task thread.
+ */
+public class MonitoringTaskExecutor {
+
+    private static final Log log = LogFactory.getLog(MonitoringTaskExecutor.class);
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+    private static MonitoringTaskExecutor monitoringTaskExecutor;
+
+    private final int batchSize;
+    private final int monitoringFrequency;
+    private final ThreadPoolExecutor workerPool;
+    private volatile List<MonitoringUnitStatistics> lastRoundStatistics = Collections.emptyList();
+    private volatile long lastRoundDurationMillis;
+
+    private MonitoringTaskExecutor() {
+        this(DeviceConfigurationManager.getInstance().getDeviceManagementConfig().getPolicyConfiguration());
+    }
+
+    private MonitoringTaskExecutor(PolicyConfiguration policyConfiguration) {
+        this(policyConfiguration.getMonitoringBatchSize() > 0 ? policyConfiguration.getMonitoringBatchSize() :
+                        PolicyManagementConstants.DEFAULT_MONITORING_BATCH_SIZE,
+                policyConfiguration.getMonitoringFrequency(), policyConfiguration.getMonitoringWorkerPoolSize());
+    }
+
+    MonitoringTaskExecutor(int batchSize, int monitoringFrequency, int poolSize) {
+        this.batchSize = batchSize;
+        this.monitoringFrequency = monitoringFrequency;
+        if (poolSize > 0) {
+            workerPool = new ThreadPoolExecutor(poolSize, poolSize, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(poolSize * 2), new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "policy-monitoring-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(Runnable unit, ThreadPoolExecutor executor) {
+                    // Unlike CallerRunsPolicy, the unit is run even after the pool is shut down, so that the
+                    // monitoring task never waits on a unit that is discarded.
+                    unit.run();
+                }
+            });
+            // Threads are only needed while the task runs.
+            workerPool.allowCoreThreadTimeOut(true);
+        } else {
+            workerPool = null;
+        }
+    }
+
+    public static MonitoringTaskExecutor getInstance() {
+        if (monitoringTaskExecutor == null) {
+            synchronized (MonitoringTaskExecutor.class) {
+                if (monitoringTaskExecutor == null) {
+                    monitoringTaskExecutor = new MonitoringTaskExecutor();
+                }
+            }
+        }
+        return monitoringTaskExecutor;
+    }
+
+    /**
+     * @return maximum number of devices of a work unit.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Submits a work unit, which is run within the flow of the given tenant.
+     *
+     * @param tenantId        tenant the devices belong to.
+     * @param tenantDomain    domain of the tenant.
+     * @param deviceType      type of the devices.
+     * @param fromEnrolmentId enrolment id after which the devices of the unit start.
+     * @param devices         devices of the unit, in the order of the enrolment ids.
+     * @return a future that resolves to the statistics of the unit, once it is run.
+     */
+    public Future<MonitoringUnitStatistics> submit(final int tenantId, final String tenantDomain,
+                                                   final String deviceType, final int fromEnrolmentId,
+                                                   final List<Device> devices) {
+        Callable<MonitoringUnitStatistics> unit = new Callable<MonitoringUnitStatistics>() {
+            @Override
+            public MonitoringUnitStatistics call() {
+                int toEnrolmentId = devices.get(devices.size() - 1).getEnrolmentInfo().getId();
+                boolean successful = false;
+                long startTime = System.currentTimeMillis();
+                try {
+                    PrivilegedCarbonContext.startTenantFlow();
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
+                    PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId);
+                    PolicyManagementDataHolder.getInstance().getMonitoringManager().addMonitoringOperation(devices);
+                    successful = true;
+                } catch (PolicyComplianceException e) {
+                    log.error("Error occurred while adding monitoring operations to " + deviceType + " devices of " +
+                            "tenant " + tenantId + " in enrolments (" + fromEnrolmentId + ", " + toEnrolmentId + "]",
+                            e);
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+                return new MonitoringUnitStatistics(tenantId, deviceType, fromEnrolmentId, toEnrolmentId,
+                        devices.size(), System.currentTimeMillis() - startTime, successful);
+            }
+        };
+        if (workerPool == null) {
+            FutureTask<MonitoringUnitStatistics> task = new FutureTask<>(unit);
+            task.run();
+            return task;
+        }
+        return workerPool.submit(unit);
+    }
+
+    /**
+     * Records the statistics of the work units of a run of the monitoring task.
+     *
+     * @param statistics     statistics of the units.
+     * @param durationMillis time taken by the run.
+     */
+    public void recordRound(List<MonitoringUnitStatistics> statistics, long durationMillis) {
+        lastRoundStatistics = Collections.unmodifiableList(new ArrayList<>(statistics));
+        lastRoundDurationMillis = durationMillis;
+        if (log.isDebugEnabled()) {
+            for (MonitoringUnitStatistics unitStatistics : statistics) {
+                log.debug("Monitoring unit completed. " + unitStatistics);
+            }
+            log.debug("Monitoring task completed " + statistics.size() + " units in " + durationMillis + " ms.");
+        }
+        if (monitoringFrequency > 0 && durationMillis > monitoringFrequency) {
+            MonitoringUnitStatistics slowestUnit = null;
+            for (MonitoringUnitStatistics unitStatistics : statistics) {
+                if (slowestUnit == null || unitStatistics.getDurationMillis() > slowestUnit.getDurationMillis()) {
+                    slowestUnit = unitStatistics;
+                }
+            }
+            log.warn("Monitoring task took " + durationMillis + " ms, which is longer than the monitoring " +
+                    "frequency of " + monitoringFrequency + " ms. Slowest unit - " + slowestUnit);
+        }
+    }
+
+    /**
+     * @return statistics of the work units of the last run of the monitoring task.
+     */
+    public List<MonitoringUnitStatistics> getLastRoundStatistics() {
+        return lastRoundStatistics;
+    }
+
+    public long getLastRoundDurationMillis() {
+        return lastRoundDurationMillis;
+    }
+
+    public void shutdown() {
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+    }
+
+}
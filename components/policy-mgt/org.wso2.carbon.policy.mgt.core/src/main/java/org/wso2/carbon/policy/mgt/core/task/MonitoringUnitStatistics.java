@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.task;
+
+/**
+ * Outcome of a monitoring work unit, i.e. the devices of a tenant and a device type within a range of enrolment ids.
+ */
+public class MonitoringUnitStatistics {
+
+    private final int tenantId;
+    private final String deviceType;
+    private final int fromEnrolmentId;
+    private final int toEnrolmentId;
+    private final int deviceCount;
+    private final long durationMillis;
+    private final boolean successful;
+
+    public MonitoringUnitStatistics(int tenantId, String deviceType, int fromEnrolmentId, int toEnrolmentId,
+                                    int deviceCount, long durationMillis, boolean successful) {
+        this.tenantId = tenantId;
+        this.deviceType = deviceType;
+        this.fromEnrolmentId = fromEnrolmentId;
+        this.toEnrolmentId = toEnrolmentId;
+        this.deviceCount = deviceCount;
+        this.durationMillis = durationMillis;
+        this.successful = successful;
+    }
+
+    public int getTenantId() {
+        return tenantId;
+    }
+
+    public String getDeviceType() {
+        return deviceType;
+    }
+
+    /**
+     * @return enrolment id after which the devices of the unit start, exclusive.
+     */
+    public int getFromEnrolmentId() {
+        return fromEnrolmentId;
+    }
+
+    /**
+     * @return enrolment id of the last device of the unit, inclusive.
+     */
+    public int getToEnrolmentId() {
+        return toEnrolmentId;
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    /**
+     * @return time taken to add the monitoring operations of the unit.
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    @Override
+    public String toString() {
+        return "tenant : " + tenantId + ", device type : " + deviceType + ", enrolments : (" + fromEnrolmentId + ", " +
+                toEnrolmentId + "], devices : " + deviceCount + ", duration : " + durationMillis + " ms" +
+                (successful ? "" : ", failed");
+    }
+
+}
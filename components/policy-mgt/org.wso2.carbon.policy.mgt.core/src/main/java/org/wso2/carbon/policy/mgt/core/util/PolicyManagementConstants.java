@@ -37,11 +37,18 @@ public final class PolicyManagementConstants {
 
     public static final String DM_CACHE_MANAGER = "DM_CACHE_MANAGER";
     // public static final String DM_CACHE = "DM_CACHE";
-    public static final String DM_CACHE_LIST = "DM_CACHE_LIST";
+    public static final String DM_CACHE_VERSION = "DM_CACHE_VERSION";
+    public static final int DEFAULT_EFFECTIVE_POLICY_CACHE_CAPACITY = 10000;
+    public static final int DEFAULT_EFFECTIVE_POLICY_CACHE_EXPIRY_TIME = 15 * 60;
+    public static final int DEFAULT_COMPLIANCE_BATCH_SIZE = 100;
+    public static final int DEFAULT_COMPLIANCE_QUEUE_SIZE = 1000;
+    public static final int DEFAULT_MONITORING_BATCH_SIZE = 500;
 
     public static final String DELEGATION_TASK_TYPE = "DELEGATION__TASK";
     public static final String DELEGATION_TASK_NAME = "DELEGATION";
     public static final String DELEGATION_TASK_CLAZZ = "org.wso2.carbon.policy.mgt.core.enforcement.DelegationTask";
+    public static final int DELEGATION_DEVICE_PAGE_SIZE = 1000;
+    public static final int DELEGATION_MAX_THREAD_COUNT = 4;
 
     /**
      Caller would reference the constants using PolicyManagementConstants.DEVICE_CONFIG_XML_NAME,
@@ -34,13 +34,21 @@ import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
 import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderServiceImpl;
 import org.wso2.carbon.policy.mgt.common.FeatureManagementException;
 import org.wso2.carbon.policy.mgt.common.*;
+import org.wso2.carbon.policy.mgt.core.dao.PolicyDAO;
+import org.wso2.carbon.policy.mgt.core.dao.PolicyManagementDAOFactory;
+import org.wso2.carbon.policy.mgt.core.dao.PolicyManagerDAOException;
 import org.wso2.carbon.policy.mgt.core.impl.PolicyAdministratorPointImpl;
 import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
+import org.wso2.carbon.policy.mgt.core.mgt.PolicyManager;
+import org.wso2.carbon.policy.mgt.core.mgt.impl.PolicyManagerImpl;
 import org.wso2.carbon.policy.mgt.core.util.*;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 public class PolicyDAOTestCase extends BasePolicyManagementDAOTest {
 
@@ -244,6 +252,88 @@ public class PolicyDAOTestCase extends BasePolicyManagementDAOTest {
                 log.debug("User of the policy : " + role);
             }
         }
+
+        // Policies are read in bulk, so they should have the same related entities as a policy read by its id.
+        PolicyManager policyManager = new PolicyManagerImpl();
+        for (Policy policy : policyList) {
+            try {
+                Policy storedPolicy = policyManager.getPolicy(policy.getId());
+                Assert.assertEquals(new HashSet<>(storedPolicy.getRoles()), new HashSet<>(policy.getRoles()));
+                Assert.assertEquals(new HashSet<>(storedPolicy.getUsers()), new HashSet<>(policy.getUsers()));
+                Assert.assertEquals(storedPolicy.getDevices().size(), policy.getDevices().size());
+                Assert.assertEquals(getDeviceIdentifiers(storedPolicy.getDevices()),
+                        getDeviceIdentifiers(policy.getDevices()));
+            } catch (PolicyManagementException e) {
+                log.error("Error occurred while retrieving the policy " + policy.getId(), e);
+                Assert.fail();
+            }
+        }
+    }
+
+    @Test(dependsOnMethods = ("getPolicies"))
+    public void getPolicyCriteria() throws PolicyManagerDAOException {
+        PolicyDAO policyDAO = PolicyManagementDAOFactory.getPolicyDAO();
+        try {
+            PolicyManagementDAOFactory.beginTransaction();
+            for (int i = 1; i <= 2; i++) {
+                Criterion criterion = new Criterion();
+                criterion.setName("Test_CRITERION_0" + i);
+                criterion = policyDAO.addCriterion(criterion);
+
+                PolicyCriterion policyCriterion = new PolicyCriterion();
+                policyCriterion.setCriteriaId(criterion.getId());
+                Properties properties = new Properties();
+                properties.setProperty("FROM", "10" + i);
+                properties.setProperty("TO", "20" + i);
+                policyCriterion.setProperties(properties);
+
+                // Criteria are added one at a time, as only a single generated key is read per insert.
+                Policy criteriaPolicy = new Policy();
+                criteriaPolicy.setId(policy.getId());
+                List<PolicyCriterion> policyCriteria = new ArrayList<>();
+                policyCriteria.add(policyCriterion);
+                criteriaPolicy.setPolicyCriterias(policyCriteria);
+                policyDAO.addPolicyCriteria(criteriaPolicy);
+                policyDAO.addPolicyCriteriaProperties(policyCriteria);
+            }
+            PolicyManagementDAOFactory.commitTransaction();
+        } catch (PolicyManagerDAOException e) {
+            PolicyManagementDAOFactory.rollbackTransaction();
+            throw e;
+        } finally {
+            PolicyManagementDAOFactory.closeConnection();
+        }
+
+        try {
+            PolicyManagementDAOFactory.openConnection();
+            // Both criteria, with all of their properties, should be read by either query.
+            assertPolicyCriteria(policyDAO.getPolicyCriteria(policy.getId()));
+            assertPolicyCriteria(policyDAO.getAllPolicyCriteriaOfPolicies().get(policy.getId()));
+        } catch (SQLException e) {
+            log.error("Error occurred while opening a connection to the data source", e);
+            Assert.fail();
+        } finally {
+            PolicyManagementDAOFactory.closeConnection();
+        }
+    }
+
+    private void assertPolicyCriteria(List<PolicyCriterion> policyCriteria) {
+        Assert.assertNotNull(policyCriteria);
+        Assert.assertEquals(2, policyCriteria.size());
+        for (int i = 0; i < policyCriteria.size(); i++) {
+            Properties properties = policyCriteria.get(i).getProperties();
+            Assert.assertEquals(2, properties.size());
+            Assert.assertEquals("10" + (i + 1), properties.getProperty("FROM"));
+            Assert.assertEquals("20" + (i + 1), properties.getProperty("TO"));
+        }
+    }
+
+    private Set<String> getDeviceIdentifiers(List<Device> devices) {
+        Set<String> deviceIdentifiers = new HashSet<>();
+        for (Device device : devices) {
+            deviceIdentifiers.add(device.getType() + ":" + device.getDeviceIdentifier());
+        }
+        return deviceIdentifiers;
     }
 
     @Test(dependsOnMethods = ("getPolicies"))
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.policy.mgt.core.cache.impl;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.core.service.DeviceManagementProviderService;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheEntry;
+import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/*
+    Unit tests for EffectivePolicyCacheManagerImpl
+ */
+public class EffectivePolicyCacheManagerImplTest {
+    private static final String DEVICE_TYPE = "android";
+    private static final String OWNER = "admin";
+    private static final long EXPIRY = 60 * 1000;
+    private static final int OTHER_TENANT_ID = 1;
+    private static final String OTHER_TENANT_DOMAIN = "test.com";
+
+    private DeviceManagementProviderService existingDeviceManagementService;
+    private DeviceManagementProviderService deviceManagementService;
+
+    @BeforeClass
+    public void init() throws Exception {
+        existingDeviceManagementService = PolicyManagementDataHolder.getInstance().getDeviceManagementService();
+        deviceManagementService = Mockito.mock(DeviceManagementProviderService.class);
+        PolicyManagementDataHolder.getInstance().setDeviceManagementService(deviceManagementService);
+    }
+
+    @AfterClass
+    public void cleanup() {
+        PolicyManagementDataHolder.getInstance().setDeviceManagementService(existingDeviceManagementService);
+    }
+
+    @BeforeMethod
+    public void resetDevices() throws Exception {
+        Mockito.reset(deviceManagementService);
+        Mockito.when(deviceManagementService.getDevice(Mockito.any(DeviceIdentifier.class), Mockito.anyBoolean()))
+                .thenReturn(createDevice(OWNER));
+    }
+
+    @Test(description = "test that a cached policy is returned while the policies of the tenant are unchanged")
+    public void testHit() throws Exception {
+        VersionedCacheManager cacheManager = new VersionedCacheManager(EXPIRY, 10);
+        Policy policy = createPolicy(1);
+        cacheManager.addEntry(createPIPDevice("1", 1), policy, cacheManager.getPolicyVersion(),
+                cacheManager.getInvalidationCount());
+
+        EffectivePolicyCacheEntry entry = cacheManager.getEntry(createIdentifier("1"));
+        Assert.assertNotNull(entry, "Cached policy is not found");
+        Assert.assertSame(entry.getPolicy(), policy, "Cached policy is not returned");
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("2")), "Policy of a device not cached is found");
+        Assert.assertEquals(cacheManager.getStatistics().getHitCount(), 1, "Hit is not counted");
+        Assert.assertEquals(cacheManager.getStatistics().getMissCount(), 1, "Miss is not counted");
+
+        cacheManager.policyVersion++;
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("1")),
+                "Policy cached for a previous version of the policies is returned");
+    }
+
+    @Test(description = "test that expired entries and entries of changed enrolments are not returned")
+    public void testExpiry() throws Exception {
+        VersionedCacheManager cacheManager = new VersionedCacheManager(-1, 10);
+        cacheManager.addEntry(createPIPDevice("1", 1), createPolicy(1), cacheManager.getPolicyVersion(),
+                cacheManager.getInvalidationCount());
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("1")), "Expired entry is returned");
+
+        cacheManager = new VersionedCacheManager(EXPIRY, 10);
+        cacheManager.addEntry(createPIPDevice("1", 1), createPolicy(1), cacheManager.getPolicyVersion(),
+                cacheManager.getInvalidationCount());
+        Mockito.when(deviceManagementService.getDevice(Mockito.any(DeviceIdentifier.class), Mockito.anyBoolean()))
+                .thenReturn(createDevice("user1"));
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("1")),
+                "Entry of a device whose owner changed is returned");
+    }
+
+    @Test(description = "test that the number of entries of a tenant is bounded")
+    public void testCapacity() throws Exception {
+        VersionedCacheManager cacheManager = new VersionedCacheManager(EXPIRY, 5);
+        for (int i = 0; i < 12; i++) {
+            cacheManager.addEntry(createPIPDevice(String.valueOf(i), 1), createPolicy(1),
+                    cacheManager.getPolicyVersion(), cacheManager.getInvalidationCount());
+            Assert.assertTrue(cacheManager.getStatistics().getSize() <= 5, "Cache grows beyond its capacity");
+        }
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("11")), "Latest entry is not kept");
+    }
+
+    @Test(description = "test that the least recently used entry is evicted from a full tenant")
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        VersionedCacheManager cacheManager = new VersionedCacheManager(EXPIRY, 3);
+        for (int i = 1; i <= 3; i++) {
+            cacheManager.addEntry(createPIPDevice(String.valueOf(i), i), createPolicy(1),
+                    cacheManager.getPolicyVersion(), cacheManager.getInvalidationCount());
+        }
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("1")), "Entry is not cached");
+        cacheManager.addEntry(createPIPDevice("4", 4), createPolicy(1), cacheManager.getPolicyVersion(),
+                cacheManager.getInvalidationCount());
+
+        Assert.assertEquals(cacheManager.getStatistics().getSize(), 3, "Cache grows beyond its capacity");
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("2")), "Least recently used entry is kept");
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("1")), "Recently used entry is evicted");
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("3")), "Entry is evicted before its turn");
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("4")), "Latest entry is not kept");
+
+        // The device of the evicted entry joins another group, so invalidating its former group must not affect it.
+        cacheManager.addEntry(createPIPDevice("2", 5), createPolicy(1), cacheManager.getPolicyVersion(),
+                cacheManager.getInvalidationCount());
+        cacheManager.invalidateDeviceGroup(2);
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("2")),
+                "Entry is invalidated by the group of an evicted entry of its device");
+    }
+
+    @Test(description = "test that invalidating a device, a group, a role or users removes only their entries")
+    public void testInvalidateDevice() throws Exception {
+        VersionedCacheManager cacheManager = new VersionedCacheManager(EXPIRY, 10);
+        for (int i = 1; i <= 4; i++) {
+            cacheManager.addEntry(createPIPDevice(String.valueOf(i), i), createPolicy(1),
+                    cacheManager.getPolicyVersion(), cacheManager.getInvalidationCount());
+        }
+
+        cacheManager.invalidateDevice(createIdentifier("1"));
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("1")), "Invalidated device is found");
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("2")), "Other device is invalidated");
+
+        cacheManager.invalidateDeviceGroup(2);
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("2")), "Device of the invalidated group is found");
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("3")), "Device of another group is invalidated");
+
+        cacheManager.invalidateRole("OTHER_ROLE");
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("3")), "Device of another role is invalidated");
+        cacheManager.invalidateRole("internal/role3");
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("3")), "Device of the invalidated role is found");
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("4")), "Device of another role is invalidated");
+
+        cacheManager.invalidateUsers(Collections.singletonList("PRIMARY/" + OWNER));
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("4")), "Device of the invalidated user is found");
+    }
+
+    @Test(description = "test that invalidating a tenant removes all its entries and leaves the other tenants")
+    public void testInvalidateTenant() throws Exception {
+        VersionedCacheManager cacheManager = new VersionedCacheManager(EXPIRY, 10);
+        cacheManager.addEntry(createPIPDevice("1", 1), createPolicy(1), cacheManager.getPolicyVersion(),
+                cacheManager.getInvalidationCount());
+        try {
+            startTenantFlow(OTHER_TENANT_ID, OTHER_TENANT_DOMAIN);
+            cacheManager.addEntry(createPIPDevice("1", 1), createPolicy(2), cacheManager.getPolicyVersion(),
+                    cacheManager.getInvalidationCount());
+            cacheManager.invalidateAll();
+            Assert.assertNull(cacheManager.getEntry(createIdentifier("1")), "Entry of invalidated tenant is found");
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("1")), "Entry of another tenant is invalidated");
+    }
+
+    @Test(description = "test that a policy evaluated before an invalidation is not cached after it")
+    public void testInvalidationRace() throws Exception {
+        VersionedCacheManager cacheManager = new VersionedCacheManager(EXPIRY, 10);
+        // The evaluating thread reads the version and the count before the inputs of the device.
+        long policyVersion = cacheManager.getPolicyVersion();
+        long invalidationCount = cacheManager.getInvalidationCount();
+        // The roles of the owner change while the policy is evaluated from the old inputs.
+        cacheManager.invalidateUsers(Collections.singletonList(OWNER));
+        cacheManager.addEntry(createPIPDevice("1", 1), createPolicy(1), policyVersion, invalidationCount);
+
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("1")),
+                "Policy evaluated before an invalidation is cached");
+
+        invalidationCount = cacheManager.getInvalidationCount();
+        cacheManager.addEntry(createPIPDevice("1", 1), createPolicy(1), policyVersion, invalidationCount);
+        Assert.assertNotNull(cacheManager.getEntry(createIdentifier("1")),
+                "Policy evaluated after an invalidation is not cached");
+    }
+
+    @Test(description = "test that nothing is cached when the cache is disabled")
+    public void testDisabledCache() throws Exception {
+        EffectivePolicyCacheManagerImpl cacheManager = new EffectivePolicyCacheManagerImpl(false, EXPIRY, 10);
+        cacheManager.addEntry(createPIPDevice("1", 1), createPolicy(1), 0, cacheManager.getInvalidationCount());
+        Assert.assertNull(cacheManager.getEntry(createIdentifier("1")), "Policy is cached while disabled");
+    }
+
+    private static void startTenantFlow(int tenantId, String tenantDomain) {
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(tenantDomain);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(tenantId);
+    }
+
+    private static DeviceIdentifier createIdentifier(String id) {
+        return new DeviceIdentifier(id, DEVICE_TYPE);
+    }
+
+    private static Device createDevice(String owner) {
+        Device device = new Device();
+        device.setType(DEVICE_TYPE);
+        EnrolmentInfo enrolmentInfo = new EnrolmentInfo();
+        enrolmentInfo.setOwner(owner);
+        enrolmentInfo.setOwnership(EnrolmentInfo.OwnerShip.BYOD);
+        device.setEnrolmentInfo(enrolmentInfo);
+        return device;
+    }
+
+    private static PIPDevice createPIPDevice(String id, int groupId) {
+        PIPDevice pipDevice = new PIPDevice();
+        pipDevice.setDeviceIdentifier(createIdentifier(id));
+        pipDevice.setUserId(OWNER);
+        pipDevice.setOwnershipType(EnrolmentInfo.OwnerShip.BYOD.toString());
+        pipDevice.setRoles(new String[]{"Internal/role" + groupId});
+        DeviceGroup deviceGroup = new DeviceGroup("Group " + groupId);
+        deviceGroup.setGroupId(groupId);
+        pipDevice.setDeviceGroups(Arrays.asList(deviceGroup));
+        return pipDevice;
+    }
+
+    private static Policy createPolicy(int id) {
+        Policy policy = new Policy();
+        policy.setId(id);
+        policy.setPolicyName("Policy " + id);
+        return policy;
+    }
+
+    /**
+     * Cache whose version of the policies is set by the test, instead of being read from the policy cache.
+     */
+    private static class VersionedCacheManager extends EffectivePolicyCacheManagerImpl {
+
+        private long policyVersion = 1;
+
+        private VersionedCacheManager(long entryExpiry, int capacity) {
+            super(true, entryExpiry, capacity);
+        }
+
+        @Override
+        public long getPolicyVersion() {
+            return policyVersion;
+        }
+
+    }
+
+}
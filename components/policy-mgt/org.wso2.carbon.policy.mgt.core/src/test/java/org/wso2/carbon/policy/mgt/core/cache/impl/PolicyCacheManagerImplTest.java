@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.policy.mgt.core.cache.impl;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.cache.Cache;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Unit tests for the version publishing of PolicyCacheManagerImpl
+ */
+public class PolicyCacheManagerImplTest {
+    private static final int THREAD_COUNT = 8;
+    private static final int CHANGES_PER_THREAD = 500;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Test(description = "test that a version is published when there is none and incremented afterwards")
+    public void testPublishNewVersion() {
+        Cache<Integer, Long> versionCache = createVersionCache(new ConcurrentHashMap<Integer, Long>());
+        PolicyCacheManagerImpl.VersionChange first =
+                PolicyCacheManagerImpl.publishNewVersion(versionCache, new Random());
+        Assert.assertNull(first.getPreviousVersion(), "Previous version is found although none was published");
+
+        PolicyCacheManagerImpl.VersionChange second =
+                PolicyCacheManagerImpl.publishNewVersion(versionCache, new Random());
+        Assert.assertEquals(second.getPreviousVersion(), Long.valueOf(first.getNewVersion()),
+                "Published version is not replaced");
+        Assert.assertEquals(second.getNewVersion(), first.getNewVersion() + 1, "Version is not incremented");
+    }
+
+    @Test(description = "test that concurrent changes never publish the same version")
+    public void testConcurrentPublishNewVersion() throws Exception {
+        final ConcurrentMap<Integer, Long> versions = new ConcurrentHashMap<>();
+        final Cache<Integer, Long> versionCache = createVersionCache(versions);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                results.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() throws Exception {
+                        start.await();
+                        Random random = new Random();
+                        List<Long> published = new ArrayList<>();
+                        for (int j = 0; j < CHANGES_PER_THREAD; j++) {
+                            published.add(PolicyCacheManagerImpl.publishNewVersion(versionCache, random)
+                                    .getNewVersion());
+                        }
+                        return published;
+                    }
+                }));
+            }
+            start.countDown();
+
+            Set<Long> published = new HashSet<>();
+            for (Future<List<Long>> result : results) {
+                for (Long version : result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    Assert.assertTrue(published.add(version), "Version " + version + " is published twice");
+                }
+            }
+            Assert.assertEquals(published.size(), THREAD_COUNT * CHANGES_PER_THREAD);
+            Assert.assertTrue(published.contains(versions.values().iterator().next()),
+                    "Latest version is not one of the published versions");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns a version cache backed by the given map, whose atomic operations the publishing relies on.
+     */
+    @SuppressWarnings("unchecked")
+    private static Cache<Integer, Long> createVersionCache(final ConcurrentMap<Integer, Long> versions) {
+        Cache<Integer, Long> versionCache = Mockito.mock(Cache.class);
+        Mockito.when(versionCache.get(Mockito.anyInt())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return versions.get(invocation.getArguments()[0]);
+            }
+        });
+        Mockito.when(versionCache.putIfAbsent(Mockito.anyInt(), Mockito.anyLong())).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                Object[] arguments = invocation.getArguments();
+                return versions.putIfAbsent((Integer) arguments[0], (Long) arguments[1]) == null;
+            }
+        });
+        Mockito.when(versionCache.replace(Mockito.anyInt(), Mockito.anyLong(), Mockito.anyLong()))
+                .thenAnswer(new Answer<Boolean>() {
+                    @Override
+                    public Boolean answer(InvocationOnMock invocation) {
+                        Object[] arguments = invocation.getArguments();
+                        return versions.replace((Integer) arguments[0], (Long) arguments[1], (Long) arguments[2]);
+                    }
+                });
+        return versionCache;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.policy.mgt.core.cache.impl;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Unit tests for PolicyCacheSnapshot
+ */
+public class PolicyCacheSnapshotTest {
+    private static final String DEVICE_TYPE_A = "android";
+    private static final String DEVICE_TYPE_B = "ios";
+
+    @Test(description = "test that the snapshot indexes the policies by id and by device type in priority order")
+    public void testIndexes() {
+        Policy policy1 = createPolicy(1, 3, DEVICE_TYPE_A);
+        Policy policy2 = createPolicy(2, 1, DEVICE_TYPE_A);
+        Policy policy3 = createPolicy(3, 2, DEVICE_TYPE_B);
+        PolicyCacheSnapshot snapshot = new PolicyCacheSnapshot(1, Arrays.asList(policy1, policy2, policy3));
+
+        Assert.assertEquals(snapshot.getPolicies(), Arrays.asList(policy2, policy3, policy1),
+                "Policies are not in priority order");
+        Assert.assertSame(snapshot.getPolicy(3), policy3, "Policy is not found by id");
+        Assert.assertNull(snapshot.getPolicy(4), "Policy which is not in the snapshot is found");
+        Assert.assertEquals(snapshot.getPoliciesOfDeviceType(DEVICE_TYPE_A.toUpperCase()),
+                Arrays.asList(policy2, policy1), "Policies of the device type are not found");
+        Assert.assertTrue(snapshot.getPoliciesOfDeviceType("windows").isEmpty(),
+                "Policies are found for a device type without policies");
+    }
+
+    @Test(description = "test that a change creates a new snapshot and leaves the existing one as it is")
+    public void testCopyOnWrite() {
+        Policy policy1 = createPolicy(1, 1, DEVICE_TYPE_A);
+        Policy policy2 = createPolicy(2, 2, DEVICE_TYPE_A);
+        PolicyCacheSnapshot snapshot = new PolicyCacheSnapshot(1, Collections.singletonList(policy1));
+
+        PolicyCacheSnapshot added = snapshot.withPolicy(2, policy2);
+        Assert.assertEquals(added.getVersion(), 2, "Version of the new snapshot is not set");
+        Assert.assertEquals(added.getPolicies(), Arrays.asList(policy1, policy2), "Policy is not added");
+        Assert.assertEquals(snapshot.getPolicies(), Collections.singletonList(policy1),
+                "Existing snapshot is changed");
+
+        Policy updatedPolicy1 = createPolicy(1, 3, DEVICE_TYPE_B);
+        PolicyCacheSnapshot updated = added.withPolicy(3, updatedPolicy1);
+        Assert.assertEquals(updated.getPolicies(), Arrays.asList(policy2, updatedPolicy1), "Policy is not replaced");
+        Assert.assertEquals(updated.getPoliciesOfDeviceType(DEVICE_TYPE_A), Collections.singletonList(policy2),
+                "Device type index is not updated");
+
+        PolicyCacheSnapshot removed = updated.withoutPolicy(4, 2);
+        Assert.assertEquals(removed.getPolicies(), Collections.singletonList(updatedPolicy1),
+                "Policy is not removed");
+        Assert.assertSame(updated.getPolicy(2), policy2, "Existing snapshot is changed");
+    }
+
+    @Test(description = "test that the policies of a snapshot cannot be modified",
+            expectedExceptions = UnsupportedOperationException.class)
+    public void testUnmodifiablePolicies() {
+        PolicyCacheSnapshot snapshot = new PolicyCacheSnapshot(1, Collections.<Policy>emptyList());
+        List<Policy> policies = snapshot.getPolicies();
+        policies.add(createPolicy(1, 1, DEVICE_TYPE_A));
+    }
+
+    private Policy createPolicy(int id, int priority, String deviceType) {
+        Policy policy = new Policy();
+        policy.setId(id);
+        policy.setPriorityId(priority);
+        policy.setPolicyName("Policy " + id);
+        Profile profile = new Profile();
+        profile.setDeviceType(deviceType);
+        policy.setProfile(profile);
+        return policy;
+    }
+
+}
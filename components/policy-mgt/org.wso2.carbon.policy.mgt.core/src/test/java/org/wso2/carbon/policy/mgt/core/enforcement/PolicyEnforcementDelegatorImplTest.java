@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.policy.mgt.core.enforcement;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+    Unit tests for the grouping of the operations added by PolicyEnforcementDelegatorImpl
+ */
+public class PolicyEnforcementDelegatorImplTest {
+    private static final String ANDROID = "android";
+    private static final String IOS = "ios";
+    private static final int UPDATED_POLICY_ID = 1;
+    private RecordingDelegator delegator;
+
+    @BeforeClass
+    public void init() throws PolicyDelegationException {
+        Policy updatedPolicy = createPolicy(UPDATED_POLICY_ID, "Updated");
+        Policy newPolicy = createPolicy(2, "New");
+        Policy unchangedPolicy = createPolicy(3, "Unchanged");
+        Policy androidMergedPolicy = createPolicy(-1, "Merged from 4, 5");
+        Policy iosMergedPolicy = createPolicy(-1, "Merged from 6, 7");
+
+        List<Device> devices = new ArrayList<>();
+        Map<String, Policy> appliedPolicies = new HashMap<>();
+        Map<String, Policy> effectivePolicies = new HashMap<>();
+        // Android devices on the updated policy, moving to a new policy, left without a policy, kept on an
+        // unchanged policy and moving to a merged policy.
+        addDevice(devices, ANDROID, "a1", appliedPolicies, updatedPolicy, effectivePolicies, updatedPolicy);
+        addDevice(devices, ANDROID, "a2", appliedPolicies, updatedPolicy, effectivePolicies, updatedPolicy);
+        addDevice(devices, ANDROID, "a3", appliedPolicies, unchangedPolicy, effectivePolicies, newPolicy);
+        addDevice(devices, ANDROID, "a4", appliedPolicies, newPolicy, effectivePolicies, null);
+        addDevice(devices, ANDROID, "a5", appliedPolicies, unchangedPolicy, effectivePolicies, unchangedPolicy);
+        addDevice(devices, ANDROID, "a6", appliedPolicies, null, effectivePolicies, androidMergedPolicy);
+        // iOS devices sharing the same effective policies as the Android devices, along with another merged policy.
+        addDevice(devices, IOS, "i1", appliedPolicies, updatedPolicy, effectivePolicies, updatedPolicy);
+        addDevice(devices, IOS, "i2", appliedPolicies, null, effectivePolicies, newPolicy);
+        addDevice(devices, IOS, "i3", appliedPolicies, null, effectivePolicies, iosMergedPolicy);
+        addDevice(devices, IOS, "i4", appliedPolicies, null, effectivePolicies, iosMergedPolicy);
+
+        delegator = new RecordingDelegator(devices, Collections.singletonList(UPDATED_POLICY_ID), appliedPolicies,
+                effectivePolicies);
+        delegator.delegate();
+    }
+
+    @Test(description = "test that a single revoke operation is added for the devices of each type")
+    public void testRevokeOperationPerDeviceType() {
+        Assert.assertEquals(delegator.revokedDevices.size(), 2, "Revoke operations are not grouped by device type");
+        Assert.assertEquals(getIds(delegator.revokedDevices.get(0)),
+                new HashSet<>(Arrays.asList("a1", "a2", "a3", "a4", "a6")), "Unexpected Android devices are revoked");
+        Assert.assertEquals(getIds(delegator.revokedDevices.get(1)),
+                new HashSet<>(Arrays.asList("i1", "i2", "i3", "i4")), "Unexpected iOS devices are revoked");
+    }
+
+    @Test(description = "test that a single policy operation is added for each effective policy of each type")
+    public void testPolicyOperationPerPolicyAndDeviceType() {
+        Assert.assertEquals(delegator.policyDevices.size(), 6, "Policy operations are not grouped by policy and " +
+                "device type");
+        Map<String, Set<String>> expected = new HashMap<>();
+        expected.put(ANDROID + ":Updated", new HashSet<>(Arrays.asList("a1", "a2")));
+        expected.put(ANDROID + ":New", new HashSet<>(Collections.singletonList("a3")));
+        expected.put(ANDROID + ":Merged from 4, 5", new HashSet<>(Collections.singletonList("a6")));
+        expected.put(IOS + ":Updated", new HashSet<>(Collections.singletonList("i1")));
+        expected.put(IOS + ":New", new HashSet<>(Collections.singletonList("i2")));
+        expected.put(IOS + ":Merged from 6, 7", new HashSet<>(Arrays.asList("i3", "i4")));
+        for (int i = 0; i < delegator.policyDevices.size(); i++) {
+            List<DeviceIdentifier> deviceIdentifiers = delegator.policyDevices.get(i);
+            String key = getType(deviceIdentifiers) + ":" + delegator.policies.get(i).getDescription();
+            Assert.assertEquals(getIds(deviceIdentifiers), expected.remove(key), "Unexpected devices for the " +
+                    "policy operation " + key);
+        }
+        Assert.assertTrue(expected.isEmpty(), "Policy operations are missing for " + expected.keySet());
+    }
+
+    private static Policy createPolicy(int id, String description) {
+        Policy policy = new Policy();
+        policy.setId(id);
+        policy.setDescription(description);
+        return policy;
+    }
+
+    private static void addDevice(List<Device> devices, String type, String id, Map<String, Policy> appliedPolicies,
+                                  Policy appliedPolicy, Map<String, Policy> effectivePolicies,
+                                  Policy effectivePolicy) {
+        Device device = new Device();
+        device.setType(type);
+        device.setDeviceIdentifier(id);
+        devices.add(device);
+        appliedPolicies.put(id, appliedPolicy);
+        effectivePolicies.put(id, effectivePolicy);
+    }
+
+    private static Set<String> getIds(List<DeviceIdentifier> deviceIdentifiers) {
+        Set<String> ids = new HashSet<>();
+        for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
+            ids.add(deviceIdentifier.getId());
+        }
+        return ids;
+    }
+
+    private static String getType(List<DeviceIdentifier> deviceIdentifiers) {
+        String type = deviceIdentifiers.get(0).getType();
+        for (DeviceIdentifier deviceIdentifier : deviceIdentifiers) {
+            Assert.assertEquals(deviceIdentifier.getType(), type, "Devices of different types share an operation");
+        }
+        return type;
+    }
+
+    /**
+     * Delegator which resolves the policies of the devices from the given maps and records the operations it adds,
+     * instead of looking up and updating the policy and device management services.
+     */
+    private static class RecordingDelegator extends PolicyEnforcementDelegatorImpl {
+
+        private final Map<String, Policy> appliedPolicies;
+        private final Map<String, Policy> effectivePolicies;
+        private final List<List<DeviceIdentifier>> revokedDevices = new ArrayList<>();
+        private final List<List<DeviceIdentifier>> policyDevices = new ArrayList<>();
+        private final List<Policy> policies = new ArrayList<>();
+
+        private RecordingDelegator(List<Device> devices, List<Integer> updatedPolicyIds,
+                                   Map<String, Policy> appliedPolicies, Map<String, Policy> effectivePolicies) {
+            super(devices, updatedPolicyIds);
+            this.appliedPolicies = appliedPolicies;
+            this.effectivePolicies = effectivePolicies;
+        }
+
+        @Override
+        public Policy getAppliedPolicyToDevice(DeviceIdentifier identifier) {
+            return appliedPolicies.get(identifier.getId());
+        }
+
+        @Override
+        public Policy getEffectivePolicy(DeviceIdentifier identifier) {
+            return effectivePolicies.get(identifier.getId());
+        }
+
+        @Override
+        public void addPolicyOperation(List<DeviceIdentifier> deviceIdentifiers, Policy policy) {
+            policyDevices.add(deviceIdentifiers);
+            policies.add(policy);
+        }
+
+        @Override
+        public void addPolicyRevokeOperation(List<DeviceIdentifier> deviceIdentifiers) {
+            revokedDevices.add(deviceIdentifiers);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.policy.mgt.core.impl;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.group.mgt.DeviceGroup;
+import org.wso2.carbon.device.mgt.common.policy.mgt.DeviceGroupWrapper;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
+import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
+import org.wso2.carbon.device.mgt.core.dto.DeviceType;
+import org.wso2.carbon.policy.mgt.common.PIPDevice;
+import org.wso2.carbon.policy.mgt.common.PolicyFilter;
+import org.wso2.carbon.policy.mgt.core.util.PolicyManagementConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+    Unit tests for PolicyApplicabilityIndex, which must select the same policies as the PolicyFilterImpl chain
+ */
+public class PolicyApplicabilityIndexTest {
+    private static final String[] DEVICE_TYPES = {"android", "ios"};
+    private static final String[] OWNERSHIP_TYPES = {"BYOD", "COPE"};
+    private static final String[] ROLES = {"admin", "internal/devicemgt-user", "engineering", "sales"};
+    private static final String[] USERS = {"admin", "alex", "kim", "sam"};
+    private static final int[] GROUP_IDS = {1, 2, 3};
+    private static final int POLICY_COUNT = 200;
+    private List<Policy> policies;
+    private PolicyApplicabilityIndex index;
+    private Random random;
+
+    @BeforeClass
+    public void init() {
+        random = new Random(19981017L);
+        policies = new ArrayList<>();
+        for (int i = 0; i < POLICY_COUNT; i++) {
+            Policy policy = new Policy();
+            policy.setId(i + 1);
+            policy.setPolicyName("Policy " + (i + 1));
+            policy.setPriorityId(random.nextInt(POLICY_COUNT));
+            policy.setActive(random.nextInt(4) != 0);
+            Profile profile = new Profile();
+            profile.setDeviceType(DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)]);
+            policy.setProfile(profile);
+            int ownership = random.nextInt(OWNERSHIP_TYPES.length + 2);
+            policy.setOwnershipType(ownership < OWNERSHIP_TYPES.length ? OWNERSHIP_TYPES[ownership] :
+                    (ownership == OWNERSHIP_TYPES.length ? PolicyManagementConstants.ANY : null));
+            policy.setRoles(pick(ROLES));
+            policy.setUsers(pick(USERS));
+            List<DeviceGroupWrapper> wrappers = new ArrayList<>();
+            int groupChoice = random.nextInt(GROUP_IDS.length + 2);
+            if (groupChoice < GROUP_IDS.length) {
+                DeviceGroupWrapper wrapper = new DeviceGroupWrapper();
+                wrapper.setId(GROUP_IDS[groupChoice]);
+                wrapper.setName("Group " + GROUP_IDS[groupChoice]);
+                wrappers.add(wrapper);
+            } else if (groupChoice == GROUP_IDS.length) {
+                DeviceGroupWrapper wrapper = new DeviceGroupWrapper();
+                wrapper.setName(PolicyManagementConstants.ANY);
+                wrappers.add(wrapper);
+            }
+            policy.setDeviceGroups(wrappers);
+            policies.add(policy);
+        }
+        index = new PolicyApplicabilityIndex(policies);
+    }
+
+    @Test(description = "test that the index selects the same policies as the policy filters")
+    public void testGetApplicablePolicies() {
+        Assert.assertEquals(index.size(), POLICY_COUNT, "Not all the policies are indexed");
+        for (int i = 0; i < 500; i++) {
+            PIPDevice pipDevice = new PIPDevice();
+            DeviceType deviceType = new DeviceType();
+            deviceType.setName(DEVICE_TYPES[random.nextInt(DEVICE_TYPES.length)].toUpperCase());
+            pipDevice.setDeviceType(deviceType);
+            pipDevice.setOwnershipType(OWNERSHIP_TYPES[random.nextInt(OWNERSHIP_TYPES.length)].toLowerCase());
+            List<String> roles = pick(ROLES);
+            pipDevice.setRoles(roles.toArray(new String[roles.size()]));
+            pipDevice.setUserId(USERS[random.nextInt(USERS.length)]);
+            List<DeviceGroup> deviceGroups = new ArrayList<>();
+            DeviceGroup deviceGroup = new DeviceGroup();
+            deviceGroup.setGroupId(GROUP_IDS[random.nextInt(GROUP_IDS.length)]);
+            deviceGroups.add(deviceGroup);
+            pipDevice.setDeviceGroups(deviceGroups);
+
+            Assert.assertEquals(index.getApplicablePolicies(pipDevice), filter(pipDevice),
+                    "Index and policy filters selected different policies");
+        }
+    }
+
+    @Test(description = "test that the criteria which are not set in the device are not considered")
+    public void testGetApplicablePoliciesWithoutCriteria() {
+        PIPDevice pipDevice = new PIPDevice();
+        DeviceType deviceType = new DeviceType();
+        deviceType.setName(DEVICE_TYPES[0]);
+        pipDevice.setDeviceType(deviceType);
+
+        List<Policy> expected = new ArrayList<>();
+        for (Policy policy : policies) {
+            if (policy.isActive() && DEVICE_TYPES[0].equals(policy.getProfile().getDeviceType())) {
+                expected.add(policy);
+            }
+        }
+        Collections.sort(expected);
+        Assert.assertEquals(index.getApplicablePolicies(pipDevice), expected,
+                "Policies are filtered by criteria which are not set in the device");
+
+        deviceType.setName("windows");
+        Assert.assertTrue(index.getApplicablePolicies(pipDevice).isEmpty(),
+                "Policies are returned for a device type without policies");
+    }
+
+    private List<Policy> filter(PIPDevice pipDevice) {
+        PolicyFilter policyFilter = new PolicyFilterImpl();
+        List<Policy> filtered = policyFilter.filterActivePolicies(policies);
+        filtered = policyFilter.filterDeviceTypeBasedPolicies(pipDevice.getDeviceType().getName(), filtered);
+        filtered = policyFilter.filterOwnershipTypeBasedPolicies(pipDevice.getOwnershipType(), filtered);
+        filtered = policyFilter.filterRolesBasedPolicies(pipDevice.getRoles(), filtered);
+        filtered = policyFilter.filterUserBasedPolicies(pipDevice.getUserId(), filtered);
+        Map<Integer, DeviceGroup> groupMap = new HashMap<>();
+        for (DeviceGroup deviceGroup : pipDevice.getDeviceGroups()) {
+            groupMap.put(deviceGroup.getGroupId(), deviceGroup);
+        }
+        filtered = policyFilter.filterDeviceGroupsPolicies(groupMap, filtered);
+        // The role filter adds a policy once per matching role.
+        List<Policy> expected = new ArrayList<>(new LinkedHashSet<>(filtered));
+        Collections.sort(expected);
+        return expected;
+    }
+
+    private List<String> pick(String[] values) {
+        int choice = random.nextInt(4);
+        if (choice == 0) {
+            return new ArrayList<>();
+        } else if (choice == 1) {
+            return new ArrayList<>(Collections.singletonList(PolicyManagementConstants.ANY));
+        }
+        List<String> picked = new ArrayList<>(Arrays.asList(values));
+        Collections.shuffle(picked, random);
+        return new ArrayList<>(picked.subList(0, 1 + random.nextInt(2)));
+    }
+
+}
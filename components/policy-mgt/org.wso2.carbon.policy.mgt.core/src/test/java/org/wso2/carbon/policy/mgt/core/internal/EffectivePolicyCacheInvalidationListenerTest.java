@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.policy.mgt.core.internal;
+
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.DeviceIdentifier;
+import org.wso2.carbon.policy.mgt.core.cache.EffectivePolicyCacheManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+    Unit tests for EffectivePolicyCacheInvalidationListener
+ */
+public class EffectivePolicyCacheInvalidationListenerTest {
+
+    private EffectivePolicyCacheManager cacheManager;
+    private EffectivePolicyCacheInvalidationListener listener;
+
+    @BeforeMethod
+    public void init() throws Exception {
+        cacheManager = Mockito.mock(EffectivePolicyCacheManager.class);
+        listener = new EffectivePolicyCacheInvalidationListener(cacheManager);
+    }
+
+    @Test(description = "test that changed devices and groups are invalidated")
+    public void testDeviceChanges() {
+        List<DeviceIdentifier> deviceIdentifiers = Arrays.asList(new DeviceIdentifier("1", "android"),
+                new DeviceIdentifier("2", "ios"));
+        listener.onDevicesChanged(deviceIdentifiers);
+        listener.onGroupChanged(3);
+
+        Mockito.verify(cacheManager).invalidateDevice(deviceIdentifiers.get(0));
+        Mockito.verify(cacheManager).invalidateDevice(deviceIdentifiers.get(1));
+        Mockito.verify(cacheManager).invalidateDeviceGroup(3);
+    }
+
+    @Test(description = "test that changed users and roles are invalidated")
+    public void testUserChanges() {
+        List<String> userNames = Arrays.asList("user1", "SECONDARY/user2");
+        listener.onUsersChanged(userNames);
+        listener.onRoleChanged("role1");
+
+        Mockito.verify(cacheManager).invalidateUsers(userNames);
+        Mockito.verify(cacheManager).invalidateRole("role1");
+        Mockito.verify(cacheManager, Mockito.never()).invalidateAll();
+    }
+
+}
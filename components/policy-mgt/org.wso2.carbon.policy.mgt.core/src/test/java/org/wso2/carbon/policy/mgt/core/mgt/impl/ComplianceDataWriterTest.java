@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.mgt.impl;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.ComplianceFeature;
+import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.NonComplianceData;
+import org.wso2.carbon.policy.mgt.core.BasePolicyManagementDAOTest;
+import org.wso2.carbon.policy.mgt.core.dao.MonitoringDAOException;
+import org.wso2.carbon.policy.mgt.core.dao.impl.MonitoringDAOImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    Unit tests for the batching of ComplianceDataWriter
+ */
+public class ComplianceDataWriterTest extends BasePolicyManagementDAOTest {
+
+    private static final String FEATURE_CODE = "CAMERA";
+
+    @Test(description = "test that queued results are written by the background thread once the writer is shut down")
+    public void testQueuedResultsAreWritten() throws Exception {
+        RecordingMonitoringDAO monitoringDAO = new RecordingMonitoringDAO();
+        ComplianceDataWriter writer = new ComplianceDataWriter(monitoringDAO, true, 10, 100);
+        for (int i = 1; i <= 5; i++) {
+            writer.write(createComplianceData(i, i % 2 == 0));
+        }
+        writer.shutdown();
+
+        Assert.assertEquals(writer.getQueueDepth(), 0, "Queued results are not written");
+        for (int i = 1; i <= 5; i++) {
+            Assert.assertEquals(monitoringDAO.getLastResult(i), i % 2 == 0 ? "compliant" : "none-compliant",
+                    "Results of device " + i + " are not written");
+        }
+    }
+
+    @Test(description = "test that the results of a device are written in the order they are reported, even when the "
+            + "queue is full")
+    public void testResultsOfDeviceAreWrittenInOrder() throws Exception {
+        RecordingMonitoringDAO monitoringDAO = new RecordingMonitoringDAO();
+        ComplianceDataWriter writer = new ComplianceDataWriter(monitoringDAO, true, 1, 1);
+        for (int i = 0; i < 50; i++) {
+            writer.write(createComplianceData(1, i % 2 == 0));
+        }
+        writer.write(createComplianceData(1, true));
+        writer.shutdown();
+
+        Assert.assertEquals(monitoringDAO.getLastResult(1), "compliant",
+                "Earlier results of the device are written after the latest ones");
+    }
+
+    @Test(description = "test that changing the compliance data after it is written does not change the queued results")
+    public void testQueuedResultsAreCopied() throws Exception {
+        RecordingMonitoringDAO monitoringDAO = new RecordingMonitoringDAO();
+        ComplianceDataWriter writer = new ComplianceDataWriter(monitoringDAO, true, 10, 100);
+        NonComplianceData complianceData = createComplianceData(1, false);
+        writer.write(complianceData);
+        complianceData.getComplianceFeatures().clear();
+        complianceData.setDeviceId(2);
+        writer.shutdown();
+
+        Assert.assertEquals(monitoringDAO.getLastResult(1), "none-compliant",
+                "Queued results are changed by the reporting thread");
+        Assert.assertNull(monitoringDAO.getLastResult(2), "Queued results are changed by the reporting thread");
+    }
+
+    @Test(description = "test that the results are written by the reporting thread once the writer is shut down")
+    public void testResultsAreWrittenAfterShutdown() throws Exception {
+        RecordingMonitoringDAO monitoringDAO = new RecordingMonitoringDAO();
+        ComplianceDataWriter writer = new ComplianceDataWriter(monitoringDAO, true, 10, 100);
+        writer.shutdown();
+        writer.write(createComplianceData(1, true));
+
+        Assert.assertEquals(monitoringDAO.getLastResult(1), "compliant", "Results are not written after shutdown");
+    }
+
+    @Test(description = "test that the results of devices without a compliance status are not coalesced")
+    public void testResultsOfDevicesWithoutComplianceStatus() throws Exception {
+        RecordingMonitoringDAO monitoringDAO = new RecordingMonitoringDAO();
+        ComplianceDataWriter writer = new ComplianceDataWriter(monitoringDAO, true, 10, 100);
+        for (int i = 1; i <= 3; i++) {
+            NonComplianceData complianceData = createComplianceData(i, true);
+            complianceData.setId(0);
+            writer.write(complianceData);
+        }
+        writer.shutdown();
+
+        for (int i = 1; i <= 3; i++) {
+            Assert.assertEquals(monitoringDAO.getLastResult(i), "compliant",
+                    "Results of device " + i + " are replaced by the results of another device");
+        }
+    }
+
+    private static NonComplianceData createComplianceData(int id, boolean compliant) {
+        NonComplianceData complianceData = new NonComplianceData();
+        complianceData.setId(id);
+        complianceData.setDeviceId(id);
+        complianceData.setEnrolmentId(id);
+        complianceData.setPolicyId(1);
+        List<ComplianceFeature> complianceFeatures = new ArrayList<>();
+        if (!compliant) {
+            ComplianceFeature complianceFeature = new ComplianceFeature();
+            complianceFeature.setFeatureCode(FEATURE_CODE);
+            complianceFeature.setCompliance(false);
+            complianceFeatures.add(complianceFeature);
+        }
+        complianceData.setComplianceFeatures(complianceFeatures);
+        return complianceData;
+    }
+
+    /**
+     * Records the results written for each device, instead of writing them to the database.
+     */
+    private static class RecordingMonitoringDAO extends MonitoringDAOImpl {
+
+        private final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void setDevicesAsNoneCompliance(List<NonComplianceData> complianceDataList)
+                throws MonitoringDAOException {
+            for (NonComplianceData complianceData : complianceDataList) {
+                results.add(complianceData.getDeviceId() + ":none-compliant");
+            }
+        }
+
+        @Override
+        public void setDevicesAsCompliance(List<NonComplianceData> complianceDataList) throws MonitoringDAOException {
+            for (NonComplianceData complianceData : complianceDataList) {
+                results.add(complianceData.getDeviceId() + ":compliant");
+            }
+        }
+
+        @Override
+        public void addNonComplianceFeatures(List<NonComplianceData> complianceDataList)
+                throws MonitoringDAOException {
+        }
+
+        @Override
+        public void deleteNoneComplianceData(List<Integer> policyComplianceStatusIds) throws MonitoringDAOException {
+        }
+
+        private String getLastResult(int id) {
+            String lastResult = null;
+            synchronized (results) {
+                for (String result : results) {
+                    if (result.startsWith(id + ":")) {
+                        lastResult = result.substring(result.indexOf(':') + 1);
+                    }
+                }
+            }
+            return lastResult;
+        }
+
+    }
+
+}
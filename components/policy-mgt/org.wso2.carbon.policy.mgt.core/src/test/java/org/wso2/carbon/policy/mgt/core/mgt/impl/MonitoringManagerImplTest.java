@@ -21,6 +21,7 @@ import org.wso2.carbon.device.mgt.common.policy.mgt.Policy;
 import org.wso2.carbon.device.mgt.common.policy.mgt.Profile;
 import org.wso2.carbon.device.mgt.common.policy.mgt.ProfileFeature;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.ComplianceFeature;
+import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.NonComplianceData;
 import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.PolicyComplianceException;
 import org.wso2.carbon.device.mgt.common.spi.DeviceManagementService;
 import org.wso2.carbon.device.mgt.core.operation.mgt.OperationManagerImpl;
@@ -51,10 +52,13 @@ import java.util.List;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class MonitoringManagerImplTest extends BasePolicyManagementDAOTest{
@@ -151,6 +155,57 @@ public class MonitoringManagerImplTest extends BasePolicyManagementDAOTest{
         monitoringManager.checkPolicyCompliance(deviceIdentifier, new ArrayList<ComplianceFeature>());
     }
 
+    @Test(description = "This test case tests checking policy compliance of a none compliant device",
+          dependsOnMethods = "testCheckPolicyCompliance")
+    public void testCheckPolicyComplianceOfNoneCompliantDevice() throws Exception {
+        DeviceIdentifier deviceIdentifier = new DeviceIdentifier();
+        deviceIdentifier.setType(DEVICE_TYPE_E);
+        deviceIdentifier.setId(String.valueOf(device5.getDeviceIdentifier()));
+        ComplianceFeature complianceFeature = new ComplianceFeature();
+        complianceFeature.setFeatureCode(POLICY5_FEATURE1_CODE.toLowerCase());
+        complianceFeature.setCompliance(false);
+        List<ComplianceFeature> deviceResponse = new ArrayList<>();
+        deviceResponse.add(complianceFeature);
+
+        List<ComplianceFeature> complianceFeatures =
+                monitoringManager.checkPolicyCompliance(deviceIdentifier, deviceResponse);
+        Assert.assertEquals(complianceFeatures.size(), 1);
+        Assert.assertNotNull(complianceFeatures.get(0).getFeature(),
+                             "Profile feature is not matched to the compliance feature.");
+        Assert.assertEquals(monitoringManager.getDevicePolicyCompliance(deviceIdentifier).getComplianceFeatures()
+                                    .size(), 1, "None compliance features are not persisted.");
+    }
+
+    @Test(description = "This test case tests checking policy compliance of a device without a compliance status",
+          dependsOnMethods = "testCheckPolicyComplianceOfNoneCompliantDevice")
+    public void testCheckPolicyComplianceOfDeviceWithoutComplianceStatus() throws Exception {
+        MonitoringDAO monitoringDAO = spy(MonitoringDAOImpl.class);
+        doReturn(null).when(monitoringDAO).getCompliance(anyInt(), anyInt());
+        MonitoringDAO writerMonitoringDAO = spy(MonitoringDAOImpl.class);
+        DeviceIdentifier deviceIdentifier = new DeviceIdentifier();
+        deviceIdentifier.setType(DEVICE_TYPE_E);
+        deviceIdentifier.setId(String.valueOf(device5.getDeviceIdentifier()));
+        ComplianceFeature complianceFeature = new ComplianceFeature();
+        complianceFeature.setFeatureCode(POLICY5_FEATURE1_CODE);
+        complianceFeature.setCompliance(false);
+        List<ComplianceFeature> deviceResponse = new ArrayList<>();
+        deviceResponse.add(complianceFeature);
+
+        Object oldObj = changeFieldValue(monitoringManager, "monitoringDAO", monitoringDAO);
+        Object oldWriterObj = changeFieldValue(ComplianceDataWriter.getInstance(), "monitoringDAO",
+                                               writerMonitoringDAO);
+        try {
+            List<ComplianceFeature> complianceFeatures =
+                    monitoringManager.checkPolicyCompliance(deviceIdentifier, deviceResponse);
+            Assert.assertTrue(complianceFeatures.isEmpty(),
+                              "Device without a compliance status is not treated as compliant.");
+            verify(writerMonitoringDAO, never()).addNonComplianceFeatures(anyListOf(NonComplianceData.class));
+        } finally {
+            changeFieldValue(monitoringManager, "monitoringDAO", oldObj);
+            changeFieldValue(ComplianceDataWriter.getInstance(), "monitoringDAO", oldWriterObj);
+        }
+    }
+
     @Test(description = "This test case tests handling ProfileManagerDAOException when checking policy compliance",
           dependsOnMethods = "testCheckPolicyCompliance")
     public void testCheckPolicyComplianceThrowingProfileManagerDAOException() throws Exception {
@@ -216,11 +271,11 @@ public class MonitoringManagerImplTest extends BasePolicyManagementDAOTest{
           dependsOnMethods = "testAddProfileThrowingMonitoringDAOException")
     public void testAddProfileThrowingMonitoringDAOException2() throws Exception {
         MonitoringDAO monitoringDAO = spy(MonitoringDAOImpl.class);
-        doThrow(new MonitoringDAOException()).when(monitoringDAO).deleteNoneComplianceData(anyInt());
+        doThrow(new MonitoringDAOException()).when(monitoringDAO).deleteNoneComplianceData(anyListOf(Integer.class));
         DeviceIdentifier deviceIdentifier = new DeviceIdentifier();
         deviceIdentifier.setType(DEVICE_TYPE_E);
         deviceIdentifier.setId(String.valueOf(device5.getDeviceIdentifier()));
-        testThrowingException(monitoringManager, deviceIdentifier, d -> monitoringManager.checkPolicyCompliance((DeviceIdentifier) d, new ArrayList<ComplianceFeature>()), "monitoringDAO",
+        testThrowingException(ComplianceDataWriter.getInstance(), deviceIdentifier, d -> monitoringManager.checkPolicyCompliance((DeviceIdentifier) d, new ArrayList<ComplianceFeature>()), "monitoringDAO",
                               monitoringDAO,
                               MonitoringDAOException.class);
     }
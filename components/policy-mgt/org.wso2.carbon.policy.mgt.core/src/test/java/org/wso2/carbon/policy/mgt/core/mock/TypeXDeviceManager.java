@@ -27,6 +27,7 @@ import org.wso2.carbon.device.mgt.common.configuration.mgt.PlatformConfiguration
 import org.wso2.carbon.device.mgt.common.license.mgt.License;
 import org.wso2.carbon.device.mgt.common.license.mgt.LicenseManagementException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class TypeXDeviceManager implements DeviceManager {
@@ -86,6 +87,11 @@ public class TypeXDeviceManager implements DeviceManager {
         return null;
     }
 
+    @Override
+    public List<Device> getDevices(List<DeviceIdentifier> deviceIds) throws DeviceManagementException {
+        return new ArrayList<>();
+    }
+
     @Override public boolean updateDeviceProperties(DeviceIdentifier deviceId, List<Device.Property> list)
             throws DeviceManagementException {
         return false;
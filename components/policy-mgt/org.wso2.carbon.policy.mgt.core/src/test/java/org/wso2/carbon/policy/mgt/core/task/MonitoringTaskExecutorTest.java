@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * you may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.policy.mgt.core.task;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.device.mgt.common.Device;
+import org.wso2.carbon.device.mgt.common.EnrolmentInfo;
+import org.wso2.carbon.device.mgt.common.policy.mgt.monitor.PolicyComplianceException;
+import org.wso2.carbon.policy.mgt.core.internal.PolicyManagementDataHolder;
+import org.wso2.carbon.policy.mgt.core.mgt.MonitoringManager;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Unit tests for MonitoringTaskExecutor
+ */
+public class MonitoringTaskExecutorTest {
+
+    private static final String DEVICE_TYPE = "android";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private MonitoringManager monitoringManager;
+    private MonitoringManager existingMonitoringManager;
+
+    @BeforeClass
+    public void init() {
+        existingMonitoringManager = PolicyManagementDataHolder.getInstance().getMonitoringManager();
+        monitoringManager = Mockito.mock(MonitoringManager.class);
+        PolicyManagementDataHolder.getInstance().setMonitoringManager(monitoringManager);
+    }
+
+    @AfterClass
+    public void cleanup() {
+        PolicyManagementDataHolder.getInstance().setMonitoringManager(existingMonitoringManager);
+    }
+
+    @Test(description = "test that the units run in the task thread when there is no worker pool")
+    public void testUnitsWithoutWorkerPool() throws Exception {
+        Mockito.reset(monitoringManager);
+        MonitoringTaskExecutor executor = new MonitoringTaskExecutor(10, 0, 0);
+        Future<MonitoringUnitStatistics> unit = executor.submit(MultitenantConstants.SUPER_TENANT_ID,
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, DEVICE_TYPE, 0, createDevices(1, 3));
+
+        Assert.assertTrue(unit.isDone(), "Unit is not run in the task thread");
+        MonitoringUnitStatistics statistics = unit.get();
+        Assert.assertTrue(statistics.isSuccessful(), "Unit is not successful");
+        Assert.assertEquals(statistics.getDeviceCount(), 3, "Devices of the unit are not counted");
+        Assert.assertEquals(statistics.getToEnrolmentId(), 3, "Last enrolment of the unit is not recorded");
+        Mockito.verify(monitoringManager).addMonitoringOperation(Mockito.anyListOf(Device.class));
+    }
+
+    @Test(description = "test that the task thread runs the units when the queue of the pool is full")
+    public void testSaturatedPool() throws Exception {
+        Mockito.reset(monitoringManager);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread taskThread = Thread.currentThread();
+        final List<Thread> callerRunThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                if (Thread.currentThread() == taskThread) {
+                    callerRunThreads.add(Thread.currentThread());
+                } else {
+                    release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }
+                return null;
+            }
+        }).when(monitoringManager).addMonitoringOperation(Mockito.anyListOf(Device.class));
+        MonitoringTaskExecutor executor = new MonitoringTaskExecutor(10, 0, 1);
+        try {
+            // One unit keeps the worker busy and two fill the queue, so the fourth is run by the task thread.
+            List<Future<MonitoringUnitStatistics>> units = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                units.add(executor.submit(MultitenantConstants.SUPER_TENANT_ID,
+                        MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, DEVICE_TYPE, i, createDevices(i + 1, 1)));
+            }
+            Assert.assertEquals(callerRunThreads.size(), 1, "Task thread does not run the unit of a saturated pool");
+            Assert.assertTrue(units.get(3).isDone(), "Unit of a saturated pool is not run by the task thread");
+
+            release.countDown();
+            for (Future<MonitoringUnitStatistics> unit : units) {
+                Assert.assertTrue(unit.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).isSuccessful(), "Unit is not run");
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test(description = "test that the units submitted after the pool is shut down are run instead of discarded")
+    public void testSubmitAfterShutdown() throws Exception {
+        Mockito.reset(monitoringManager);
+        MonitoringTaskExecutor executor = new MonitoringTaskExecutor(10, 0, 2);
+        executor.shutdown();
+        Future<MonitoringUnitStatistics> unit = executor.submit(MultitenantConstants.SUPER_TENANT_ID,
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, DEVICE_TYPE, 0, createDevices(1, 2));
+
+        Assert.assertTrue(unit.isDone(), "Unit submitted after shutdown is not run");
+        Assert.assertTrue(unit.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).isSuccessful(), "Unit is not successful");
+        Mockito.verify(monitoringManager).addMonitoringOperation(Mockito.anyListOf(Device.class));
+    }
+
+    @Test(description = "test that a failing unit is recorded as unsuccessful")
+    public void testFailedUnit() throws Exception {
+        Mockito.reset(monitoringManager);
+        Mockito.doThrow(new PolicyComplianceException("Unable to add monitoring operations"))
+                .when(monitoringManager).addMonitoringOperation(Mockito.anyListOf(Device.class));
+        MonitoringTaskExecutor executor = new MonitoringTaskExecutor(10, 0, 0);
+        MonitoringUnitStatistics statistics = executor.submit(MultitenantConstants.SUPER_TENANT_ID,
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, DEVICE_TYPE, 0, createDevices(1, 1)).get();
+
+        Assert.assertFalse(statistics.isSuccessful(), "Failed unit is recorded as successful");
+    }
+
+    @Test(description = "test that the statistics of the last run are kept")
+    public void testRecordRound() {
+        MonitoringTaskExecutor executor = new MonitoringTaskExecutor(10, 1, 0);
+        MonitoringUnitStatistics fastUnit = new MonitoringUnitStatistics(MultitenantConstants.SUPER_TENANT_ID,
+                DEVICE_TYPE, 0, 10, 10, 1, true);
+        MonitoringUnitStatistics slowUnit = new MonitoringUnitStatistics(MultitenantConstants.SUPER_TENANT_ID,
+                DEVICE_TYPE, 10, 20, 10, 5, false);
+        List<MonitoringUnitStatistics> statistics = new ArrayList<>(Arrays.asList(fastUnit, slowUnit));
+        executor.recordRound(statistics, 6);
+        statistics.clear();
+
+        Assert.assertEquals(executor.getLastRoundStatistics(), Arrays.asList(fastUnit, slowUnit),
+                "Statistics of the last run are not kept");
+        Assert.assertEquals(executor.getLastRoundDurationMillis(), 6, "Duration of the last run is not kept");
+    }
+
+    private static List<Device> createDevices(int fromEnrolmentId, int count) {
+        List<Device> devices = new ArrayList<>();
+        for (int i = fromEnrolmentId; i < fromEnrolmentId + count; i++) {
+            Device device = new Device();
+            device.setDeviceIdentifier("device-" + i);
+            device.setType(DEVICE_TYPE);
+            EnrolmentInfo enrolmentInfo = new EnrolmentInfo();
+            enrolmentInfo.setId(i);
+            device.setEnrolmentInfo(enrolmentInfo);
+            devices.add(device);
+        }
+        return devices;
+    }
+
+}
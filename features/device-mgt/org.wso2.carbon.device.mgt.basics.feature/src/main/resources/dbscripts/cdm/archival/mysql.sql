@@ -67,3 +67,20 @@ CREATE TABLE IF NOT EXISTS DM_PROFILE_OPERATION_ARCH (
     ARCHIVED_AT TIMESTAMP DEFAULT NOW(),
     PRIMARY KEY (OPERATION_ID)
 )ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS DM_POLICY_OPERATION_ARCH (
+    OPERATION_ID INTEGER NOT NULL,
+    ENABLED INTEGER NOT NULL DEFAULT 0,
+    OPERATION_DETAILS BLOB DEFAULT NULL,
+    ARCHIVED_AT TIMESTAMP DEFAULT NOW(),
+    PRIMARY KEY (OPERATION_ID)
+)ENGINE = InnoDB;
+
+-- PROGRESS OF THE DATA ARCHIVAL JOB, USED TO RESUME AN INTERRUPTED RUN
+CREATE TABLE IF NOT EXISTS DM_ARCHIVAL_CHECKPOINT (
+    ID INTEGER NOT NULL,
+    LAST_OPERATION_ID INTEGER NOT NULL,
+    COMPLETED BOOLEAN NOT NULL DEFAULT FALSE,
+    UPDATED_TIMESTAMP TIMESTAMP NULL,
+    PRIMARY KEY (ID)
+)ENGINE = InnoDB;
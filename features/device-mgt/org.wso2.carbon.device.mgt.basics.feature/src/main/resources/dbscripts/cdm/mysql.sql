@@ -162,6 +162,7 @@ CREATE INDEX IDX_ENROLMENT_OP_MAPPING ON DM_ENROLMENT_OP_MAPPING (UPDATED_TIMEST
 CREATE INDEX IDX_EN_OP_MAPPING_EN_ID ON DM_ENROLMENT_OP_MAPPING(ENROLMENT_ID);
 CREATE INDEX IDX_EN_OP_MAPPING_OP_ID ON DM_ENROLMENT_OP_MAPPING(OPERATION_ID);
 CREATE INDEX IDX_EN_OP_MAPPING_EN_ID_STATUS ON DM_ENROLMENT_OP_MAPPING(ENROLMENT_ID, STATUS);
+CREATE INDEX IDX_EN_OP_MAPPING_STATUS_CREATED ON DM_ENROLMENT_OP_MAPPING(STATUS, CREATED_TIMESTAMP);
 
 
 CREATE TABLE IF NOT EXISTS DM_DEVICE_OPERATION_RESPONSE  (
@@ -619,10 +620,3 @@ DM_DEVICE.ID = DM_DEVICE_DETAIL.DEVICE_ID
 ORDER BY TENANT_ID, DEVICE_ID;
 
 -- END OF DASHBOARD RELATED VIEWS --
-
--- TEMP TABLE REQUIRED FOR DATA ARCHIVAL JOB
-CREATE TABLE IF NOT EXISTS DM_ARCHIVED_OPERATIONS (
-    ID INTEGER NOT NULL,
-    CREATED_TIMESTAMP TIMESTAMP NOT NULL,
-    PRIMARY KEY (ID)
-)ENGINE = InnoDB;
\ No newline at end of file
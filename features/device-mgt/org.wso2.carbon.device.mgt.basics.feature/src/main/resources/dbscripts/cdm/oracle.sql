@@ -254,6 +254,8 @@ WHEN (NEW.ID IS NULL)
     SELECT DM_ENROLMENT_OP_MAP_seq.NEXTVAL INTO :NEW.ID FROM DUAL;
   END;
 /
+CREATE INDEX IDX_EN_OP_MAP_STATUS_CREATED ON DM_ENROLMENT_OP_MAPPING(STATUS, CREATED_TIMESTAMP)
+/
 
 CREATE TABLE DM_DEVICE_OPERATION_RESPONSE (
   ID NUMBER(10) NOT NULL,
@@ -138,6 +138,7 @@ CREATE TABLE IF NOT EXISTS  DM_ENROLMENT_OP_MAPPING (
 CREATE INDEX IDX_ENROLMENT_OP_MAPPING ON DM_ENROLMENT_OP_MAPPING (UPDATED_TIMESTAMP);
 CREATE INDEX IDX_EN_OP_MAPPING_EN_ID ON DM_ENROLMENT_OP_MAPPING(ENROLMENT_ID);
 CREATE INDEX IDX_EN_OP_MAPPING_OP_ID ON DM_ENROLMENT_OP_MAPPING(OPERATION_ID);
+CREATE INDEX IDX_EN_OP_MAPPING_STATUS_CREATED ON DM_ENROLMENT_OP_MAPPING(STATUS, CREATED_TIMESTAMP);
 
 CREATE TABLE IF NOT EXISTS  DM_DEVICE_OPERATION_RESPONSE (
   ID BIGSERIAL NOT NULL PRIMARY KEY,
@@ -458,6 +459,7 @@ CREATE TABLE IF NOT EXISTS DM_DEVICE_LOCATION (
 );
 
 CREATE INDEX DM_DEVICE_LOCATION_GEO_hashx ON DM_DEVICE_LOCATION(GEO_HASH ASC);
+CREATE INDEX IDX_DM_DEVICE_LOCATION_GEO_HASH_PATTERN ON DM_DEVICE_LOCATION(GEO_HASH varchar_pattern_ops);
 
 CREATE TABLE IF NOT EXISTS DM_DEVICE_DETAIL (
   ID BIGSERIAL NOT NULL PRIMARY KEY,